@@ -0,0 +1,101 @@
+package com.metricstream.omg.benchmark;
+
+import com.metricstream.omg.event.Disconnected;
+import com.metricstream.omg.event.PullConsumer;
+import com.metricstream.omg.event.PushConsumer;
+import com.metricstream.omg.event.PushSupplier;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Consumers and suppliers shared by the benchmarks.
+ */
+final class Consumers {
+    
+    /**
+     * How long a benchmark waits for its events before it gives up, so a lost event fails
+     * the run instead of hanging it.
+     */
+    private static final long DELIVERY_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    
+    private Consumers() {
+        // Static helpers only
+    }
+    
+    /**
+     * Creates a push consumer that counts the events it receives.
+     * 
+     * @param delivered The counter, which may be shared by many consumers
+     * @return The consumer
+     */
+    static PushConsumer counting(final LongAdder delivered) {
+        return new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                delivered.increment();
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        };
+    }
+    
+    /**
+     * Creates a push supplier that does nothing when disconnected.
+     * 
+     * @return The supplier
+     */
+    static PushSupplier pushSupplier() {
+        return new PushSupplier() {
+            @Override
+            public void disconnect_push_supplier() {
+                // Nothing to clean up
+            }
+        };
+    }
+    
+    /**
+     * Creates a pull consumer that does nothing when disconnected.
+     * 
+     * @return The consumer
+     */
+    static PullConsumer pullConsumer() {
+        return new PullConsumer() {
+            @Override
+            public void disconnect_pull_consumer() {
+                // Nothing to clean up
+            }
+        };
+    }
+    
+    /**
+     * Spins until a counter reaches the expected value.
+     * 
+     * @param delivered The counter
+     * @param expected The expected value
+     * @throws IllegalStateException If the events do not arrive within the delivery timeout
+     */
+    static void await(LongAdder delivered, long expected) {
+        long start = System.nanoTime();
+        while (delivered.sum() < expected) {
+            checkTimeout(start, expected + " deliveries, counted " + delivered.sum());
+            Thread.yield();
+        }
+    }
+    
+    /**
+     * Fails the benchmark if the events could not be delivered within the delivery timeout.
+     * 
+     * @param start The {@link System#nanoTime()} the wait started at
+     * @param what What is being waited for
+     * @throws IllegalStateException If the delivery timeout has elapsed
+     */
+    static void checkTimeout(long start, String what) {
+        if (System.nanoTime() - start > DELIVERY_TIMEOUT_NANOS) {
+            throw new IllegalStateException("Timed out waiting for " + what);
+        }
+    }
+}
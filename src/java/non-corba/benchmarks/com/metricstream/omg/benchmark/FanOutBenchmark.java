@@ -0,0 +1,79 @@
+package com.metricstream.omg.benchmark;
+
+import com.metricstream.omg.eventchannel.DispatcherMode;
+import com.metricstream.omg.eventchannel.EventChannel;
+import com.metricstream.omg.eventchannel.EventChannelConfig;
+import com.metricstream.omg.eventchannel.EventChannelFactory;
+import com.metricstream.omg.eventchannel.ProxyPushConsumer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fan-out rate to 1, 10, 100 and 1000 push consumers. Each invocation pushes a burst of events
+ * and waits until every consumer has received all of them, so the score is the number of events
+ * per second the channel delivers to all its consumers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FanOutBenchmark {
+    
+    static final int BURST = 1024;
+    
+    @Param({"1", "10", "100", "1000"})
+    public int consumers;
+    
+    @Param({"QUEUE", "RING_BUFFER"})
+    public DispatcherMode dispatcherMode;
+    
+    private EventChannel channel;
+    private ProxyPushConsumer proxy;
+    private final LongAdder delivered = new LongAdder();
+    private long expected;
+    
+    @Setup(Level.Trial)
+    public void create() throws Exception {
+        channel = EventChannelFactory.getInstance().createEventChannel(new EventChannelConfig()
+                .setDispatcherMode(dispatcherMode)
+                .setRingBufferSize(4 * BURST));
+        for (int i = 0; i < consumers; i++) {
+            channel.for_consumers().obtain_push_supplier().connect_push_consumer(Consumers.counting(delivered));
+        }
+        proxy = channel.for_suppliers().obtain_push_consumer();
+        proxy.connect_push_supplier(Consumers.pushSupplier());
+    }
+    
+    @TearDown(Level.Trial)
+    public void destroy() {
+        channel.destroy();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void fanOut() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            proxy.push(Boolean.TRUE);
+        }
+        expected += (long) BURST * consumers;
+        Consumers.await(delivered, expected);
+    }
+}
@@ -0,0 +1,90 @@
+package com.metricstream.omg.benchmark;
+
+import com.metricstream.omg.event.Disconnected;
+import com.metricstream.omg.event.PushConsumer;
+import com.metricstream.omg.eventchannel.DispatcherMode;
+import com.metricstream.omg.eventchannel.EventChannel;
+import com.metricstream.omg.eventchannel.EventChannelConfig;
+import com.metricstream.omg.eventchannel.EventChannelFactory;
+import com.metricstream.omg.eventchannel.ProxyPushConsumer;
+import com.metricstream.omg.eventchannel.WaitStrategy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end latency from a push until the last of the channel's push consumers has received
+ * the event. Each invocation pushes one event into an otherwise idle channel and spins until it
+ * arrives; JMH reports the percentiles of the sampled invocation times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LatencyBenchmark {
+    
+    @Param({"1", "10"})
+    public int consumers;
+    
+    @Param({"QUEUE", "RING_BUFFER"})
+    public DispatcherMode dispatcherMode;
+    
+    private EventChannel channel;
+    private ProxyPushConsumer proxy;
+    private final AtomicLong received = new AtomicLong();
+    private long sent;
+    
+    @Setup(Level.Trial)
+    public void create() throws Exception {
+        channel = EventChannelFactory.getInstance().createEventChannel(new EventChannelConfig()
+                .setDispatcherMode(dispatcherMode)
+                .setWaitStrategy(WaitStrategy.YIELD));
+        for (int i = 0; i < consumers; i++) {
+            channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+                @Override
+                public void push(Object data) throws Disconnected {
+                    received.incrementAndGet();
+                }
+                
+                @Override
+                public void disconnect_push_consumer() {
+                    // Nothing to clean up
+                }
+            });
+        }
+        proxy = channel.for_suppliers().obtain_push_consumer();
+        proxy.connect_push_supplier(Consumers.pushSupplier());
+    }
+    
+    @TearDown(Level.Trial)
+    public void destroy() {
+        channel.destroy();
+    }
+    
+    @Benchmark
+    public void pushToDeliver() throws Exception {
+        proxy.push(Boolean.TRUE);
+        sent += consumers;
+        long start = System.nanoTime();
+        while (received.get() < sent) {
+            Consumers.checkTimeout(start, "event delivery");
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.metricstream.omg.benchmark;
+
+import com.metricstream.omg.event.BooleanHolder;
+import com.metricstream.omg.eventchannel.EventChannel;
+import com.metricstream.omg.eventchannel.EventChannelConfig;
+import com.metricstream.omg.eventchannel.EventChannelFactory;
+import com.metricstream.omg.eventchannel.ProxyPullSupplier;
+import com.metricstream.omg.eventchannel.ProxyPushConsumer;
+import com.metricstream.omg.eventchannel.PullStorage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Drain rate of pull consumers. Each invocation pushes a burst of events and then drains
+ * every proxy pull supplier with {@code try_pull_n} until it has pulled the whole burst,
+ * so the score is the number of events per second that pass through the pull model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PullDrainBenchmark {
+    
+    static final int BURST = 1024;
+    private static final int PULL_BATCH = 256;
+    
+    @Param({"1", "8"})
+    public int consumers;
+    
+    @Param({"PER_CONSUMER_QUEUE", "SHARED_LOG"})
+    public PullStorage pullStorage;
+    
+    private EventChannel channel;
+    private ProxyPushConsumer proxy;
+    private ProxyPullSupplier[] pullSuppliers;
+    private final BooleanHolder hasEvent = new BooleanHolder();
+    
+    @Setup(Level.Trial)
+    public void create() throws Exception {
+        channel = EventChannelFactory.getInstance().createEventChannel(new EventChannelConfig()
+                .setPullStorage(pullStorage)
+                .setProxyQueueCapacity(4 * BURST));
+        pullSuppliers = new ProxyPullSupplier[consumers];
+        for (int i = 0; i < consumers; i++) {
+            pullSuppliers[i] = channel.for_consumers().obtain_pull_supplier();
+            pullSuppliers[i].connect_pull_consumer(Consumers.pullConsumer());
+        }
+        proxy = channel.for_suppliers().obtain_push_consumer();
+        proxy.connect_push_supplier(Consumers.pushSupplier());
+    }
+    
+    @TearDown(Level.Trial)
+    public void destroy() {
+        channel.destroy();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public int drain() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            proxy.push(Boolean.TRUE);
+        }
+        
+        int pulled = 0;
+        long start = System.nanoTime();
+        for (ProxyPullSupplier supplier : pullSuppliers) {
+            int remaining = BURST;
+            while (remaining > 0) {
+                int count = supplier.try_pull_n(Math.min(remaining, PULL_BATCH), hasEvent).size();
+                if (count == 0) {
+                    // The dispatcher has not stored the rest of the burst yet
+                    Consumers.checkTimeout(start, "the pull consumers' events");
+                    Thread.yield();
+                }
+                remaining -= count;
+                pulled += count;
+            }
+        }
+        return pulled;
+    }
+}
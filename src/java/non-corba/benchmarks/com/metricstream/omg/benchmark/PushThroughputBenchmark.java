@@ -0,0 +1,140 @@
+package com.metricstream.omg.benchmark;
+
+import com.metricstream.omg.event.Disconnected;
+import com.metricstream.omg.eventchannel.DispatcherMode;
+import com.metricstream.omg.eventchannel.EventChannel;
+import com.metricstream.omg.eventchannel.EventChannelConfig;
+import com.metricstream.omg.eventchannel.EventChannelFactory;
+import com.metricstream.omg.eventchannel.OverflowPolicy;
+import com.metricstream.omg.eventchannel.ProxyPushConsumer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Push throughput with 1, 4 and 16 concurrent suppliers, each pushing through its own proxy
+ * push consumer into one channel with a single push consumer. The channel queue and the
+ * consumer's delivery lane are both bounded and block when full, so once they have filled up
+ * the suppliers push no faster than the consumer receives events. Up to a queue and a lane
+ * of events may still be buffered when an iteration ends, so the {@code delivered} counter
+ * reports the rate the consumer actually received events next to the push rate. The events
+ * carry no partition key, so a partitioned channel spreads them over one partition per processor.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PushThroughputBenchmark {
+    
+    private static final int QUEUE_CAPACITY = 64 * 1024;
+    
+    /**
+     * The channel shared by all supplier threads of a run.
+     */
+    @State(Scope.Benchmark)
+    public static class Channel {
+        
+        @Param({"QUEUE", "RING_BUFFER", "PARTITIONED"})
+        public DispatcherMode dispatcherMode;
+        
+        EventChannel channel;
+        final LongAdder delivered = new LongAdder();
+        final AtomicBoolean reported = new AtomicBoolean();
+        
+        @Setup(Level.Trial)
+        public void create() throws Exception {
+            channel = EventChannelFactory.getInstance().createEventChannel(new EventChannelConfig()
+                    .setDispatcherMode(dispatcherMode)
+                    .setRingBufferSize(QUEUE_CAPACITY)
+                    .setChannelQueueCapacity(QUEUE_CAPACITY)
+                    .setChannelOverflowPolicy(OverflowPolicy.BLOCK)
+                    .setProxyQueueCapacity(QUEUE_CAPACITY)
+                    .setProxyOverflowPolicy(OverflowPolicy.BLOCK));
+            channel.for_consumers().obtain_push_supplier().connect_push_consumer(Consumers.counting(delivered));
+        }
+        
+        @TearDown(Level.Trial)
+        public void destroy() {
+            channel.destroy();
+        }
+    }
+    
+    /**
+     * The proxy push consumer of one supplier thread.
+     */
+    @State(Scope.Thread)
+    public static class Supplier {
+        
+        ProxyPushConsumer proxy;
+        
+        @Setup(Level.Trial)
+        public void connect(Channel channel) throws Exception {
+            proxy = channel.channel.for_suppliers().obtain_push_consumer();
+            proxy.connect_push_supplier(Consumers.pushSupplier());
+        }
+    }
+    
+    /**
+     * The events the consumer received during an iteration, reported as a rate. The count is
+     * shared by all supplier threads, so only the thread that set up first reports it.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Delivered {
+        
+        private Channel channel;
+        private boolean reporting;
+        private long start;
+        
+        @Setup(Level.Trial)
+        public void claim(Channel channel) {
+            this.channel = channel;
+            reporting = channel.reported.compareAndSet(false, true);
+        }
+        
+        @Setup(Level.Iteration)
+        public void start() {
+            start = channel.delivered.sum();
+        }
+        
+        public long delivered() {
+            return reporting ? channel.delivered.sum() - start : 0;
+        }
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public void suppliers1(Supplier supplier, Delivered delivered) throws Disconnected {
+        supplier.proxy.push(Boolean.TRUE);
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public void suppliers4(Supplier supplier, Delivered delivered) throws Disconnected {
+        supplier.proxy.push(Boolean.TRUE);
+    }
+    
+    @Benchmark
+    @Threads(16)
+    public void suppliers16(Supplier supplier, Delivered delivered) throws Disconnected {
+        supplier.proxy.push(Boolean.TRUE);
+    }
+}
@@ -0,0 +1,21 @@
+package com.metricstream.omg.event;
+
+/**
+ * Push consumer that acknowledges events explicitly, for example once it has processed them
+ * asynchronously. On a channel with at-least-once delivery each event comes with a delivery id,
+ * and the event is redelivered unless the consumer passes that id to the proxy's
+ * {@code acknowledge} method before the acknowledgement timeout. On any other channel the
+ * consumer receives its events through {@link #push(Object)}.
+ */
+public interface AcknowledgingPushConsumer extends PushConsumer {
+    
+    /**
+     * Receives an event that has to be acknowledged.
+     * Throwing an exception asks for the event to be redelivered after a backoff.
+     * 
+     * @param delivery_id The id to acknowledge the event with, unique for this consumer
+     * @param data The event data
+     * @throws Disconnected If the consumer is disconnected
+     */
+    void push_with_ack(long delivery_id, Object data) throws Disconnected;
+}
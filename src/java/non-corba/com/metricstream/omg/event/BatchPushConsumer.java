@@ -0,0 +1,19 @@
+package com.metricstream.omg.event;
+
+import java.util.List;
+
+/**
+ * Optional extension of {@link PushConsumer} for consumers that can receive several events per call.
+ * When a supplier pushes a batch, the event channel hands it to a batch push consumer
+ * in a single call instead of invoking {@link #push(Object)} once per event.
+ */
+public interface BatchPushConsumer extends PushConsumer {
+    
+    /**
+     * Receives a batch of events pushed by a supplier, in push order.
+     * 
+     * @param events The event data; the list is read-only
+     * @throws Disconnected If the consumer is disconnected
+     */
+    void push_batch(List<Object> events) throws Disconnected;
+}
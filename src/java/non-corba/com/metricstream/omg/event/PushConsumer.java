@@ -8,6 +8,12 @@ public interface PushConsumer {
     
     /**
      * Receives an event pushed by a supplier.
+     * Each consumer receives its events one call at a time, in push order.
+     * A consumer that blocks here, for example on I/O, holds up only its own
+     * deliveries, but occupies an executor thread while blocked; channels serving
+     * many such consumers should use virtual threads (see
+     * {@code EventChannelConfig.setExecutionMode}). Consumers of a ring buffer
+     * channel should never block, since they run on the dispatcher thread.
      * 
      * @param data The event data
      * @throws Disconnected If the consumer is disconnected
@@ -0,0 +1,20 @@
+package com.metricstream.omg.event;
+
+/**
+ * Optional extension of {@link PushConsumer} for consumers that track their position in the channel.
+ * The event channel numbers every event it dispatches with a monotonically increasing sequence,
+ * and hands each event to a sequenced push consumer together with its sequence instead of
+ * invoking {@link #push(Object)}. A consumer that records the last sequence it processed can
+ * reconnect from the following one without missing events the channel still retains.
+ */
+public interface SequencedPushConsumer extends PushConsumer {
+    
+    /**
+     * Receives an event pushed by a supplier.
+     * 
+     * @param sequence The sequence number of the event in its channel
+     * @param data The event data
+     * @throws Disconnected If the consumer is disconnected
+     */
+    void push_sequenced(long sequence, Object data) throws Disconnected;
+}
@@ -0,0 +1,15 @@
+package com.metricstream.omg.event;
+
+/**
+ * Interface for a typed pull supplier, which provides events through a strongly typed interface.
+ * This is the non-CORBA equivalent of org.omg.CosTypedEventComm.TypedPullSupplier.
+ */
+public interface TypedPullSupplier extends PullSupplier {
+    
+    /**
+     * Gets the object implementing the typed pull interface.
+     * 
+     * @return The typed object
+     */
+    Object get_typed_supplier();
+}
@@ -0,0 +1,18 @@
+package com.metricstream.omg.event;
+
+/**
+ * Interface for a typed push consumer, which receives events as calls on a strongly typed interface.
+ * This is the non-CORBA equivalent of org.omg.CosTypedEventComm.TypedPushConsumer.
+ */
+public interface TypedPushConsumer extends PushConsumer {
+    
+    /**
+     * Gets the object implementing the typed interface on which events are delivered.
+     * When this consumer is connected to the event channel, the object is the channel's
+     * stub that suppliers call; when connected as a consumer, it is the implementation
+     * the channel calls.
+     * 
+     * @return The typed object
+     */
+    Object get_typed_consumer();
+}
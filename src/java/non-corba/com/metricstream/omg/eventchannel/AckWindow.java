@@ -0,0 +1,206 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.Arrays;
+
+/**
+ * The events a push consumer has been handed but not yet acknowledged, for at-least-once
+ * delivery. Each admitted event gets the consumer's next delivery id, and the window spans
+ * the ids from the oldest unacknowledged event to the next one to assign, so at most
+ * {@code capacity} events are in flight and an acknowledgement is a slot lookup.
+ * Instead of a timer per event, each entry records when it is due for redelivery,
+ * and the proxy collects the due entries when its single redelivery timer fires.
+ */
+final class AckWindow {
+    
+    /**
+     * Due time of an entry that is not waiting for redelivery.
+     */
+    static final long NOT_DUE = Long.MAX_VALUE;
+    
+    private final Object[] entries;
+    private final int[] attempts;
+    private final long[] dueAt;
+    private long oldest = 0;
+    private long next = 0;
+    private int inFlight = 0;
+    
+    /**
+     * Creates a new window.
+     * 
+     * @param capacity The largest number of events in flight
+     */
+    AckWindow(int capacity) {
+        this.entries = new Object[capacity];
+        this.attempts = new int[capacity];
+        this.dueAt = new long[capacity];
+    }
+    
+    /**
+     * Checks whether another event can be admitted.
+     * 
+     * @return true if the window has room
+     */
+    synchronized boolean hasRoom() {
+        return next - oldest < entries.length;
+    }
+    
+    /**
+     * Admits an event into the window.
+     * 
+     * @param entry The event, as queued in the delivery lane
+     * @return The delivery id of the event, or -1 if the window is full
+     */
+    synchronized long admit(Object entry) {
+        if (next - oldest >= entries.length) {
+            return -1;
+        }
+        long id = next++;
+        int slot = slotOf(id);
+        entries[slot] = entry;
+        attempts[slot] = 0;
+        dueAt[slot] = NOT_DUE;
+        inFlight++;
+        return id;
+    }
+    
+    /**
+     * Gets an event in flight.
+     * 
+     * @param id The delivery id
+     * @return The event, or null if it is no longer in flight
+     */
+    synchronized Object get(long id) {
+        return contains(id) ? entries[slotOf(id)] : null;
+    }
+    
+    /**
+     * Records a delivery attempt.
+     * 
+     * @param id The delivery id
+     * @param due When the event is due for redelivery if it is not acknowledged, or {@link #NOT_DUE}
+     * @return The number of attempts so far, or 0 if the event is no longer in flight
+     */
+    synchronized int attempt(long id, long due) {
+        if (!contains(id)) {
+            return 0;
+        }
+        int slot = slotOf(id);
+        dueAt[slot] = due;
+        return ++attempts[slot];
+    }
+    
+    /**
+     * Sets when an event in flight is due for redelivery.
+     * 
+     * @param id The delivery id
+     * @param due The {@link System#nanoTime()} of the redelivery
+     */
+    synchronized void retryAt(long id, long due) {
+        if (contains(id)) {
+            dueAt[slotOf(id)] = due;
+        }
+    }
+    
+    /**
+     * Removes an event from the window, advancing its start past any acknowledged events.
+     * 
+     * @param id The delivery id
+     * @return The event, or null if it was no longer in flight
+     */
+    synchronized Object remove(long id) {
+        if (!contains(id)) {
+            return null;
+        }
+        int slot = slotOf(id);
+        Object entry = entries[slot];
+        entries[slot] = null;
+        inFlight--;
+        while (oldest < next && entries[slotOf(oldest)] == null) {
+            oldest++;
+        }
+        return entry;
+    }
+    
+    /**
+     * Collects the events due for redelivery, marking them as no longer due.
+     * 
+     * @param now The current {@link System#nanoTime()}
+     * @param ids The array to store the delivery ids in, at least as long as the capacity
+     * @return The number of ids stored
+     */
+    synchronized int collectDue(long now, long[] ids) {
+        int count = 0;
+        for (long id = oldest; id < next; id++) {
+            int slot = slotOf(id);
+            if (entries[slot] != null && dueAt[slot] <= now) {
+                dueAt[slot] = NOT_DUE;
+                ids[count++] = id;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Gets the earliest time an event in flight is due for redelivery.
+     * 
+     * @return The {@link System#nanoTime()} of the next redelivery, or {@link #NOT_DUE}
+     */
+    synchronized long nextDue() {
+        long due = NOT_DUE;
+        for (long id = oldest; id < next; id++) {
+            int slot = slotOf(id);
+            if (entries[slot] != null) {
+                due = Math.min(due, dueAt[slot]);
+            }
+        }
+        return due;
+    }
+    
+    /**
+     * Gets the number of events in flight.
+     * 
+     * @return The number of unacknowledged events
+     */
+    synchronized int size() {
+        return inFlight;
+    }
+    
+    /**
+     * Gets the number of delivery ids from the oldest unacknowledged event to the next one
+     * to assign. Every event admitted before that span has been acknowledged.
+     * 
+     * @return The span of the window
+     */
+    synchronized long span() {
+        return next - oldest;
+    }
+    
+    /**
+     * Discards all events in flight. Their delivery ids are not reused.
+     */
+    synchronized void clear() {
+        Arrays.fill(entries, null);
+        oldest = next;
+        inFlight = 0;
+    }
+    
+    /**
+     * Checks whether an event is in flight.
+     * 
+     * @param id The delivery id
+     * @return true if the event has been admitted and not removed
+     */
+    private boolean contains(long id) {
+        return id >= oldest && id < next && entries[slotOf(id)] != null;
+    }
+    
+    /**
+     * Gets the slot holding an event.
+     * 
+     * @param id The delivery id
+     * @return The slot index
+     */
+    private int slotOf(long id) {
+        return (int) (id % entries.length);
+    }
+}
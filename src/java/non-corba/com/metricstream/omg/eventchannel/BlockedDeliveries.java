@@ -0,0 +1,132 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.Arrays;
+
+/**
+ * Events a dispatcher could not hand to consumers whose storage was full and whose overflow
+ * policy holds the dispatcher back. The dispatcher takes no further event from the channel
+ * until every blocked event has been handed over, so each consumer still sees its events in
+ * order, and it never waits for room while holding the dispatch lock. A list is owned by a
+ * single dispatcher and reused, so it does not allocate once its arrays have grown.
+ */
+final class BlockedDeliveries {
+    
+    private Target[] targets = new Target[4];
+    private Object[] entries = new Object[4];
+    private int[] priorities = new int[4];
+    private int head = 0;
+    private int tail = 0;
+    
+    /**
+     * Adds an event a consumer had no room for.
+     * 
+     * @param target The consumer's storage
+     * @param entry The event as the storage holds it
+     * @param priority The priority lane of the event
+     */
+    void add(Target target, Object entry, int priority) {
+        if (tail == targets.length) {
+            grow();
+        }
+        targets[tail] = target;
+        entries[tail] = entry;
+        priorities[tail] = priority;
+        tail++;
+    }
+    
+    /**
+     * Checks whether every blocked event has been handed over.
+     * 
+     * @return true if no event is blocked
+     */
+    boolean isEmpty() {
+        return head == tail;
+    }
+    
+    /**
+     * Checks whether retrying waits for room in the storage of the first blocked event,
+     * rather than the storage rescheduling the dispatcher once it has room.
+     * 
+     * @return true if the dispatcher should retry without waiting for a signal
+     */
+    boolean retryWaits() {
+        return head < tail && targets[head].waitsForRoom();
+    }
+    
+    /**
+     * Tries again to hand over the blocked events, in the order they were added, stopping
+     * at the first one its consumer still has no room for.
+     * 
+     * @return true if every blocked event has been handed over
+     */
+    boolean retry() {
+        while (head < tail) {
+            if (!targets[head].offerBlocked(entries[head], priorities[head])) {
+                return false;
+            }
+            targets[head] = null;
+            entries[head] = null;
+            head++;
+        }
+        head = 0;
+        tail = 0;
+        return true;
+    }
+    
+    /**
+     * Discards the blocked events.
+     */
+    void clear() {
+        Arrays.fill(targets, null);
+        Arrays.fill(entries, null);
+        head = 0;
+        tail = 0;
+    }
+    
+    /**
+     * Makes room for more blocked events, moving the remaining ones to the front
+     * or growing the arrays if they are all in use.
+     */
+    private void grow() {
+        if (head > 0) {
+            int count = tail - head;
+            System.arraycopy(targets, head, targets, 0, count);
+            System.arraycopy(entries, head, entries, 0, count);
+            System.arraycopy(priorities, head, priorities, 0, count);
+            Arrays.fill(targets, count, tail, null);
+            Arrays.fill(entries, count, tail, null);
+            head = 0;
+            tail = count;
+            return;
+        }
+        int length = 2 * targets.length;
+        targets = Arrays.copyOf(targets, length);
+        entries = Arrays.copyOf(entries, length);
+        priorities = Arrays.copyOf(priorities, length);
+    }
+    
+    /**
+     * The storage of a consumer that can hold back the dispatcher: the delivery lane of a
+     * proxy push supplier, the queue of a proxy pull supplier, or an admin's shared log.
+     */
+    interface Target {
+        
+        /**
+         * Tries again to store an event the consumer had no room for. Storage that blocks
+         * its suppliers may wait for room, as the dispatcher no longer holds the dispatch lock.
+         * 
+         * @param entry The event as the storage holds it
+         * @param priority The priority lane of the event
+         * @return true if the event was stored, or is no longer wanted, false if there is still no room
+         */
+        boolean offerBlocked(Object entry, int priority);
+        
+        /**
+         * Checks whether {@link #offerBlocked(Object, int)} waits for room itself, or returns
+         * false and leaves the storage to reschedule the dispatcher once it has room.
+         * 
+         * @return true if the storage waits for room
+         */
+        boolean waitsForRoom();
+    }
+}
@@ -0,0 +1,371 @@
+package com.metricstream.omg.eventchannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event queue with a fixed capacity and an {@link OverflowPolicy} applied when it is full.
+ * Counts every event it discards so that drops can be reported.
+ */
+final class BoundedEventQueue implements EventStore, BlockedDeliveries.Target, DeliveryWatermark.Backlog {
+    
+    private static final long BLOCK_CHECK_MILLIS = 100;
+    
+    private final LinkedBlockingQueue<Object> queue;
+    private final OverflowPolicy policy;
+    private final File spillDirectory;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private SpillFile spillFile;
+    private volatile boolean closed = false;
+    
+    /**
+     * Creates a new bounded event queue.
+     * 
+     * @param capacity The maximum number of events held in memory
+     * @param policy The policy applied when the queue is full
+     * @param spillDirectory The directory for spill files, or null for the default temporary directory
+     */
+    BoundedEventQueue(int capacity, OverflowPolicy policy, File spillDirectory) {
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.policy = policy;
+        this.spillDirectory = spillDirectory;
+    }
+    
+    /**
+     * Adds an event to the queue, applying the overflow policy if it is full.
+     * 
+     * @param data The event data
+     * @return true if the event was queued, false if it was dropped
+     * @throws QueueFull If the queue is full and the policy is {@link OverflowPolicy#REJECT}
+     */
+    boolean offer(Object data) {
+        boolean queued = store(data);
+        if (queued) {
+            acceptedCount.incrementAndGet();
+        }
+        return queued;
+    }
+    
+    /**
+     * Applies the overflow policy to add an event to the queue.
+     */
+    private boolean store(Object data) {
+        switch (policy) {
+            case BLOCK:
+                return offerBlocking(data);
+            case DROP_OLDEST:
+                while (!queue.offer(data)) {
+                    if (queue.poll() != null) {
+                        droppedCount.incrementAndGet();
+                    }
+                }
+                return true;
+            case REJECT:
+                if (!queue.offer(data)) {
+                    droppedCount.incrementAndGet();
+                    throw new QueueFull("Event queue is full (capacity " + capacity() + ")");
+                }
+                return true;
+            case SPILL:
+                return offerSpilling(data);
+            case DROP_NEWEST:
+            default:
+                if (!queue.offer(data)) {
+                    droppedCount.incrementAndGet();
+                    return false;
+                }
+                return true;
+        }
+    }
+    
+    /**
+     * Adds an event to the queue like {@link #offer(Object)}, except that with
+     * {@link OverflowPolicy#BLOCK} a full queue refuses the event instead of waiting.
+     * 
+     * @param data The event data
+     * @return true if the event was queued or dropped, false if the queue is full and would block
+     */
+    boolean offerWithoutBlocking(Object data) {
+        if (policy != OverflowPolicy.BLOCK) {
+            try {
+                offer(data);
+            } catch (QueueFull e) {
+                // Already counted as dropped, there is no supplier to reject
+            }
+            return true;
+        }
+        if (queue.offer(data)) {
+            acceptedCount.incrementAndGet();
+            return true;
+        }
+        return closed;
+    }
+    
+    /**
+     * Adds an event the dispatcher held back, waiting outside the dispatch lock
+     * for space in a full queue with {@link OverflowPolicy#BLOCK}.
+     */
+    @Override
+    public boolean offerBlocked(Object entry, int priority) {
+        if (!offerWithoutBlocking(entry) && offerBlocking(entry)) {
+            acceptedCount.incrementAndGet();
+        }
+        return true;
+    }
+    
+    @Override
+    public boolean waitsForRoom() {
+        return true;
+    }
+    
+    /**
+     * Waits for space in the queue until the event is queued or the queue is closed.
+     */
+    private boolean offerBlocking(Object data) {
+        try {
+            while (!closed) {
+                if (queue.offer(data, BLOCK_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        droppedCount.incrementAndGet();
+        return false;
+    }
+    
+    /**
+     * Queues the event in memory, or appends it to the spill file if the queue is full
+     * or earlier events are still spilled.
+     */
+    private synchronized boolean offerSpilling(Object data) {
+        if ((spillFile == null || spillFile.size() == 0) && queue.offer(data)) {
+            return true;
+        }
+        
+        try {
+            if (spillFile == null) {
+                spillFile = new SpillFile(spillDirectory);
+            }
+            spillFile.append(data);
+            return true;
+        } catch (IOException e) {
+            droppedCount.incrementAndGet();
+            System.err.println("Error spilling event to disk: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Moves spilled events back into memory while there is room.
+     */
+    private void refill() {
+        if (policy != OverflowPolicy.SPILL) {
+            return;
+        }
+        
+        synchronized (this) {
+            if (spillFile == null) {
+                return;
+            }
+            
+            while (spillFile.size() > 0 && queue.remainingCapacity() > 0) {
+                try {
+                    Object data = spillFile.poll();
+                    if (data != null) {
+                        queue.offer(data);
+                    }
+                } catch (IOException e) {
+                    droppedCount.incrementAndGet();
+                    System.err.println("Error reading spilled event: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Removes the oldest event without waiting.
+     * 
+     * @return The event data, or null if the queue is empty
+     */
+    @Override
+    public Object poll() {
+        Object data = queue.poll();
+        refill();
+        if (data == null) {
+            data = queue.poll();
+        }
+        return data;
+    }
+    
+    /**
+     * Removes the oldest event, waiting up to the specified time for one to arrive.
+     * 
+     * @param timeout The maximum time to wait
+     * @param unit The unit of the timeout
+     * @return The event data, or null if the timeout elapsed or the queue was closed
+     * @throws InterruptedException If interrupted while waiting
+     */
+    @Override
+    public Object poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Object data = poll();
+        // Wait in slices so that closing the queue releases the consumer
+        while (data == null && !closed) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            data = queue.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(BLOCK_CHECK_MILLIS)), TimeUnit.NANOSECONDS);
+            refill();
+        }
+        return data;
+    }
+    
+    /**
+     * Removes the oldest event, waiting until one arrives.
+     * 
+     * @return The event data, or null if the queue was closed while waiting
+     * @throws InterruptedException If interrupted while waiting
+     */
+    @Override
+    public Object take() throws InterruptedException {
+        Object data = poll();
+        while (data == null && !closed) {
+            data = queue.poll(BLOCK_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+            refill();
+        }
+        return data;
+    }
+    
+    /**
+     * Removes up to the specified number of events without waiting.
+     * 
+     * @param target The collection receiving the events, in queue order
+     * @param max The maximum number of events to remove
+     * @return The number of events removed
+     */
+    @Override
+    public int drainTo(Collection<Object> target, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int count = queue.drainTo(target, max - drained);
+            refill();
+            if (count == 0) {
+                break;
+            }
+            drained += count;
+        }
+        return drained;
+    }
+    
+    /**
+     * Removes the expired events at the head of the queue, stopping at the first one that has
+     * not expired. Expired events further back, and spilled ones, are discarded when taken.
+     * 
+     * @param now The current time in milliseconds since the epoch
+     * @return The number of events removed
+     */
+    int removeExpired(long now) {
+        int removed = 0;
+        Object head;
+        while (ExpiringEvent.isExpired(head = queue.peek(), now)) {
+            // Fails only if a consumer took the event in the meantime
+            if (queue.remove(head)) {
+                removed += ExpiringEvent.countOf(head);
+            }
+        }
+        return removed;
+    }
+    
+    /**
+     * Gets the number of queued events, including spilled ones.
+     * 
+     * @return The number of events
+     */
+    @Override
+    public int size() {
+        if (policy == OverflowPolicy.SPILL) {
+            // Counted together, since refilling moves events from the spill file to memory
+            synchronized (this) {
+                return queue.size() + (spillFile != null ? spillFile.size() : 0);
+            }
+        }
+        return queue.size();
+    }
+    
+    @Override
+    public long acceptedCount() {
+        return acceptedCount.get();
+    }
+    
+    /**
+     * Gets the number of accepted events that have been taken or discarded. An event is
+     * counted as accepted after it is queued, so the difference never counts a queued event.
+     */
+    @Override
+    public long receivedCount() {
+        long count = acceptedCount.get();
+        return count - size();
+    }
+    
+    /**
+     * Gets the maximum number of events held in memory.
+     * 
+     * @return The capacity
+     */
+    int capacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+    
+    /**
+     * Gets the number of events discarded because the queue was full.
+     * 
+     * @return The drop count
+     */
+    @Override
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+    
+    /**
+     * Discards all queued and spilled events.
+     */
+    @Override
+    public void clear() {
+        queue.clear();
+        if (policy == OverflowPolicy.SPILL) {
+            synchronized (this) {
+                if (spillFile != null) {
+                    try {
+                        spillFile.clear();
+                    } catch (IOException e) {
+                        System.err.println("Error clearing spill file: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Closes the queue, releasing blocked producers and consumers and deleting any spill file.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (policy == OverflowPolicy.SPILL) {
+            synchronized (this) {
+                if (spillFile != null) {
+                    spillFile.close();
+                    spillFile = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Describes what a proxy push supplier does once its consumer has failed or overrun
+ * the delivery budget too many times in a row and the circuit breaker opens.
+ */
+public enum BreakerAction {
+    
+    /**
+     * Delivery is suspended and events are held for the consumer. After the cooldown
+     * one trial delivery is made; success resumes normal delivery.
+     */
+    PARK,
+    
+    /**
+     * Events for the consumer are discarded and counted while the breaker is open.
+     * After the cooldown one trial delivery is made; success resumes normal delivery.
+     */
+    SHED,
+    
+    /**
+     * The consumer is disconnected.
+     */
+    DISCONNECT
+}
@@ -0,0 +1,134 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor that runs one channel's tasks on an underlying, possibly shared, executor
+ * while limiting how many of them run at the same time.
+ * Tasks beyond the limit wait in a FIFO queue and are submitted as running tasks finish,
+ * so a busy channel cannot monopolize a pool shared with other channels.
+ */
+final class CappedExecutor implements Executor {
+    
+    private static final long QUIESCENCE_CHECK_MILLIS = 10;
+    
+    private final Executor delegate;
+    private final int maxConcurrency;
+    private final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean shutdown = false;
+    
+    /**
+     * Creates a new capped executor.
+     * 
+     * @param delegate The executor that runs the tasks
+     * @param maxConcurrency The maximum number of tasks running at once
+     */
+    CappedExecutor(Executor delegate, int maxConcurrency) {
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+    }
+    
+    /**
+     * Queues a task and submits it to the underlying executor when a slot is free.
+     * 
+     * @param task The task to run
+     * @throws RejectedExecutionException If this executor has been shut down
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Channel executor has been shut down");
+        }
+        pending.offer(task);
+        submitPending();
+    }
+    
+    /**
+     * Submits queued tasks while fewer than the maximum are running.
+     */
+    private void submitPending() {
+        while (!pending.isEmpty()) {
+            int running = active.get();
+            if (running >= maxConcurrency) {
+                return;
+            }
+            if (!active.compareAndSet(running, running + 1)) {
+                continue;
+            }
+            
+            final Runnable task = pending.poll();
+            if (task == null) {
+                active.decrementAndGet();
+                continue;
+            }
+            
+            try {
+                delegate.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            task.run();
+                        } finally {
+                            active.decrementAndGet();
+                            submitPending();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The underlying executor is shutting down
+                active.decrementAndGet();
+                pending.clear();
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Gets the number of tasks currently running.
+     * 
+     * @return The active task count
+     */
+    int getActiveCount() {
+        return active.get();
+    }
+    
+    /**
+     * Gets the number of tasks waiting for a free slot.
+     * 
+     * @return The pending task count
+     */
+    int getPendingCount() {
+        return pending.size();
+    }
+    
+    /**
+     * Stops accepting new tasks. Queued and running tasks still complete.
+     */
+    void shutdown() {
+        shutdown = true;
+    }
+    
+    /**
+     * Waits until no tasks are queued or running.
+     * 
+     * @param timeout The maximum time to wait
+     * @param unit The unit of the timeout
+     * @return true if the executor became idle, false if the timeout elapsed
+     * @throws InterruptedException If interrupted while waiting
+     */
+    boolean awaitQuiescence(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (active.get() > 0 || !pending.isEmpty()) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            Thread.sleep(QUIESCENCE_CHECK_MILLIS);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,102 @@
+package com.metricstream.omg.eventchannel;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executors used by event channels for each {@link ExecutionMode}.
+ * Virtual threads are looked up reflectively so the code still builds for older Java targets.
+ */
+final class ChannelExecutors {
+    
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutorFactory();
+    private static final Method START_VIRTUAL_THREAD = findVirtualThreadStarter();
+    
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ChannelExecutors() {
+    }
+    
+    /**
+     * Checks whether the running JVM supports virtual threads.
+     * 
+     * @return true if {@link ExecutionMode#VIRTUAL_THREADS} is available
+     */
+    static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+    
+    /**
+     * Creates a new executor for the specified mode.
+     * 
+     * @param mode The execution mode
+     * @return A new executor service
+     */
+    static ExecutorService newExecutor(ExecutionMode mode) {
+        if (mode == ExecutionMode.VIRTUAL_THREADS) {
+            if (NEW_VIRTUAL_THREAD_EXECUTOR != null) {
+                try {
+                    return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+                } catch (Exception e) {
+                    System.err.println("Error creating virtual thread executor: " + e.getMessage());
+                }
+            } else {
+                System.err.println("Virtual threads are not supported by this JVM, using platform threads");
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+    
+    /**
+     * Starts a thread of its own for a task that blocks for as long as it runs, so that it never
+     * occupies a thread of a channel's executor. The thread is virtual where the JVM supports it,
+     * and a daemon platform thread otherwise.
+     * 
+     * @param task The task
+     * @param name The name of the thread
+     * @return The started thread
+     */
+    static Thread startDedicatedThread(Runnable task, String name) {
+        if (START_VIRTUAL_THREAD != null) {
+            try {
+                Thread thread = (Thread) START_VIRTUAL_THREAD.invoke(null, task);
+                thread.setName(name);
+                return thread;
+            } catch (Exception e) {
+                System.err.println("Error starting virtual thread: " + e.getMessage());
+            }
+        }
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+    
+    /**
+     * Looks up {@code Thread.startVirtualThread(Runnable)}.
+     * 
+     * @return The factory method, or null if the JVM does not provide it
+     */
+    private static Method findVirtualThreadStarter() {
+        try {
+            return Thread.class.getMethod("startVirtualThread", Runnable.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()}.
+     * 
+     * @return The factory method, or null if the JVM does not provide it
+     */
+    private static Method findVirtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
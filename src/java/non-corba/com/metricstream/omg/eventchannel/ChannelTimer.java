@@ -0,0 +1,36 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Holder for the timer thread shared by all event channels in the JVM.
+ * The timer only triggers delayed work; the work itself runs on channel executors.
+ */
+final class ChannelTimer {
+    
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "arbat-channel-timer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ChannelTimer() {
+    }
+    
+    /**
+     * Gets the shared timer.
+     * 
+     * @return The shared scheduled executor
+     */
+    static ScheduledExecutorService get() {
+        return TIMER;
+    }
+}
@@ -0,0 +1,614 @@
+package com.metricstream.omg.eventchannel;
+
+import com.metricstream.omg.util.Any;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recursive descent parser compiling a {@link Filter} constraint into a tree of nodes.
+ * Field accessors are resolved once per event class and cached in the tree, so evaluating
+ * a compiled constraint does not parse or reflect.
+ */
+final class ConstraintParser {
+    
+    /**
+     * Value of an operand that refers to a field the event does not have.
+     */
+    static final Object MISSING = new Object();
+    
+    private final String text;
+    private int pos = 0;
+    
+    /**
+     * Creates a new parser.
+     * 
+     * @param text The constraint text
+     */
+    ConstraintParser(String text) {
+        this.text = text;
+    }
+    
+    /**
+     * Parses the whole constraint.
+     * 
+     * @return The root node
+     * @throws InvalidConstraint If the constraint cannot be parsed
+     */
+    Node parse() throws InvalidConstraint {
+        skipWhitespace();
+        if (pos == text.length()) {
+            // An empty constraint matches every event
+            return new Literal(Boolean.TRUE);
+        }
+        
+        Node root = parseOr();
+        skipWhitespace();
+        if (pos < text.length()) {
+            throw error("Unexpected input");
+        }
+        return root;
+    }
+    
+    /**
+     * Parses a disjunction, the lowest precedence level.
+     */
+    private Node parseOr() throws InvalidConstraint {
+        Node left = parseAnd();
+        while (acceptKeyword("or")) {
+            left = new Or(left, parseAnd());
+        }
+        return left;
+    }
+    
+    /**
+     * Parses a conjunction.
+     */
+    private Node parseAnd() throws InvalidConstraint {
+        Node left = parseNot();
+        while (acceptKeyword("and")) {
+            left = new And(left, parseNot());
+        }
+        return left;
+    }
+    
+    /**
+     * Parses a negation, an existence test or a comparison.
+     */
+    private Node parseNot() throws InvalidConstraint {
+        if (acceptKeyword("not")) {
+            return new Not(parseNot());
+        }
+        if (acceptKeyword("exist")) {
+            return new Exist(parseOperand());
+        }
+        return parseComparison();
+    }
+    
+    /**
+     * Parses an operand, optionally compared with a second operand.
+     */
+    private Node parseComparison() throws InvalidConstraint {
+        Node left = parseOperand();
+        skipWhitespace();
+        
+        String[] operators = {"==", "!=", "<=", ">=", "<", ">", "~"};
+        for (String operator : operators) {
+            if (text.startsWith(operator, pos)) {
+                pos += operator.length();
+                return new Comparison(operator, left, parseOperand());
+            }
+        }
+        if (acceptKeyword("in")) {
+            return new In(left, parseOperand());
+        }
+        return left;
+    }
+    
+    /**
+     * Parses a literal, a field path or a parenthesized constraint.
+     */
+    private Node parseOperand() throws InvalidConstraint {
+        skipWhitespace();
+        if (pos == text.length()) {
+            throw error("Unexpected end of constraint");
+        }
+        
+        char c = text.charAt(pos);
+        if (c == '(') {
+            pos++;
+            Node inner = parseOr();
+            skipWhitespace();
+            if (pos == text.length() || text.charAt(pos) != ')') {
+                throw error("Expected ')'");
+            }
+            pos++;
+            return inner;
+        }
+        if (c == '$') {
+            pos++;
+            return parsePath();
+        }
+        if (c == '\'') {
+            return parseString();
+        }
+        if (Character.isDigit(c) || c == '-' || c == '+' || c == '.') {
+            return parseNumber();
+        }
+        if (acceptKeyword("TRUE")) {
+            return new Literal(Boolean.TRUE);
+        }
+        if (acceptKeyword("FALSE")) {
+            return new Literal(Boolean.FALSE);
+        }
+        throw error("Unexpected character '" + c + "'");
+    }
+    
+    /**
+     * Parses the field names following {@code $}.
+     */
+    private Node parsePath() throws InvalidConstraint {
+        List<String> names = new ArrayList<>();
+        while (pos < text.length() && text.charAt(pos) == '.') {
+            pos++;
+            int start = pos;
+            while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("Expected field name");
+            }
+            names.add(text.substring(start, pos));
+        }
+        
+        Node node = new Event();
+        for (String name : names) {
+            node = new FieldAccess(node, name);
+        }
+        return node;
+    }
+    
+    /**
+     * Parses a quoted string literal, in which a backslash escapes the next character.
+     */
+    private Node parseString() throws InvalidConstraint {
+        StringBuilder value = new StringBuilder();
+        pos++;
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '\\' && pos < text.length()) {
+                value.append(text.charAt(pos++));
+            } else if (c == '\'') {
+                return new Literal(value.toString());
+            } else {
+                value.append(c);
+            }
+        }
+        throw error("Unterminated string");
+    }
+    
+    /**
+     * Parses an integer or floating point literal.
+     */
+    private Node parseNumber() throws InvalidConstraint {
+        int start = pos;
+        if (text.charAt(pos) == '-' || text.charAt(pos) == '+') {
+            pos++;
+        }
+        boolean integral = true;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E') {
+                integral = false;
+            } else if (!Character.isDigit(c) && !((c == '-' || c == '+') && !integral)) {
+                break;
+            }
+            pos++;
+        }
+        
+        String number = text.substring(start, pos);
+        try {
+            return new Literal(integral ? (Object) Long.valueOf(number) : (Object) Double.valueOf(number));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number '" + number + "'");
+        }
+    }
+    
+    /**
+     * Consumes a keyword if it is next in the input as a whole word.
+     */
+    private boolean acceptKeyword(String keyword) {
+        skipWhitespace();
+        int end = pos + keyword.length();
+        if (text.regionMatches(true, pos, keyword, 0, keyword.length())
+                && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)) && text.charAt(end) != '_')) {
+            pos = end;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Advances past whitespace.
+     */
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+    
+    /**
+     * Creates an exception describing a syntax error at the current position.
+     */
+    private InvalidConstraint error(String message) {
+        return new InvalidConstraint(message + " at position " + pos + " in constraint: " + text);
+    }
+    
+    /**
+     * Unwraps an Any to its value and a character to a string, so that values compare naturally.
+     */
+    static Object normalize(Object value) {
+        while (value instanceof Any) {
+            value = ((Any) value).value();
+        }
+        if (value instanceof Character) {
+            return value.toString();
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return value;
+    }
+    
+    /**
+     * Node of a compiled constraint.
+     */
+    abstract static class Node {
+        
+        /**
+         * Evaluates the node against an event.
+         * 
+         * @param event The event data
+         * @return The value, a Boolean for conditions, or {@link #MISSING}
+         */
+        abstract Object evaluate(Object event);
+    }
+    
+    private static final class Literal extends Node {
+        private final Object value;
+        
+        Literal(Object value) {
+            this.value = value;
+        }
+        
+        @Override
+        Object evaluate(Object event) {
+            return value;
+        }
+    }
+    
+    private static final class Event extends Node {
+        @Override
+        Object evaluate(Object event) {
+            return normalize(event);
+        }
+    }
+    
+    /**
+     * Reads a named field or an indexed element from the value of another node.
+     */
+    private static final class FieldAccess extends Node {
+        private static final MethodHandle NONE = MethodHandles.constant(Object.class, MISSING);
+        
+        private final Node target;
+        private final String name;
+        private final int index;
+        private final ConcurrentHashMap<Class<?>, MethodHandle> accessors = new ConcurrentHashMap<>();
+        
+        FieldAccess(Node target, String name) {
+            this.target = target;
+            this.name = name;
+            this.index = isIndex(name) ? Integer.parseInt(name) : -1;
+        }
+        
+        /**
+         * Checks whether a path segment is a sequence index.
+         */
+        private static boolean isIndex(String name) {
+            for (int i = 0; i < name.length(); i++) {
+                if (!Character.isDigit(name.charAt(i))) {
+                    return false;
+                }
+            }
+            return name.length() < 10;
+        }
+        
+        @Override
+        Object evaluate(Object event) {
+            Object value = target.evaluate(event);
+            if (value == null || value == MISSING) {
+                return MISSING;
+            }
+            
+            if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                Object field = map.get(name);
+                return field != null || map.containsKey(name) ? normalize(field) : MISSING;
+            }
+            if (index >= 0) {
+                if (value instanceof List) {
+                    List<?> list = (List<?>) value;
+                    return index < list.size() ? normalize(list.get(index)) : MISSING;
+                }
+                if (value.getClass().isArray()) {
+                    return index < Array.getLength(value) ? normalize(Array.get(value, index)) : MISSING;
+                }
+            }
+            
+            MethodHandle accessor = accessors.get(value.getClass());
+            if (accessor == null) {
+                accessor = findAccessor(value.getClass());
+                accessors.put(value.getClass(), accessor);
+            }
+            if (accessor == NONE) {
+                return MISSING;
+            }
+            try {
+                return normalize((Object) accessor.invokeExact(value));
+            } catch (Throwable e) {
+                return MISSING;
+            }
+        }
+        
+        /**
+         * Finds a public field or accessor method for the name, adapted to (Object)Object.
+         */
+        private MethodHandle findAccessor(Class<?> type) {
+            MethodType generic = MethodType.methodType(Object.class, Object.class);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            try {
+                if (Modifier.isPublic(type.getModifiers())) {
+                    for (Field field : type.getFields()) {
+                        if (field.getName().equals(name) && !Modifier.isStatic(field.getModifiers())) {
+                            return lookup.unreflectGetter(field).asType(generic);
+                        }
+                    }
+                }
+                
+                String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+                String[] candidates = {"get" + capitalized, "is" + capitalized, name};
+                for (String candidate : candidates) {
+                    Method method = findPublicMethod(type, candidate);
+                    if (method != null) {
+                        return lookup.unreflect(method).asType(generic);
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                // Treat an inaccessible member as missing
+            }
+            return NONE;
+        }
+        
+        /**
+         * Finds a public no-argument method declared by a public class or interface of the type.
+         */
+        private static Method findPublicMethod(Class<?> type, String name) {
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                Method method = publicMethod(c, name);
+                if (method != null) {
+                    return method;
+                }
+                for (Class<?> i : c.getInterfaces()) {
+                    method = publicMethod(i, name);
+                    if (method != null) {
+                        return method;
+                    }
+                }
+            }
+            return null;
+        }
+        
+        /**
+         * Gets a public, non-static, value-returning method of a public type, or null.
+         */
+        private static Method publicMethod(Class<?> type, String name) {
+            if (!Modifier.isPublic(type.getModifiers())) {
+                return null;
+            }
+            try {
+                Method method = type.getMethod(name);
+                if (Modifier.isStatic(method.getModifiers()) || method.getReturnType() == void.class
+                        || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                    return null;
+                }
+                return method;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+    }
+    
+    private static final class Exist extends Node {
+        private final Node operand;
+        
+        Exist(Node operand) {
+            this.operand = operand;
+        }
+        
+        @Override
+        Object evaluate(Object event) {
+            Object value = operand.evaluate(event);
+            return value != MISSING && value != null;
+        }
+    }
+    
+    private static final class Not extends Node {
+        private final Node operand;
+        
+        Not(Node operand) {
+            this.operand = operand;
+        }
+        
+        @Override
+        Object evaluate(Object event) {
+            return !Boolean.TRUE.equals(operand.evaluate(event));
+        }
+    }
+    
+    private static final class And extends Node {
+        private final Node left;
+        private final Node right;
+        
+        And(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        Object evaluate(Object event) {
+            return Boolean.TRUE.equals(left.evaluate(event)) && Boolean.TRUE.equals(right.evaluate(event));
+        }
+    }
+    
+    private static final class Or extends Node {
+        private final Node left;
+        private final Node right;
+        
+        Or(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        Object evaluate(Object event) {
+            return Boolean.TRUE.equals(left.evaluate(event)) || Boolean.TRUE.equals(right.evaluate(event));
+        }
+    }
+    
+    /**
+     * Tests whether the left value is an element of the sequence on the right.
+     */
+    private static final class In extends Node {
+        private final Node element;
+        private final Node sequence;
+        
+        In(Node element, Node sequence) {
+            this.element = element;
+            this.sequence = sequence;
+        }
+        
+        @Override
+        Object evaluate(Object event) {
+            Object value = element.evaluate(event);
+            Object values = sequence.evaluate(event);
+            if (value == MISSING || values == MISSING || values == null) {
+                return false;
+            }
+            
+            if (values instanceof Collection) {
+                for (Object candidate : (Collection<?>) values) {
+                    if (Comparison.compare(value, normalize(candidate)) == 0) {
+                        return true;
+                    }
+                }
+            } else if (values.getClass().isArray()) {
+                for (int i = 0; i < Array.getLength(values); i++) {
+                    if (Comparison.compare(value, normalize(Array.get(values, i))) == 0) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * Relational comparison or substring match between two values.
+     */
+    private static final class Comparison extends Node {
+        private static final int INCOMPARABLE = Integer.MIN_VALUE;
+        
+        private final String operator;
+        private final Node left;
+        private final Node right;
+        
+        Comparison(String operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        Object evaluate(Object event) {
+            Object a = left.evaluate(event);
+            Object b = right.evaluate(event);
+            if (a == MISSING || b == MISSING) {
+                return false;
+            }
+            
+            if ("~".equals(operator)) {
+                return a instanceof String && b instanceof String && ((String) b).contains((String) a);
+            }
+            
+            int result = compare(a, b);
+            if (result == INCOMPARABLE) {
+                return "!=".equals(operator);
+            }
+            switch (operator) {
+                case "==":
+                    return result == 0;
+                case "!=":
+                    return result != 0;
+                case "<":
+                    return result < 0;
+                case "<=":
+                    return result <= 0;
+                case ">":
+                    return result > 0;
+                default:
+                    return result >= 0;
+            }
+        }
+        
+        /**
+         * Compares two normalized values.
+         * 
+         * @return A negative, zero or positive result, or {@link #INCOMPARABLE}
+         */
+        static int compare(Object a, Object b) {
+            if (a == null || b == null) {
+                return a == b ? 0 : INCOMPARABLE;
+            }
+            if (a instanceof Number && b instanceof Number) {
+                if (isIntegral(a) && isIntegral(b)) {
+                    return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+                }
+                return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+            }
+            if (a instanceof String && b instanceof String) {
+                return Integer.signum(((String) a).compareTo((String) b));
+            }
+            if (a instanceof Boolean && b instanceof Boolean) {
+                return ((Boolean) a).compareTo((Boolean) b);
+            }
+            return a.equals(b) ? 0 : INCOMPARABLE;
+        }
+        
+        /**
+         * Checks whether a number is an integer type.
+         */
+        private static boolean isIntegral(Object value) {
+            return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+        }
+    }
+}
@@ -2,9 +2,10 @@ package com.metricstream.omg.eventchannel;
 
 /**
  * Interface for the consumer administration object, which creates proxy suppliers for consumers.
+ * Filters attached to the admin apply to the events of all its proxies.
  * This is the non-CORBA equivalent of org.omg.CosEventChannelAdmin.ConsumerAdmin.
  */
-public interface ConsumerAdmin {
+public interface ConsumerAdmin extends FilterAdmin {
     
     /**
      * Gets a proxy push supplier for a consumer to connect to.
@@ -0,0 +1,145 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Health tracking and circuit breaker for a single push consumer.
+ * A push that throws or takes longer than the delivery budget counts as a failure;
+ * the breaker opens after the configured number of consecutive failures and, once
+ * the cooldown has elapsed, lets a single trial delivery decide whether it closes again.
+ */
+final class ConsumerHealth {
+    
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    private final long budgetNanos;
+    private final int failureThreshold;
+    private final long cooldownNanos;
+    private final AtomicLong shedCount = new AtomicLong();
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt;
+    private boolean trialInFlight = false;
+    
+    /**
+     * Creates a new health tracker.
+     * 
+     * @param budgetMillis The longest a single push may take before it counts as a failure
+     * @param failureThreshold The number of consecutive failures that opens the breaker
+     * @param cooldownMillis How long the breaker stays open before a trial delivery
+     */
+    ConsumerHealth(long budgetMillis, int failureThreshold, long cooldownMillis) {
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.failureThreshold = failureThreshold;
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+    }
+    
+    /**
+     * Checks whether an event may be delivered, moving an open breaker whose
+     * cooldown has elapsed to the trial state. In the trial state only one delivery
+     * is let through until its outcome is recorded.
+     * 
+     * @return true if the event should be delivered
+     */
+    synchronized boolean allowDelivery() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= cooldownNanos) {
+            state = State.HALF_OPEN;
+        }
+        if (state != State.HALF_OPEN) {
+            return state == State.CLOSED;
+        }
+        if (trialInFlight) {
+            return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+    
+    /**
+     * Gives back a trial delivery that was let through but not attempted.
+     */
+    synchronized void cancelTrial() {
+        trialInFlight = false;
+    }
+    
+    /**
+     * Checks whether the breaker is closed.
+     * 
+     * @return true if the consumer is considered healthy
+     */
+    synchronized boolean isClosed() {
+        return state == State.CLOSED;
+    }
+    
+    /**
+     * Records a completed push.
+     * 
+     * @param elapsedNanos How long the push took
+     * @return true if the push overran the budget and opened the breaker
+     */
+    boolean recordSuccess(long elapsedNanos) {
+        if (elapsedNanos > budgetNanos) {
+            return recordFailure();
+        }
+        
+        synchronized (this) {
+            consecutiveFailures = 0;
+            state = State.CLOSED;
+            trialInFlight = false;
+        }
+        return false;
+    }
+    
+    /**
+     * Records a failed push.
+     * 
+     * @return true if this failure opened the breaker
+     */
+    synchronized boolean recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Moves an open breaker to the trial state, regardless of the elapsed time.
+     */
+    synchronized void halfOpen() {
+        if (state == State.OPEN) {
+            state = State.HALF_OPEN;
+        }
+    }
+    
+    /**
+     * Counts an event discarded while the breaker was open.
+     */
+    void eventShed() {
+        shedCount.incrementAndGet();
+    }
+    
+    /**
+     * Gets the number of events discarded while the breaker was open.
+     * 
+     * @return The shed count
+     */
+    long getShedCount() {
+        return shedCount.get();
+    }
+    
+    /**
+     * Gets the cooldown of the breaker.
+     * 
+     * @return The cooldown in nanoseconds
+     */
+    long getCooldownNanos() {
+        return cooldownNanos;
+    }
+}
@@ -0,0 +1,191 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Snapshot of the metrics of a proxy supplier, as reported by {@link EventChannelImpl#getConsumerMetrics()}
+ * and by the channel's {@link EventChannelMXBean}.
+ * Latencies are measured from the push to the moment a push consumer's {@code push} returns, or a
+ * pull consumer takes the event, for the events timed according to
+ * {@link EventChannelConfig#setLatencySampleInterval(int)}.
+ */
+public final class ConsumerMetrics {
+    
+    private final String proxyId;
+    private final boolean push;
+    private final boolean connected;
+    private final long lag;
+    private final long deliveredCount;
+    private final long failedCount;
+    private final long droppedCount;
+    private final long shedCount;
+    private final long expiredCount;
+    private final long conflatedCount;
+    private final long latencySampleCount;
+    private final long latencyMedianNanos;
+    private final long latency99Nanos;
+    private final long latencyMaxNanos;
+    
+    /**
+     * Creates a new snapshot.
+     * 
+     * @param proxyId The identifier of the proxy within its channel
+     * @param push true for a proxy push supplier, false for a proxy pull supplier
+     * @param connected Whether a consumer is connected
+     * @param lag The number of events waiting for the consumer
+     * @param stats The delivery statistics of the proxy
+     * @param droppedCount The number of events dropped because the consumer's queue was full
+     * @param shedCount The number of events discarded while the consumer's circuit breaker was open
+     * @param expiredCount The number of events that expired while waiting for the consumer
+     * @param conflatedCount The number of events replaced by a newer event with the same key
+     */
+    ConsumerMetrics(String proxyId, boolean push, boolean connected, long lag, DeliveryStats stats,
+            long droppedCount, long shedCount, long expiredCount, long conflatedCount) {
+        LatencyHistogram latency = stats.getLatency();
+        this.proxyId = proxyId;
+        this.push = push;
+        this.connected = connected;
+        this.lag = lag;
+        this.deliveredCount = stats.getDeliveredCount();
+        this.failedCount = stats.getFailedCount();
+        this.droppedCount = droppedCount;
+        this.shedCount = shedCount;
+        this.expiredCount = expiredCount;
+        this.conflatedCount = conflatedCount;
+        this.latencySampleCount = latency.getCount();
+        this.latencyMedianNanos = latency.getValueAtPercentile(50);
+        this.latency99Nanos = latency.getValueAtPercentile(99);
+        this.latencyMaxNanos = latency.getMax();
+    }
+    
+    /**
+     * Gets the identifier of the proxy within its channel, such as {@code push-3} or {@code pull-4}.
+     * 
+     * @return The proxy identifier
+     */
+    public String getProxyId() {
+        return proxyId;
+    }
+    
+    /**
+     * Checks whether the proxy is a proxy push supplier.
+     * 
+     * @return true for a push supplier, false for a pull supplier
+     */
+    public boolean isPush() {
+        return push;
+    }
+    
+    /**
+     * Checks whether a consumer is connected to the proxy.
+     * 
+     * @return true if a consumer is connected
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+    
+    /**
+     * Gets the number of events waiting for the consumer: the depth of a push consumer's
+     * delivery lane, or of a pull consumer's queue or the distance of its shared log cursor.
+     * 
+     * @return The consumer lag
+     */
+    public long getLag() {
+        return lag;
+    }
+    
+    /**
+     * Gets the number of events handed to the consumer.
+     * 
+     * @return The delivered count
+     */
+    public long getDeliveredCount() {
+        return deliveredCount;
+    }
+    
+    /**
+     * Gets the number of events a push consumer threw an exception for.
+     * 
+     * @return The failed delivery count
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+    
+    /**
+     * Gets the number of events dropped because a pull consumer's queue was full.
+     * 
+     * @return The drop count
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+    
+    /**
+     * Gets the number of events discarded while a push consumer's circuit breaker was open.
+     * 
+     * @return The shed count
+     */
+    public long getShedCount() {
+        return shedCount;
+    }
+    
+    /**
+     * Gets the number of events that expired while waiting for the consumer.
+     * 
+     * @return The expiry count
+     */
+    public long getExpiredCount() {
+        return expiredCount;
+    }
+    
+    /**
+     * Gets the number of events replaced by a newer event with the same key before delivery.
+     * 
+     * @return The conflated count
+     */
+    public long getConflatedCount() {
+        return conflatedCount;
+    }
+    
+    /**
+     * Gets the number of timed events the latencies are computed from.
+     * 
+     * @return The latency sample count
+     */
+    public long getLatencySampleCount() {
+        return latencySampleCount;
+    }
+    
+    /**
+     * Gets the median push-to-deliver latency.
+     * 
+     * @return The median latency in nanoseconds, or 0 without samples
+     */
+    public long getLatencyMedianNanos() {
+        return latencyMedianNanos;
+    }
+    
+    /**
+     * Gets the 99th percentile of the push-to-deliver latency.
+     * 
+     * @return The 99th percentile in nanoseconds, or 0 without samples
+     */
+    public long getLatency99Nanos() {
+        return latency99Nanos;
+    }
+    
+    /**
+     * Gets the largest push-to-deliver latency.
+     * 
+     * @return The maximum latency in nanoseconds, or 0 without samples
+     */
+    public long getLatencyMaxNanos() {
+        return latencyMaxNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return proxyId + "[connected=" + connected + ", lag=" + lag + ", delivered=" + deliveredCount
+                + ", failed=" + failedCount + ", p50=" + latencyMedianNanos + "ns, p99=" + latency99Nanos + "ns]";
+    }
+}
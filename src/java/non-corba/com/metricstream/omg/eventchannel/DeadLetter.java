@@ -0,0 +1,99 @@
+package com.metricstream.omg.eventchannel;
+
+import java.io.Serializable;
+
+/**
+ * An event a push consumer failed to accept, as pushed into the dead-letter channel configured
+ * with {@link EventChannelConfig#setDeadLetterChannel(EventChannel)}. Each event of a failed
+ * batch gets its own dead letter. Dead letters can be written to a durable dead-letter channel
+ * as long as the event data is serializable.
+ */
+public final class DeadLetter implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final Object data;
+    private final String consumerId;
+    private final String exceptionClass;
+    private final String message;
+    private final int attempts;
+    private final long failedAt;
+    
+    /**
+     * Creates a new dead letter.
+     * 
+     * @param data The event data
+     * @param consumerId The identifier of the proxy supplier the consumer was connected to
+     * @param failure The exception thrown by the last attempt, or null if the consumer did not acknowledge in time
+     * @param attempts The number of delivery attempts
+     */
+    DeadLetter(Object data, String consumerId, Exception failure, int attempts) {
+        this.data = data;
+        this.consumerId = consumerId;
+        this.exceptionClass = failure != null ? failure.getClass().getName() : null;
+        this.message = failure != null ? failure.getMessage() : null;
+        this.attempts = attempts;
+        this.failedAt = System.currentTimeMillis();
+    }
+    
+    /**
+     * Gets the event data.
+     * 
+     * @return The event data
+     */
+    public Object getData() {
+        return data;
+    }
+    
+    /**
+     * Gets the identifier of the proxy supplier the consumer was connected to, as reported
+     * by {@link ConsumerMetrics#getProxyId()}.
+     * 
+     * @return The consumer identifier, such as {@code push-3}
+     */
+    public String getConsumerId() {
+        return consumerId;
+    }
+    
+    /**
+     * Gets the class of the exception the consumer threw on the last attempt.
+     * 
+     * @return The fully qualified exception class name, or null if the consumer did not acknowledge in time
+     */
+    public String getExceptionClass() {
+        return exceptionClass;
+    }
+    
+    /**
+     * Gets the message of the exception the consumer threw on the last attempt.
+     * 
+     * @return The exception message, or null if there was none
+     */
+    public String getMessage() {
+        return message;
+    }
+    
+    /**
+     * Gets the number of times the event was pushed to the consumer.
+     * 
+     * @return The delivery attempts, 1 unless the channel delivers at least once
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    /**
+     * Gets the time the event was given up on.
+     * 
+     * @return The time in milliseconds since the epoch
+     */
+    public long getFailedAt() {
+        return failedAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "DeadLetter[consumer=" + consumerId + ", exception=" + exceptionClass + ", attempts=" + attempts
+                + ", data=" + data + "]";
+    }
+}
@@ -0,0 +1,23 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Selects what an event channel promises about delivery to its push consumers.
+ */
+public enum DeliveryGuarantee {
+    
+    /**
+     * Each event is pushed to a consumer at most once. An event the consumer throws an
+     * exception for is counted as failed and not pushed again. This is the default.
+     */
+    AT_MOST_ONCE,
+    
+    /**
+     * Each event is pushed to a consumer until the consumer acknowledges it, either by returning
+     * normally from {@code push} or, for an {@link com.metricstream.omg.event.AcknowledgingPushConsumer},
+     * by calling {@link ProxyPushSupplier#acknowledge(long)}. Unacknowledged events are redelivered
+     * with an exponential backoff, so a consumer may see an event more than once and should be
+     * idempotent. At most {@link EventChannelConfig#setAckWindow(int)} events are in flight per
+     * consumer; further events wait in the consumer's delivery lane.
+     */
+    AT_LEAST_ONCE
+}
@@ -0,0 +1,278 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Serial delivery lane for a single consumer.
+ * Events are queued in arrival order and drained by at most one task at a time,
+ * so the consumer sees them in FIFO order and occupies at most one pool thread.
+ * After a batch the drain task reschedules itself to give other lanes a turn.
+ * A lane can be paused, in which case events are held until it is resumed.
+ * The handler can also hand an event back, so that it stays at the head of the
+ * lane until the lane is resumed.
+ * With several priority lanes the events of each priority are queued separately and
+ * drained according to the channel's {@link PriorityScheduling}.
+ * The events queued in the lane are bounded by its capacity. Control entries, such as a
+ * replay range, are queued separately, do not count against the capacity and are drained
+ * ahead of the events.
+ */
+final class DeliveryLane implements Runnable, DeliveryWatermark.Backlog {
+    
+    private static final int DRAIN_BATCH = 64;
+    
+    private final ConcurrentLinkedQueue<Object>[] queues;
+    private final ConcurrentLinkedQueue<Object> controls = new ConcurrentLinkedQueue<>();
+    private final PriorityScheduler scheduler;
+    private final int capacity;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final AtomicReference<Object> held = new AtomicReference<>();
+    private final Executor executor;
+    private final EventHandler handler;
+    private final Runnable onRoom;
+    private volatile boolean paused = false;
+    
+    /**
+     * Creates a new delivery lane.
+     * 
+     * @param executor The executor running the drain task
+     * @param handler The handler delivering each event to the consumer
+     * @param capacity The maximum number of events queued in the lane
+     * @param onRoom Called when an event leaves the full lane
+     * @param priorities The number of priority lanes
+     * @param scheduling The scheduling discipline between priority lanes
+     * @param weights The lane weights for weighted fair scheduling, or null for the defaults
+     */
+    DeliveryLane(Executor executor, EventHandler handler, int capacity, Runnable onRoom,
+            int priorities, PriorityScheduling scheduling, int[] weights) {
+        this.executor = executor;
+        this.handler = handler;
+        this.capacity = capacity;
+        this.onRoom = onRoom;
+        this.queues = newQueues(priorities);
+        this.scheduler = new PriorityScheduler(priorities, scheduling, weights) {
+            @Override
+            Object pollLane(int lane) {
+                return queues[lane].poll();
+            }
+        };
+    }
+    
+    /**
+     * Creates the queues of the priority lanes.
+     * 
+     * @param priorities The number of priority lanes
+     * @return One empty queue per lane
+     */
+    private static ConcurrentLinkedQueue<Object>[] newQueues(int priorities) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ConcurrentLinkedQueue<Object>[] queues = new ConcurrentLinkedQueue[priorities];
+        for (int i = 0; i < priorities; i++) {
+            queues[i] = new ConcurrentLinkedQueue<>();
+        }
+        return queues;
+    }
+    
+    /**
+     * Adds an event to the lane unless it is full, and schedules a drain task if none is running.
+     * 
+     * @param data The event data
+     * @param priority The priority, clamped to the available priority lanes
+     * @return true if the event was queued, false if the lane is full
+     */
+    boolean offer(Object data, int priority) {
+        int count;
+        do {
+            count = queued.get();
+            if (count >= capacity) {
+                return false;
+            }
+        } while (!queued.compareAndSet(count, count + 1));
+        
+        queues[scheduler.laneOf(priority)].offer(data);
+        pending.incrementAndGet();
+        offered.incrementAndGet();
+        schedule();
+        return true;
+    }
+    
+    /**
+     * Adds a control entry, which is handled ahead of the queued events, and schedules
+     * a drain task if none is running.
+     * 
+     * @param control The control entry
+     */
+    void enqueueControl(Object control) {
+        controls.offer(control);
+        pending.incrementAndGet();
+        schedule();
+    }
+    
+    /**
+     * Removes the oldest event of the lowest priority that has one, to make room for a newer event.
+     * 
+     * @return The removed event, or null if no event is queued
+     */
+    Object evictOldest() {
+        for (ConcurrentLinkedQueue<Object> queue : queues) {
+            Object data = queue.poll();
+            if (data != null) {
+                queued.decrementAndGet();
+                pending.decrementAndGet();
+                return data;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Schedules the drain task unless it is already scheduled or running.
+     */
+    private void schedule() {
+        if (!paused && scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // The executor is shutting down
+                scheduled.set(false);
+            }
+        }
+    }
+    
+    /**
+     * Drains a batch of events from the lane.
+     */
+    @Override
+    public void run() {
+        try {
+            for (int i = 0; i < DRAIN_BATCH && !paused; i++) {
+                Object data = held.getAndSet(null);
+                if (data == null) {
+                    data = controls.poll();
+                }
+                if (data == null) {
+                    data = scheduler.poll();
+                    if (data != null && queued.getAndDecrement() == capacity) {
+                        onRoom.run();
+                    }
+                }
+                if (data == null) {
+                    break;
+                }
+                try {
+                    handler.onEvent(data);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            if (!isEmpty()) {
+                schedule();
+            }
+        }
+    }
+    
+    /**
+     * Stops draining the lane after the event currently being delivered.
+     * Events enqueued while paused are held.
+     */
+    void pause() {
+        paused = true;
+    }
+    
+    /**
+     * Puts an event back at the head of the lane and pauses the lane. The event is
+     * delivered again, ahead of all others, once the lane is resumed.
+     * Only the handler may call this, for the event it is handling.
+     * 
+     * @param data The event data
+     */
+    void hold(Object data) {
+        held.set(data);
+        pending.incrementAndGet();
+        paused = true;
+    }
+    
+    /**
+     * Resumes draining the lane.
+     */
+    void resume() {
+        paused = false;
+        if (!isEmpty()) {
+            schedule();
+        }
+    }
+    
+    /**
+     * Checks whether every priority lane is empty.
+     * 
+     * @return true if no event is queued or held
+     */
+    private boolean isEmpty() {
+        if (held.get() != null || !controls.isEmpty()) {
+            return false;
+        }
+        for (ConcurrentLinkedQueue<Object> queue : queues) {
+            if (!queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Gets the number of events waiting in the lane, including one being delivered.
+     * 
+     * @return The lane depth
+     */
+    int size() {
+        return pending.get();
+    }
+    
+    @Override
+    public long acceptedCount() {
+        return offered.get();
+    }
+    
+    /**
+     * Gets the number of queued events that have been delivered or discarded. An event is
+     * counted as pending until its delivery completes, and offered after it is pending, so
+     * the difference never counts an event still in the lane.
+     */
+    @Override
+    public long receivedCount() {
+        long count = offered.get();
+        return count - pending.get();
+    }
+    
+    /**
+     * Discards all events waiting or held in the lane.
+     */
+    void clear() {
+        if (held.getAndSet(null) != null) {
+            pending.decrementAndGet();
+        }
+        while (controls.poll() != null) {
+            pending.decrementAndGet();
+        }
+        boolean full = queued.get() >= capacity;
+        for (ConcurrentLinkedQueue<Object> queue : queues) {
+            while (queue.poll() != null) {
+                queued.decrementAndGet();
+                pending.decrementAndGet();
+            }
+        }
+        if (full) {
+            onRoom.run();
+        }
+    }
+}
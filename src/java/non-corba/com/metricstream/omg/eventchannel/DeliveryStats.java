@@ -0,0 +1,90 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivery counters and push-to-deliver latency of a proxy supplier, or of a whole channel.
+ * A proxy's statistics also count towards the channel's, so the channel totals include
+ * proxies that have since been disconnected.
+ */
+final class DeliveryStats {
+    
+    private final DeliveryStats parent;
+    private final LongAdder deliveredCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    
+    /**
+     * Creates new statistics.
+     * 
+     * @param parent The statistics of the channel the proxy belongs to, or null for a channel
+     */
+    DeliveryStats(DeliveryStats parent) {
+        this.parent = parent;
+    }
+    
+    /**
+     * Counts events handed to a consumer and, if they were timed when pushed, records their latency.
+     * 
+     * @param count The number of events
+     * @param pushedAt The {@link System#nanoTime()} of the push, or {@link ExpiringEvent#UNTIMED}
+     */
+    void delivered(int count, long pushedAt) {
+        recordDelivery(count, pushedAt != ExpiringEvent.UNTIMED ? System.nanoTime() - pushedAt : -1);
+    }
+    
+    /**
+     * Counts delivered events here and in the parent.
+     * 
+     * @param count The number of events
+     * @param latencyNanos The push-to-deliver latency, or -1 if the events were not timed
+     */
+    private void recordDelivery(int count, long latencyNanos) {
+        deliveredCount.add(count);
+        if (latencyNanos >= 0) {
+            latency.record(latencyNanos);
+        }
+        if (parent != null) {
+            parent.recordDelivery(count, latencyNanos);
+        }
+    }
+    
+    /**
+     * Counts events a consumer failed to accept.
+     * 
+     * @param count The number of events
+     */
+    void failed(int count) {
+        failedCount.add(count);
+        if (parent != null) {
+            parent.failed(count);
+        }
+    }
+    
+    /**
+     * Gets the number of events handed to consumers.
+     * 
+     * @return The delivered count
+     */
+    long getDeliveredCount() {
+        return deliveredCount.sum();
+    }
+    
+    /**
+     * Gets the number of events consumers failed to accept.
+     * 
+     * @return The failed count
+     */
+    long getFailedCount() {
+        return failedCount.sum();
+    }
+    
+    /**
+     * Gets the push-to-deliver latency of the timed events.
+     * 
+     * @return The latency histogram
+     */
+    LatencyHistogram getLatency() {
+        return latency;
+    }
+}
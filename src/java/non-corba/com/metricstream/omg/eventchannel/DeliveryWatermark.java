@@ -0,0 +1,139 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Tracks how far into the durable log every consumer has received its events, so that the
+ * checkpoint never moves past an event still waiting in a delivery lane or pull queue.
+ * After each batch the dispatcher marks the sequence it has read up to, together with the
+ * storages still holding events and how many events each had accepted by then. Since every
+ * storage hands out its events in order, the marked events have all been received once each
+ * of those storages has passed its count.
+ */
+final class DeliveryWatermark {
+    
+    private final ArrayDeque<Mark> marks = new ArrayDeque<>();
+    private Backlog[] backlogs = new Backlog[4];
+    private long[] accepted = new long[4];
+    private int count = 0;
+    private long delivered;
+    
+    /**
+     * Creates a new watermark.
+     * 
+     * @param delivered The sequence of the first event not yet received by every consumer
+     */
+    DeliveryWatermark(long delivered) {
+        this.delivered = delivered;
+    }
+    
+    /**
+     * Adds a storage to the next mark if it still holds events.
+     * 
+     * @param backlog The storage of a consumer
+     */
+    synchronized void hold(Backlog backlog) {
+        long acceptedCount = backlog.acceptedCount();
+        if (backlog.receivedCount() >= acceptedCount) {
+            return;
+        }
+        if (count == backlogs.length) {
+            backlogs = Arrays.copyOf(backlogs, 2 * count);
+            accepted = Arrays.copyOf(accepted, 2 * count);
+        }
+        backlogs[count] = backlog;
+        accepted[count] = acceptedCount;
+        count++;
+    }
+    
+    /**
+     * Marks the events before the specified sequence as handed to the storages added since
+     * the previous mark.
+     * 
+     * @param sequence The sequence of the next event to dispatch
+     */
+    synchronized void mark(long sequence) {
+        if (count == 0 && marks.isEmpty()) {
+            // Every consumer has already received the events
+            delivered = Math.max(delivered, sequence);
+            return;
+        }
+        marks.add(new Mark(sequence, Arrays.copyOf(backlogs, count), Arrays.copyOf(accepted, count)));
+        Arrays.fill(backlogs, 0, count, null);
+        count = 0;
+    }
+    
+    /**
+     * Moves past the marks whose events every consumer has received.
+     * 
+     * @return The sequence of the first event not yet received by every consumer
+     */
+    synchronized long advance() {
+        Mark mark;
+        while ((mark = marks.peek()) != null && mark.isReceived()) {
+            delivered = Math.max(delivered, mark.sequence);
+            marks.poll();
+        }
+        return delivered;
+    }
+    
+    /**
+     * The events handed to the storages of a batch.
+     */
+    private static final class Mark {
+        
+        private final long sequence;
+        private final Backlog[] backlogs;
+        private final long[] accepted;
+        
+        /**
+         * Creates a new mark.
+         * 
+         * @param sequence The sequence of the next event to dispatch
+         * @param backlogs The storages holding events of the batch
+         * @param accepted The number of events each storage had accepted
+         */
+        Mark(long sequence, Backlog[] backlogs, long[] accepted) {
+            this.sequence = sequence;
+            this.backlogs = backlogs;
+            this.accepted = accepted;
+        }
+        
+        /**
+         * Checks whether each storage has handed out the events it held when marked.
+         * 
+         * @return true if every consumer has received the marked events
+         */
+        boolean isReceived() {
+            for (int i = 0; i < backlogs.length; i++) {
+                if (backlogs[i].receivedCount() < accepted[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * The storage of a consumer, handing out its events in the order it accepted them.
+     */
+    interface Backlog {
+        
+        /**
+         * Gets the number of events the storage has accepted.
+         * 
+         * @return The accepted count
+         */
+        long acceptedCount();
+        
+        /**
+         * Gets the number of accepted events the consumer has received, or that were dropped
+         * or discarded, and so no longer wait in the storage. Never counts an event before
+         * it has left the storage.
+         * 
+         * @return The received count
+         */
+        long receivedCount();
+    }
+}
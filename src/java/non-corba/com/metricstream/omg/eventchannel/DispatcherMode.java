@@ -0,0 +1,28 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Selects the engine an event channel uses to move events from suppliers to consumers.
+ */
+public enum DispatcherMode {
+    
+    /**
+     * Events are placed on a linked queue and handed to the channel's thread pool
+     * for delivery. This is the default and tolerates slow or blocking consumers.
+     */
+    QUEUE,
+    
+    /**
+     * Events are published into a preallocated ring buffer and delivered by a single
+     * dispatcher thread without per-event task allocation. Consumers should return
+     * quickly, since a blocking consumer stalls the dispatcher.
+     */
+    RING_BUFFER,
+    
+    /**
+     * Events are hashed by the key of {@link EventChannelConfig#setPartitionKeyExtractor} onto
+     * several ring buffers, each with its own dispatcher thread, so dispatch scales with the
+     * number of cores. Events with the same key are delivered in push order. The partitions
+     * queue events on each push consumer's delivery lane, so a consumer receives one event at a time.
+     */
+    PARTITIONED
+}
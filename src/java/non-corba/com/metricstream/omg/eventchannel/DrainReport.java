@@ -0,0 +1,96 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Outcome of destroying an event channel with a drain deadline, see
+ * {@link EventChannelImpl#destroy(long, java.util.concurrent.TimeUnit)}.
+ * Deliveries are counted per consumer, so an event delivered to three consumers counts three times.
+ */
+public final class DrainReport {
+    
+    private final long deliveredCount;
+    private final long droppedCount;
+    private final long timedOutCount;
+    private final long rejectedCount;
+    private final long elapsedMillis;
+    
+    /**
+     * Creates a new drain report.
+     * 
+     * @param deliveredCount The number of deliveries to consumers during the drain
+     * @param droppedCount The number of events dropped, shed or expired during the drain
+     * @param timedOutCount The number of events still queued when the deadline elapsed
+     * @param rejectedCount The number of events pushed after the drain started
+     * @param elapsedMillis How long the drain took
+     */
+    DrainReport(long deliveredCount, long droppedCount, long timedOutCount, long rejectedCount, long elapsedMillis) {
+        this.deliveredCount = deliveredCount;
+        this.droppedCount = droppedCount;
+        this.timedOutCount = timedOutCount;
+        this.rejectedCount = rejectedCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+    
+    /**
+     * Gets the number of deliveries to consumers while the channel was draining,
+     * counting each consumer that received an event.
+     * 
+     * @return The delivered count
+     */
+    public long getDeliveredCount() {
+        return deliveredCount;
+    }
+    
+    /**
+     * Gets the number of events that were dropped by a full queue, discarded by an open circuit
+     * breaker or expired while the channel was draining.
+     * 
+     * @return The dropped count
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+    
+    /**
+     * Gets the number of events still queued when the deadline elapsed, which were discarded:
+     * the events in the channel queue plus the events waiting for each consumer. A durable
+     * channel keeps its undispatched events in the log instead.
+     * 
+     * @return The timed out count
+     */
+    public long getTimedOutCount() {
+        return timedOutCount;
+    }
+    
+    /**
+     * Gets the number of events pushed after the drain started, which the channel refused.
+     * 
+     * @return The rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+    
+    /**
+     * Gets how long the drain took, not counting the shutdown of the channel's threads.
+     * 
+     * @return The drain time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    
+    /**
+     * Checks whether every queued event was flushed before the deadline.
+     * 
+     * @return true if no event timed out
+     */
+    public boolean isComplete() {
+        return timedOutCount == 0;
+    }
+    
+    @Override
+    public String toString() {
+        return "DrainReport[delivered=" + deliveredCount + ", dropped=" + droppedCount + ", timedOut=" + timedOutCount
+                + ", rejected=" + rejectedCount + ", elapsed=" + elapsedMillis + "ms]";
+    }
+}
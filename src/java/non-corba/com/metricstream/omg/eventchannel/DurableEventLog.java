@@ -0,0 +1,570 @@
+package com.metricstream.omg.eventchannel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only event log stored in memory-mapped segment files.
+ * Each event gets the next sequence number and is written as a record of its length,
+ * the CRC32 of its serialized form and the serialized bytes. Writing a record only
+ * copies bytes into the mapping; the operating system writes them back, and
+ * {@link #sync()} forces them to disk. The dispatcher reads ahead of a checkpoint file,
+ * which records the sequence of the first event not yet received by every consumer, so
+ * events still waiting in a delivery lane or pull queue are not lost with the process.
+ * 
+ * When the log is opened, the segments are scanned and the first torn or corrupted
+ * record ends the log: the rest of its segment is cleared and later segments are
+ * deleted. Events from the checkpoint onwards are then dispatched again, so delivery
+ * across a restart is at least once.
+ * 
+ * Recently appended events are also kept in memory so the dispatcher does not
+ * deserialize them; older events are read back from the mapping, which also serves
+ * as the history consumers replay from.
+ */
+final class DurableEventLog implements EventHistory {
+    
+    private static final int WINDOW_SIZE = 8192;
+    private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+    private static final int RECORD_HEADER = 8;
+    private static final int INDEX_INTERVAL = 64;
+    private static final String SEGMENT_SUFFIX = ".log";
+    
+    private final File directory;
+    private final int segmentBytes;
+    private final int retainedSegments;
+    private final FsyncPolicy fsyncPolicy;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final FileChannel checkpointChannel;
+    private final MappedByteBuffer checkpoint;
+    private final List<Segment> segments = new ArrayList<>();
+    private final Object[] window = new Object[WINDOW_SIZE];
+    private final RecordBuffer recordBuffer = new RecordBuffer();
+    private final CRC32 crc = new CRC32();
+    private final long sessionStart;
+    private final long recoveredCount;
+    private volatile long nextSequence;
+    private volatile long dispatchedSequence;
+    private volatile long deliveredSequence;
+    private long forcedSequence;
+    private long forcedCheckpoint;
+    private long droppedCount = 0;
+    private boolean closed = false;
+    
+    /**
+     * Opens the log in the specified directory, recovering the events already stored there.
+     * 
+     * @param directory The log directory, created if it does not exist
+     * @param segmentBytes The size of new segment files
+     * @param retainedSegments The number of dispatched segments to keep
+     * @param fsyncPolicy When the log is forced to disk
+     * @throws IOException If the directory is in use by another log or cannot be read
+     */
+    DurableEventLog(File directory, int segmentBytes, int retainedSegments, FsyncPolicy fsyncPolicy) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.retainedSegments = retainedSegments;
+        this.fsyncPolicy = fsyncPolicy;
+        
+        this.lockChannel = new RandomAccessFile(new File(directory, "lock"), "rw").getChannel();
+        this.lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Durable log directory is in use: " + directory);
+        }
+        
+        this.checkpointChannel = new RandomAccessFile(new File(directory, "checkpoint"), "rw").getChannel();
+        this.checkpoint = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, 8);
+        long checkpointSequence = checkpoint.getLong(0);
+        
+        recoverSegments(checkpointSequence);
+        Segment last = segments.get(segments.size() - 1);
+        this.nextSequence = last.base + last.count;
+        this.dispatchedSequence = Math.max(segments.get(0).base, Math.min(checkpointSequence, nextSequence));
+        this.deliveredSequence = dispatchedSequence;
+        this.sessionStart = nextSequence;
+        this.forcedSequence = nextSequence;
+        this.forcedCheckpoint = deliveredSequence;
+        this.recoveredCount = nextSequence - dispatchedSequence;
+    }
+    
+    /**
+     * Scans the segment files, keeping the records up to the first damaged one.
+     * 
+     * @param checkpointSequence The sequence stored in the checkpoint, used as the base of a new log
+     * @throws IOException If a segment cannot be opened
+     */
+    private void recoverSegments(long checkpointSequence) throws IOException {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        Arrays.sort(files);
+        
+        boolean damaged = false;
+        for (File file : files) {
+            long base;
+            try {
+                base = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            
+            Segment previous = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (damaged || (previous != null && base != previous.base + previous.count)) {
+                // Events after a damaged record or a gap cannot be trusted to be in order
+                System.err.println("Error recovering durable log: discarding segment " + file.getName());
+                damaged = true;
+                if (!file.delete()) {
+                    System.err.println("Error deleting segment " + file.getName());
+                }
+                continue;
+            }
+            
+            Segment segment = Segment.open(file, base, (int) Math.min(file.length(), Integer.MAX_VALUE));
+            damaged = !segment.scan(crc);
+            segments.add(segment);
+        }
+        
+        if (segments.isEmpty()) {
+            segments.add(Segment.create(directory, Math.max(0, checkpointSequence), segmentBytes));
+        }
+    }
+    
+    /**
+     * Appends an event, or each event of a batch, to the log.
+     * Events that cannot be serialized are dropped and counted.
+     * 
+     * @param data The event data, or a batch of events
+     * @throws IOException If the log is closed or a new segment cannot be created
+     */
+    synchronized void append(Object data) throws IOException {
+        if (closed) {
+            throw new IOException("Durable log is closed");
+        }
+        
+        if (data instanceof EventBatch) {
+            for (Object event : ((EventBatch) data).events()) {
+                appendEvent(event);
+            }
+        } else {
+            appendEvent(data);
+        }
+        
+        if (fsyncPolicy == FsyncPolicy.EVERY_EVENT) {
+            sync();
+        }
+    }
+    
+    /**
+     * Writes a single event record.
+     */
+    private void appendEvent(Object data) throws IOException {
+        recordBuffer.reset();
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(recordBuffer);
+            out.writeObject(data);
+            out.close();
+        } catch (IOException e) {
+            System.err.println("Error persisting event: " + e.getMessage());
+            droppedCount++;
+            return;
+        }
+        
+        int length = recordBuffer.size();
+        Segment segment = segments.get(segments.size() - 1);
+        if (segment.position + RECORD_HEADER + length > segment.capacity()) {
+            segment = roll(length);
+        }
+        
+        crc.reset();
+        crc.update(recordBuffer.array(), 0, length);
+        segment.write(recordBuffer.array(), length, (int) crc.getValue());
+        
+        window[(int) (nextSequence & WINDOW_MASK)] = data;
+        nextSequence++;
+    }
+    
+    /**
+     * Starts a new segment large enough for the next record, deleting old delivered segments.
+     * 
+     * @param length The length of the next record
+     * @return The new segment
+     */
+    private Segment roll(int length) throws IOException {
+        Segment previous = segments.get(segments.size() - 1);
+        if (fsyncPolicy != FsyncPolicy.PERIODIC) {
+            previous.buffer.force();
+        }
+        
+        // Keep the end marker after the last record of the previous segment
+        Segment segment = Segment.create(directory, nextSequence, Math.max(segmentBytes, RECORD_HEADER + length + 4));
+        segments.add(segment);
+        
+        while (segments.size() > retainedSegments + 1) {
+            Segment oldest = segments.get(0);
+            if (oldest.base + oldest.count > deliveredSequence) {
+                break;
+            }
+            segments.remove(0);
+            oldest.delete();
+        }
+        return segment;
+    }
+    
+    @Override
+    public synchronized long getEarliestSequence() {
+        return segments.get(0).base;
+    }
+    
+    /**
+     * Reads events starting at the specified sequence, whether dispatched or not.
+     * An event that can no longer be deserialized is returned as null.
+     * 
+     * @param from The sequence of the first event to read
+     * @param out The array receiving the events
+     * @return The number of events read, or -1 if the segment holding the first event has been deleted
+     */
+    @Override
+    public synchronized int read(long from, Object[] out) {
+        if (from < segments.get(0).base) {
+            return -1;
+        }
+        
+        long end = Math.min(nextSequence, from + out.length);
+        long windowLow = Math.max(sessionStart, nextSequence - WINDOW_SIZE);
+        long sequence = from;
+        int count = 0;
+        
+        if (sequence < windowLow && sequence < end) {
+            count = readSegments(sequence, out, (int) (Math.min(end, windowLow) - sequence));
+            sequence += count;
+        }
+        while (sequence < end) {
+            out[count++] = window[(int) (sequence++ & WINDOW_MASK)];
+        }
+        return count;
+    }
+    
+    /**
+     * Reads events from the segment files.
+     */
+    private int readSegments(long from, Object[] out, int max) {
+        int count = 0;
+        long sequence = from;
+        for (Segment segment : segments) {
+            if (count == max) {
+                break;
+            }
+            if (sequence >= segment.base + segment.count) {
+                continue;
+            }
+            
+            int position = segment.positionOf(sequence);
+            while (count < max && sequence < segment.base + segment.count) {
+                int length = segment.buffer.getInt(position);
+                byte[] record = new byte[length];
+                segment.read(position + RECORD_HEADER, record);
+                out[count++] = deserialize(record, sequence);
+                position += RECORD_HEADER + length;
+                sequence++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Deserializes an event record.
+     * 
+     * @return The event, or null if it cannot be deserialized
+     */
+    private static Object deserialize(byte[] record, long sequence) {
+        try {
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(record));
+            try {
+                return in.readObject();
+            } finally {
+                in.close();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Error reading event " + sequence + " from durable log: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Records that all events before the specified sequence have been dispatched.
+     * The dispatcher reads on from there; the checkpoint moves with {@link #markDelivered(long)}.
+     * 
+     * @param sequence The sequence of the next event to dispatch
+     */
+    void markDispatched(long sequence) {
+        dispatchedSequence = sequence;
+    }
+    
+    /**
+     * Records that every consumer has received the events before the specified sequence.
+     * The checkpoint reaches the disk with the next {@link #sync()}.
+     * 
+     * @param sequence The sequence of the first event not yet received by every consumer
+     */
+    synchronized void markDelivered(long sequence) {
+        if (closed || sequence <= deliveredSequence) {
+            return;
+        }
+        deliveredSequence = sequence;
+        checkpoint.putLong(0, sequence);
+    }
+    
+    /**
+     * Forces appended events and the checkpoint to disk if they have changed.
+     */
+    synchronized void sync() {
+        if (closed) {
+            return;
+        }
+        if (forcedSequence != nextSequence) {
+            segments.get(segments.size() - 1).buffer.force();
+            forcedSequence = nextSequence;
+        }
+        if (forcedCheckpoint != deliveredSequence) {
+            checkpoint.force();
+            forcedCheckpoint = deliveredSequence;
+        }
+    }
+    
+    /**
+     * Gets the sequence the next appended event will get.
+     * 
+     * @return The next sequence
+     */
+    long getNextSequence() {
+        return nextSequence;
+    }
+    
+    /**
+     * Gets the sequence of the next event to dispatch.
+     * 
+     * @return The dispatched sequence
+     */
+    long getDispatchedSequence() {
+        return dispatchedSequence;
+    }
+    
+    /**
+     * Gets the number of undelivered events found when the log was opened.
+     * 
+     * @return The recovered event count
+     */
+    long getRecoveredCount() {
+        return recoveredCount;
+    }
+    
+    /**
+     * Gets the number of events dropped because they could not be serialized.
+     * 
+     * @return The drop count
+     */
+    synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+    
+    /**
+     * Forces the log to disk and closes its files.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        sync();
+        closed = true;
+        Arrays.fill(window, null);
+        
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        try {
+            checkpointChannel.close();
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing durable log: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * A segment file mapped into memory.
+     */
+    private static final class Segment {
+        
+        final long base;
+        final File file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int count = 0;
+        int position = 0;
+        private int[] index = new int[16];
+        
+        private Segment(long base, File file, FileChannel channel, MappedByteBuffer buffer) {
+            this.base = base;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+        
+        /**
+         * Maps an existing segment file.
+         */
+        static Segment open(File file, long base, int size) throws IOException {
+            FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+            return new Segment(base, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+        
+        /**
+         * Creates and maps a new, zero-filled segment file.
+         */
+        static Segment create(File directory, long base, int size) throws IOException {
+            return open(new File(directory, String.format("%020d", base) + SEGMENT_SUFFIX), base, size);
+        }
+        
+        int capacity() {
+            return buffer.capacity();
+        }
+        
+        /**
+         * Counts the intact records, clearing everything after the last one.
+         * 
+         * @return false if a damaged record was found
+         */
+        boolean scan(CRC32 crc) {
+            byte[] record = new byte[0];
+            while (position + RECORD_HEADER <= capacity()) {
+                int length = buffer.getInt(position);
+                if (length == 0) {
+                    return true;
+                }
+                if (length < 0 || length > capacity() - position - RECORD_HEADER) {
+                    break;
+                }
+                
+                if (record.length < length) {
+                    record = new byte[length];
+                }
+                read(position + RECORD_HEADER, record, length);
+                crc.reset();
+                crc.update(record, 0, length);
+                if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                    break;
+                }
+                addRecord(position);
+                position += RECORD_HEADER + length;
+            }
+            
+            if (position + RECORD_HEADER > capacity()) {
+                return true;
+            }
+            System.err.println("Error recovering durable log: truncating segment " + file.getName() + " after " + count + " events");
+            for (int i = position; i < capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+            return false;
+        }
+        
+        /**
+         * Writes a record at the current position. The length is written last.
+         */
+        void write(byte[] data, int length, int checksum) {
+            buffer.putInt(position + 4, checksum);
+            buffer.position(position + RECORD_HEADER);
+            buffer.put(data, 0, length);
+            buffer.putInt(position, length);
+            addRecord(position);
+            position += RECORD_HEADER + length;
+        }
+        
+        void read(int offset, byte[] record) {
+            read(offset, record, record.length);
+        }
+        
+        private void read(int offset, byte[] record, int length) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            view.get(record, 0, length);
+        }
+        
+        /**
+         * Counts a record, remembering the position of every 64th one.
+         */
+        private void addRecord(int offset) {
+            if (count % INDEX_INTERVAL == 0) {
+                int slot = count / INDEX_INTERVAL;
+                if (slot == index.length) {
+                    index = Arrays.copyOf(index, index.length * 2);
+                }
+                index[slot] = offset;
+            }
+            count++;
+        }
+        
+        /**
+         * Finds the position of the record with the specified sequence.
+         */
+        int positionOf(long sequence) {
+            int ordinal = (int) (sequence - base);
+            int position = index[ordinal / INDEX_INTERVAL];
+            for (int i = ordinal - ordinal % INDEX_INTERVAL; i < ordinal; i++) {
+                position += RECORD_HEADER + buffer.getInt(position);
+            }
+            return position;
+        }
+        
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing segment " + file.getName() + ": " + e.getMessage());
+            }
+        }
+        
+        void delete() {
+            close();
+            if (!file.delete()) {
+                System.err.println("Error deleting segment " + file.getName());
+            }
+        }
+    }
+    
+    /**
+     * Reusable buffer for serializing records.
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        
+        RecordBuffer() {
+            super(1024);
+        }
+        
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.metricstream.omg.eventchannel;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Group of events pushed together by a supplier.
+ * A batch travels through the channel queue and the delivery lanes as a single entry.
+ */
+final class EventBatch implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final List<Object> events;
+    
+    /**
+     * Creates a new batch wrapping the specified events.
+     * 
+     * @param events The event data; the array must not be modified afterwards
+     */
+    EventBatch(Object[] events) {
+        this.events = Collections.unmodifiableList(Arrays.asList(events));
+    }
+    
+    /**
+     * Gets the events in this batch.
+     * 
+     * @return A read-only list of the events, in push order
+     */
+    List<Object> events() {
+        return events;
+    }
+    
+    /**
+     * Gets the number of events in this batch.
+     * 
+     * @return The batch size
+     */
+    int size() {
+        return events.size();
+    }
+}
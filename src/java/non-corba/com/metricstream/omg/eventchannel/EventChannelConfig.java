@@ -0,0 +1,1183 @@
+package com.metricstream.omg.eventchannel;
+
+import java.io.File;
+
+/**
+ * Configuration options for an event channel created by the {@link EventChannelFactory}.
+ * A default configuration reproduces the behavior of a plain {@code createEventChannel()}.
+ */
+public class EventChannelConfig {
+    
+    private DispatcherMode dispatcherMode = DispatcherMode.QUEUE;
+    private int ringBufferSize = 1024;
+    private ProducerType producerType = ProducerType.MULTI;
+    private WaitStrategy waitStrategy = WaitStrategy.PARK;
+    private int dispatchPartitions = Runtime.getRuntime().availableProcessors();
+    private KeyExtractor partitionKeyExtractor;
+    private int channelQueueCapacity = Integer.MAX_VALUE;
+    private OverflowPolicy channelOverflowPolicy = OverflowPolicy.BLOCK;
+    private int proxyQueueCapacity = Integer.MAX_VALUE;
+    private OverflowPolicy proxyOverflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private PullStorage pullStorage = PullStorage.PER_CONSUMER_QUEUE;
+    private File spillDirectory;
+    private PullMode pullMode = PullMode.POLL;
+    private long pullMaxBackoffMillis = 100;
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM_THREADS;
+    private boolean sharedExecutor = false;
+    private int maxConcurrency = Integer.MAX_VALUE;
+    private long deliveryBudgetMillis = Long.MAX_VALUE;
+    private int breakerFailureThreshold = Integer.MAX_VALUE;
+    private BreakerAction breakerAction = BreakerAction.PARK;
+    private long breakerCooldownMillis = 1000;
+    private DeliveryGuarantee deliveryGuarantee = DeliveryGuarantee.AT_MOST_ONCE;
+    private int ackWindow = 256;
+    private long ackTimeoutMillis = 30000;
+    private long redeliveryBackoffMillis = 100;
+    private long maxRedeliveryBackoffMillis = 10000;
+    private int maxDeliveryAttempts = 10;
+    private EventChannel deadLetterChannel;
+    private File durableDirectory;
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.EVERY_BATCH;
+    private long fsyncIntervalMillis = 1000;
+    private int durableSegmentBytes = 16 * 1024 * 1024;
+    private int durableRetainedSegments = 4;
+    private int retainedEvents = 0;
+    private KeyExtractor keyExtractor;
+    private int priorityLanes = 1;
+    private PriorityScheduling priorityScheduling = PriorityScheduling.STRICT;
+    private int[] priorityWeights;
+    private long eventTimeToLiveMillis = Long.MAX_VALUE;
+    private long expirySweepIntervalMillis = 1000;
+    private int latencySampleInterval = 64;
+    private String metricsName;
+    private long drainTimeoutMillis = 0;
+    private long shutdownTimeoutMillis = 5000;
+    
+    /**
+     * Creates a new configuration with default settings.
+     */
+    public EventChannelConfig() {
+        // Defaults are assigned in the field declarations
+    }
+    
+    /**
+     * Creates a new configuration copying the settings of another one.
+     * 
+     * @param other The configuration to copy
+     */
+    public EventChannelConfig(EventChannelConfig other) {
+        this.dispatcherMode = other.dispatcherMode;
+        this.ringBufferSize = other.ringBufferSize;
+        this.producerType = other.producerType;
+        this.waitStrategy = other.waitStrategy;
+        this.dispatchPartitions = other.dispatchPartitions;
+        this.partitionKeyExtractor = other.partitionKeyExtractor;
+        this.channelQueueCapacity = other.channelQueueCapacity;
+        this.channelOverflowPolicy = other.channelOverflowPolicy;
+        this.proxyQueueCapacity = other.proxyQueueCapacity;
+        this.proxyOverflowPolicy = other.proxyOverflowPolicy;
+        this.pullStorage = other.pullStorage;
+        this.spillDirectory = other.spillDirectory;
+        this.pullMode = other.pullMode;
+        this.pullMaxBackoffMillis = other.pullMaxBackoffMillis;
+        this.executionMode = other.executionMode;
+        this.sharedExecutor = other.sharedExecutor;
+        this.maxConcurrency = other.maxConcurrency;
+        this.deliveryBudgetMillis = other.deliveryBudgetMillis;
+        this.breakerFailureThreshold = other.breakerFailureThreshold;
+        this.breakerAction = other.breakerAction;
+        this.breakerCooldownMillis = other.breakerCooldownMillis;
+        this.deliveryGuarantee = other.deliveryGuarantee;
+        this.ackWindow = other.ackWindow;
+        this.ackTimeoutMillis = other.ackTimeoutMillis;
+        this.redeliveryBackoffMillis = other.redeliveryBackoffMillis;
+        this.maxRedeliveryBackoffMillis = other.maxRedeliveryBackoffMillis;
+        this.maxDeliveryAttempts = other.maxDeliveryAttempts;
+        this.deadLetterChannel = other.deadLetterChannel;
+        this.durableDirectory = other.durableDirectory;
+        this.fsyncPolicy = other.fsyncPolicy;
+        this.fsyncIntervalMillis = other.fsyncIntervalMillis;
+        this.durableSegmentBytes = other.durableSegmentBytes;
+        this.durableRetainedSegments = other.durableRetainedSegments;
+        this.retainedEvents = other.retainedEvents;
+        this.keyExtractor = other.keyExtractor;
+        this.priorityLanes = other.priorityLanes;
+        this.priorityScheduling = other.priorityScheduling;
+        this.priorityWeights = other.priorityWeights;
+        this.eventTimeToLiveMillis = other.eventTimeToLiveMillis;
+        this.expirySweepIntervalMillis = other.expirySweepIntervalMillis;
+        this.latencySampleInterval = other.latencySampleInterval;
+        this.metricsName = other.metricsName;
+        this.drainTimeoutMillis = other.drainTimeoutMillis;
+        this.shutdownTimeoutMillis = other.shutdownTimeoutMillis;
+    }
+    
+    /**
+     * Gets the dispatcher mode.
+     * 
+     * @return The dispatcher mode
+     */
+    public DispatcherMode getDispatcherMode() {
+        return dispatcherMode;
+    }
+    
+    /**
+     * Sets the dispatcher mode.
+     * 
+     * @param dispatcherMode The dispatcher mode
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setDispatcherMode(DispatcherMode dispatcherMode) {
+        this.dispatcherMode = dispatcherMode;
+        return this;
+    }
+    
+    /**
+     * Gets the number of slots in the ring buffer used by {@link DispatcherMode#RING_BUFFER},
+     * or in each partition's ring buffer with {@link DispatcherMode#PARTITIONED}.
+     * 
+     * @return The ring buffer size
+     */
+    public int getRingBufferSize() {
+        return ringBufferSize;
+    }
+    
+    /**
+     * Sets the number of slots in the ring buffer used by {@link DispatcherMode#RING_BUFFER},
+     * or in each partition's ring buffer with {@link DispatcherMode#PARTITIONED}.
+     * 
+     * @param ringBufferSize The ring buffer size, which must be a power of two
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the size is not a positive power of two
+     */
+    public EventChannelConfig setRingBufferSize(int ringBufferSize) {
+        if (ringBufferSize <= 0 || Integer.bitCount(ringBufferSize) != 1) {
+            throw new IllegalArgumentException("Ring buffer size must be a power of two: " + ringBufferSize);
+        }
+        this.ringBufferSize = ringBufferSize;
+        return this;
+    }
+    
+    /**
+     * Gets the producer type of the ring buffer.
+     * 
+     * @return The producer type
+     */
+    public ProducerType getProducerType() {
+        return producerType;
+    }
+    
+    /**
+     * Sets the producer type of the ring buffer. Use {@link ProducerType#SINGLE}
+     * only when exactly one thread pushes into the channel.
+     * 
+     * @param producerType The producer type
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setProducerType(ProducerType producerType) {
+        this.producerType = producerType;
+        return this;
+    }
+    
+    /**
+     * Gets the wait strategy of the ring buffer.
+     * 
+     * @return The wait strategy
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+    
+    /**
+     * Sets the wait strategy of the ring buffer.
+     * 
+     * @param waitStrategy The wait strategy
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        return this;
+    }
+    
+    /**
+     * Gets the number of dispatch partitions used by {@link DispatcherMode#PARTITIONED}.
+     * 
+     * @return The number of partitions
+     */
+    public int getDispatchPartitions() {
+        return dispatchPartitions;
+    }
+    
+    /**
+     * Sets the number of dispatch partitions used by {@link DispatcherMode#PARTITIONED}. Each
+     * partition has its own ring buffer and dispatcher thread. By default there is one partition
+     * per available processor.
+     * 
+     * @param dispatchPartitions The number of partitions
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the number is not positive
+     */
+    public EventChannelConfig setDispatchPartitions(int dispatchPartitions) {
+        if (dispatchPartitions <= 0) {
+            throw new IllegalArgumentException("Dispatch partitions must be positive: " + dispatchPartitions);
+        }
+        this.dispatchPartitions = dispatchPartitions;
+        return this;
+    }
+    
+    /**
+     * Gets the extractor of the keys events are assigned to dispatch partitions by.
+     * 
+     * @return The partition key extractor, or null if events are spread at random
+     */
+    public KeyExtractor getPartitionKeyExtractor() {
+        return partitionKeyExtractor;
+    }
+    
+    /**
+     * Sets the extractor of the keys events are assigned to dispatch partitions by with
+     * {@link DispatcherMode#PARTITIONED}. Events with the same key are dispatched by the same
+     * partition and so reach each consumer in push order. Events without a key, or all events
+     * if no extractor is set, are spread over the partitions at random with no ordering
+     * guarantee. A batch is split into one batch per partition.
+     * 
+     * @param partitionKeyExtractor The partition key extractor, or null to spread events at random
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setPartitionKeyExtractor(KeyExtractor partitionKeyExtractor) {
+        this.partitionKeyExtractor = partitionKeyExtractor;
+        return this;
+    }
+    
+    /**
+     * Gets the capacity of the channel event queue.
+     * 
+     * @return The channel queue capacity
+     */
+    public int getChannelQueueCapacity() {
+        return channelQueueCapacity;
+    }
+    
+    /**
+     * Sets the capacity of the channel event queue used by {@link DispatcherMode#QUEUE}.
+     * The ring buffer dispatcher is bounded by its ring buffer size instead.
+     * 
+     * @param channelQueueCapacity The channel queue capacity
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the capacity is not positive
+     */
+    public EventChannelConfig setChannelQueueCapacity(int channelQueueCapacity) {
+        if (channelQueueCapacity <= 0) {
+            throw new IllegalArgumentException("Channel queue capacity must be positive: " + channelQueueCapacity);
+        }
+        this.channelQueueCapacity = channelQueueCapacity;
+        return this;
+    }
+    
+    /**
+     * Gets the policy applied when the channel event queue is full.
+     * 
+     * @return The channel overflow policy
+     */
+    public OverflowPolicy getChannelOverflowPolicy() {
+        return channelOverflowPolicy;
+    }
+    
+    /**
+     * Sets the policy applied when the channel event queue is full.
+     * With {@link DispatcherMode#RING_BUFFER} and {@link DispatcherMode#PARTITIONED} only {@link OverflowPolicy#BLOCK},
+     * {@link OverflowPolicy#DROP_NEWEST} and {@link OverflowPolicy#REJECT} are supported.
+     * 
+     * @param channelOverflowPolicy The channel overflow policy
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setChannelOverflowPolicy(OverflowPolicy channelOverflowPolicy) {
+        this.channelOverflowPolicy = channelOverflowPolicy;
+        return this;
+    }
+    
+    /**
+     * Gets the capacity of each proxy pull supplier queue and push consumer delivery lane.
+     * 
+     * @return The proxy queue capacity
+     */
+    public int getProxyQueueCapacity() {
+        return proxyQueueCapacity;
+    }
+    
+    /**
+     * Sets the capacity of each proxy pull supplier queue and push consumer delivery lane.
+     * 
+     * @param proxyQueueCapacity The proxy queue capacity
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the capacity is not positive
+     */
+    public EventChannelConfig setProxyQueueCapacity(int proxyQueueCapacity) {
+        if (proxyQueueCapacity <= 0) {
+            throw new IllegalArgumentException("Proxy queue capacity must be positive: " + proxyQueueCapacity);
+        }
+        this.proxyQueueCapacity = proxyQueueCapacity;
+        return this;
+    }
+    
+    /**
+     * Gets the policy applied when a proxy pull supplier queue or push consumer delivery lane is full.
+     * 
+     * @return The proxy overflow policy
+     */
+    public OverflowPolicy getProxyOverflowPolicy() {
+        return proxyOverflowPolicy;
+    }
+    
+    /**
+     * Sets the policy applied when a proxy pull supplier queue or push consumer delivery lane is full.
+     * {@link OverflowPolicy#BLOCK} holds up delivery to every consumer of the
+     * channel until the slow consumer catches up, so that the channel queue fills and its
+     * own overflow policy applies to the suppliers. The dispatcher waits for room without
+     * holding the dispatch lock, so consumers can connect meanwhile. A delivery lane treats
+     * {@link OverflowPolicy#SPILL} like {@link OverflowPolicy#BLOCK}.
+     * 
+     * @param proxyOverflowPolicy The proxy overflow policy
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setProxyOverflowPolicy(OverflowPolicy proxyOverflowPolicy) {
+        this.proxyOverflowPolicy = proxyOverflowPolicy;
+        return this;
+    }
+    
+    /**
+     * Gets how events are stored for pull consumers.
+     * 
+     * @return The pull storage
+     */
+    public PullStorage getPullStorage() {
+        return pullStorage;
+    }
+    
+    /**
+     * Sets how events are stored for pull consumers. With {@link PullStorage#SHARED_LOG}
+     * the proxy queue capacity limits how far a pull consumer may lag behind the log.
+     * 
+     * @param pullStorage The pull storage
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setPullStorage(PullStorage pullStorage) {
+        this.pullStorage = pullStorage;
+        return this;
+    }
+    
+    /**
+     * Gets the directory used for spill files.
+     * 
+     * @return The spill directory, or null for the default temporary directory
+     */
+    public File getSpillDirectory() {
+        return spillDirectory;
+    }
+    
+    /**
+     * Sets the directory used for spill files by {@link OverflowPolicy#SPILL}.
+     * 
+     * @param spillDirectory The spill directory, or null for the default temporary directory
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setSpillDirectory(File spillDirectory) {
+        this.spillDirectory = spillDirectory;
+        return this;
+    }
+    
+    /**
+     * Gets how proxy pull consumers retrieve events from their suppliers.
+     * 
+     * @return The pull mode
+     */
+    public PullMode getPullMode() {
+        return pullMode;
+    }
+    
+    /**
+     * Sets how proxy pull consumers retrieve events from their suppliers.
+     * 
+     * @param pullMode The pull mode
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setPullMode(PullMode pullMode) {
+        this.pullMode = pullMode;
+        return this;
+    }
+    
+    /**
+     * Gets the longest delay between polls of an empty pull supplier.
+     * 
+     * @return The maximum backoff in milliseconds
+     */
+    public long getPullMaxBackoffMillis() {
+        return pullMaxBackoffMillis;
+    }
+    
+    /**
+     * Sets the longest delay between polls of an empty pull supplier in {@link PullMode#POLL}.
+     * The delay starts in the microsecond range and doubles up to this limit.
+     * 
+     * @param pullMaxBackoffMillis The maximum backoff in milliseconds
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the backoff is negative
+     */
+    public EventChannelConfig setPullMaxBackoffMillis(long pullMaxBackoffMillis) {
+        if (pullMaxBackoffMillis < 0) {
+            throw new IllegalArgumentException("Pull backoff must not be negative: " + pullMaxBackoffMillis);
+        }
+        this.pullMaxBackoffMillis = pullMaxBackoffMillis;
+        return this;
+    }
+    
+    /**
+     * Gets the kind of threads the channel runs its work on.
+     * 
+     * @return The execution mode
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+    
+    /**
+     * Sets the kind of threads the channel runs its work on.
+     * Prefer {@link ExecutionMode#VIRTUAL_THREADS} when consumers block in {@code push}.
+     * Blocking pull suppliers ({@link PullMode#BLOCKING}) always run on threads of their own.
+     * 
+     * @param executionMode The execution mode
+     * @return This configuration, for method chaining
+     * @see EventChannelFactory#isVirtualThreadSupported()
+     */
+    public EventChannelConfig setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        return this;
+    }
+    
+    /**
+     * Checks whether the channel runs on the executor shared by the factory.
+     * 
+     * @return true if the shared executor is used
+     */
+    public boolean isSharedExecutor() {
+        return sharedExecutor;
+    }
+    
+    /**
+     * Sets whether the channel runs on the work-stealing executor shared by all channels
+     * of the {@link EventChannelFactory}, instead of a private thread pool.
+     * The execution mode is ignored for channels on the shared executor.
+     * 
+     * @param sharedExecutor true to use the shared executor
+     * @return This configuration, for method chaining
+     * @see EventChannelFactory#setSharedExecutorParallelism(int)
+     */
+    public EventChannelConfig setSharedExecutor(boolean sharedExecutor) {
+        this.sharedExecutor = sharedExecutor;
+        return this;
+    }
+    
+    /**
+     * Gets the maximum number of the channel's tasks running at the same time.
+     * 
+     * @return The concurrency cap
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+    
+    /**
+     * Sets the maximum number of the channel's tasks, such as delivery lanes and
+     * pull tasks, running at the same time. Further tasks wait their turn, which keeps
+     * one busy channel from starving the others on a shared executor.
+     * 
+     * @param maxConcurrency The concurrency cap
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the cap is not positive
+     */
+    public EventChannelConfig setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Maximum concurrency must be positive: " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+    
+    /**
+     * Gets the longest a single push to a consumer may take before it counts as a failure.
+     * 
+     * @return The delivery budget in milliseconds
+     */
+    public long getDeliveryBudgetMillis() {
+        return deliveryBudgetMillis;
+    }
+    
+    /**
+     * Sets the longest a single push to a consumer may take before it counts as a failure
+     * towards the circuit breaker. The push itself is not interrupted.
+     * 
+     * @param deliveryBudgetMillis The delivery budget in milliseconds
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the budget is not positive
+     */
+    public EventChannelConfig setDeliveryBudgetMillis(long deliveryBudgetMillis) {
+        if (deliveryBudgetMillis <= 0) {
+            throw new IllegalArgumentException("Delivery budget must be positive: " + deliveryBudgetMillis);
+        }
+        this.deliveryBudgetMillis = deliveryBudgetMillis;
+        return this;
+    }
+    
+    /**
+     * Gets the number of consecutive failures that opens a push consumer's circuit breaker.
+     * 
+     * @return The failure threshold
+     */
+    public int getBreakerFailureThreshold() {
+        return breakerFailureThreshold;
+    }
+    
+    /**
+     * Sets the number of consecutive failures, either exceptions or pushes over the
+     * delivery budget, that opens a push consumer's circuit breaker. By default the
+     * breaker never opens.
+     * 
+     * @param breakerFailureThreshold The failure threshold
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the threshold is not positive
+     */
+    public EventChannelConfig setBreakerFailureThreshold(int breakerFailureThreshold) {
+        if (breakerFailureThreshold <= 0) {
+            throw new IllegalArgumentException("Breaker failure threshold must be positive: " + breakerFailureThreshold);
+        }
+        this.breakerFailureThreshold = breakerFailureThreshold;
+        return this;
+    }
+    
+    /**
+     * Gets what happens to a push consumer whose circuit breaker opens.
+     * 
+     * @return The breaker action
+     */
+    public BreakerAction getBreakerAction() {
+        return breakerAction;
+    }
+    
+    /**
+     * Sets what happens to a push consumer whose circuit breaker opens.
+     * 
+     * @param breakerAction The breaker action
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setBreakerAction(BreakerAction breakerAction) {
+        this.breakerAction = breakerAction;
+        return this;
+    }
+    
+    /**
+     * Gets how long an open circuit breaker waits before a trial delivery.
+     * 
+     * @return The cooldown in milliseconds
+     */
+    public long getBreakerCooldownMillis() {
+        return breakerCooldownMillis;
+    }
+    
+    /**
+     * Sets how long an open circuit breaker waits before a trial delivery.
+     * 
+     * @param breakerCooldownMillis The cooldown in milliseconds
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the cooldown is negative
+     */
+    public EventChannelConfig setBreakerCooldownMillis(long breakerCooldownMillis) {
+        if (breakerCooldownMillis < 0) {
+            throw new IllegalArgumentException("Breaker cooldown must not be negative: " + breakerCooldownMillis);
+        }
+        this.breakerCooldownMillis = breakerCooldownMillis;
+        return this;
+    }
+    
+    /**
+     * Gets what the channel promises about delivery to push consumers.
+     * 
+     * @return The delivery guarantee
+     */
+    public DeliveryGuarantee getDeliveryGuarantee() {
+        return deliveryGuarantee;
+    }
+    
+    /**
+     * Sets what the channel promises about delivery to push consumers. Pull consumers and
+     * replayed events are not affected. By default events are delivered at most once.
+     * 
+     * @param deliveryGuarantee The delivery guarantee
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setDeliveryGuarantee(DeliveryGuarantee deliveryGuarantee) {
+        this.deliveryGuarantee = deliveryGuarantee;
+        return this;
+    }
+    
+    /**
+     * Gets the largest number of unacknowledged events per push consumer.
+     * 
+     * @return The acknowledgement window
+     */
+    public int getAckWindow() {
+        return ackWindow;
+    }
+    
+    /**
+     * Sets the largest number of events a push consumer may have unacknowledged with
+     * {@link DeliveryGuarantee#AT_LEAST_ONCE}. Once it is reached, the consumer's delivery lane
+     * waits for an acknowledgement or redelivery. By default 256 events are in flight.
+     * 
+     * @param ackWindow The acknowledgement window
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the window is not positive
+     */
+    public EventChannelConfig setAckWindow(int ackWindow) {
+        if (ackWindow <= 0) {
+            throw new IllegalArgumentException("Ack window must be positive: " + ackWindow);
+        }
+        this.ackWindow = ackWindow;
+        return this;
+    }
+    
+    /**
+     * Gets how long an explicitly acknowledging consumer has to acknowledge an event.
+     * 
+     * @return The acknowledgement timeout in milliseconds
+     */
+    public long getAckTimeoutMillis() {
+        return ackTimeoutMillis;
+    }
+    
+    /**
+     * Sets how long an {@link com.metricstream.omg.event.AcknowledgingPushConsumer} has to acknowledge
+     * an event before it is redelivered. Other consumers acknowledge by returning from {@code push}.
+     * By default the timeout is 30 seconds.
+     * 
+     * @param ackTimeoutMillis The acknowledgement timeout in milliseconds
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the timeout is not positive
+     */
+    public EventChannelConfig setAckTimeoutMillis(long ackTimeoutMillis) {
+        if (ackTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Ack timeout must be positive: " + ackTimeoutMillis);
+        }
+        this.ackTimeoutMillis = ackTimeoutMillis;
+        return this;
+    }
+    
+    /**
+     * Gets how long a failed delivery waits before its first redelivery.
+     * 
+     * @return The initial redelivery backoff in milliseconds
+     */
+    public long getRedeliveryBackoffMillis() {
+        return redeliveryBackoffMillis;
+    }
+    
+    /**
+     * Sets how long an event a consumer threw an exception for waits before it is redelivered.
+     * The backoff doubles with each further failure, up to {@link #setMaxRedeliveryBackoffMillis(long)}.
+     * By default the first redelivery waits 100 milliseconds.
+     * 
+     * @param redeliveryBackoffMillis The initial redelivery backoff in milliseconds
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the backoff is negative
+     */
+    public EventChannelConfig setRedeliveryBackoffMillis(long redeliveryBackoffMillis) {
+        if (redeliveryBackoffMillis < 0) {
+            throw new IllegalArgumentException("Redelivery backoff must not be negative: " + redeliveryBackoffMillis);
+        }
+        this.redeliveryBackoffMillis = redeliveryBackoffMillis;
+        return this;
+    }
+    
+    /**
+     * Gets the longest wait before a redelivery.
+     * 
+     * @return The maximum redelivery backoff in milliseconds
+     */
+    public long getMaxRedeliveryBackoffMillis() {
+        return maxRedeliveryBackoffMillis;
+    }
+    
+    /**
+     * Sets the longest wait before a redelivery. By default it is 10 seconds.
+     * 
+     * @param maxRedeliveryBackoffMillis The maximum redelivery backoff in milliseconds
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the backoff is negative
+     */
+    public EventChannelConfig setMaxRedeliveryBackoffMillis(long maxRedeliveryBackoffMillis) {
+        if (maxRedeliveryBackoffMillis < 0) {
+            throw new IllegalArgumentException("Maximum redelivery backoff must not be negative: " + maxRedeliveryBackoffMillis);
+        }
+        this.maxRedeliveryBackoffMillis = maxRedeliveryBackoffMillis;
+        return this;
+    }
+    
+    /**
+     * Gets how many times an event is pushed to a consumer before it is given up on.
+     * 
+     * @return The maximum delivery attempts
+     */
+    public int getMaxDeliveryAttempts() {
+        return maxDeliveryAttempts;
+    }
+    
+    /**
+     * Sets how many times an event is pushed to a consumer with {@link DeliveryGuarantee#AT_LEAST_ONCE}
+     * before it is given up on, counted as undeliverable and sent to the dead-letter channel, if any.
+     * A consumer that does not acknowledge an event in time uses up an attempt as well.
+     * By default an event is pushed 10 times.
+     * 
+     * @param maxDeliveryAttempts The maximum delivery attempts
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the number of attempts is not positive
+     */
+    public EventChannelConfig setMaxDeliveryAttempts(int maxDeliveryAttempts) {
+        if (maxDeliveryAttempts <= 0) {
+            throw new IllegalArgumentException("Max delivery attempts must be positive: " + maxDeliveryAttempts);
+        }
+        this.maxDeliveryAttempts = maxDeliveryAttempts;
+        return this;
+    }
+    
+    /**
+     * Gets the channel receiving the events push consumers failed to accept.
+     * 
+     * @return The dead-letter channel, or null if failed events are discarded
+     */
+    public EventChannel getDeadLetterChannel() {
+        return deadLetterChannel;
+    }
+    
+    /**
+     * Sets the channel receiving the events push consumers failed to accept, each wrapped in a
+     * {@link DeadLetter} naming the consumer, the exception and the number of attempts. An event
+     * goes there once a consumer has thrown an exception for it, or with
+     * {@link DeliveryGuarantee#AT_LEAST_ONCE} once its delivery attempts are used up. A durable
+     * channel keeps the dead letters on disk within its retained segments. The dead-letter channel
+     * belongs to the caller and is not destroyed with the channels using it. By default failed
+     * events are discarded.
+     * 
+     * @param deadLetterChannel The dead-letter channel, or null to discard failed events
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setDeadLetterChannel(EventChannel deadLetterChannel) {
+        this.deadLetterChannel = deadLetterChannel;
+        return this;
+    }
+    
+    /**
+     * Gets the directory of the durable event log.
+     * 
+     * @return The log directory, or null if the channel keeps events only in memory
+     */
+    public File getDurableDirectory() {
+        return durableDirectory;
+    }
+    
+    /**
+     * Sets the directory of the durable event log. When set, every pushed event is serialized
+     * into a memory-mapped log in this directory before it is dispatched, and events that had
+     * not reached every consumer when the channel stopped, including those still waiting in a
+     * delivery lane or pull queue, are recovered when a channel is created on the same directory. Only one channel may use a directory at a time.
+     * Durable channels require {@link DispatcherMode#QUEUE} and serializable events.
+     * 
+     * @param durableDirectory The log directory, or null to keep events only in memory
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setDurableDirectory(File durableDirectory) {
+        this.durableDirectory = durableDirectory;
+        return this;
+    }
+    
+    /**
+     * Gets when the durable event log is forced to disk.
+     * 
+     * @return The fsync policy
+     */
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+    
+    /**
+     * Sets when the durable event log is forced to disk.
+     * 
+     * @param fsyncPolicy The fsync policy
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+        return this;
+    }
+    
+    /**
+     * Gets the interval at which the durable event log is forced with {@link FsyncPolicy#PERIODIC}.
+     * 
+     * @return The interval in milliseconds
+     */
+    public long getFsyncIntervalMillis() {
+        return fsyncIntervalMillis;
+    }
+    
+    /**
+     * Sets the interval at which the durable event log is forced with {@link FsyncPolicy#PERIODIC}.
+     * 
+     * @param fsyncIntervalMillis The interval in milliseconds
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the interval is not positive
+     */
+    public EventChannelConfig setFsyncIntervalMillis(long fsyncIntervalMillis) {
+        if (fsyncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Fsync interval must be positive: " + fsyncIntervalMillis);
+        }
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        return this;
+    }
+    
+    /**
+     * Gets the size of the segment files of the durable event log.
+     * 
+     * @return The segment size in bytes
+     */
+    public int getDurableSegmentBytes() {
+        return durableSegmentBytes;
+    }
+    
+    /**
+     * Sets the size of the segment files of the durable event log. Each segment is mapped
+     * into memory as a whole; an event larger than a segment gets a segment of its own.
+     * 
+     * @param durableSegmentBytes The segment size in bytes
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the size is smaller than 4 KB
+     */
+    public EventChannelConfig setDurableSegmentBytes(int durableSegmentBytes) {
+        if (durableSegmentBytes < 4096) {
+            throw new IllegalArgumentException("Segment size must be at least 4096 bytes: " + durableSegmentBytes);
+        }
+        this.durableSegmentBytes = durableSegmentBytes;
+        return this;
+    }
+    
+    /**
+     * Gets the number of segments the durable event log keeps once their events have been delivered.
+     * 
+     * @return The number of retained segments
+     */
+    public int getDurableRetainedSegments() {
+        return durableRetainedSegments;
+    }
+    
+    /**
+     * Sets the number of segments the durable event log keeps once their events have been delivered.
+     * Older segments are deleted; segments holding undelivered events are always kept.
+     * 
+     * @param durableRetainedSegments The number of retained segments
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the number is not positive
+     */
+    public EventChannelConfig setDurableRetainedSegments(int durableRetainedSegments) {
+        if (durableRetainedSegments <= 0) {
+            throw new IllegalArgumentException("Retained segments must be positive: " + durableRetainedSegments);
+        }
+        this.durableRetainedSegments = durableRetainedSegments;
+        return this;
+    }
+    
+    /**
+     * Gets the number of dispatched events kept in memory for replay.
+     * 
+     * @return The number of retained events
+     */
+    public int getRetainedEvents() {
+        return retainedEvents;
+    }
+    
+    /**
+     * Sets the number of dispatched events kept in memory so that consumers connecting from an
+     * earlier {@link StartPosition} can catch up. A durable channel replays from its log instead
+     * and ignores this setting; {@link DispatcherMode#PARTITIONED} does not support it.
+     * 
+     * @param retainedEvents The number of retained events, or 0 to retain none
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the number is negative
+     */
+    public EventChannelConfig setRetainedEvents(int retainedEvents) {
+        if (retainedEvents < 0) {
+            throw new IllegalArgumentException("Retained events must not be negative: " + retainedEvents);
+        }
+        this.retainedEvents = retainedEvents;
+        return this;
+    }
+    
+    /**
+     * Gets the extractor of the keys push consumers' pending events are conflated by.
+     * 
+     * @return The key extractor, or null if events are not conflated
+     */
+    public KeyExtractor getKeyExtractor() {
+        return keyExtractor;
+    }
+    
+    /**
+     * Sets the extractor of the keys push consumers' pending events are conflated by.
+     * When a push consumer falls behind, a newer event replaces the pending event with the
+     * same key instead of queueing behind it, so the backlog is bounded by the number of
+     * distinct keys. Batches are conflated event by event, and events without a key are
+     * delivered as usual. By default events are not conflated.
+     * 
+     * @param keyExtractor The key extractor, or null to deliver every event
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setKeyExtractor(KeyExtractor keyExtractor) {
+        this.keyExtractor = keyExtractor;
+        return this;
+    }
+    
+    /**
+     * Gets the number of priority lanes.
+     * 
+     * @return The number of priority lanes
+     */
+    public int getPriorityLanes() {
+        return priorityLanes;
+    }
+    
+    /**
+     * Sets the number of priority lanes. Events pushed with
+     * {@link ProxyPushConsumer#push(Object, int)} are queued in the lane of their priority,
+     * from 0 (lowest, used by {@code push(Object)}) to the number of lanes minus one, both in
+     * the channel queue and in each push consumer's delivery lane. Each lane of the channel
+     * queue has the full channel queue capacity. Only the {@link DispatcherMode#QUEUE}
+     * dispatcher without a durable log supports more than one lane.
+     * 
+     * @param priorityLanes The number of priority lanes
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the number is not positive
+     */
+    public EventChannelConfig setPriorityLanes(int priorityLanes) {
+        if (priorityLanes <= 0) {
+            throw new IllegalArgumentException("Priority lanes must be positive: " + priorityLanes);
+        }
+        this.priorityLanes = priorityLanes;
+        return this;
+    }
+    
+    /**
+     * Gets how the next event is chosen between priority lanes.
+     * 
+     * @return The priority scheduling
+     */
+    public PriorityScheduling getPriorityScheduling() {
+        return priorityScheduling;
+    }
+    
+    /**
+     * Sets how the next event is chosen between priority lanes.
+     * 
+     * @param priorityScheduling The priority scheduling
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setPriorityScheduling(PriorityScheduling priorityScheduling) {
+        this.priorityScheduling = priorityScheduling;
+        return this;
+    }
+    
+    /**
+     * Gets the weights of the priority lanes for weighted fair scheduling.
+     * 
+     * @return The weights, indexed by priority, or null for the defaults
+     */
+    public int[] getPriorityWeights() {
+        return priorityWeights != null ? priorityWeights.clone() : null;
+    }
+    
+    /**
+     * Sets the weights of the priority lanes for {@link PriorityScheduling#WEIGHTED_FAIR}: the
+     * number of events each lane may take per round. Lanes without a weight get {@code 2^priority}.
+     * 
+     * @param priorityWeights The weights, indexed by priority, or null for the defaults
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If a weight is not positive
+     */
+    public EventChannelConfig setPriorityWeights(int... priorityWeights) {
+        if (priorityWeights != null) {
+            for (int weight : priorityWeights) {
+                if (weight <= 0) {
+                    throw new IllegalArgumentException("Priority weights must be positive: " + weight);
+                }
+            }
+        }
+        this.priorityWeights = priorityWeights != null ? priorityWeights.clone() : null;
+        return this;
+    }
+    
+    /**
+     * Gets how long an event stays deliverable after it is pushed, unless the push overrides it.
+     * 
+     * @return The time-to-live in milliseconds
+     */
+    public long getEventTimeToLiveMillis() {
+        return eventTimeToLiveMillis;
+    }
+    
+    /**
+     * Sets how long an event stays deliverable after it is pushed, unless the push overrides it
+     * with {@link ProxyPushConsumer#push(Object, int, long)}. Events still queued when their
+     * time-to-live has elapsed are discarded instead of delivered, when they are taken from a
+     * queue and by a periodic sweep of the channel and pull consumer queues. By default events
+     * never expire.
+     * 
+     * @param eventTimeToLiveMillis The time-to-live in milliseconds, or {@link Long#MAX_VALUE} for none
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the time-to-live is not positive
+     */
+    public EventChannelConfig setEventTimeToLiveMillis(long eventTimeToLiveMillis) {
+        if (eventTimeToLiveMillis <= 0) {
+            throw new IllegalArgumentException("Event time-to-live must be positive: " + eventTimeToLiveMillis);
+        }
+        this.eventTimeToLiveMillis = eventTimeToLiveMillis;
+        return this;
+    }
+    
+    /**
+     * Gets the interval between sweeps that remove expired events from the queues.
+     * 
+     * @return The sweep interval in milliseconds
+     */
+    public long getExpirySweepIntervalMillis() {
+        return expirySweepIntervalMillis;
+    }
+    
+    /**
+     * Sets the interval between sweeps that remove expired events from the head of the channel
+     * queue and the pull consumer queues. The sweep starts with the first event that can expire.
+     * 
+     * @param expirySweepIntervalMillis The sweep interval in milliseconds
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the interval is not positive
+     */
+    public EventChannelConfig setExpirySweepIntervalMillis(long expirySweepIntervalMillis) {
+        if (expirySweepIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Expiry sweep interval must be positive: " + expirySweepIntervalMillis);
+        }
+        this.expirySweepIntervalMillis = expirySweepIntervalMillis;
+        return this;
+    }
+    
+    /**
+     * Gets how many pushed events there are, on average, per event timed for the latency histograms.
+     * 
+     * @return The sample interval, or 0 if no events are timed
+     */
+    public int getLatencySampleInterval() {
+        return latencySampleInterval;
+    }
+    
+    /**
+     * Sets how many pushed events there are, on average, per event timed for the push-to-deliver
+     * latency histograms. Events are picked at random, and a timed event carries its push time to
+     * every consumer it reaches. Recording itself never allocates. The ring buffer and partitioned
+     * dispatchers keep the push time in the event's slot, so an event they deliver on their own
+     * thread is timed without allocating. Elsewhere a timed event without a time-to-live is wrapped
+     * in a small object for each queue it waits in: once in the channel queue of the queue dispatcher,
+     * and once more for each consumer's delivery lane or pull queue it is placed in. Events of a
+     * durable channel are not timed. By default one event in 64 is timed.
+     * 
+     * @param latencySampleInterval The sample interval, 1 to time every event, or 0 to time none
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the interval is negative
+     */
+    public EventChannelConfig setLatencySampleInterval(int latencySampleInterval) {
+        if (latencySampleInterval < 0) {
+            throw new IllegalArgumentException("Latency sample interval must not be negative: " + latencySampleInterval);
+        }
+        this.latencySampleInterval = latencySampleInterval;
+        return this;
+    }
+    
+    /**
+     * Gets the name the channel's metrics are published under.
+     * 
+     * @return The metrics name, or null for a generated name
+     */
+    public String getMetricsName() {
+        return metricsName;
+    }
+    
+    /**
+     * Sets the name the {@link EventChannelFactory} publishes the channel's
+     * {@link EventChannelMXBean} under, as the {@code name} key of the object name
+     * {@code com.metricstream.omg:type=EventChannel,name=...}. By default the factory
+     * generates a name of the form {@code channel-<n>}. A typed channel's interface channels
+     * are published under the same name with an additional {@code interface} key.
+     * 
+     * @param metricsName The metrics name, or null for a generated name
+     * @return This configuration, for method chaining
+     */
+    public EventChannelConfig setMetricsName(String metricsName) {
+        this.metricsName = metricsName;
+        return this;
+    }
+    
+    /**
+     * Gets how long {@link EventChannel#destroy()} flushes queued events before it stops the channel.
+     * 
+     * @return The drain timeout in milliseconds, or 0 if queued events are discarded
+     */
+    public long getDrainTimeoutMillis() {
+        return drainTimeoutMillis;
+    }
+    
+    /**
+     * Sets how long {@link EventChannel#destroy()} flushes queued events to the connected
+     * consumers before it stops the channel. Suppliers are disconnected when the drain starts,
+     * and events still queued when the timeout elapses are discarded. The outcome is available
+     * from {@link EventChannelImpl#getDrainReport()}. By default queued events are discarded
+     * immediately.
+     * 
+     * @param drainTimeoutMillis The drain timeout in milliseconds, or 0 to discard queued events
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the timeout is negative
+     */
+    public EventChannelConfig setDrainTimeoutMillis(long drainTimeoutMillis) {
+        if (drainTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Drain timeout must not be negative: " + drainTimeoutMillis);
+        }
+        this.drainTimeoutMillis = drainTimeoutMillis;
+        return this;
+    }
+    
+    /**
+     * Gets how long destroying the channel waits for its running tasks to finish.
+     * 
+     * @return The shutdown timeout in milliseconds
+     */
+    public long getShutdownTimeoutMillis() {
+        return shutdownTimeoutMillis;
+    }
+    
+    /**
+     * Sets how long destroying the channel waits, after any drain, for deliveries already in
+     * progress and for the dispatcher to finish. By default it waits 5 seconds.
+     * 
+     * @param shutdownTimeoutMillis The shutdown timeout in milliseconds
+     * @return This configuration, for method chaining
+     * @throws IllegalArgumentException If the timeout is negative
+     */
+    public EventChannelConfig setShutdownTimeoutMillis(long shutdownTimeoutMillis) {
+        if (shutdownTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Shutdown timeout must not be negative: " + shutdownTimeoutMillis);
+        }
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        return this;
+    }
+}
@@ -1,18 +1,34 @@
 package com.metricstream.omg.eventchannel;
 
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
 /**
  * Factory class for creating and accessing event channel components.
  * This replaces the CORBA ORB initialization and initial references for event channels.
  */
 public class EventChannelFactory {
     
+    private static final String METRICS_DOMAIN = "com.metricstream.omg";
+    
     private static EventChannelFactory instance;
+    private final AtomicInteger nextChannelId = new AtomicInteger();
+    private ExecutorService sharedExecutor;
+    private int sharedExecutorParallelism = Runtime.getRuntime().availableProcessors();
     
     /**
      * Private constructor to enforce singleton pattern.
      */
     private EventChannelFactory() {
-        // Nothing to initialize
+        // The shared executor is created on first use
     }
     
     /**
@@ -28,11 +44,147 @@ public class EventChannelFactory {
     }
     
     /**
-     * Creates a new event channel.
+     * Creates a new event channel and publishes its {@link EventChannelMXBean}.
      * 
      * @return A new event channel
      */
     public EventChannel createEventChannel() {
-        return new EventChannelImpl();
+        return createEventChannel(new EventChannelConfig());
+    }
+    
+    /**
+     * Creates a new event channel with the specified configuration and publishes its
+     * {@link EventChannelMXBean} with the platform MBean server until it is destroyed.
+     * 
+     * @param config The channel configuration
+     * @return A new event channel
+     * @throws IllegalArgumentException If the metrics name is invalid or already used by another channel
+     */
+    public EventChannel createEventChannel(EventChannelConfig config) {
+        ObjectName metricsName = metricsName(config.getMetricsName());
+        EventChannelImpl channel = new EventChannelImpl(config, config.isSharedExecutor() ? getSharedExecutor() : null);
+        try {
+            registerMetrics(channel, metricsName);
+        } catch (JMException e) {
+            channel.destroy();
+            throw new IllegalArgumentException("Cannot publish channel metrics as " + metricsName + ": " + e, e);
+        }
+        return channel;
+    }
+    
+    /**
+     * Publishes the {@link EventChannelMXBean} of a channel with the platform MBean server,
+     * until the channel is destroyed.
+     * 
+     * @param channel The channel
+     * @param metricsName The object name to publish the metrics under
+     * @throws JMException If the metrics cannot be registered under the name
+     */
+    void registerMetrics(EventChannelImpl channel, ObjectName metricsName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new EventChannelMetrics(channel), metricsName);
+        channel.setMetricsName(metricsName);
+    }
+    
+    /**
+     * Builds the object name a channel's metrics are published under.
+     * 
+     * @param name The configured metrics name, or null to generate one
+     * @return The object name
+     * @throws IllegalArgumentException If the name is not a valid object name value or is already registered
+     */
+    private ObjectName metricsName(String name) {
+        String value = name != null ? name : "channel-" + nextChannelId.incrementAndGet();
+        ObjectName objectName;
+        try {
+            objectName = new ObjectName(METRICS_DOMAIN + ":type=EventChannel,name=" + value);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid metrics name: " + value, e);
+        }
+        if (ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+            throw new IllegalArgumentException("Metrics name already in use: " + value);
+        }
+        return objectName;
+    }
+    
+    /**
+     * Withdraws the metrics of a destroyed channel from the platform MBean server.
+     * 
+     * @param metricsName The object name the metrics were published under
+     */
+    void unregisterMetrics(ObjectName metricsName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(metricsName);
+        } catch (InstanceNotFoundException e) {
+            // Already withdrawn by an earlier destroy
+        } catch (JMException e) {
+            System.err.println("Error withdrawing channel metrics " + metricsName + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Creates a new typed event channel and publishes the {@link EventChannelMXBean}s of its channels.
+     * 
+     * @return A new typed event channel
+     */
+    public TypedEventChannel createTypedEventChannel() {
+        return createTypedEventChannel(new EventChannelConfig());
+    }
+    
+    /**
+     * Creates a new typed event channel with the specified configuration and publishes the
+     * {@link EventChannelMXBean}s of its channels with the platform MBean server until it is
+     * destroyed. The untyped channel is published under the metrics name, and the channel of
+     * each typed interface under the same name with an additional {@code interface} key.
+     * 
+     * @param config The channel configuration
+     * @return A new typed event channel
+     * @throws IllegalArgumentException If the metrics name is invalid or already used by another channel
+     */
+    public TypedEventChannel createTypedEventChannel(EventChannelConfig config) {
+        return new TypedEventChannelImpl(config, config.isSharedExecutor() ? getSharedExecutor() : null,
+                metricsName(config.getMetricsName()));
+    }
+    
+    /**
+     * Sets the number of worker threads of the executor shared by channels created with
+     * {@link EventChannelConfig#setSharedExecutor(boolean)}. Must be called before the
+     * first such channel is created.
+     * 
+     * @param parallelism The number of worker threads
+     * @throws IllegalArgumentException If the parallelism is not positive
+     * @throws IllegalStateException If the shared executor has already been started
+     */
+    public synchronized void setSharedExecutorParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        if (sharedExecutor != null) {
+            throw new IllegalStateException("Shared executor has already been started");
+        }
+        this.sharedExecutorParallelism = parallelism;
+    }
+    
+    /**
+     * Gets the executor shared by channels, creating it on first use.
+     * It is a FIFO work-stealing pool with daemon worker threads.
+     * 
+     * @return The shared executor
+     */
+    synchronized ExecutorService getSharedExecutor() {
+        if (sharedExecutor == null) {
+            sharedExecutor = new ForkJoinPool(sharedExecutorParallelism,
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        }
+        return sharedExecutor;
+    }
+    
+    /**
+     * Checks whether channels can run on virtual threads in this JVM.
+     * 
+     * @return true if {@link ExecutionMode#VIRTUAL_THREADS} is supported
+     */
+    public boolean isVirtualThreadSupported() {
+        return ChannelExecutors.isVirtualThreadSupported();
     }
 }
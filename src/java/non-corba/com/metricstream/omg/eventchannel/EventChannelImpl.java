@@ -1,18 +1,31 @@
 package com.metricstream.omg.eventchannel;
 
+import com.metricstream.omg.event.AcknowledgingPushConsumer;
+import com.metricstream.omg.event.BatchPushConsumer;
 import com.metricstream.omg.event.BooleanHolder;
 import com.metricstream.omg.event.Disconnected;
 import com.metricstream.omg.event.PullConsumer;
 import com.metricstream.omg.event.PullSupplier;
 import com.metricstream.omg.event.PushConsumer;
 import com.metricstream.omg.event.PushSupplier;
+import com.metricstream.omg.event.SequencedPushConsumer;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
 
 /**
  * Implementation of the EventChannel interface.
@@ -20,28 +33,216 @@ import java.util.concurrent.TimeUnit;
  */
 public class EventChannelImpl implements EventChannel {
     
+    private static final int DISPATCH_BATCH = 256;
+    private static final long DRAIN_CHECK_MILLIS = 10;
+    
+    /**
+     * Lane entry telling a proxy push supplier to redeliver its unacknowledged events that are due.
+     */
+    private static final Object REDELIVER = new Object();
+    
     private final ConsumerAdminImpl consumerAdmin;
     private final SupplierAdminImpl supplierAdmin;
-    private final ExecutorService threadPool;
-    private final LinkedBlockingQueue<Object> eventQueue;
+    private final ExecutorService ownedPool;
+    private final CappedExecutor threadPool;
+    private final EventChannelConfig config;
+    private final PriorityEventQueue eventQueue;
+    private final RingBuffer[] ringBuffers;
+    private final KeyExtractor partitionKeyExtractor;
+    private final DurableEventLog durableLog;
+    private final Object[] logBatch;
+    private final DeliveryWatermark deliveryWatermark;
+    private final WaitStrategy waitStrategy;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong ringDroppedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicBoolean sweepStarted = new AtomicBoolean(false);
+    private final LongAdder pushedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final DeliveryStats deliveryStats = new DeliveryStats(null);
+    private final int latencySampleInterval;
+    private final EventRetention retention;
+    private final EventHistory history;
+    private final Object dispatchLock = new Object();
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean(false);
+    private final BlockedDeliveries blocked = new BlockedDeliveries();
+    private volatile boolean roomFreed = false;
+    private final Runnable laneRoomFreed = new Runnable() {
+        @Override
+        public void run() {
+            // The ring buffer dispatchers retry on their own threads
+            roomFreed = true;
+            if (ringBuffers == null) {
+                scheduleDispatch();
+            }
+        }
+    };
+    private final Runnable dispatchTask = new Runnable() {
+        @Override
+        public void run() {
+            if (durableLog != null) {
+                processDurableLog();
+            } else {
+                processEventQueue();
+            }
+        }
+    };
+    private Thread[] ringDispatcherThreads;
+    private ScheduledFuture<?> fsyncTask;
+    private volatile ScheduledFuture<?> sweepTask;
+    private volatile ObjectName metricsName;
+    private volatile DrainReport drainReport;
+    private volatile boolean draining = false;
+    private final AtomicLong nextSequence = new AtomicLong();
     private volatile boolean destroyed = false;
+    private final ProxyPushConsumer deadLetters;
+    private final LongAdder deadLetterCount = new LongAdder();
+    private final LongAdder deadLetterFailureCount = new LongAdder();
     
     /**
      * Creates a new event channel implementation.
      */
     public EventChannelImpl() {
+        this(new EventChannelConfig());
+    }
+    
+    /**
+     * Creates a new event channel implementation with the specified configuration.
+     * 
+     * @param config The channel configuration
+     * @throws IllegalArgumentException If an overflow policy, priority lanes or retained events are not supported by the
+     *                                  dispatcher mode, durable log or pull storage
+     * @throws IllegalStateException If the durable log cannot be opened
+     */
+    public EventChannelImpl(EventChannelConfig config) {
+        this(config, config.isSharedExecutor() ? EventChannelFactory.getInstance().getSharedExecutor() : null);
+    }
+    
+    /**
+     * Creates a new event channel implementation running on the specified shared executor.
+     * 
+     * @param config The channel configuration
+     * @param sharedExecutor The executor shared with other channels, or null to create a private pool
+     * @throws IllegalArgumentException If an overflow policy, priority lanes or retained events are not supported by the
+     *                                  dispatcher mode, durable log or pull storage
+     * @throws IllegalStateException If the durable log cannot be opened
+     */
+    EventChannelImpl(EventChannelConfig config, ExecutorService sharedExecutor) {
+        validate(config);
+        this.config = new EventChannelConfig(config);
+        this.overflowPolicy = config.getChannelOverflowPolicy();
+        this.latencySampleInterval = config.getLatencySampleInterval();
+        this.durableLog = openDurableLog(config);
+        this.logBatch = durableLog != null ? new Object[DISPATCH_BATCH] : null;
+        this.deliveryWatermark = durableLog != null ? new DeliveryWatermark(durableLog.getDispatchedSequence()) : null;
+        this.retention = durableLog == null && config.getRetainedEvents() > 0 ? new EventRetention(config.getRetainedEvents()) : null;
+        this.history = durableLog != null ? durableLog : retention;
+        this.nextSequence.set(durableLog != null ? durableLog.getDispatchedSequence() : 0);
         this.consumerAdmin = new ConsumerAdminImpl(this);
         this.supplierAdmin = new SupplierAdminImpl(this);
-        this.threadPool = Executors.newCachedThreadPool();
-        this.eventQueue = new LinkedBlockingQueue<>();
+        this.ownedPool = sharedExecutor == null ? ChannelExecutors.newExecutor(config.getExecutionMode()) : null;
+        this.threadPool = new CappedExecutor(sharedExecutor == null ? ownedPool : sharedExecutor, config.getMaxConcurrency());
+        this.waitStrategy = config.getWaitStrategy();
         
-        // Start a thread to process events from the queue
-        threadPool.execute(new Runnable() {
-            @Override
-            public void run() {
-                processEventQueue();
+        DispatcherMode mode = config.getDispatcherMode();
+        if (mode == DispatcherMode.RING_BUFFER || mode == DispatcherMode.PARTITIONED) {
+            int partitions = mode == DispatcherMode.PARTITIONED ? config.getDispatchPartitions() : 1;
+            this.eventQueue = null;
+            this.ringBuffers = new RingBuffer[partitions];
+            this.partitionKeyExtractor = config.getPartitionKeyExtractor();
+            this.ringDispatcherThreads = new Thread[partitions];
+            
+            // The dispatchers never return while the channel is alive, so each gets its own
+            // thread rather than permanently occupying a slot of the (shared) executor
+            for (int i = 0; i < partitions; i++) {
+                final RingBuffer ring = new RingBuffer(config.getRingBufferSize(), config.getProducerType(), waitStrategy);
+                ringBuffers[i] = ring;
+                ringDispatcherThreads[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        processRingBuffer(ring);
+                    }
+                }, mode == DispatcherMode.PARTITIONED ? "arbat-partition-dispatcher-" + i : "arbat-ring-dispatcher");
+                ringDispatcherThreads[i].setDaemon(true);
+                ringDispatcherThreads[i].start();
+            }
+        } else if (durableLog != null) {
+            // The log replaces the channel queue, see processDurableLog
+            this.eventQueue = null;
+            this.ringBuffers = null;
+            this.partitionKeyExtractor = null;
+            if (config.getFsyncPolicy() == FsyncPolicy.PERIODIC) {
+                this.fsyncTask = ChannelTimer.get().scheduleAtFixedRate(new Runnable() {
+                    @Override
+                    public void run() {
+                        durableLog.markDelivered(deliveryWatermark.advance());
+                        durableLog.sync();
+                    }
+                }, config.getFsyncIntervalMillis(), config.getFsyncIntervalMillis(), TimeUnit.MILLISECONDS);
+            }
+        } else {
+            // Events are drained by a task scheduled on demand, see scheduleDispatch
+            this.eventQueue = new PriorityEventQueue(config.getPriorityLanes(), config.getPriorityScheduling(),
+                    config.getPriorityWeights(), config.getChannelQueueCapacity(), overflowPolicy, config.getSpillDirectory());
+            this.ringBuffers = null;
+            this.partitionKeyExtractor = null;
+        }
+        
+        // Connect last, so a rejected configuration leaves no proxy behind on the dead-letter channel
+        this.deadLetters = connectDeadLetterChannel(config.getDeadLetterChannel());
+    }
+    
+    /**
+     * Checks that the dispatcher mode, durable log and pull storage of a configuration can be
+     * combined, before the channel opens any file or starts any thread.
+     * 
+     * @param config The channel configuration
+     * @throws IllegalArgumentException If an overflow policy, priority lanes, retained events or a durable log
+     *                                  are not supported by the dispatcher mode, durable log or pull storage
+     */
+    private static void validate(EventChannelConfig config) {
+        DispatcherMode mode = config.getDispatcherMode();
+        boolean durable = config.getDurableDirectory() != null;
+        if (durable && mode != DispatcherMode.QUEUE) {
+            throw new IllegalArgumentException("A durable log is only supported by the queue dispatcher");
+        }
+        if (config.getPriorityLanes() > 1 && (mode != DispatcherMode.QUEUE || durable)) {
+            throw new IllegalArgumentException("Priority lanes are only supported by the queue dispatcher without a durable log");
+        }
+        if (mode == DispatcherMode.RING_BUFFER || mode == DispatcherMode.PARTITIONED) {
+            OverflowPolicy policy = config.getChannelOverflowPolicy();
+            if (policy == OverflowPolicy.DROP_OLDEST || policy == OverflowPolicy.SPILL) {
+                throw new IllegalArgumentException("Overflow policy " + policy + " is not supported by the ring buffer dispatcher");
             }
-        });
+        }
+        if (mode == DispatcherMode.PARTITIONED && config.getRetainedEvents() > 0) {
+            throw new IllegalArgumentException("Retained events are not supported by the partitioned dispatcher");
+        }
+        OverflowPolicy proxyPolicy = config.getProxyOverflowPolicy();
+        if (config.getPullStorage() == PullStorage.SHARED_LOG
+                && proxyPolicy != OverflowPolicy.DROP_OLDEST && proxyPolicy != OverflowPolicy.BLOCK) {
+            throw new IllegalArgumentException("Shared event log does not support the " + proxyPolicy + " overflow policy");
+        }
+    }
+    
+    /**
+     * Opens the durable event log if the configuration names a directory for it.
+     * 
+     * @param config The channel configuration
+     * @return The durable log, or null if events are kept only in memory
+     * @throws IllegalStateException If the durable log cannot be opened
+     */
+    private static DurableEventLog openDurableLog(EventChannelConfig config) {
+        if (config.getDurableDirectory() == null) {
+            return null;
+        }
+        
+        try {
+            return new DurableEventLog(config.getDurableDirectory(), config.getDurableSegmentBytes(),
+                    config.getDurableRetainedSegments(), config.getFsyncPolicy());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open durable log: " + e.getMessage(), e);
+        }
     }
     
     @Override
@@ -54,311 +255,2091 @@ public class EventChannelImpl implements EventChannel {
         return supplierAdmin;
     }
     
+    /**
+     * Destroys this channel. If the configuration sets a drain timeout, the queued events are
+     * first flushed to the connected consumers, see {@link #destroy(long, TimeUnit)}; otherwise
+     * they are discarded.
+     */
     @Override
     public void destroy() {
-        destroyed = true;
-        threadPool.shutdown();
+        if (config.getDrainTimeoutMillis() > 0) {
+            destroy(config.getDrainTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            shutdown();
+        }
+    }
+    
+    /**
+     * Destroys this channel after flushing the queued events to the connected consumers.
+     * Suppliers are disconnected as the drain starts, and events pushed from then on are refused.
+     * The drain ends once the channel queue, the push consumers' delivery lanes and the pull
+     * consumers' queues are all empty, or when the timeout elapses; events still queued then
+     * are discarded, except that a durable channel keeps its undispatched events in the log.
+     * 
+     * @param timeout The maximum time to spend draining
+     * @param unit The unit of the timeout
+     * @return The outcome of the drain
+     */
+    public DrainReport destroy(long timeout, TimeUnit unit) {
+        long start = System.nanoTime();
+        long deadline = start + unit.toNanos(timeout);
+        long deliveredBefore = deliveryStats.getDeliveredCount();
+        long lostBefore = getLostEventCount();
+        
+        draining = true;
+        supplierAdmin.destroy();
+        
         try {
-            threadPool.awaitTermination(5, TimeUnit.SECONDS);
+            while (!isDrained() && System.nanoTime() - deadline < 0) {
+                Thread.sleep(DRAIN_CHECK_MILLIS);
+            }
         } catch (InterruptedException e) {
+            // Give up on the drain but still shut the channel down
             Thread.currentThread().interrupt();
         }
         
-        consumerAdmin.destroy();
-        supplierAdmin.destroy();
+        DrainReport report = new DrainReport(deliveryStats.getDeliveredCount() - deliveredBefore,
+                getLostEventCount() - lostBefore, getBacklog(), rejectedCount.sum(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        drainReport = report;
+        shutdown();
+        return report;
     }
     
     /**
-     * Pushes an event to all connected push consumers.
+     * Gets the outcome of the drain that preceded the destruction of this channel.
      * 
-     * @param data The event data
+     * @return The drain report, or null if the channel has not been destroyed with a drain
      */
-    void push(final Object data) {
-        if (destroyed) {
-            return;
-        }
-        
-        // Add the event to the queue for processing
-        eventQueue.offer(data);
+    public DrainReport getDrainReport() {
+        return drainReport;
     }
     
     /**
-     * Processes events from the queue and distributes them to consumers.
+     * Checks whether every queued event has reached its consumers.
+     * 
+     * @return true if the channel has nothing left to deliver
      */
-    private void processEventQueue() {
-        while (!destroyed) {
-            try {
-                final Object data = eventQueue.poll(1, TimeUnit.SECONDS);
-                if (data != null) {
-                    threadPool.execute(new Runnable() {
-                        @Override
-                        public void run() {
-                            consumerAdmin.deliverEvent(data);
-                        }
-                    });
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
-        }
+    private boolean isDrained() {
+        // A running dispatch task may hold events taken from the queue but not yet handed to the lanes
+        return getBacklog() == 0 && !dispatchScheduled.get();
     }
     
     /**
-     * Implementation of the ConsumerAdmin interface.
+     * Gets the number of events the channel has yet to deliver.
+     * 
+     * @return The events in the channel queue plus the events waiting for each consumer
      */
-    private class ConsumerAdminImpl implements ConsumerAdmin {
-        
-        private final EventChannelImpl channel;
-        private final List<ProxyPushSupplierImpl> pushSuppliers = new ArrayList<>();
-        private final List<ProxyPullSupplierImpl> pullSuppliers = new ArrayList<>();
+    private long getBacklog() {
+        return getQueuedEventCount() + consumerAdmin.getBacklog();
+    }
+    
+    /**
+     * Gets the number of events the channel and its current proxies discarded without delivering them.
+     * 
+     * @return The dropped, shed, expired and undeliverable events
+     */
+    private long getLostEventCount() {
+        return getDroppedEventCount() + getProxyDroppedEventCount() + getShedEventCount()
+                + getExpiredEventCount() + getProxyExpiredEventCount() + getUndeliverableEventCount();
+    }
+    
+    /**
+     * Stops the channel, discarding the events that are still queued.
+     */
+    private void shutdown() {
+        destroyed = true;
         
-        ConsumerAdminImpl(EventChannelImpl channel) {
-            this.channel = channel;
-        }
+        // Stop suppliers first so blocking pull tasks release their threads
+        supplierAdmin.destroy();
         
-        @Override
-        public ProxyPushSupplier obtain_push_supplier() {
-            ProxyPushSupplierImpl supplier = new ProxyPushSupplierImpl(this);
-            synchronized (pushSuppliers) {
-                pushSuppliers.add(supplier);
+        if (ringBuffers != null) {
+            for (RingBuffer ring : ringBuffers) {
+                ring.close();
             }
-            return supplier;
+        } else if (eventQueue != null) {
+            eventQueue.close();
         }
-        
-        @Override
-        public ProxyPullSupplier obtain_pull_supplier() {
-            ProxyPullSupplierImpl supplier = new ProxyPullSupplierImpl(this);
-            synchronized (pullSuppliers) {
-                pullSuppliers.add(supplier);
-            }
-            return supplier;
+        threadPool.shutdown();
+        if (sweepTask != null) {
+            sweepTask.cancel(false);
         }
-        
-        /**
-         * Delivers an event to all connected consumers.
-         * 
-         * @param data The event data
-         */
-        void deliverEvent(final Object data) {
-            // Deliver to push consumers
-            List<ProxyPushSupplierImpl> clonePushSuppliers;
-            synchronized (pushSuppliers) {
-                clonePushSuppliers = new ArrayList<>(pushSuppliers);
-            }
-            
-            for (final ProxyPushSupplierImpl supplier : clonePushSuppliers) {
-                threadPool.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        supplier.deliverEvent(data);
-                    }
-                });
-            }
-            
-            // Store for pull consumers
-            List<ProxyPullSupplierImpl> clonePullSuppliers;
-            synchronized (pullSuppliers) {
-                clonePullSuppliers = new ArrayList<>(pullSuppliers);
+        long timeout = config.getShutdownTimeoutMillis();
+        try {
+            if (ringDispatcherThreads != null) {
+                long deadline = System.currentTimeMillis() + timeout;
+                for (Thread dispatcher : ringDispatcherThreads) {
+                    dispatcher.join(Math.max(deadline - System.currentTimeMillis(), 1));
+                }
             }
-            
-            for (ProxyPullSupplierImpl supplier : clonePullSuppliers) {
-                supplier.storeEvent(data);
+            if (ownedPool != null) {
+                ownedPool.shutdown();
+                ownedPool.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+            } else {
+                // The shared executor keeps running, wait only for this channel's tasks
+                threadPool.awaitQuiescence(timeout, TimeUnit.MILLISECONDS);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
         
-        /**
-         * Removes a proxy push supplier from the list.
-         * 
-         * @param supplier The supplier to remove
-         */
-        void removeProxyPushSupplier(ProxyPushSupplierImpl supplier) {
-            synchronized (pushSuppliers) {
-                pushSuppliers.remove(supplier);
+        if (durableLog != null) {
+            // Undispatched events stay in the log for the next channel on the same directory
+            if (fsyncTask != null) {
+                fsyncTask.cancel(false);
             }
+            // Events still waiting in the lanes and queues are dispatched again from the log
+            durableLog.markDelivered(deliveryWatermark.advance());
+            durableLog.close();
         }
         
-        /**
-         * Removes a proxy pull supplier from the list.
-         * 
-         * @param supplier The supplier to remove
-         */
-        void removeProxyPullSupplier(ProxyPullSupplierImpl supplier) {
-            synchronized (pullSuppliers) {
-                pullSuppliers.remove(supplier);
-            }
+        consumerAdmin.destroy();
+        if (deadLetters != null) {
+            deadLetters.disconnect_push_consumer();
         }
         
-        /**
-         * Destroys this admin and all its proxies.
-         */
-        void destroy() {
-            List<ProxyPushSupplierImpl> clonePushSuppliers;
-            synchronized (pushSuppliers) {
-                clonePushSuppliers = new ArrayList<>(pushSuppliers);
-                pushSuppliers.clear();
-            }
-            
-            for (ProxyPushSupplierImpl supplier : clonePushSuppliers) {
-                supplier.destroy();
-            }
-            
-            List<ProxyPullSupplierImpl> clonePullSuppliers;
-            synchronized (pullSuppliers) {
-                clonePullSuppliers = new ArrayList<>(pullSuppliers);
-                pullSuppliers.clear();
-            }
-            
-            for (ProxyPullSupplierImpl supplier : clonePullSuppliers) {
-                supplier.destroy();
-            }
+        if (metricsName != null) {
+            EventChannelFactory.getInstance().unregisterMetrics(metricsName);
         }
     }
     
     /**
-     * Implementation of the SupplierAdmin interface.
+     * Connects this channel as a supplier of its dead-letter channel.
+     * 
+     * @param deadLetterChannel The dead-letter channel, or null
+     * @return The proxy to push dead letters to, or null without a dead-letter channel
      */
-    private class SupplierAdminImpl implements SupplierAdmin {
-        
-        private final EventChannelImpl channel;
-        private final List<ProxyPushConsumerImpl> pushConsumers = new ArrayList<>();
-        private final List<ProxyPullConsumerImpl> pullConsumers = new ArrayList<>();
-        
-        SupplierAdminImpl(EventChannelImpl channel) {
-            this.channel = channel;
+    private static ProxyPushConsumer connectDeadLetterChannel(EventChannel deadLetterChannel) {
+        if (deadLetterChannel == null) {
+            return null;
         }
-        
-        @Override
-        public ProxyPushConsumer obtain_push_consumer() {
-            ProxyPushConsumerImpl consumer = new ProxyPushConsumerImpl(this);
-            synchronized (pushConsumers) {
-                pushConsumers.add(consumer);
+        ProxyPushConsumer proxy = deadLetterChannel.for_suppliers().obtain_push_consumer();
+        try {
+            proxy.connect_push_supplier(null);
+        } catch (AlreadyConnected e) {
+            throw new IllegalStateException("New proxy push consumer is already connected", e);
+        }
+        return proxy;
+    }
+    
+    /**
+     * Sends an event a push consumer failed to accept to the dead-letter channel, if any.
+     * An event the dead-letter channel does not accept, because it is disconnected or its queue
+     * is full, is counted and discarded, so that the failure never reaches the consumer's lane.
+     * 
+     * @param consumerId The identifier of the proxy supplier the consumer is connected to
+     * @param data The event data, a sequenced event or a batch of events
+     * @param failure The exception thrown by the last attempt, or null if the consumer did not acknowledge in time
+     * @param attempts The number of delivery attempts
+     */
+    private void deadLetter(String consumerId, Object data, Exception failure, int attempts) {
+        if (deadLetters == null) {
+            return;
+        }
+        if (data instanceof EventBatch) {
+            for (Object event : ((EventBatch) data).events()) {
+                deadLetter(consumerId, event, failure, attempts);
             }
-            return consumer;
+            return;
+        }
+        try {
+            deadLetters.push(new DeadLetter(data instanceof SequencedEvent ? ((SequencedEvent) data).data : data,
+                    consumerId, failure, attempts));
+            deadLetterCount.increment();
+        } catch (Disconnected e) {
+            deadLetterFailureCount.increment();
+            System.err.println("Dead-letter channel is unavailable, discarding event failed by " + consumerId);
+        } catch (RuntimeException e) {
+            deadLetterFailureCount.increment();
+            System.err.println("Dead-letter channel rejected event failed by " + consumerId + ": " + e);
+        }
+    }
+    
+    /**
+     * Records the name the factory published this channel's metrics under, so that
+     * they are withdrawn when the channel is destroyed.
+     * 
+     * @param metricsName The object name of the channel's MXBean
+     */
+    void setMetricsName(ObjectName metricsName) {
+        this.metricsName = metricsName;
+    }
+    
+    /**
+     * Gets the number of events pushed into the channel, counting each event of a batch.
+     * Events the channel dropped or rejected because its queue was full are not counted.
+     * 
+     * @return The pushed count
+     */
+    public long getPushedEventCount() {
+        return pushedCount.sum();
+    }
+    
+    /**
+     * Gets the number of events handed to consumers, counting each consumer that received an
+     * event, including consumers that have since disconnected. A push consumer has received an
+     * event once its {@code push} returns, a pull consumer once it has pulled the event.
+     * 
+     * @return The delivered count
+     */
+    public long getDeliveredEventCount() {
+        return deliveryStats.getDeliveredCount();
+    }
+    
+    /**
+     * Gets the number of events push consumers threw an exception other than
+     * {@link Disconnected} for, including consumers that have since disconnected.
+     * 
+     * @return The failed delivery count
+     */
+    public long getFailedDeliveryCount() {
+        return deliveryStats.getFailedCount();
+    }
+    
+    /**
+     * Gets a percentile of the push-to-deliver latency of the timed events, over all consumers.
+     * 
+     * @param percentile The percentile, from 0 to 100
+     * @return The latency in nanoseconds, accurate to within 1/16, or 0 if no event was timed
+     * @throws IllegalArgumentException If the percentile is out of range
+     * @see EventChannelConfig#setLatencySampleInterval(int)
+     */
+    public long getDeliveryLatencyNanos(double percentile) {
+        return deliveryStats.getLatency().getValueAtPercentile(percentile);
+    }
+    
+    /**
+     * Gets the metrics of the currently obtained proxy suppliers.
+     * 
+     * @return A snapshot of the metrics of each proxy supplier
+     */
+    public List<ConsumerMetrics> getConsumerMetrics() {
+        return consumerAdmin.getConsumerMetrics();
+    }
+    
+    /**
+     * Gets the channel-wide delivery statistics.
+     * 
+     * @return The delivery statistics
+     */
+    DeliveryStats getDeliveryStats() {
+        return deliveryStats;
+    }
+    
+    /**
+     * Gets the number of events dropped by the channel queue because it was full.
+     * 
+     * @return The channel drop count
+     */
+    public long getDroppedEventCount() {
+        if (durableLog != null) {
+            return durableLog.getDroppedCount();
+        }
+        return ringBuffers != null ? ringDroppedCount.get() : eventQueue.getDroppedCount();
+    }
+    
+    /**
+     * Gets the number of events dropped by the queues of the currently obtained
+     * proxy pull suppliers and the delivery lanes of the proxy push suppliers because they were full.
+     * 
+     * @return The proxy drop count
+     */
+    public long getProxyDroppedEventCount() {
+        return consumerAdmin.getDroppedEventCount();
+    }
+    
+    /**
+     * Gets the number of events the currently obtained proxy push suppliers
+     * discarded while their consumers' circuit breakers were open.
+     * 
+     * @return The shed count
+     */
+    public long getShedEventCount() {
+        return consumerAdmin.getShedEventCount();
+    }
+    
+    /**
+     * Gets the number of events whose time-to-live elapsed while they were in the channel queue
+     * or durable log, so they were discarded instead of dispatched.
+     * 
+     * @return The channel expiry count
+     * @see EventChannelConfig#setEventTimeToLiveMillis
+     */
+    public long getExpiredEventCount() {
+        return expiredCount.get();
+    }
+    
+    /**
+     * Gets the number of events whose time-to-live elapsed while they were queued for
+     * the currently obtained proxy suppliers, so they were discarded instead of delivered.
+     * 
+     * @return The proxy expiry count
+     */
+    public long getProxyExpiredEventCount() {
+        return consumerAdmin.getExpiredEventCount();
+    }
+    
+    /**
+     * Gets the number of events the currently obtained proxy push suppliers replaced
+     * with a newer event of the same key before delivering them.
+     * 
+     * @return The conflated count
+     * @see EventChannelConfig#setKeyExtractor
+     */
+    public long getConflatedEventCount() {
+        return consumerAdmin.getConflatedEventCount();
+    }
+    
+    /**
+     * Gets the number of times the currently obtained proxy push suppliers pushed an event
+     * again because it was not acknowledged.
+     * 
+     * @return The redelivery count
+     * @see EventChannelConfig#setDeliveryGuarantee
+     */
+    public long getRedeliveredEventCount() {
+        return consumerAdmin.getRedeliveredEventCount();
+    }
+    
+    /**
+     * Gets the number of events the currently obtained proxy push suppliers gave up on
+     * after the maximum number of delivery attempts.
+     * 
+     * @return The undeliverable count
+     * @see EventChannelConfig#setMaxDeliveryAttempts
+     */
+    public long getUndeliverableEventCount() {
+        return consumerAdmin.getUndeliverableEventCount();
+    }
+    
+    /**
+     * Gets the number of events sent to the dead-letter channel.
+     * 
+     * @return The dead-letter count
+     * @see EventChannelConfig#setDeadLetterChannel
+     */
+    public long getDeadLetterCount() {
+        return deadLetterCount.sum();
+    }
+    
+    /**
+     * Gets the number of failed events discarded because the dead-letter channel was
+     * disconnected or did not accept them.
+     * 
+     * @return The dead-letter failure count
+     * @see EventChannelConfig#setDeadLetterChannel
+     */
+    public long getDeadLetterFailureCount() {
+        return deadLetterFailureCount.sum();
+    }
+    
+    /**
+     * Gets the number of events waiting in the channel queue.
+     * 
+     * @return The channel queue depth
+     */
+    public int getQueuedEventCount() {
+        if (durableLog != null) {
+            return (int) Math.min(durableLog.getNextSequence() - durableLog.getDispatchedSequence(), Integer.MAX_VALUE);
+        }
+        if (ringBuffers != null) {
+            int size = 0;
+            for (RingBuffer ring : ringBuffers) {
+                size += ring.size();
+            }
+            return size;
+        }
+        return eventQueue.size();
+    }
+    
+    /**
+     * Gets the number of undelivered events found in the durable log when the channel was created.
+     * 
+     * @return The recovered event count, or 0 if the channel is not durable
+     */
+    public long getRecoveredEventCount() {
+        return durableLog != null ? durableLog.getRecoveredCount() : 0;
+    }
+    
+    /**
+     * Gets the sequence number the next dispatched event will get.
+     * Every event gets the next sequence number when it is dispatched, including events
+     * no consumer receives; a batch takes one sequence number per event.
+     * 
+     * @return The next sequence
+     */
+    public long getNextSequence() {
+        return nextSequence.get();
+    }
+    
+    /**
+     * Gets the sequence number of the oldest event consumers connecting from
+     * {@link StartPosition#earliest()} receive.
+     * 
+     * @return The earliest retained sequence, or the next sequence if the channel retains no events
+     */
+    public long getEarliestRetainedSequence() {
+        return history != null ? history.getEarliestSequence() : nextSequence.get();
+    }
+    
+    /**
+     * Dispatches the events recovered from the durable log. They are otherwise dispatched
+     * together with the first event pushed, so call this once the consumers that should
+     * receive them are connected.
+     */
+    public void dispatchRecoveredEvents() {
+        if (durableLog != null && !destroyed) {
+            scheduleDispatch();
+        }
+    }
+    
+    /**
+     * Pushes an event with the channel's default time-to-live to all connected push consumers.
+     * 
+     * @param data The event data, or a batch of events
+     * @param priority The priority of the event, ignored unless the channel has several priority lanes
+     * @throws QueueFull If the channel queue is full and the overflow policy is {@link OverflowPolicy#REJECT}
+     */
+    void push(Object data, int priority) {
+        push(data, priority, config.getEventTimeToLiveMillis());
+    }
+    
+    /**
+     * Pushes an event to all connected push consumers.
+     * An {@link EventBatch} occupies a single queue entry and is delivered as a unit.
+     * 
+     * @param data The event data, or a batch of events
+     * @param priority The priority of the event, ignored unless the channel has several priority lanes
+     * @param timeToLiveMillis How long the event stays deliverable, or {@link Long#MAX_VALUE} if it never expires
+     * @throws QueueFull If the channel queue is full and the overflow policy is {@link OverflowPolicy#REJECT}
+     */
+    void push(Object data, int priority, long timeToLiveMillis) {
+        if (destroyed) {
+            return;
+        }
+        if (draining) {
+            rejectedCount.add(ExpiringEvent.countOf(data));
+            return;
+        }
+        
+        long expiresAt = ExpiringEvent.expiryAfter(timeToLiveMillis);
+        if (expiresAt != ExpiringEvent.NEVER) {
+            startExpirySweep();
+        }
+        // The push time does not survive the durable log, so durable events are not timed
+        long pushedAt = durableLog == null && sampleLatency() ? System.nanoTime() : ExpiringEvent.UNTIMED;
+        
+        if (ringBuffers != null) {
+            // The ring buffer slots carry the push time, so only an expiry time is wrapped
+            if (ringBuffers.length == 1) {
+                publishToRingBuffer(ringBuffers[0], ExpiringEvent.wrap(data, expiresAt), pushedAt);
+            } else {
+                publishToPartitions(data, expiresAt, pushedAt);
+            }
+            return;
+        }
+        Object entry = ExpiringEvent.wrap(data, expiresAt, pushedAt);
+        
+        if (durableLog != null) {
+            try {
+                // The log stores a batch as separate events, each carrying the expiry time
+                durableLog.append(data instanceof EventBatch && expiresAt != ExpiringEvent.NEVER
+                        ? ExpiringEvent.wrapEach((EventBatch) data, expiresAt) : entry);
+            } catch (IOException e) {
+                System.err.println("Error appending event to durable log: " + e.getMessage());
+                return;
+            }
+            pushedCount.add(ExpiringEvent.countOf(data));
+            scheduleDispatch();
+            return;
+        }
+        
+        // Add the event to the queue for processing
+        if (eventQueue.offer(entry, priority)) {
+            pushedCount.add(ExpiringEvent.countOf(data));
+        }
+        scheduleDispatch();
+    }
+    
+    /**
+     * Decides whether a pushed event is timed for the latency histograms.
+     * 
+     * @return true if the event should carry its push time
+     */
+    private boolean sampleLatency() {
+        return latencySampleInterval == 1
+                || (latencySampleInterval > 1 && ThreadLocalRandom.current().nextInt(latencySampleInterval) == 0);
+    }
+    
+    /**
+     * Starts the periodic sweep of expired events unless it is already running.
+     */
+    private void startExpirySweep() {
+        if (sweepStarted.get() || !sweepStarted.compareAndSet(false, true)) {
+            return;
+        }
+        
+        long interval = config.getExpirySweepIntervalMillis();
+        try {
+            sweepTask = ChannelTimer.get().scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    sweepExpired();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Expired events are still discarded when they are taken
+        }
+    }
+    
+    /**
+     * Removes expired events from the head of the channel queue and of the pull consumer queues.
+     */
+    private void sweepExpired() {
+        if (destroyed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (eventQueue != null) {
+            expiredCount.addAndGet(eventQueue.removeExpired(now));
+        }
+        consumerAdmin.sweepExpired(now);
+    }
+    
+    /**
+     * Discards an entry taken from the channel queue or durable log if it has expired.
+     * 
+     * @param entry The entry
+     * @return true if the entry was discarded
+     */
+    private boolean discardIfExpired(Object entry) {
+        if (!(entry instanceof ExpiringEvent) || !ExpiringEvent.isExpired(entry, System.currentTimeMillis())) {
+            return false;
+        }
+        expiredCount.addAndGet(ExpiringEvent.countOf(entry));
+        return true;
+    }
+    
+    /**
+     * Schedules the queue dispatch task unless it is already scheduled or running.
+     */
+    private void scheduleDispatch() {
+        if (dispatchScheduled.compareAndSet(false, true)) {
+            try {
+                threadPool.execute(dispatchTask);
+            } catch (RejectedExecutionException e) {
+                // The channel is being destroyed
+                dispatchScheduled.set(false);
+            }
+        }
+    }
+    
+    /**
+     * Publishes an event into a ring buffer, applying the overflow policy if it is full.
+     * Only a published event is counted as pushed.
+     * 
+     * @param ring The ring buffer
+     * @param data The event data, possibly paired with its expiry time
+     * @param pushedAt The push time of the event, if it is timed
+     */
+    private void publishToRingBuffer(RingBuffer ring, Object data, long pushedAt) {
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            if (!ring.publish(data, pushedAt)) {
+                ringDroppedCount.incrementAndGet();
+                return;
+            }
+        } else if (!ring.tryPublish(data, pushedAt)) {
+            ringDroppedCount.incrementAndGet();
+            if (overflowPolicy == OverflowPolicy.REJECT) {
+                throw new QueueFull("Ring buffer is full (capacity " + ring.capacity() + ")");
+            }
+            return;
+        }
+        pushedCount.add(ExpiringEvent.countOf(data));
+    }
+    
+    /**
+     * Publishes an event into the ring buffer of the partition its key hashes to. A batch is
+     * split into one batch per partition, keeping the order of the events of each partition.
+     * 
+     * @param data The event data, or a batch of events
+     * @param expiresAt The expiry time of the events
+     * @param pushedAt The push time of the events, if they are timed
+     */
+    private void publishToPartitions(Object data, long expiresAt, long pushedAt) {
+        if (!(data instanceof EventBatch)) {
+            publishToRingBuffer(ringBuffers[partitionOf(data)], ExpiringEvent.wrap(data, expiresAt), pushedAt);
+            return;
+        }
+        
+        List<Object> events = ((EventBatch) data).events();
+        int[] partitions = new int[events.size()];
+        boolean split = false;
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = partitionOf(events.get(i));
+            split |= partitions[i] != partitions[0];
+        }
+        if (!split) {
+            if (partitions.length > 0) {
+                publishToRingBuffer(ringBuffers[partitions[0]], ExpiringEvent.wrap(data, expiresAt), pushedAt);
+            }
+            return;
+        }
+        
+        for (int partition = 0; partition < ringBuffers.length; partition++) {
+            List<Object> part = new ArrayList<>();
+            for (int i = 0; i < partitions.length; i++) {
+                if (partitions[i] == partition) {
+                    part.add(events.get(i));
+                }
+            }
+            if (!part.isEmpty()) {
+                publishToRingBuffer(ringBuffers[partition], ExpiringEvent.wrap(new EventBatch(part.toArray()), expiresAt), pushedAt);
+            }
+        }
+    }
+    
+    /**
+     * Gets the partition an event is dispatched by. Events with the same key always go to
+     * the same partition; events without a key are spread over the partitions at random.
+     * 
+     * @param event The event data
+     * @return The partition index
+     */
+    private int partitionOf(Object event) {
+        Object key = null;
+        if (partitionKeyExtractor != null) {
+            try {
+                key = partitionKeyExtractor.extractKey(event);
+            } catch (Exception e) {
+                System.err.println("Error extracting partition key: " + e.getMessage());
+            }
+        }
+        if (key == null) {
+            return ThreadLocalRandom.current().nextInt(ringBuffers.length);
+        }
+        // Spread the high bits, since many hash codes differ only there
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), ringBuffers.length);
+    }
+    
+    /**
+     * Processes a batch of events from the queue and distributes them to consumers.
+     * Reschedules itself while events remain. While a consumer that holds the dispatcher back
+     * is full, no further event is taken from the queue, which then fills up and applies the
+     * channel's overflow policy to the suppliers; the consumer's lane reschedules the task once
+     * it has room, and a full pull queue or shared log is waited for after releasing the lock.
+     */
+    private void processEventQueue() {
+        try {
+            roomFreed = false;
+            if (!blocked.retry()) {
+                return;
+            }
+            synchronized (dispatchLock) {
+                for (int i = 0; i < DISPATCH_BATCH && !destroyed && blocked.isEmpty(); i++) {
+                    Object data = eventQueue.poll();
+                    if (data == null) {
+                        break;
+                    }
+                    if (discardIfExpired(data)) {
+                        continue;
+                    }
+                    // Hands the event to each consumer's delivery lane without blocking
+                    consumerAdmin.deliverEvent(data, eventQueue.lastPriority(), blocked);
+                }
+            }
+        } finally {
+            boolean stalled = !blocked.isEmpty();
+            dispatchScheduled.set(false);
+            if (!destroyed && (stalled ? roomFreed || blocked.retryWaits() : eventQueue.size() > 0)) {
+                scheduleDispatch();
+            }
+        }
+    }
+    
+    /**
+     * Processes a batch of events from the durable log and distributes them to consumers.
+     * With {@link FsyncPolicy#EVERY_BATCH} the log is forced before the batch is delivered.
+     * The dispatcher reads ahead of the checkpoint, which only advances past the events every
+     * consumer has received, not merely found in its delivery lane or pull queue. Like the queue
+     * dispatcher, it stops while a consumer that holds the dispatcher back is full.
+     */
+    private void processDurableLog() {
+        try {
+            roomFreed = false;
+            if (!blocked.retry()) {
+                return;
+            }
+            long sequence = durableLog.getDispatchedSequence();
+            int count = durableLog.read(sequence, logBatch);
+            if (count > 0 && config.getFsyncPolicy() == FsyncPolicy.EVERY_BATCH) {
+                durableLog.sync();
+            }
+            
+            synchronized (dispatchLock) {
+                for (int i = 0; i < count; i++) {
+                    Object data = logBatch[i];
+                    logBatch[i] = null;
+                    if (destroyed || !blocked.isEmpty()) {
+                        continue;
+                    }
+                    if (data != null && !discardIfExpired(data)) {
+                        consumerAdmin.deliverEvent(data, 0, blocked);
+                    } else {
+                        // The event cannot be read back or has expired, but keeps its sequence number
+                        nextSequence.incrementAndGet();
+                    }
+                    sequence++;
+                }
+                if (blocked.isEmpty()) {
+                    // The events held back are not yet in the storage of their consumer
+                    consumerAdmin.holdBacklogs(deliveryWatermark);
+                    deliveryWatermark.mark(sequence);
+                }
+            }
+            durableLog.markDispatched(sequence);
+            durableLog.markDelivered(deliveryWatermark.advance());
+        } finally {
+            boolean stalled = !blocked.isEmpty();
+            dispatchScheduled.set(false);
+            if (!destroyed && (stalled ? roomFreed || blocked.retryWaits() : durableLog.getDispatchedSequence() < durableLog.getNextSequence())) {
+                scheduleDispatch();
+            }
+        }
+    }
+    
+    /**
+     * Dispatches events from a ring buffer on the calling thread.
+     * Events are delivered without per-event tasks, directly to healthy consumers with a single
+     * ring and through the delivery lanes with several. The partitions of a partitioned channel
+     * run without the dispatch lock, since the channel retains no events for a connecting
+     * consumer's replay to line up with. While a consumer that holds the dispatcher back is
+     * full, the dispatcher stops taking events from the ring and idles until it has room.
+     * 
+     * @param ring The ring buffer of the channel or of one partition
+     */
+    private void processRingBuffer(RingBuffer ring) {
+        // Each dispatcher evaluates the filters for its own events, since partitions run concurrently
+        final FilterRegistry.Evaluation evaluation = new FilterRegistry.Evaluation();
+        final BlockedDeliveries ringBlocked = new BlockedDeliveries();
+        TimedEventHandler handler = new TimedEventHandler() {
+            @Override
+            public boolean onEvent(Object data, long pushedAt) {
+                if (!discardIfExpired(data)) {
+                    consumerAdmin.deliverEventInline(data, pushedAt, evaluation, ringBlocked);
+                }
+                return ringBlocked.isEmpty();
+            }
+        };
+        
+        int idle = 0;
+        while (!destroyed) {
+            if (!ringBlocked.retry()) {
+                waitStrategy.idle(idle++);
+                continue;
+            }
+            int drained;
+            if (ringBuffers.length > 1) {
+                drained = ring.drain(handler);
+            } else {
+                synchronized (dispatchLock) {
+                    drained = ring.drain(handler);
+                }
+            }
+            if (drained > 0) {
+                idle = 0;
+            } else {
+                waitStrategy.idle(idle++);
+            }
+        }
+    }
+    
+    /**
+     * Implementation of the ConsumerAdmin interface.
+     */
+    private class ConsumerAdminImpl implements ConsumerAdmin {
+        
+        private final EventChannelImpl channel;
+        private final SubscriberRegistry<ProxyPushSupplierImpl> pushSuppliers =
+                new SubscriberRegistry<>(new ProxyPushSupplierImpl[0]);
+        private final SubscriberRegistry<ProxyPullSupplierImpl> pullSuppliers =
+                new SubscriberRegistry<>(new ProxyPullSupplierImpl[0]);
+        private final SharedEventLog eventLog;
+        private final FilterRegistry filterRegistry = new FilterRegistry();
+        private final FilterSet filters = new FilterSet(filterRegistry);
+        private final FilterRegistry.Evaluation dispatchEvaluation = new FilterRegistry.Evaluation();
+        private final AtomicInteger nextProxyId = new AtomicInteger();
+        
+        ConsumerAdminImpl(EventChannelImpl channel) {
+            this.channel = channel;
+            this.eventLog = channel.config.getPullStorage() == PullStorage.SHARED_LOG
+                    ? new SharedEventLog(channel.config.getProxyQueueCapacity(), channel.config.getProxyOverflowPolicy())
+                    : null;
+        }
+        
+        @Override
+        public ProxyPushSupplier obtain_push_supplier() {
+            ProxyPushSupplierImpl supplier = new ProxyPushSupplierImpl(this, "push-" + nextProxyId.incrementAndGet());
+            pushSuppliers.add(supplier);
+            return supplier;
+        }
+        
+        @Override
+        public ProxyPullSupplier obtain_pull_supplier() {
+            ProxyPullSupplierImpl supplier = new ProxyPullSupplierImpl(this, "pull-" + nextProxyId.incrementAndGet());
+            pullSuppliers.add(supplier);
+            return supplier;
+        }
+        
+        @Override
+        public int add_filter(Filter new_filter) {
+            return filters.add(new_filter);
+        }
+        
+        @Override
+        public void remove_filter(int filter) throws FilterNotFound {
+            filters.remove(filter);
+        }
+        
+        @Override
+        public Filter get_filter(int filter) throws FilterNotFound {
+            return filters.get(filter);
+        }
+        
+        @Override
+        public int[] get_all_filters() {
+            return filters.ids();
+        }
+        
+        @Override
+        public void remove_all_filters() {
+            filters.clear();
+        }
+        
+        /**
+         * Delivers an event to all connected consumers.
+         * Push consumers receive it asynchronously through their delivery lanes.
+         * Called by the queue and durable log dispatchers while they hold the dispatch lock,
+         * which also guards the evaluation of the admin's filters.
+         * 
+         * @param entry The event data or batch, possibly paired with its expiry time
+         * @param priority The priority lane the event was queued in
+         * @param blocked Receives the event for consumers that hold the dispatcher back and are full
+         */
+        void deliverEvent(Object entry, int priority, BlockedDeliveries blocked) {
+            Object data = ExpiringEvent.unwrap(entry);
+            long expiresAt = ExpiringEvent.expiryOf(entry);
+            long pushedAt = ExpiringEvent.pushTimeOf(entry);
+            long sequence = assignSequence(data, expiresAt);
+            FilterRegistry.Evaluation evaluation = dispatchEvaluation;
+            evaluation.start(data);
+            if (!(data instanceof EventBatch) && !filters.accepts(evaluation)) {
+                return;
+            }
+            
+            // Queue for push consumers
+            for (ProxyPushSupplierImpl supplier : pushSuppliers.snapshot()) {
+                Object selected = select(supplier, sequence, data, evaluation);
+                if (selected != null) {
+                    supplier.enqueueEvent(selected, priority, expiresAt, pushedAt, blocked);
+                }
+            }
+            
+            // Store for pull consumers
+            storeEvent(data, expiresAt, pushedAt, evaluation, blocked);
+        }
+        
+        /**
+         * Delivers an event to all connected consumers on the calling thread.
+         * Used by the ring buffer dispatchers, which already run on their own threads.
+         * 
+         * @param entry The event data or batch, possibly paired with its expiry time
+         * @param pushedAt The push time of the event, as carried by its ring buffer slot
+         * @param evaluation The calling dispatcher's evaluation of the admin's filters
+         * @param blocked Receives the event for consumers that hold the dispatcher back and are full
+         */
+        void deliverEventInline(Object entry, long pushedAt, FilterRegistry.Evaluation evaluation,
+                BlockedDeliveries blocked) {
+            Object data = ExpiringEvent.unwrap(entry);
+            long expiresAt = ExpiringEvent.expiryOf(entry);
+            long sequence = assignSequence(data, expiresAt);
+            evaluation.start(data);
+            if (!(data instanceof EventBatch) && !filters.accepts(evaluation)) {
+                return;
+            }
+            
+            for (ProxyPushSupplierImpl supplier : pushSuppliers.snapshot()) {
+                Object selected = select(supplier, sequence, data, evaluation);
+                if (selected != null) {
+                    supplier.deliverEventInline(selected, expiresAt, pushedAt, blocked);
+                }
+            }
+            
+            storeEvent(data, expiresAt, pushedAt, evaluation, blocked);
+        }
+        
+        /**
+         * Gives an event, or each event of a batch, the next sequence number and retains it for replay.
+         * Called by the dispatcher while it holds the dispatch lock, or concurrently by the partitions
+         * of a partitioned channel, which retains no events.
+         * 
+         * @param data The event data, or a batch of events
+         * @param expiresAt The expiry time of the events, so that a replay skips them once stale
+         * @return The sequence number of the event, or of the first event of the batch
+         */
+        private long assignSequence(Object data, long expiresAt) {
+            if (data instanceof EventBatch) {
+                List<Object> events = ((EventBatch) data).events();
+                long sequence = nextSequence.getAndAdd(events.size());
+                if (retention != null) {
+                    for (int i = 0; i < events.size(); i++) {
+                        retention.retain(sequence + i, ExpiringEvent.wrap(events.get(i), expiresAt));
+                    }
+                }
+                return sequence;
+            }
+            
+            long sequence = nextSequence.getAndIncrement();
+            if (retention != null) {
+                retention.retain(sequence, ExpiringEvent.wrap(data, expiresAt));
+            }
+            return sequence;
+        }
+        
+        /**
+         * Selects what a proxy push supplier receives of an event or batch. Consumers that track
+         * sequence numbers receive each accepted event paired with its sequence.
+         * 
+         * @param supplier The proxy push supplier
+         * @param sequence The sequence number of the event, or of the first event of the batch
+         * @param data The event data, or a batch of events
+         * @param evaluation The evaluation of the admin's filters started for the event
+         * @return The selected event or batch, or null if nothing passes the filters
+         */
+        private Object select(ProxyPushSupplierImpl supplier, long sequence, Object data,
+                FilterRegistry.Evaluation evaluation) {
+            if (!supplier.sequenced) {
+                return select(supplier.filters, data, evaluation);
+            }
+            if (!(data instanceof EventBatch)) {
+                return supplier.filters.accepts(evaluation) ? new SequencedEvent(sequence, data) : null;
+            }
+            
+            EventBatch batch = (EventBatch) data;
+            List<Object> accepted = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                if (filters.accepts(evaluation, i) && supplier.filters.accepts(evaluation, i)) {
+                    accepted.add(new SequencedEvent(sequence + i, batch.events().get(i)));
+                }
+            }
+            return accepted.isEmpty() ? null : new EventBatch(accepted.toArray());
+        }
+        
+        /**
+         * Resolves the position a consumer connects from against the retained events.
+         * Called while holding the dispatch lock.
+         * 
+         * @param start The requested start position
+         * @return The sequence of the first event to deliver to the consumer
+         */
+        long resolve(StartPosition start) {
+            long next = nextSequence.get();
+            return start.resolve(history != null ? history.getEarliestSequence() : next, next);
+        }
+        
+        /**
+         * Selects the part of an event or batch that passes both the admin's filters and a proxy's filters.
+         * A single event has already passed the admin's filters. Each distinct filter is evaluated
+         * once per event into the dispatcher's evaluation, however many proxies it is attached to.
+         * 
+         * @param proxyFilters The filters of the proxy
+         * @param data The event data, or a batch of events
+         * @param evaluation The evaluation of the admin's filters started for the event
+         * @return The event, the batch, a batch of the accepted events, or null if nothing passes
+         */
+        private Object select(FilterSet proxyFilters, Object data, FilterRegistry.Evaluation evaluation) {
+            if (!(data instanceof EventBatch)) {
+                return proxyFilters.accepts(evaluation) ? data : null;
+            }
+            if (filters.isEmpty() && proxyFilters.isEmpty()) {
+                return data;
+            }
+            
+            EventBatch batch = (EventBatch) data;
+            List<Object> events = batch.events();
+            List<Object> accepted = null;
+            for (int i = 0; i < events.size(); i++) {
+                boolean passes = filters.accepts(evaluation, i) && proxyFilters.accepts(evaluation, i);
+                if (accepted != null) {
+                    if (passes) {
+                        accepted.add(events.get(i));
+                    }
+                } else if (!passes) {
+                    accepted = new ArrayList<>(events.subList(0, i));
+                }
+            }
+            
+            if (accepted == null) {
+                return batch;
+            }
+            return accepted.isEmpty() ? null : new EventBatch(accepted.toArray());
+        }
+        
+        /**
+         * Stores an event that passed the admin's filters for the pull consumers,
+         * either once in the shared log or in the queue of every proxy pull supplier.
+         * 
+         * @param data The event data, or a batch of events
+         * @param expiresAt The expiry time of the events
+         * @param pushedAt The push time of the events, if they are timed
+         * @param evaluation The evaluation of the admin's filters started for the event
+         * @param blocked Receives the events a full queue or log with {@link OverflowPolicy#BLOCK} has no room for
+         */
+        private void storeEvent(Object data, long expiresAt, long pushedAt, FilterRegistry.Evaluation evaluation,
+                BlockedDeliveries blocked) {
+            if (eventLog == null) {
+                for (ProxyPullSupplierImpl supplier : pullSuppliers.snapshot()) {
+                    Object selected = select(supplier.filters, data, evaluation);
+                    if (selected != null) {
+                        supplier.storeEvent(selected, expiresAt, pushedAt, blocked);
+                    }
+                }
+            } else if (data instanceof EventBatch) {
+                // Proxy filters are applied by each cursor as it reads the log
+                EventBatch batch = (EventBatch) data;
+                for (int i = 0; i < batch.size(); i++) {
+                    if (filters.accepts(evaluation, i)) {
+                        appendToLog(ExpiringEvent.wrap(batch.events().get(i), expiresAt, pushedAt), blocked);
+                    }
+                }
+            } else {
+                appendToLog(ExpiringEvent.wrap(data, expiresAt, pushedAt), blocked);
+            }
+        }
+        
+        /**
+         * Appends an event to the shared log, leaving it to the dispatcher to wait outside
+         * the dispatch lock if the slowest cursor holds the log back.
+         * 
+         * @param entry The event, possibly wrapped
+         * @param blocked Receives the event if appending it would block
+         */
+        private void appendToLog(Object entry, BlockedDeliveries blocked) {
+            if (!blocked.isEmpty() || !eventLog.appendWithoutBlocking(entry)) {
+                blocked.add(eventLog, entry, 0);
+            }
+        }
+        
+        /**
+         * Creates the storage a newly connected proxy pull supplier reads its events from.
+         * 
+         * @param proxyFilters The filters of the proxy
+         * @return A cursor into the shared log, or a new bounded queue
+         */
+        EventStore newEventStore(FilterSet proxyFilters) {
+            if (eventLog != null) {
+                return eventLog.newCursor(proxyFilters);
+            }
+            return new BoundedEventQueue(config.getProxyQueueCapacity(), config.getProxyOverflowPolicy(), config.getSpillDirectory());
+        }
+        
+        /**
+         * Gets the number of events dropped by the delivery lanes of the proxy push suppliers
+         * and the queues of the proxy pull suppliers.
+         * 
+         * @return The drop count
+         */
+        long getDroppedEventCount() {
+            long dropped = 0;
+            for (ProxyPushSupplierImpl supplier : pushSuppliers.snapshot()) {
+                dropped += supplier.droppedCount.get();
+            }
+            for (ProxyPullSupplierImpl supplier : pullSuppliers.snapshot()) {
+                dropped += supplier.getDroppedEventCount();
+            }
+            return dropped;
+        }
+        
+        /**
+         * Gets the number of events the proxy push suppliers discarded while their
+         * consumers' circuit breakers were open.
+         * 
+         * @return The shed count
+         */
+        long getShedEventCount() {
+            long shed = 0;
+            for (ProxyPushSupplierImpl supplier : pushSuppliers.snapshot()) {
+                shed += supplier.getShedEventCount();
+            }
+            return shed;
+        }
+        
+        /**
+         * Gets the number of events that expired while queued for the proxy suppliers.
+         * 
+         * @return The expiry count
+         */
+        long getExpiredEventCount() {
+            long expired = 0;
+            for (ProxyPushSupplierImpl supplier : pushSuppliers.snapshot()) {
+                expired += supplier.expiredCount.get();
+            }
+            for (ProxyPullSupplierImpl supplier : pullSuppliers.snapshot()) {
+                expired += supplier.expiredCount.get();
+            }
+            return expired;
+        }
+        
+        /**
+         * Removes expired events from the head of the proxy pull suppliers' queues.
+         * 
+         * @param now The current time in milliseconds since the epoch
+         */
+        void sweepExpired(long now) {
+            for (ProxyPullSupplierImpl supplier : pullSuppliers.snapshot()) {
+                supplier.sweepExpired(now);
+            }
+        }
+        
+        /**
+         * Gets the number of events the proxy push suppliers conflated.
+         * 
+         * @return The conflated count
+         */
+        long getConflatedEventCount() {
+            long conflated = 0;
+            for (ProxyPushSupplierImpl supplier : pushSuppliers.snapshot()) {
+                conflated += supplier.getConflatedEventCount();
+            }
+            return conflated;
+        }
+        
+        /**
+         * Gets the number of events the proxy push suppliers pushed again.
+         * 
+         * @return The redelivery count
+         */
+        long getRedeliveredEventCount() {
+            long redelivered = 0;
+            for (ProxyPushSupplierImpl supplier : pushSuppliers.snapshot()) {
+                redelivered += supplier.redeliveredCount.get();
+            }
+            return redelivered;
+        }
+        
+        /**
+         * Gets the number of events the proxy push suppliers gave up on.
+         * 
+         * @return The undeliverable count
+         */
+        long getUndeliverableEventCount() {
+            long undeliverable = 0;
+            for (ProxyPushSupplierImpl supplier : pushSuppliers.snapshot()) {
+                undeliverable += supplier.undeliverableCount.get();
+            }
+            return undeliverable;
+        }
+        
+        /**
+         * Gets the number of events waiting for the consumers.
+         * 
+         * @return The events queued or unacknowledged for the push consumers, and queued for the connected pull consumers
+         */
+        long getBacklog() {
+            long backlog = 0;
+            for (ProxyPushSupplierImpl supplier : pushSuppliers.snapshot()) {
+                backlog += supplier.getBacklog();
+            }
+            for (ProxyPullSupplierImpl supplier : pullSuppliers.snapshot()) {
+                backlog += supplier.getBacklog();
+            }
+            return backlog;
+        }
+        
+        /**
+         * Adds the storages of the consumers that still hold events to the next mark of a watermark.
+         * 
+         * @param watermark The watermark of the durable log
+         */
+        void holdBacklogs(DeliveryWatermark watermark) {
+            for (ProxyPushSupplierImpl supplier : pushSuppliers.snapshot()) {
+                watermark.hold(supplier);
+            }
+            if (eventLog != null) {
+                watermark.hold(eventLog);
+                return;
+            }
+            for (ProxyPullSupplierImpl supplier : pullSuppliers.snapshot()) {
+                PullConnection connection = supplier.state.peer();
+                if (connection != null) {
+                    watermark.hold((BoundedEventQueue) connection.liveStore);
+                }
+            }
+        }
+        
+        /**
+         * Takes a snapshot of the metrics of the proxy suppliers.
+         * 
+         * @return The metrics of each proxy push supplier, then of each proxy pull supplier
+         */
+        List<ConsumerMetrics> getConsumerMetrics() {
+            List<ConsumerMetrics> metrics = new ArrayList<>();
+            for (ProxyPushSupplierImpl supplier : pushSuppliers.snapshot()) {
+                metrics.add(supplier.getMetrics());
+            }
+            for (ProxyPullSupplierImpl supplier : pullSuppliers.snapshot()) {
+                metrics.add(supplier.getMetrics());
+            }
+            return metrics;
+        }
+        
+        /**
+         * Removes a proxy push supplier from the list.
+         * 
+         * @param supplier The supplier to remove
+         */
+        void removeProxyPushSupplier(ProxyPushSupplierImpl supplier) {
+            pushSuppliers.remove(supplier);
+        }
+        
+        /**
+         * Removes a proxy pull supplier from the list.
+         * 
+         * @param supplier The supplier to remove
+         */
+        void removeProxyPullSupplier(ProxyPullSupplierImpl supplier) {
+            pullSuppliers.remove(supplier);
+        }
+        
+        /**
+         * Destroys this admin and all its proxies.
+         */
+        void destroy() {
+            for (ProxyPushSupplierImpl supplier : pushSuppliers.clear()) {
+                supplier.destroy();
+            }
+            
+            for (ProxyPullSupplierImpl supplier : pullSuppliers.clear()) {
+                supplier.destroy();
+            }
+            
+            if (eventLog != null) {
+                eventLog.close();
+            }
+        }
+    }
+    
+    /**
+     * Implementation of the SupplierAdmin interface.
+     */
+    private class SupplierAdminImpl implements SupplierAdmin {
+        
+        private final EventChannelImpl channel;
+        private final List<ProxyPushConsumerImpl> pushConsumers = new ArrayList<>();
+        private final List<ProxyPullConsumerImpl> pullConsumers = new ArrayList<>();
+        
+        SupplierAdminImpl(EventChannelImpl channel) {
+            this.channel = channel;
+        }
+        
+        @Override
+        public ProxyPushConsumer obtain_push_consumer() {
+            ProxyPushConsumerImpl consumer = new ProxyPushConsumerImpl(this);
+            synchronized (pushConsumers) {
+                pushConsumers.add(consumer);
+            }
+            return consumer;
+        }
+        
+        @Override
+        public ProxyPullConsumer obtain_pull_consumer() {
+            ProxyPullConsumerImpl consumer = new ProxyPullConsumerImpl(this);
+            synchronized (pullConsumers) {
+                pullConsumers.add(consumer);
+            }
+            return consumer;
+        }
+        
+        /**
+         * Removes a proxy push consumer from the list.
+         * 
+         * @param consumer The consumer to remove
+         */
+        void removeProxyPushConsumer(ProxyPushConsumerImpl consumer) {
+            synchronized (pushConsumers) {
+                pushConsumers.remove(consumer);
+            }
+        }
+        
+        /**
+         * Removes a proxy pull consumer from the list.
+         * 
+         * @param consumer The consumer to remove
+         */
+        void removeProxyPullConsumer(ProxyPullConsumerImpl consumer) {
+            synchronized (pullConsumers) {
+                pullConsumers.remove(consumer);
+            }
+        }
+        
+        /**
+         * Destroys this admin and all its proxies.
+         */
+        void destroy() {
+            List<ProxyPushConsumerImpl> clonePushConsumers;
+            synchronized (pushConsumers) {
+                clonePushConsumers = new ArrayList<>(pushConsumers);
+                pushConsumers.clear();
+            }
+            
+            for (ProxyPushConsumerImpl consumer : clonePushConsumers) {
+                consumer.destroy();
+            }
+            
+            List<ProxyPullConsumerImpl> clonePullConsumers;
+            synchronized (pullConsumers) {
+                clonePullConsumers = new ArrayList<>(pullConsumers);
+                pullConsumers.clear();
+            }
+            
+            for (ProxyPullConsumerImpl consumer : clonePullConsumers) {
+                consumer.destroy();
+            }
+        }
+    }
+    
+    /**
+     * Implementation of the ProxyPushSupplier interface.
+     */
+    private class ProxyPushSupplierImpl implements ProxyPushSupplier, BlockedDeliveries.Target, DeliveryWatermark.Backlog {
+        
+        private final ConsumerAdminImpl admin;
+        private final String id;
+        private final FilterSet filters;
+        private final DeliveryLane lane;
+        private final DeliveryStats stats = new DeliveryStats(deliveryStats);
+        private final ConsumerHealth health = new ConsumerHealth(config.getDeliveryBudgetMillis(),
+                config.getBreakerFailureThreshold(), config.getBreakerCooldownMillis());
+        private final Runnable resumeLane = new Runnable() {
+            @Override
+            public void run() {
+                health.halfOpen();
+                lane.resume();
+            }
+        };
+        private final KeyExtractor keyExtractor = config.getKeyExtractor();
+        private final ConcurrentHashMap<Object, Object> pendingByKey =
+                keyExtractor != null ? new ConcurrentHashMap<Object, Object>() : null;
+        private final AtomicLong conflatedCount = new AtomicLong();
+        private final AtomicLong expiredCount = new AtomicLong();
+        private final AtomicLong droppedCount = new AtomicLong();
+        private final ProxyState<PushConsumer> state = new ProxyState<>();
+        private volatile boolean sequenced = false;
+        private final AckWindow window = config.getDeliveryGuarantee() == DeliveryGuarantee.AT_LEAST_ONCE
+                ? new AckWindow(config.getAckWindow()) : null;
+        private final long[] dueIds = window != null ? new long[config.getAckWindow()] : null;
+        private final long ackTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getAckTimeoutMillis());
+        private final AtomicLong redeliveredCount = new AtomicLong();
+        private final AtomicLong undeliverableCount = new AtomicLong();
+        private final Object redeliveryLock = new Object();
+        private ScheduledFuture<?> redeliveryTask;
+        private long redeliveryAt = AckWindow.NOT_DUE;
+        private final Runnable redeliveryCheck = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (redeliveryLock) {
+                    redeliveryTask = null;
+                    redeliveryAt = AckWindow.NOT_DUE;
+                }
+                // Redeliver on the lane, so the consumer still receives one call at a time
+                redeliveryDue = true;
+                lane.enqueueControl(REDELIVER);
+                unblockWindow();
+            }
+        };
+        private volatile boolean redeliveryDue = false;
+        private volatile boolean windowBlocked = false;
+        private volatile boolean acknowledging = false;
+        
+        ProxyPushSupplierImpl(ConsumerAdminImpl admin, String id) {
+            this.admin = admin;
+            this.id = id;
+            this.filters = new FilterSet(admin.filterRegistry);
+            this.lane = new DeliveryLane(threadPool, new EventHandler() {
+                @Override
+                public void onEvent(Object data) {
+                    deliverEvent(data);
+                }
+            }, config.getProxyQueueCapacity(), laneRoomFreed,
+                    config.getPriorityLanes(), config.getPriorityScheduling(), config.getPriorityWeights());
+        }
+        
+        @Override
+        public void connect_push_consumer(PushConsumer push_consumer) throws AlreadyConnected {
+            connect_push_consumer(push_consumer, StartPosition.latest());
+        }
+        
+        @Override
+        public void connect_push_consumer(PushConsumer push_consumer, StartPosition start) throws AlreadyConnected {
+            // Hold the dispatcher back so the replay ends exactly where live delivery begins
+            synchronized (dispatchLock) {
+                if (state.isConnected()) {
+                    throw new AlreadyConnected("Push consumer already connected");
+                }
+                this.sequenced = push_consumer instanceof SequencedPushConsumer;
+                this.acknowledging = window != null && push_consumer instanceof AcknowledgingPushConsumer;
+                state.connect(push_consumer, "Push consumer");
+                
+                long from = admin.resolve(start);
+                long next = nextSequence.get();
+                if (from < next) {
+                    // Control entries are handled ahead of any live event
+                    lane.enqueueControl(new ReplayRange(from, next));
+                }
+            }
+        }
+        
+        @Override
+        public void disconnect_push_supplier() {
+            PushConsumer oldConsumer = state.disconnect();
+            if (oldConsumer != null) {
+                oldConsumer.disconnect_push_consumer();
+            }
+            release();
+        }
+        
+        @Override
+        public void acknowledge(long delivery_id) {
+            if (window != null && window.remove(delivery_id) != null) {
+                unblockWindow();
+            }
+        }
+        
+        /**
+         * Discards the pending and unacknowledged events and the filters and removes this proxy from its admin.
+         */
+        private void release() {
+            lane.clear();
+            if (pendingByKey != null) {
+                pendingByKey.clear();
+            }
+            if (window != null) {
+                synchronized (redeliveryLock) {
+                    if (redeliveryTask != null) {
+                        redeliveryTask.cancel(false);
+                        redeliveryTask = null;
+                    }
+                }
+                window.clear();
+            }
+            filters.clear();
+            admin.removeProxyPushSupplier(this);
+        }
+        
+        @Override
+        public int add_filter(Filter new_filter) {
+            return filters.add(new_filter);
+        }
+        
+        @Override
+        public void remove_filter(int filter) throws FilterNotFound {
+            filters.remove(filter);
+        }
+        
+        @Override
+        public Filter get_filter(int filter) throws FilterNotFound {
+            return filters.get(filter);
+        }
+        
+        @Override
+        public int[] get_all_filters() {
+            return filters.ids();
+        }
+        
+        @Override
+        public void remove_all_filters() {
+            filters.clear();
+        }
+        
+        /**
+         * Queues an event on this proxy's delivery lane, conflating it by key if the
+         * channel has a key extractor.
+         * 
+         * @param data The event data, or a batch of events
+         * @param priority The priority lane of the event
+         * @param expiresAt The expiry time of the event
+         * @param pushedAt The push time of the event, if it is timed
+         * @param blocked Receives the event if the lane is full and holds the dispatcher back
+         */
+        void enqueueEvent(Object data, int priority, long expiresAt, long pushedAt, BlockedDeliveries blocked) {
+            if (!state.isConnected()) {
+                return;
+            }
+            if (data instanceof EventBatch && (keyExtractor != null || acknowledging)) {
+                // Conflation and explicit acknowledgements work on single events
+                for (Object event : ((EventBatch) data).events()) {
+                    enqueueSingle(event, priority, expiresAt, pushedAt, blocked);
+                }
+            } else {
+                enqueueSingle(data, priority, expiresAt, pushedAt, blocked);
+            }
+        }
+        
+        /**
+         * Queues an event, or a batch that is delivered as a whole, on the delivery lane.
+         * 
+         * @param data The event data, a sequenced event or a batch of events
+         * @param priority The priority lane of the event
+         * @param expiresAt The expiry time of the event
+         * @param pushedAt The push time of the event, if it is timed
+         * @param blocked Receives the event if the lane is full and holds the dispatcher back
+         */
+        private void enqueueSingle(Object data, int priority, long expiresAt, long pushedAt, BlockedDeliveries blocked) {
+            if (keyExtractor == null) {
+                offerToLane(ExpiringEvent.wrap(data, expiresAt, pushedAt), priority, blocked);
+            } else {
+                conflateEvent(data, priority, expiresAt, pushedAt, blocked);
+            }
+        }
+        
+        /**
+         * Queues an entry on the delivery lane, applying the proxy overflow policy if the lane
+         * is full. {@link OverflowPolicy#BLOCK} and {@link OverflowPolicy#SPILL} hold the
+         * dispatcher back until the consumer catches up; the other policies drop an event.
+         * 
+         * @param entry The event, possibly wrapped, or the pending entry of a conflation key
+         * @param priority The priority lane of the event
+         * @param blocked Receives the entry if the lane is full and holds the dispatcher back
+         */
+        private void offerToLane(Object entry, int priority, BlockedDeliveries blocked) {
+            OverflowPolicy policy = config.getProxyOverflowPolicy();
+            boolean holdsBack = policy == OverflowPolicy.BLOCK || policy == OverflowPolicy.SPILL;
+            // An entry cannot overtake the entries of the same event already waiting for room
+            if ((!holdsBack || blocked.isEmpty()) && lane.offer(entry, priority)) {
+                return;
+            }
+            
+            if (holdsBack) {
+                blocked.add(this, entry, priority);
+            } else if (policy == OverflowPolicy.DROP_OLDEST) {
+                do {
+                    dropped(lane.evictOldest());
+                } while (!lane.offer(entry, priority));
+            } else {
+                dropped(entry);
+            }
+        }
+        
+        @Override
+        public boolean offerBlocked(Object entry, int priority) {
+            if (!state.isConnected()) {
+                // Released with the rest of the lane when the consumer disconnected
+                return true;
+            }
+            return lane.offer(entry, priority);
+        }
+        
+        @Override
+        public boolean waitsForRoom() {
+            // The lane reschedules the dispatcher once its consumer has taken an event
+            return false;
+        }
+        
+        /**
+         * Counts an entry dropped from or refused by the full delivery lane.
+         * 
+         * @param entry The event, possibly wrapped, the pending entry of a conflation key, or null
+         */
+        private void dropped(Object entry) {
+            if (entry instanceof PendingKey) {
+                entry = pendingByKey.remove(((PendingKey) entry).key);
+            }
+            if (entry != null) {
+                droppedCount.addAndGet(ExpiringEvent.countOf(entry));
+            }
+        }
+        
+        /**
+         * Queues an event on the delivery lane unless an event with the same key is still
+         * pending, in which case the new event replaces it. The lane then holds one entry
+         * per pending key, which takes the latest event when it is delivered.
+         * 
+         * @param data The event data, or a sequenced event
+         * @param priority The priority lane of the event
+         * @param expiresAt The expiry time of the event
+         * @param pushedAt The push time of the event, if it is timed
+         * @param blocked Receives the lane entry if the lane is full and holds the dispatcher back
+         */
+        private void conflateEvent(Object data, int priority, long expiresAt, long pushedAt, BlockedDeliveries blocked) {
+            Object key;
+            try {
+                key = keyExtractor.extractKey(data instanceof SequencedEvent ? ((SequencedEvent) data).data : data);
+            } catch (Exception e) {
+                System.err.println("Error extracting conflation key: " + e.getMessage());
+                key = null;
+            }
+            
+            Object entry = ExpiringEvent.wrap(data, expiresAt, pushedAt);
+            if (key == null) {
+                offerToLane(entry, priority, blocked);
+            } else if (pendingByKey.put(key, entry) == null) {
+                offerToLane(new PendingKey(key), priority, blocked);
+            } else {
+                conflatedCount.incrementAndGet();
+            }
+        }
+        
+        /**
+         * Delivers an event on the ring buffer dispatcher thread while the consumer is healthy.
+         * Otherwise the event goes through the delivery lane, so a degraded consumer cannot stall
+         * the dispatcher, and events already in the lane are not overtaken. With at-least-once
+         * delivery events always go through the lane, which owns the acknowledgement window.
+         * The partitions of a partitioned channel also always use the lane, since pushing from
+         * several partition threads at once would overlap pushes to the consumer.
+         * 
+         * @param data The event data
+         * @param expiresAt The expiry time of the event
+         * @param pushedAt The push time of the event, if it is timed
+         * @param blocked Receives the event if the lane is full and holds the dispatcher back
+         */
+        void deliverEventInline(Object data, long expiresAt, long pushedAt, BlockedDeliveries blocked) {
+            // The single ring dispatcher is the only thread filling the lane, so an empty lane stays empty
+            if (ringBuffers.length == 1 && window == null && lane.size() == 0 && health.isClosed()) {
+                // The dispatcher has already checked the expiry, and the push time is passed along unwrapped
+                deliverOnce(data, pushedAt);
+            } else {
+                enqueueEvent(data, 0, expiresAt, pushedAt, blocked);
+            }
+        }
+        
+        /**
+         * Delivers an event to the connected consumer, tracking its health.
+         * Called by the delivery lane, or directly by a ring buffer dispatcher,
+         * and never holds the proxy monitor while the consumer runs.
+         * 
+         * @param data The event data
+         */
+        void deliverEvent(Object data) {
+            if (data == REDELIVER) {
+                if (redeliveryDue) {
+                    redeliverDue();
+                }
+                return;
+            }
+            if (data instanceof PendingKey) {
+                data = pendingByKey.remove(((PendingKey) data).key);
+                if (data == null) {
+                    return;
+                }
+            }
+            if (window != null && !(data instanceof ReplayRange)) {
+                deliverReliably(data);
+            } else {
+                deliverOnce(data);
+            }
+        }
+        
+        /**
+         * Delivers an event, or replays a range of events, without waiting for an acknowledgement.
+         * 
+         * @param data The event data, possibly wrapped with its expiry
+         */
+        private void deliverOnce(Object data) {
+            long pushedAt = ExpiringEvent.UNTIMED;
+            if (data instanceof ExpiringEvent) {
+                if (ExpiringEvent.isExpired(data, System.currentTimeMillis())) {
+                    expiredCount.addAndGet(ExpiringEvent.countOf(data));
+                    return;
+                }
+                pushedAt = ExpiringEvent.pushTimeOf(data);
+                data = ExpiringEvent.unwrap(data);
+            }
+            deliverOnce(data, pushedAt);
+        }
+        
+        /**
+         * Delivers an unwrapped event, or replays a range of events, without waiting for an acknowledgement.
+         * 
+         * @param data The event data, a sequenced event, a batch of events or a replay range
+         * @param pushedAt The push time of the event, if it is timed
+         */
+        private void deliverOnce(Object data, long pushedAt) {
+            PushConsumer target = state.peer();
+            if (target != null) {
+                if (data instanceof ReplayRange) {
+                    replay((ReplayRange) data);
+                    return;
+                }
+                if (!health.allowDelivery()) {
+                    health.eventShed();
+                    return;
+                }
+                Exception failure = push(target, data, pushedAt, -1);
+                if (failure != null && !(failure instanceof Disconnected)) {
+                    deadLetter(id, data, failure, 1);
+                }
+            }
+        }
+        
+        /**
+         * Admits an event into the acknowledgement window and pushes it. While the window is
+         * full the event is held at the head of the lane until an acknowledgement makes room.
+         * 
+         * @param entry The event data, possibly wrapped with its expiry
+         */
+        private void deliverReliably(Object entry) {
+            if (redeliveryDue) {
+                redeliverDue();
+            }
+            if (!state.isConnected()) {
+                return;
+            }
+            long deliveryId = window.admit(entry);
+            if (deliveryId < 0) {
+                windowBlocked = true;
+                lane.hold(entry);
+                // An acknowledgement may have made room before the lane was paused
+                if (window.hasRoom()) {
+                    unblockWindow();
+                }
+                return;
+            }
+            attemptDelivery(deliveryId, entry);
+        }
+        
+        /**
+         * Pushes an event of the acknowledgement window. The event is acknowledged as soon as a
+         * consumer that does not acknowledge explicitly returns, and is otherwise due for redelivery
+         * after a backoff or the acknowledgement timeout, until the attempts run out.
+         * 
+         * @param deliveryId The delivery id of the event
+         * @param entry The event data, possibly wrapped with its expiry
+         */
+        private void attemptDelivery(long deliveryId, Object entry) {
+            if (ExpiringEvent.isExpired(entry, System.currentTimeMillis())) {
+                window.remove(deliveryId);
+                expiredCount.addAndGet(ExpiringEvent.countOf(entry));
+                return;
+            }
+            PushConsumer target = state.peer();
+            if (target == null) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (!health.allowDelivery()) {
+                // Not an attempt: try again once the breaker lets a trial delivery through
+                retryAt(deliveryId, now + health.getCooldownNanos());
+                return;
+            }
+            
+            int attempt = window.attempt(deliveryId, acknowledging ? now + ackTimeoutNanos : AckWindow.NOT_DUE);
+            if (attempt == 0) {
+                health.cancelTrial();
+                return;
+            }
+            if (attempt > config.getMaxDeliveryAttempts()) {
+                // The last attempt was pushed but not acknowledged in time
+                health.cancelTrial();
+                giveUp(deliveryId, entry, null, attempt - 1);
+                return;
+            }
+            if (attempt > 1) {
+                redeliveredCount.addAndGet(ExpiringEvent.countOf(entry));
+            }
+            // Only the first attempt is timed, so redeliveries do not skew the latency
+            long pushedAt = attempt == 1 ? ExpiringEvent.pushTimeOf(entry) : ExpiringEvent.UNTIMED;
+            Exception failure = push(target, ExpiringEvent.unwrap(entry), pushedAt, acknowledging ? deliveryId : -1);
+            if (failure == null) {
+                if (acknowledging) {
+                    scheduleRedelivery(now + ackTimeoutNanos);
+                } else {
+                    window.remove(deliveryId);
+                }
+            } else if (state.isConnected()) {
+                if (attempt >= config.getMaxDeliveryAttempts()) {
+                    giveUp(deliveryId, entry, failure, attempt);
+                } else {
+                    retryAt(deliveryId, now + backoffNanos(attempt));
+                }
+            }
+        }
+        
+        /**
+         * Removes an event whose delivery attempts are used up from the acknowledgement window
+         * and sends it to the dead-letter channel.
+         * 
+         * @param deliveryId The delivery id of the event
+         * @param entry The event data, possibly wrapped with its expiry
+         * @param failure The exception thrown by the last attempt, or null if it was not acknowledged in time
+         * @param attempts The number of delivery attempts
+         */
+        private void giveUp(long deliveryId, Object entry, Exception failure, int attempts) {
+            System.err.println("Giving up on event after " + attempts + " delivery attempts");
+            window.remove(deliveryId);
+            undeliverableCount.addAndGet(ExpiringEvent.countOf(entry));
+            deadLetter(id, ExpiringEvent.unwrap(entry), failure, attempts);
+        }
+        
+        /**
+         * Pushes again the events of the acknowledgement window that are due for redelivery,
+         * then sets the timer for the next one.
+         */
+        private void redeliverDue() {
+            redeliveryDue = false;
+            int count = window.collectDue(System.nanoTime(), dueIds);
+            for (int i = 0; i < count && state.isConnected(); i++) {
+                Object entry = window.get(dueIds[i]);
+                if (entry != null) {
+                    attemptDelivery(dueIds[i], entry);
+                }
+            }
+            scheduleRedelivery(window.nextDue());
+        }
+        
+        /**
+         * Makes an event of the acknowledgement window due for redelivery.
+         * 
+         * @param deliveryId The delivery id of the event
+         * @param due The {@link System#nanoTime()} of the redelivery
+         */
+        private void retryAt(long deliveryId, long due) {
+            window.retryAt(deliveryId, due);
+            scheduleRedelivery(due);
+        }
+        
+        /**
+         * Sets the redelivery timer to fire at the specified time, unless it fires earlier already.
+         * A single timer serves the whole window: when it fires, the due events are collected
+         * and the timer is set for the next one.
+         * 
+         * @param due The {@link System#nanoTime()} of the redelivery, or {@link AckWindow#NOT_DUE}
+         */
+        private void scheduleRedelivery(long due) {
+            if (due == AckWindow.NOT_DUE) {
+                return;
+            }
+            synchronized (redeliveryLock) {
+                if (redeliveryTask != null) {
+                    if (redeliveryAt <= due) {
+                        return;
+                    }
+                    redeliveryTask.cancel(false);
+                }
+                redeliveryAt = due;
+                try {
+                    redeliveryTask = ChannelTimer.get().schedule(redeliveryCheck, due - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // The channel is shutting down
+                    redeliveryTask = null;
+                    redeliveryAt = AckWindow.NOT_DUE;
+                }
+            }
+        }
+        
+        /**
+         * Gets the backoff before the redelivery of an event the consumer failed to accept.
+         * 
+         * @param attempt The number of attempts so far
+         * @return The backoff in nanoseconds, doubling with each attempt up to the maximum
+         */
+        private long backoffNanos(int attempt) {
+            long backoff = config.getRedeliveryBackoffMillis() * (1L << Math.min(attempt - 1, 20));
+            return TimeUnit.MILLISECONDS.toNanos(Math.min(backoff, config.getMaxRedeliveryBackoffMillis()));
         }
         
-        @Override
-        public ProxyPullConsumer obtain_pull_consumer() {
-            ProxyPullConsumerImpl consumer = new ProxyPullConsumerImpl(this);
-            synchronized (pullConsumers) {
-                pullConsumers.add(consumer);
+        /**
+         * Resumes the delivery lane if it is waiting for room in the acknowledgement window.
+         */
+        private void unblockWindow() {
+            if (windowBlocked) {
+                windowBlocked = false;
+                lane.resume();
             }
-            return consumer;
         }
         
         /**
-         * Removes a proxy push consumer from the list.
+         * Pushes an event or batch to the consumer, tracking its health.
          * 
-         * @param consumer The consumer to remove
+         * @param target The consumer
+         * @param data The event data, a sequenced event or a batch of events
+         * @param pushedAt The push time of the event, if it is timed
+         * @param deliveryId The delivery id for an explicitly acknowledging consumer, or -1
+         * @return null if the consumer accepted the event, otherwise the exception it threw
          */
-        void removeProxyPushConsumer(ProxyPushConsumerImpl consumer) {
-            synchronized (pushConsumers) {
-                pushConsumers.remove(consumer);
+        private Exception push(PushConsumer target, Object data, long pushedAt, long deliveryId) {
+            long start = System.nanoTime();
+            try {
+                if (deliveryId >= 0) {
+                    ((AcknowledgingPushConsumer) target).push_with_ack(deliveryId,
+                            data instanceof SequencedEvent ? ((SequencedEvent) data).data : data);
+                } else if (!(data instanceof EventBatch)) {
+                    pushEvent(target, data);
+                } else if (target instanceof BatchPushConsumer && !sequenced) {
+                    ((BatchPushConsumer) target).push_batch(((EventBatch) data).events());
+                } else {
+                    for (Object event : ((EventBatch) data).events()) {
+                        pushEvent(target, event);
+                    }
+                }
+                stats.delivered(ExpiringEvent.countOf(data), pushedAt);
+                if (health.recordSuccess(System.nanoTime() - start)) {
+                    breakerOpened();
+                }
+                return null;
+            } catch (Disconnected e) {
+                disconnect_push_supplier();
+                return e;
+            } catch (Exception e) {
+                // Log the exception and let the circuit breaker decide whether to isolate the consumer
+                System.err.println("Error delivering event to push consumer: " + e.getMessage());
+                stats.failed(ExpiringEvent.countOf(data));
+                if (health.recordFailure()) {
+                    breakerOpened();
+                }
+                return e;
             }
         }
         
         /**
-         * Removes a proxy pull consumer from the list.
+         * Pushes a single event, with its sequence number if the consumer tracks them.
          * 
-         * @param consumer The consumer to remove
+         * @param target The consumer
+         * @param data The event data, or a sequenced event
+         * @throws Disconnected If the consumer is disconnected
          */
-        void removeProxyPullConsumer(ProxyPullConsumerImpl consumer) {
-            synchronized (pullConsumers) {
-                pullConsumers.remove(consumer);
+        private void pushEvent(PushConsumer target, Object data) throws Disconnected {
+            if (data instanceof SequencedEvent) {
+                SequencedEvent event = (SequencedEvent) data;
+                ((SequencedPushConsumer) target).push_sequenced(event.sequence, event.data);
+            } else {
+                target.push(data);
             }
         }
         
         /**
-         * Destroys this admin and all its proxies.
+         * Delivers the retained events of a replay range, reading the history in chunks.
+         * Events evicted from the history before they are read are skipped.
+         * 
+         * @param range The range of sequence numbers to replay
          */
-        void destroy() {
-            List<ProxyPushConsumerImpl> clonePushConsumers;
-            synchronized (pushConsumers) {
-                clonePushConsumers = new ArrayList<>(pushConsumers);
-                pushConsumers.clear();
-            }
-            
-            for (ProxyPushConsumerImpl consumer : clonePushConsumers) {
-                consumer.destroy();
-            }
-            
-            List<ProxyPullConsumerImpl> clonePullConsumers;
-            synchronized (pullConsumers) {
-                clonePullConsumers = new ArrayList<>(pullConsumers);
-                pullConsumers.clear();
+        private void replay(ReplayRange range) {
+            Object[] chunk = new Object[DISPATCH_BATCH];
+            long position = range.from;
+            while (position < range.end && state.isConnected()) {
+                int count = history.read(position, chunk);
+                if (count < 0) {
+                    position = Math.min(history.getEarliestSequence(), range.end);
+                    continue;
+                }
+                if (count == 0) {
+                    break;
+                }
+                
+                int usable = (int) Math.min(count, range.end - position);
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < usable; i++) {
+                    if (ExpiringEvent.isExpired(chunk[i], now)) {
+                        expiredCount.incrementAndGet();
+                        continue;
+                    }
+                    Object data = ExpiringEvent.unwrap(chunk[i]);
+                    if (data != null && admin.filters.accepts(data) && filters.accepts(data)) {
+                        deliverOnce(sequenced ? new SequencedEvent(position + i, data) : data);
+                    }
+                }
+                Arrays.fill(chunk, null);
+                position += usable;
             }
-            
-            for (ProxyPullConsumerImpl consumer : clonePullConsumers) {
-                consumer.destroy();
+        }
+        
+        /**
+         * Isolates the consumer after its circuit breaker has opened.
+         */
+        private void breakerOpened() {
+            switch (config.getBreakerAction()) {
+                case DISCONNECT:
+                    System.err.println("Disconnecting unhealthy push consumer");
+                    disconnect_push_supplier();
+                    break;
+                case PARK:
+                    // Hold events in the lane until the cooldown has elapsed
+                    lane.pause();
+                    try {
+                        ChannelTimer.get().schedule(resumeLane, health.getCooldownNanos(), TimeUnit.NANOSECONDS);
+                    } catch (RejectedExecutionException e) {
+                        lane.resume();
+                    }
+                    break;
+                case SHED:
+                default:
+                    // deliverEvent discards events until the cooldown has elapsed
+                    break;
             }
         }
-    }
-    
-    /**
-     * Implementation of the ProxyPushSupplier interface.
-     */
-    private class ProxyPushSupplierImpl implements ProxyPushSupplier {
         
-        private final ConsumerAdminImpl admin;
-        private PushConsumer consumer;
-        private boolean connected = false;
-        private boolean destroyed = false;
+        /**
+         * Gets the number of events discarded while the consumer's circuit breaker was open.
+         * 
+         * @return The shed count
+         */
+        long getShedEventCount() {
+            return health.getShedCount();
+        }
         
-        ProxyPushSupplierImpl(ConsumerAdminImpl admin) {
-            this.admin = admin;
+        /**
+         * Gets the number of events replaced by a newer event with the same key before delivery.
+         * 
+         * @return The conflated count
+         */
+        long getConflatedEventCount() {
+            return conflatedCount.get();
+        }
+        
+        /**
+         * Gets the number of events waiting for the consumer.
+         * 
+         * @return The events in the delivery lane plus the unacknowledged events
+         */
+        long getBacklog() {
+            return lane.size() + (window != null ? window.size() : 0);
         }
         
         @Override
-        public synchronized void connect_push_consumer(PushConsumer push_consumer) throws AlreadyConnected {
-            if (destroyed) {
-                throw new IllegalStateException("Proxy has been destroyed");
-            }
-            
-            if (connected) {
-                throw new AlreadyConnected("Push consumer already connected");
-            }
-            
-            this.consumer = push_consumer;
-            this.connected = true;
+        public long acceptedCount() {
+            return lane.acceptedCount();
         }
         
+        /**
+         * Gets the number of events delivered from the lane, less those still unacknowledged
+         * with at-least-once delivery. The lane is read first, since an event is admitted to the
+         * window before it leaves the lane.
+         */
         @Override
-        public synchronized void disconnect_push_supplier() {
-            if (connected && consumer != null) {
-                consumer.disconnect_push_consumer();
-                consumer = null;
-                connected = false;
-            }
-            
-            admin.removeProxyPushSupplier(this);
+        public long receivedCount() {
+            long received = lane.receivedCount();
+            return window != null ? received - window.span() : received;
         }
         
         /**
-         * Delivers an event to the connected consumer.
+         * Takes a snapshot of this proxy's metrics.
          * 
-         * @param data The event data
+         * @return The metrics
          */
-        synchronized void deliverEvent(Object data) {
-            if (connected && consumer != null) {
-                try {
-                    consumer.push(data);
-                } catch (Disconnected e) {
-                    disconnect_push_supplier();
-                } catch (Exception e) {
-                    // Log the exception but don't disconnect
-                    System.err.println("Error delivering event to push consumer: " + e.getMessage());
-                }
-            }
+        ConsumerMetrics getMetrics() {
+            return new ConsumerMetrics(id, true, state.isConnected(), getBacklog(), stats, droppedCount.get(),
+                    health.getShedCount(), expiredCount.get(), conflatedCount.get());
         }
         
         /**
          * Destroys this proxy.
          */
-        synchronized void destroy() {
-            if (!destroyed) {
-                destroyed = true;
-                disconnect_push_supplier();
+        void destroy() {
+            PushConsumer oldConsumer = state.destroy();
+            if (oldConsumer != null) {
+                oldConsumer.disconnect_push_consumer();
             }
+            release();
         }
     }
     
@@ -368,85 +2349,248 @@ public class EventChannelImpl implements EventChannel {
     private class ProxyPullSupplierImpl implements ProxyPullSupplier {
         
         private final ConsumerAdminImpl admin;
-        private PullConsumer consumer;
-        private boolean connected = false;
-        private boolean destroyed = false;
-        private final LinkedBlockingQueue<Object> eventQueue = new LinkedBlockingQueue<>();
+        private final String id;
+        private final ProxyState<PullConnection> state = new ProxyState<>();
+        private final FilterSet filters;
+        private final AtomicLong expiredCount = new AtomicLong();
+        private final DeliveryStats stats = new DeliveryStats(deliveryStats);
         
-        ProxyPullSupplierImpl(ConsumerAdminImpl admin) {
+        ProxyPullSupplierImpl(ConsumerAdminImpl admin, String id) {
             this.admin = admin;
+            this.id = id;
+            this.filters = new FilterSet(admin.filterRegistry);
+        }
+        
+        @Override
+        public void connect_pull_consumer(PullConsumer pull_consumer) throws AlreadyConnected {
+            connect_pull_consumer(pull_consumer, StartPosition.latest());
         }
         
         @Override
-        public synchronized void connect_pull_consumer(PullConsumer pull_consumer) throws AlreadyConnected {
-            if (destroyed) {
-                throw new IllegalStateException("Proxy has been destroyed");
+        public void connect_pull_consumer(PullConsumer pull_consumer, StartPosition start) throws AlreadyConnected {
+            // Hold the dispatcher back so the replay ends exactly where the live events begin
+            synchronized (dispatchLock) {
+                if (state.isDestroyed()) {
+                    throw new IllegalStateException("Proxy has been destroyed");
+                }
+                if (state.isConnected()) {
+                    throw new AlreadyConnected("Pull consumer already connected");
+                }
+                
+                EventStore liveStore = admin.newEventStore(filters);
+                long from = admin.resolve(start);
+                long next = nextSequence.get();
+                EventStore store = from < next
+                        ? new ReplayingEventStore(history, liveStore, admin.filters, filters, from, next)
+                        : liveStore;
+                state.connect(new PullConnection(pull_consumer, new ExpiringEventStore(store, expiredCount, stats), liveStore),
+                        "Pull consumer");
             }
+        }
+        
+        @Override
+        public Object try_pull(BooleanHolder has_event) throws Disconnected {
+            Object event = state.connected().store.poll();
+            has_event.value = (event != null);
+            return event;
+        }
+        
+        @Override
+        public Object pull() throws Disconnected {
+            EventStore store = state.connected().store;
             
-            if (connected) {
-                throw new AlreadyConnected("Pull consumer already connected");
+            // Disconnecting closes the store, which ends the wait
+            try {
+                Object event = store.take();
+                if (event == null) {
+                    throw new Disconnected("Proxy was disconnected while pulling");
+                }
+                return event;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new Disconnected("Pull operation interrupted");
             }
-            
-            this.consumer = pull_consumer;
-            this.connected = true;
         }
         
         @Override
-        public synchronized Object try_pull(BooleanHolder has_event) throws Disconnected {
-            if (!connected) {
-                throw new Disconnected("Proxy is not connected");
-            }
+        public List<Object> try_pull_n(int max, BooleanHolder has_event) throws Disconnected {
+            EventStore store = state.connected().store;
             
-            Object event = eventQueue.poll();
-            has_event.value = (event != null);
-            return event;
+            List<Object> events = new ArrayList<>(Math.max(0, Math.min(max, store.size())));
+            store.drainTo(events, max);
+            has_event.value = !events.isEmpty();
+            return events;
         }
         
         @Override
-        public synchronized Object pull() throws Disconnected {
-            if (!connected) {
-                throw new Disconnected("Proxy is not connected");
+        public List<Object> pull_n(int max, long timeout) throws Disconnected {
+            PullConnection connection = state.connected();
+            EventStore store = connection.store;
+            
+            List<Object> events = new ArrayList<>(Math.max(0, Math.min(max, store.size() + 1)));
+            if (max <= 0) {
+                return events;
             }
             
+            // Wait for the first event, then take the rest without waiting
             try {
-                return eventQueue.take();
+                Object first = store.poll(timeout, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    events.add(first);
+                    store.drainTo(events, max - 1);
+                } else if (state.peer() != connection) {
+                    throw new Disconnected("Proxy was disconnected while pulling");
+                }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 throw new Disconnected("Pull operation interrupted");
             }
+            return events;
         }
         
         @Override
-        public synchronized void disconnect_pull_supplier() {
-            if (connected && consumer != null) {
-                consumer.disconnect_pull_consumer();
-                consumer = null;
-                connected = false;
+        public void disconnect_pull_supplier() {
+            PullConnection connection = state.disconnect();
+            if (connection != null) {
+                close(connection);
             }
-            
-            eventQueue.clear();
+            filters.clear();
             admin.removeProxyPullSupplier(this);
         }
         
         /**
-         * Stores an event for later retrieval by pull consumers.
+         * Ends a connection: closing the store releases a waiting pull and a shared log
+         * cursor, so it no longer holds back the log, before the consumer is notified.
+         * 
+         * @param connection The ended connection
+         */
+        private void close(PullConnection connection) {
+            connection.store.clear();
+            connection.store.close();
+            if (connection.consumer != null) {
+                connection.consumer.disconnect_pull_consumer();
+            }
+        }
+        
+        @Override
+        public int add_filter(Filter new_filter) {
+            return filters.add(new_filter);
+        }
+        
+        @Override
+        public void remove_filter(int filter) throws FilterNotFound {
+            filters.remove(filter);
+        }
+        
+        @Override
+        public Filter get_filter(int filter) throws FilterNotFound {
+            return filters.get(filter);
+        }
+        
+        @Override
+        public int[] get_all_filters() {
+            return filters.ids();
+        }
+        
+        @Override
+        public void remove_all_filters() {
+            filters.clear();
+        }
+        
+        /**
+         * Stores an event in this proxy's queue for later retrieval by the pull consumer.
+         * Not used with the shared event log, which the admin appends to directly.
+         * 
+         * @param data The event data
+         * @param expiresAt The expiry time of the event
+         * @param pushedAt The push time of the event, if it is timed
+         * @param blocked Receives the events the queue has no room for if its policy is {@link OverflowPolicy#BLOCK}
+         */
+        void storeEvent(Object data, long expiresAt, long pushedAt, BlockedDeliveries blocked) {
+            PullConnection connection = state.peer();
+            if (connection == null) {
+                return;
+            }
+            
+            BoundedEventQueue queue = (BoundedEventQueue) connection.liveStore;
+            if (data instanceof EventBatch) {
+                for (Object event : ((EventBatch) data).events()) {
+                    offerEvent(queue, ExpiringEvent.wrap(event, expiresAt, pushedAt), blocked);
+                }
+            } else {
+                offerEvent(queue, ExpiringEvent.wrap(data, expiresAt, pushedAt), blocked);
+            }
+        }
+        
+        /**
+         * Removes expired events from the head of this proxy's queue.
+         * A shared log cursor discards them as it reads instead.
+         * 
+         * @param now The current time in milliseconds since the epoch
+         */
+        void sweepExpired(long now) {
+            PullConnection connection = state.peer();
+            if (connection != null && connection.liveStore instanceof BoundedEventQueue) {
+                expiredCount.addAndGet(((BoundedEventQueue) connection.liveStore).removeExpired(now));
+            }
+        }
+        
+        /**
+         * Adds a single event to this proxy's queue. The dispatcher waits for room in a full
+         * queue with {@link OverflowPolicy#BLOCK} only after releasing the dispatch lock, so
+         * connecting consumers and the delivery to other consumers are not held up meanwhile.
          * 
+         * @param queue The proxy's queue
          * @param data The event data
+         * @param blocked Receives the event if the queue would block
          */
-        synchronized void storeEvent(Object data) {
-            if (connected) {
-                eventQueue.offer(data);
+        private void offerEvent(BoundedEventQueue queue, Object data, BlockedDeliveries blocked) {
+            // An event cannot overtake the events of the same batch already waiting for room
+            if (!blocked.isEmpty() || !queue.offerWithoutBlocking(data)) {
+                blocked.add(queue, data, 0);
             }
         }
         
+        /**
+         * Gets the number of events dropped because this proxy's queue was full.
+         * 
+         * @return The drop count
+         */
+        long getDroppedEventCount() {
+            PullConnection connection = state.peer();
+            return connection != null ? connection.store.getDroppedCount() : 0;
+        }
+        
+        /**
+         * Gets the number of events waiting for the pull consumer.
+         * 
+         * @return The queue size or cursor lag, or 0 if no consumer is connected
+         */
+        long getBacklog() {
+            PullConnection connection = state.peer();
+            return connection != null ? connection.store.size() : 0;
+        }
+        
+        /**
+         * Takes a snapshot of this proxy's metrics.
+         * 
+         * @return The metrics
+         */
+        ConsumerMetrics getMetrics() {
+            return new ConsumerMetrics(id, false, state.isConnected(), getBacklog(), stats, getDroppedEventCount(),
+                    0, expiredCount.get(), 0);
+        }
+        
         /**
          * Destroys this proxy.
          */
-        synchronized void destroy() {
-            if (!destroyed) {
-                destroyed = true;
-                disconnect_pull_supplier();
+        void destroy() {
+            PullConnection connection = state.destroy();
+            if (connection != null) {
+                close(connection);
             }
+            filters.clear();
+            admin.removeProxyPullSupplier(this);
         }
     }
     
@@ -456,57 +2600,80 @@ public class EventChannelImpl implements EventChannel {
     private class ProxyPushConsumerImpl implements ProxyPushConsumer {
         
         private final SupplierAdminImpl admin;
-        private PushSupplier supplier;
-        private boolean connected = false;
-        private boolean destroyed = false;
+        private final ProxyState<PushSupplier> state = new ProxyState<>();
         
         ProxyPushConsumerImpl(SupplierAdminImpl admin) {
             this.admin = admin;
         }
         
         @Override
-        public synchronized void connect_push_supplier(PushSupplier push_supplier) throws AlreadyConnected {
-            if (destroyed) {
-                throw new IllegalStateException("Proxy has been destroyed");
-            }
-            
-            if (connected) {
-                throw new AlreadyConnected("Push supplier already connected");
+        public void connect_push_supplier(PushSupplier push_supplier) throws AlreadyConnected {
+            state.connect(push_supplier, "Push supplier");
+        }
+        
+        @Override
+        public void push(Object data) throws Disconnected {
+            push(data, 0);
+        }
+        
+        @Override
+        public void push(Object data, int priority) throws Disconnected {
+            push(data, priority, config.getEventTimeToLiveMillis());
+        }
+        
+        @Override
+        public void push(Object data, int priority, long timeToLiveMillis) throws Disconnected {
+            if (timeToLiveMillis <= 0) {
+                throw new IllegalArgumentException("Time-to-live must be positive: " + timeToLiveMillis);
             }
+            state.connected();
             
-            this.supplier = push_supplier;
-            this.connected = true;
+            // Forward the event to the event channel; concurrent suppliers are not serialized here
+            admin.channel.push(data, priority, timeToLiveMillis);
         }
         
         @Override
-        public synchronized void push(Object data) throws Disconnected {
-            if (!connected) {
-                throw new Disconnected("Proxy is not connected");
-            }
+        public void push_batch(Object[] data) throws Disconnected {
+            pushBatch(data.clone());
+        }
+        
+        @Override
+        public void push_batch(List<?> data) throws Disconnected {
+            pushBatch(data.toArray());
+        }
+        
+        /**
+         * Forwards a batch to the event channel as a single entry.
+         * 
+         * @param events A private copy of the event data
+         * @throws Disconnected If the proxy is not connected
+         */
+        private void pushBatch(Object[] events) throws Disconnected {
+            state.connected();
             
-            // Forward the event to the event channel
-            channel.push(data);
+            if (events.length > 0) {
+                admin.channel.push(new EventBatch(events), 0);
+            }
         }
         
         @Override
-        public synchronized void disconnect_push_consumer() {
-            if (connected && supplier != null) {
-                supplier.disconnect_push_supplier();
-                supplier = null;
-                connected = false;
+        public void disconnect_push_consumer() {
+            PushSupplier oldSupplier = state.disconnect();
+            if (oldSupplier != null) {
+                oldSupplier.disconnect_push_supplier();
             }
-            
             admin.removeProxyPushConsumer(this);
         }
         
         /**
          * Destroys this proxy.
          */
-        synchronized void destroy() {
-            if (!destroyed) {
-                destroyed = true;
-                disconnect_push_consumer();
+        void destroy() {
+            PushSupplier oldSupplier = state.destroy();
+            if (oldSupplier != null) {
+                oldSupplier.disconnect_push_supplier();
             }
+            admin.removeProxyPushConsumer(this);
         }
     }
     
@@ -516,96 +2683,49 @@ public class EventChannelImpl implements EventChannel {
     private class ProxyPullConsumerImpl implements ProxyPullConsumer {
         
         private final SupplierAdminImpl admin;
-        private PullSupplier supplier;
-        private boolean connected = false;
-        private boolean destroyed = false;
-        private final Thread pullThread;
-        private volatile boolean running = true;
+        private final ProxyState<PullTask> state = new ProxyState<>();
         
         ProxyPullConsumerImpl(SupplierAdminImpl admin) {
             this.admin = admin;
-            
-            // Create a thread to pull events from the supplier
-            this.pullThread = new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    pullEvents();
-                }
-            });
-            this.pullThread.setDaemon(true);
-            this.pullThread.start();
         }
         
         @Override
-        public synchronized void connect_pull_supplier(PullSupplier pull_supplier) throws AlreadyConnected {
-            if (destroyed) {
-                throw new IllegalStateException("Proxy has been destroyed");
-            }
-            
-            if (connected) {
-                throw new AlreadyConnected("Pull supplier already connected");
-            }
+        public void connect_pull_supplier(PullSupplier pull_supplier) throws AlreadyConnected {
+            PullTask pullTask = new PullTask(pull_supplier, config.getPullMode(), new EventHandler() {
+                @Override
+                public void onEvent(Object data) {
+                    // Forward the event to the event channel
+                    admin.channel.push(data, 0);
+                }
+            }, new Runnable() {
+                @Override
+                public void run() {
+                    disconnect_pull_consumer();
+                }
+            }, threadPool, ChannelTimer.get(), config.getPullMaxBackoffMillis());
+            state.connect(pullTask, "Pull supplier");
             
-            this.supplier = pull_supplier;
-            this.connected = true;
+            // Start pulling only once connected; a disconnect in between stops the task before it runs
+            pullTask.start();
         }
         
         @Override
-        public synchronized void disconnect_pull_consumer() {
-            running = false;
-            
-            if (connected && supplier != null) {
-                supplier.disconnect_pull_supplier();
-                supplier = null;
-                connected = false;
-            }
-            
+        public void disconnect_pull_consumer() {
+            stop(state.disconnect());
             admin.removeProxyPullConsumer(this);
-            
-            // Interrupt the pull thread
-            pullThread.interrupt();
         }
         
         /**
-         * Pulls events from the supplier and forwards them to the event channel.
+         * Stops pulling from the supplier of an ended connection and notifies the supplier.
+         * 
+         * @param pullTask The task of the ended connection, or null if the proxy was not connected
          */
-        private void pullEvents() {
-            while (running) {
-                try {
-                    PullSupplier currentSupplier;
-                    synchronized (this) {
-                        if (!connected || supplier == null) {
-                            Thread.sleep(1000);
-                            continue;
-                        }
-                        currentSupplier = supplier;
-                    }
-                    
-                    // Try to pull an event
-                    BooleanHolder hasEvent = new BooleanHolder();
-                    Object data = currentSupplier.try_pull(hasEvent);
-                    
-                    if (hasEvent.value && data != null) {
-                        // Forward the event to the event channel
-                        channel.push(data);
-                    } else {
-                        // Wait a bit before trying again
-                        Thread.sleep(100);
-                    }
-                } catch (Disconnected e) {
-                    disconnect_pull_consumer();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                } catch (Exception e) {
-                    // Log the exception but don't disconnect
-                    System.err.println("Error pulling event from supplier: " + e.getMessage());
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
+        private void stop(PullTask pullTask) {
+            if (pullTask != null) {
+                pullTask.stop();
+                PullSupplier oldSupplier = pullTask.getSupplier();
+                if (oldSupplier != null) {
+                    oldSupplier.disconnect_pull_supplier();
                 }
             }
         }
@@ -613,11 +2733,60 @@ public class EventChannelImpl implements EventChannel {
         /**
          * Destroys this proxy.
          */
-        synchronized void destroy() {
-            if (!destroyed) {
-                destroyed = true;
-                disconnect_pull_consumer();
-            }
+        void destroy() {
+            stop(state.destroy());
+            admin.removeProxyPullConsumer(this);
+        }
+    }
+    
+    /**
+     * Marker queued on a delivery lane ahead of live events, standing for the retained
+     * events a consumer connecting from an earlier position receives first.
+     */
+    private static final class ReplayRange {
+        
+        final long from;
+        final long end;
+        
+        ReplayRange(long from, long end) {
+            this.from = from;
+            this.end = end;
+        }
+    }
+    
+    /**
+     * Connection of a proxy pull supplier to its pull consumer.
+     */
+    private static final class PullConnection {
+        
+        final PullConsumer consumer;
+        final EventStore store;
+        final EventStore liveStore;
+        
+        /**
+         * Creates a new connection.
+         * 
+         * @param consumer The pull consumer
+         * @param store The store the consumer pulls from, replaying retained events first if requested
+         * @param liveStore The store the dispatcher adds live events to
+         */
+        PullConnection(PullConsumer consumer, EventStore store, EventStore liveStore) {
+            this.consumer = consumer;
+            this.store = store;
+            this.liveStore = liveStore;
+        }
+    }
+    
+    /**
+     * Entry queued on a delivery lane for a conflation key, standing for the latest
+     * pending event with that key.
+     */
+    private static final class PendingKey {
+        
+        final Object key;
+        
+        PendingKey(Object key) {
+            this.key = key;
         }
     }
 }
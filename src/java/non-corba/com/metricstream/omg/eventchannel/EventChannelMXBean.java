@@ -0,0 +1,165 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Management interface of an event channel, registered with the platform MBean server by the
+ * {@link EventChannelFactory} as {@code com.metricstream.omg:type=EventChannel,name=<name>}.
+ * Counters are cumulative since the channel was created, and latencies are measured from the
+ * push to delivery for the events timed according to {@link EventChannelConfig#setLatencySampleInterval(int)}.
+ */
+public interface EventChannelMXBean {
+    
+    /**
+     * Gets the number of events pushed into the channel. Each event of a batch counts, and
+     * events dropped or rejected by a full channel queue do not.
+     * 
+     * @return The pushed count
+     */
+    long getPushedEventCount();
+    
+    /**
+     * Gets the number of events handed to consumers, counting each consumer that received an event.
+     * 
+     * @return The delivered count
+     */
+    long getDeliveredEventCount();
+    
+    /**
+     * Gets the number of events push consumers threw an exception for.
+     * 
+     * @return The failed delivery count
+     */
+    long getFailedDeliveryCount();
+    
+    /**
+     * Gets the number of events dropped by the channel queue because it was full.
+     * 
+     * @return The channel drop count
+     */
+    long getDroppedEventCount();
+    
+    /**
+     * Gets the number of events dropped by the queues of the connected pull consumers
+     * and the delivery lanes of the connected push consumers.
+     * 
+     * @return The proxy drop count
+     */
+    long getProxyDroppedEventCount();
+    
+    /**
+     * Gets the number of events discarded while push consumers' circuit breakers were open.
+     * 
+     * @return The shed count
+     */
+    long getShedEventCount();
+    
+    /**
+     * Gets the number of events that expired in the channel or while waiting for a consumer.
+     * 
+     * @return The expiry count
+     */
+    long getExpiredEventCount();
+    
+    /**
+     * Gets the number of times an unacknowledged event was pushed to a consumer again.
+     * 
+     * @return The redelivery count
+     */
+    long getRedeliveredEventCount();
+    
+    /**
+     * Gets the number of events given up on after the maximum number of delivery attempts.
+     * 
+     * @return The undeliverable count
+     */
+    long getUndeliverableEventCount();
+    
+    /**
+     * Gets the number of failed events sent to the dead-letter channel.
+     * 
+     * @return The dead-letter count
+     */
+    long getDeadLetterCount();
+    
+    /**
+     * Gets the number of failed events the dead-letter channel did not accept.
+     * 
+     * @return The dead-letter failure count
+     */
+    long getDeadLetterFailureCount();
+    
+    /**
+     * Gets the number of events waiting in the channel queue.
+     * 
+     * @return The channel queue depth
+     */
+    int getQueueDepth();
+    
+    /**
+     * Gets the number of events waiting for the most lagging consumer.
+     * 
+     * @return The largest consumer lag
+     */
+    long getMaxConsumerLag();
+    
+    /**
+     * Gets the number of proxy suppliers obtained and not yet disconnected.
+     * 
+     * @return The consumer count
+     */
+    int getConsumerCount();
+    
+    /**
+     * Gets the number of timed events the latencies are computed from.
+     * 
+     * @return The latency sample count
+     */
+    long getLatencySampleCount();
+    
+    /**
+     * Gets the median push-to-deliver latency.
+     * 
+     * @return The median latency in nanoseconds
+     */
+    long getLatencyMedianNanos();
+    
+    /**
+     * Gets the 90th percentile of the push-to-deliver latency.
+     * 
+     * @return The 90th percentile in nanoseconds
+     */
+    long getLatency90Nanos();
+    
+    /**
+     * Gets the 99th percentile of the push-to-deliver latency.
+     * 
+     * @return The 99th percentile in nanoseconds
+     */
+    long getLatency99Nanos();
+    
+    /**
+     * Gets the 99.9th percentile of the push-to-deliver latency.
+     * 
+     * @return The 99.9th percentile in nanoseconds
+     */
+    long getLatency999Nanos();
+    
+    /**
+     * Gets the largest push-to-deliver latency.
+     * 
+     * @return The maximum latency in nanoseconds
+     */
+    long getLatencyMaxNanos();
+    
+    /**
+     * Gets the metrics of each proxy supplier obtained and not yet disconnected.
+     * 
+     * @return The consumer metrics
+     */
+    ConsumerMetrics[] getConsumers();
+    
+    /**
+     * Discards the latencies recorded so far by the channel, so that the percentiles
+     * reflect only events delivered from now on.
+     */
+    void resetLatency();
+}
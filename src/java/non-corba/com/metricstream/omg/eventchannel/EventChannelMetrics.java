@@ -0,0 +1,144 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.List;
+
+/**
+ * The {@link EventChannelMXBean} of an event channel, reading the channel's counters on demand.
+ */
+final class EventChannelMetrics implements EventChannelMXBean {
+    
+    private final EventChannelImpl channel;
+    
+    /**
+     * Creates the management view of a channel.
+     * 
+     * @param channel The channel
+     */
+    EventChannelMetrics(EventChannelImpl channel) {
+        this.channel = channel;
+    }
+    
+    @Override
+    public long getPushedEventCount() {
+        return channel.getPushedEventCount();
+    }
+    
+    @Override
+    public long getDeliveredEventCount() {
+        return channel.getDeliveredEventCount();
+    }
+    
+    @Override
+    public long getFailedDeliveryCount() {
+        return channel.getFailedDeliveryCount();
+    }
+    
+    @Override
+    public long getDroppedEventCount() {
+        return channel.getDroppedEventCount();
+    }
+    
+    @Override
+    public long getProxyDroppedEventCount() {
+        return channel.getProxyDroppedEventCount();
+    }
+    
+    @Override
+    public long getShedEventCount() {
+        return channel.getShedEventCount();
+    }
+    
+    @Override
+    public long getExpiredEventCount() {
+        return channel.getExpiredEventCount() + channel.getProxyExpiredEventCount();
+    }
+    
+    @Override
+    public long getRedeliveredEventCount() {
+        return channel.getRedeliveredEventCount();
+    }
+    
+    @Override
+    public long getUndeliverableEventCount() {
+        return channel.getUndeliverableEventCount();
+    }
+    
+    @Override
+    public long getDeadLetterCount() {
+        return channel.getDeadLetterCount();
+    }
+    
+    @Override
+    public long getDeadLetterFailureCount() {
+        return channel.getDeadLetterFailureCount();
+    }
+    
+    @Override
+    public int getQueueDepth() {
+        return channel.getQueuedEventCount();
+    }
+    
+    @Override
+    public long getMaxConsumerLag() {
+        long lag = 0;
+        for (ConsumerMetrics consumer : channel.getConsumerMetrics()) {
+            lag = Math.max(lag, consumer.getLag());
+        }
+        return lag;
+    }
+    
+    @Override
+    public int getConsumerCount() {
+        return channel.getConsumerMetrics().size();
+    }
+    
+    @Override
+    public long getLatencySampleCount() {
+        return latency().getCount();
+    }
+    
+    @Override
+    public long getLatencyMedianNanos() {
+        return latency().getValueAtPercentile(50);
+    }
+    
+    @Override
+    public long getLatency90Nanos() {
+        return latency().getValueAtPercentile(90);
+    }
+    
+    @Override
+    public long getLatency99Nanos() {
+        return latency().getValueAtPercentile(99);
+    }
+    
+    @Override
+    public long getLatency999Nanos() {
+        return latency().getValueAtPercentile(99.9);
+    }
+    
+    @Override
+    public long getLatencyMaxNanos() {
+        return latency().getMax();
+    }
+    
+    @Override
+    public ConsumerMetrics[] getConsumers() {
+        List<ConsumerMetrics> consumers = channel.getConsumerMetrics();
+        return consumers.toArray(new ConsumerMetrics[consumers.size()]);
+    }
+    
+    @Override
+    public void resetLatency() {
+        latency().reset();
+    }
+    
+    /**
+     * Gets the channel-wide latency histogram.
+     * 
+     * @return The latency histogram
+     */
+    private LatencyHistogram latency() {
+        return channel.getDeliveryStats().getLatency();
+    }
+}
@@ -0,0 +1,14 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Callback invoked by a dispatcher for each event taken from the channel.
+ */
+interface EventHandler {
+    
+    /**
+     * Handles a single event.
+     * 
+     * @param data The event data
+     */
+    void onEvent(Object data);
+}
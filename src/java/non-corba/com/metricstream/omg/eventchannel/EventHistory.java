@@ -0,0 +1,25 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Read access to the events a channel has dispatched and still retains, by sequence number.
+ * Used to replay events to consumers that connect from an earlier position.
+ */
+interface EventHistory {
+    
+    /**
+     * Gets the sequence of the oldest retained event.
+     * 
+     * @return The earliest sequence
+     */
+    long getEarliestSequence();
+    
+    /**
+     * Reads consecutive events starting at the specified sequence.
+     * An event that can no longer be read is returned as null.
+     * 
+     * @param from The sequence of the first event to read
+     * @param out The array receiving the events
+     * @return The number of events read, or -1 if the first event is no longer retained
+     */
+    int read(long from, Object[] out);
+}
@@ -0,0 +1,49 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * In-memory history holding the most recently dispatched events in a circular array.
+ */
+final class EventRetention implements EventHistory {
+    
+    private final Object[] events;
+    private long next = 0;
+    
+    /**
+     * Creates a new retention buffer.
+     * 
+     * @param capacity The number of events retained
+     */
+    EventRetention(int capacity) {
+        this.events = new Object[capacity];
+    }
+    
+    /**
+     * Retains a dispatched event, evicting the oldest one if the buffer is full.
+     * Events must be retained in sequence order without gaps.
+     * 
+     * @param sequence The sequence of the event
+     * @param data The event data
+     */
+    synchronized void retain(long sequence, Object data) {
+        events[(int) (sequence % events.length)] = data;
+        next = sequence + 1;
+    }
+    
+    @Override
+    public synchronized long getEarliestSequence() {
+        return Math.max(0, next - events.length);
+    }
+    
+    @Override
+    public synchronized int read(long from, Object[] out) {
+        if (from < getEarliestSequence()) {
+            return -1;
+        }
+        
+        int count = (int) Math.max(0, Math.min(out.length, next - from));
+        for (int i = 0; i < count; i++) {
+            out[i] = events[(int) ((from + i) % events.length)];
+        }
+        return count;
+    }
+}
@@ -0,0 +1,68 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage from which a proxy pull supplier retrieves the events of its pull consumer.
+ */
+interface EventStore {
+    
+    /**
+     * Removes the oldest event without waiting.
+     * 
+     * @return The event data, or null if no event is available
+     */
+    Object poll();
+    
+    /**
+     * Removes the oldest event, waiting up to the specified time for one to arrive.
+     * 
+     * @param timeout The maximum time to wait
+     * @param unit The unit of the timeout
+     * @return The event data, or null if the timeout elapsed
+     * @throws InterruptedException If interrupted while waiting
+     */
+    Object poll(long timeout, TimeUnit unit) throws InterruptedException;
+    
+    /**
+     * Removes the oldest event, waiting until one arrives.
+     * 
+     * @return The event data, or null if the store was closed while waiting
+     * @throws InterruptedException If interrupted while waiting
+     */
+    Object take() throws InterruptedException;
+    
+    /**
+     * Removes up to the specified number of events without waiting.
+     * 
+     * @param target The collection receiving the events, in arrival order
+     * @param max The maximum number of events to remove
+     * @return The number of events removed
+     */
+    int drainTo(Collection<Object> target, int max);
+    
+    /**
+     * Gets the number of events waiting to be retrieved.
+     * 
+     * @return The number of events
+     */
+    int size();
+    
+    /**
+     * Gets the number of events discarded because the store was full.
+     * 
+     * @return The drop count
+     */
+    long getDroppedCount();
+    
+    /**
+     * Discards all waiting events.
+     */
+    void clear();
+    
+    /**
+     * Closes the store, releasing its resources.
+     */
+    void close();
+}
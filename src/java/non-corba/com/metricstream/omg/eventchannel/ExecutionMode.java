@@ -0,0 +1,21 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Selects the kind of threads an event channel uses for delivery lanes, dispatchers and pull tasks.
+ */
+public enum ExecutionMode {
+    
+    /**
+     * Work runs on a cached pool of platform threads. Each push consumer that blocks
+     * in {@code push} holds one platform thread for the duration of the call.
+     */
+    PLATFORM_THREADS,
+    
+    /**
+     * Work runs on virtual threads, one per task, so consumers that block in
+     * {@code push} or suppliers that block in {@code pull} cost only a small heap
+     * object while waiting. Requires a Java runtime with virtual thread support;
+     * on older runtimes the channel falls back to {@link #PLATFORM_THREADS}.
+     */
+    VIRTUAL_THREADS
+}
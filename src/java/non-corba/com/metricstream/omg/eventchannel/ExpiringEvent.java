@@ -0,0 +1,145 @@
+package com.metricstream.omg.eventchannel;
+
+import java.io.Serializable;
+
+/**
+ * An event, or a batch of events, paired with the wall-clock time after which it is stale
+ * and, if it was sampled for latency, the time it was pushed. Events without a time-to-live
+ * that are not timed travel through the channel unwrapped. The expiry time is wall-clock
+ * based so that it survives a restart of a durable channel; the push time is not persisted.
+ */
+final class ExpiringEvent implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Expiry time of an event that never expires.
+     */
+    static final long NEVER = Long.MAX_VALUE;
+    
+    /**
+     * Push time of an event that is not timed.
+     */
+    static final long UNTIMED = 0;
+    
+    final Object data;
+    final long expiresAt;
+    final transient long pushedAt;
+    
+    /**
+     * Creates a new expiring event.
+     * 
+     * @param data The event data, or a batch of events
+     * @param expiresAt The time in milliseconds since the epoch after which the event is stale
+     * @param pushedAt The {@link System#nanoTime()} of the push, or {@link #UNTIMED}
+     */
+    private ExpiringEvent(Object data, long expiresAt, long pushedAt) {
+        this.data = data;
+        this.expiresAt = expiresAt;
+        this.pushedAt = pushedAt;
+    }
+    
+    /**
+     * Gets the expiry time of an event pushed now with the specified time-to-live.
+     * 
+     * @param timeToLiveMillis The time-to-live, or {@link Long#MAX_VALUE} if the event never expires
+     * @return The expiry time, or {@link #NEVER}
+     */
+    static long expiryAfter(long timeToLiveMillis) {
+        if (timeToLiveMillis == Long.MAX_VALUE) {
+            return NEVER;
+        }
+        long now = System.currentTimeMillis();
+        return timeToLiveMillis >= NEVER - now ? NEVER : now + timeToLiveMillis;
+    }
+    
+    /**
+     * Pairs an event with its expiry time.
+     * 
+     * @param data The event data, or a batch of events
+     * @param expiresAt The expiry time, or {@link #NEVER}
+     * @return The expiring event, or the data itself if it never expires
+     */
+    static Object wrap(Object data, long expiresAt) {
+        return wrap(data, expiresAt, UNTIMED);
+    }
+    
+    /**
+     * Pairs an event with its expiry time and push time.
+     * 
+     * @param data The event data, or a batch of events
+     * @param expiresAt The expiry time, or {@link #NEVER}
+     * @param pushedAt The push time, or {@link #UNTIMED}
+     * @return The wrapped event, or the data itself if it never expires and is not timed
+     */
+    static Object wrap(Object data, long expiresAt, long pushedAt) {
+        return expiresAt == NEVER && pushedAt == UNTIMED ? data : new ExpiringEvent(data, expiresAt, pushedAt);
+    }
+    
+    /**
+     * Pairs each event of a batch with the expiry time, for storage that keeps events one by one.
+     * 
+     * @param batch The batch
+     * @param expiresAt The expiry time
+     * @return A batch of expiring events
+     */
+    static EventBatch wrapEach(EventBatch batch, long expiresAt) {
+        Object[] events = new Object[batch.size()];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new ExpiringEvent(batch.events().get(i), expiresAt, UNTIMED);
+        }
+        return new EventBatch(events);
+    }
+    
+    /**
+     * Gets the event data of an entry.
+     * 
+     * @param entry An expiring event, or plain event data
+     * @return The event data
+     */
+    static Object unwrap(Object entry) {
+        return entry instanceof ExpiringEvent ? ((ExpiringEvent) entry).data : entry;
+    }
+    
+    /**
+     * Gets the expiry time of an entry.
+     * 
+     * @param entry An expiring event, or plain event data
+     * @return The expiry time, or {@link #NEVER}
+     */
+    static long expiryOf(Object entry) {
+        return entry instanceof ExpiringEvent ? ((ExpiringEvent) entry).expiresAt : NEVER;
+    }
+    
+    /**
+     * Gets the push time of an entry.
+     * 
+     * @param entry An expiring event, or plain event data
+     * @return The {@link System#nanoTime()} of the push, or {@link #UNTIMED}
+     */
+    static long pushTimeOf(Object entry) {
+        return entry instanceof ExpiringEvent ? ((ExpiringEvent) entry).pushedAt : UNTIMED;
+    }
+    
+    /**
+     * Checks whether an entry is stale.
+     * 
+     * @param entry An expiring event, or plain event data
+     * @param now The current time in milliseconds since the epoch
+     * @return true if the entry is an expiring event past its expiry time
+     */
+    static boolean isExpired(Object entry, long now) {
+        return entry instanceof ExpiringEvent && now > ((ExpiringEvent) entry).expiresAt;
+    }
+    
+    /**
+     * Gets the number of events an entry stands for.
+     * 
+     * @param entry An expiring event, or plain event data
+     * @return The batch size, or 1 for a single event
+     */
+    static int countOf(Object entry) {
+        Object data = unwrap(entry);
+        return data instanceof EventBatch ? ((EventBatch) data).size() : 1;
+    }
+}
@@ -0,0 +1,131 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event store for a pull consumer that discards expired events as they are taken,
+ * counting them, and hands the consumer the data of the others, counting them as delivered.
+ */
+final class ExpiringEventStore implements EventStore {
+    
+    private final EventStore delegate;
+    private final AtomicLong expiredCount;
+    private final DeliveryStats stats;
+    
+    /**
+     * Creates a new expiring store.
+     * 
+     * @param delegate The store holding the events, some of them expiring
+     * @param expiredCount The counter of the consumer's expired events
+     * @param stats The delivery statistics of the consumer's proxy
+     */
+    ExpiringEventStore(EventStore delegate, AtomicLong expiredCount, DeliveryStats stats) {
+        this.delegate = delegate;
+        this.expiredCount = expiredCount;
+        this.stats = stats;
+    }
+    
+    /**
+     * Gets the data of an entry taken from the store, or null if it has expired.
+     */
+    private Object accept(Object entry) {
+        if (!(entry instanceof ExpiringEvent)) {
+            stats.delivered(1, ExpiringEvent.UNTIMED);
+            return entry;
+        }
+        if (ExpiringEvent.isExpired(entry, System.currentTimeMillis())) {
+            expiredCount.incrementAndGet();
+            return null;
+        }
+        stats.delivered(1, ExpiringEvent.pushTimeOf(entry));
+        return ExpiringEvent.unwrap(entry);
+    }
+    
+    @Override
+    public Object poll() {
+        while (true) {
+            Object entry = delegate.poll();
+            if (entry == null) {
+                return null;
+            }
+            Object data = accept(entry);
+            if (data != null) {
+                return data;
+            }
+        }
+    }
+    
+    @Override
+    public Object poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            Object entry = delegate.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (entry == null) {
+                return null;
+            }
+            Object data = accept(entry);
+            if (data != null) {
+                return data;
+            }
+        }
+    }
+    
+    @Override
+    public Object take() throws InterruptedException {
+        while (true) {
+            Object entry = delegate.take();
+            if (entry == null) {
+                // The store was closed
+                return null;
+            }
+            Object data = accept(entry);
+            if (data != null) {
+                return data;
+            }
+        }
+    }
+    
+    @Override
+    public int drainTo(Collection<Object> target, int max) {
+        int count = 0;
+        List<Object> entries = new ArrayList<>();
+        while (count < max) {
+            entries.clear();
+            if (delegate.drainTo(entries, max - count) == 0) {
+                break;
+            }
+            for (Object entry : entries) {
+                Object data = accept(entry);
+                if (data != null) {
+                    target.add(data);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+    
+    @Override
+    public long getDroppedCount() {
+        return delegate.getDroppedCount();
+    }
+    
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+    
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,89 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Event filter written in a small constraint language and compiled once into a predicate.
+ * 
+ * <p>The constraint refers to the event as {@code $} and to its fields as {@code $.name},
+ * which may be nested, as in {@code $.order.price}. Fields are read from maps, from public
+ * fields and from {@code getName()}, {@code isName()} or {@code name()} accessors; an
+ * {@link com.metricstream.omg.util.Any} is unwrapped to its value. Sequence elements are
+ * addressed by index, as in {@code $.items.0}.</p>
+ * 
+ * <p>Supported are numeric, string ({@code 'text'}) and boolean ({@code TRUE}, {@code FALSE})
+ * literals, the comparisons {@code == != < <= > >=}, substring match ({@code 'err' ~ $.message}),
+ * sequence membership ({@code 'red' in $.tags}), {@code exist $.name}, and {@code and},
+ * {@code or}, {@code not} with parentheses. A comparison involving a missing field is false.
+ * For example: {@code $.type == 'trade' and ($.price > 100.5 or exist $.urgent)}.</p>
+ * 
+ * This is the non-CORBA equivalent of org.omg.CosNotifyFilter.Filter.
+ */
+public final class Filter {
+    
+    private final String constraint;
+    private final ConstraintParser.Node predicate;
+    
+    /**
+     * Creates a new filter.
+     * 
+     * @param constraint The constraint text
+     * @param predicate The compiled constraint
+     */
+    private Filter(String constraint, ConstraintParser.Node predicate) {
+        this.constraint = constraint;
+        this.predicate = predicate;
+    }
+    
+    /**
+     * Compiles a constraint into a filter.
+     * 
+     * @param constraint The constraint text
+     * @return The compiled filter
+     * @throws InvalidConstraint If the constraint cannot be parsed
+     */
+    public static Filter compile(String constraint) throws InvalidConstraint {
+        if (constraint == null) {
+            throw new InvalidConstraint("Constraint must not be null");
+        }
+        return new Filter(constraint, new ConstraintParser(constraint).parse());
+    }
+    
+    /**
+     * Gets the constraint this filter was compiled from.
+     * 
+     * @return The constraint text
+     */
+    public String constraint() {
+        return constraint;
+    }
+    
+    /**
+     * Evaluates the filter against an event.
+     * 
+     * @param event The event data
+     * @return true if the event satisfies the constraint
+     */
+    public boolean match(Object event) {
+        return Boolean.TRUE.equals(predicate.evaluate(event));
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return constraint.equals(((Filter) obj).constraint);
+    }
+    
+    @Override
+    public int hashCode() {
+        return constraint.hashCode();
+    }
+    
+    @Override
+    public String toString() {
+        return "Filter[" + constraint + "]";
+    }
+}
@@ -0,0 +1,47 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Interface for objects to which event filters can be attached.
+ * An event passes if no filters are attached or if at least one attached filter matches it.
+ * Filters attached to a consumer admin apply to all its proxies in addition to their own filters.
+ * This is the non-CORBA equivalent of org.omg.CosNotifyFilter.FilterAdmin.
+ */
+public interface FilterAdmin {
+    
+    /**
+     * Attaches a filter.
+     * 
+     * @param new_filter The filter to attach
+     * @return The identifier of the attached filter
+     */
+    int add_filter(Filter new_filter);
+    
+    /**
+     * Detaches a filter.
+     * 
+     * @param filter The identifier of the filter
+     * @throws FilterNotFound If no filter with the identifier is attached
+     */
+    void remove_filter(int filter) throws FilterNotFound;
+    
+    /**
+     * Gets an attached filter.
+     * 
+     * @param filter The identifier of the filter
+     * @return The filter
+     * @throws FilterNotFound If no filter with the identifier is attached
+     */
+    Filter get_filter(int filter) throws FilterNotFound;
+    
+    /**
+     * Gets the identifiers of all attached filters.
+     * 
+     * @return The filter identifiers
+     */
+    int[] get_all_filters();
+    
+    /**
+     * Detaches all filters.
+     */
+    void remove_all_filters();
+}
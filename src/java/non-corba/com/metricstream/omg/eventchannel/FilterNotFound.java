@@ -0,0 +1,26 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Exception thrown when a filter identifier does not refer to an attached filter.
+ * This is the non-CORBA equivalent of org.omg.CosNotifyFilter.FilterNotFound.
+ */
+public class FilterNotFound extends Exception {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Creates a new FilterNotFound exception.
+     */
+    public FilterNotFound() {
+        super("Filter not found");
+    }
+    
+    /**
+     * Creates a new FilterNotFound exception with the specified message.
+     * 
+     * @param message The detail message
+     */
+    public FilterNotFound(String message) {
+        super(message);
+    }
+}
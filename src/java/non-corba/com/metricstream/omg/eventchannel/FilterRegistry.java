@@ -0,0 +1,142 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distinct filters in use by a consumer admin and its proxies.
+ * Filters with the same constraint share one {@link Entry}, and each entry owns a slot in
+ * the {@link Evaluation} a dispatcher fills in for the event it is fanning out, so a filter
+ * attached to many proxies is evaluated once per event.
+ */
+final class FilterRegistry {
+    
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final BitSet slots = new BitSet();
+    
+    /**
+     * Gets the shared entry for a filter, creating it if the constraint is not yet in use.
+     * 
+     * @param filter The filter
+     * @return The shared entry
+     */
+    synchronized Entry acquire(Filter filter) {
+        Entry entry = entries.get(filter.constraint());
+        if (entry == null) {
+            int slot = slots.nextClearBit(0);
+            slots.set(slot);
+            entry = new Entry(filter, slot);
+            entries.put(filter.constraint(), entry);
+        }
+        entry.references++;
+        return entry;
+    }
+    
+    /**
+     * Releases an entry, forgetting it once no filter set uses it.
+     * 
+     * @param entry The entry to release
+     */
+    synchronized void release(Entry entry) {
+        if (--entry.references == 0) {
+            entries.remove(entry.filter.constraint());
+            slots.clear(entry.slot);
+        }
+    }
+    
+    /**
+     * A distinct filter and its slot in an evaluation.
+     */
+    static final class Entry {
+        
+        private final Filter filter;
+        private final int slot;
+        private int references = 0;
+        
+        /**
+         * Creates a new entry.
+         * 
+         * @param filter The filter
+         * @param slot The slot holding the filter's result in an evaluation
+         */
+        Entry(Filter filter, int slot) {
+            this.filter = filter;
+            this.slot = slot;
+        }
+        
+        /**
+         * Gets the filter.
+         * 
+         * @return The filter
+         */
+        Filter filter() {
+            return filter;
+        }
+    }
+    
+    /**
+     * Results of the distinct filters for the event or batch a dispatcher is fanning out to
+     * the proxies of an admin. Each filter is evaluated the first time a proxy asks for it and
+     * its result is kept in the filter's slot until the next event is started. An evaluation is
+     * owned by a single dispatcher and reused for every event, so it neither locks nor allocates
+     * once its arrays have grown to the number of filters times the largest batch.
+     */
+    static final class Evaluation {
+        
+        private Object event;
+        private List<Object> batch;
+        private int stride = 1;
+        private long round = 0;
+        private long[] evaluatedIn = new long[0];
+        private Entry[] evaluatedBy = new Entry[0];
+        private boolean[] results = new boolean[0];
+        
+        /**
+         * Starts evaluating the filters for a new event, forgetting the results for the previous one.
+         * 
+         * @param data The event data, or a batch of events
+         */
+        void start(Object data) {
+            round++;
+            event = data;
+            batch = data instanceof EventBatch ? ((EventBatch) data).events() : null;
+            stride = batch != null ? Math.max(1, batch.size()) : 1;
+        }
+        
+        /**
+         * Gets the result of a filter for the current event, evaluating it if no proxy has asked yet.
+         * 
+         * @param entry The filter's entry
+         * @param index The index of the event in the batch, or 0 for a single event
+         * @return true if the event matches
+         */
+        boolean match(Entry entry, int index) {
+            int slot = entry.slot * stride + index;
+            if (slot >= results.length) {
+                grow(slot + 1);
+            }
+            // A slot released and reused while the event is dispatched belongs to a different filter
+            if (evaluatedIn[slot] != round || evaluatedBy[slot] != entry) {
+                results[slot] = entry.filter.match(batch != null ? batch.get(index) : event);
+                evaluatedIn[slot] = round;
+                evaluatedBy[slot] = entry;
+            }
+            return results[slot];
+        }
+        
+        /**
+         * Grows the result arrays to hold at least the specified number of slots.
+         * 
+         * @param capacity The number of slots needed
+         */
+        private void grow(int capacity) {
+            int length = Math.max(capacity, 2 * results.length);
+            evaluatedIn = Arrays.copyOf(evaluatedIn, length);
+            evaluatedBy = Arrays.copyOf(evaluatedBy, length);
+            results = Arrays.copyOf(results, length);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filters attached to a proxy or an admin, implementing the {@link FilterAdmin} operations.
+ * Attached filters are published as a snapshot array so that matching an event does not lock.
+ */
+final class FilterSet {
+    
+    private static final FilterRegistry.Entry[] NO_ENTRIES = new FilterRegistry.Entry[0];
+    
+    private final FilterRegistry registry;
+    private final Map<Integer, FilterRegistry.Entry> filters = new LinkedHashMap<>();
+    private int nextId = 1;
+    private volatile FilterRegistry.Entry[] entries = NO_ENTRIES;
+    
+    /**
+     * Creates a new, empty filter set.
+     * 
+     * @param registry The registry sharing filter evaluations across the admin
+     */
+    FilterSet(FilterRegistry registry) {
+        this.registry = registry;
+    }
+    
+    /**
+     * Attaches a filter.
+     * 
+     * @param filter The filter to attach
+     * @return The identifier of the attached filter
+     */
+    synchronized int add(Filter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter must not be null");
+        }
+        int id = nextId++;
+        filters.put(id, registry.acquire(filter));
+        publish();
+        return id;
+    }
+    
+    /**
+     * Detaches a filter.
+     * 
+     * @param id The identifier of the filter
+     * @throws FilterNotFound If no filter with the identifier is attached
+     */
+    synchronized void remove(int id) throws FilterNotFound {
+        FilterRegistry.Entry entry = filters.remove(id);
+        if (entry == null) {
+            throw new FilterNotFound("No filter with id " + id);
+        }
+        registry.release(entry);
+        publish();
+    }
+    
+    /**
+     * Gets an attached filter.
+     * 
+     * @param id The identifier of the filter
+     * @return The filter
+     * @throws FilterNotFound If no filter with the identifier is attached
+     */
+    synchronized Filter get(int id) throws FilterNotFound {
+        FilterRegistry.Entry entry = filters.get(id);
+        if (entry == null) {
+            throw new FilterNotFound("No filter with id " + id);
+        }
+        return entry.filter();
+    }
+    
+    /**
+     * Gets the identifiers of all attached filters.
+     * 
+     * @return The filter identifiers, in the order the filters were attached
+     */
+    synchronized int[] ids() {
+        int[] ids = new int[filters.size()];
+        int i = 0;
+        for (Integer id : filters.keySet()) {
+            ids[i++] = id;
+        }
+        return ids;
+    }
+    
+    /**
+     * Detaches all filters.
+     */
+    synchronized void clear() {
+        for (FilterRegistry.Entry entry : filters.values()) {
+            registry.release(entry);
+        }
+        filters.clear();
+        publish();
+    }
+    
+    /**
+     * Publishes a new snapshot of the attached filters.
+     */
+    private void publish() {
+        List<FilterRegistry.Entry> distinct = new ArrayList<>();
+        for (FilterRegistry.Entry entry : filters.values()) {
+            if (!distinct.contains(entry)) {
+                distinct.add(entry);
+            }
+        }
+        entries = distinct.toArray(NO_ENTRIES);
+    }
+    
+    /**
+     * Checks whether no filters are attached.
+     * 
+     * @return true if every event passes
+     */
+    boolean isEmpty() {
+        return entries.length == 0;
+    }
+    
+    /**
+     * Checks whether an event passes the attached filters, evaluating them directly.
+     * Used where the event is not being fanned out to the proxies of the admin, such as a replay.
+     * 
+     * @param event The event data
+     * @return true if no filters are attached or at least one matches
+     */
+    boolean accepts(Object event) {
+        FilterRegistry.Entry[] current = entries;
+        if (current.length == 0) {
+            return true;
+        }
+        for (FilterRegistry.Entry entry : current) {
+            if (entry.filter().match(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Checks whether the event a dispatcher is fanning out passes the attached filters,
+     * sharing the result of each filter with the other proxies of the admin.
+     * 
+     * @param evaluation The evaluation started for the event
+     * @return true if no filters are attached or at least one matches
+     */
+    boolean accepts(FilterRegistry.Evaluation evaluation) {
+        return accepts(evaluation, 0);
+    }
+    
+    /**
+     * Checks whether an event of the batch a dispatcher is fanning out passes the attached
+     * filters, sharing the result of each filter with the other proxies of the admin.
+     * 
+     * @param evaluation The evaluation started for the batch
+     * @param index The index of the event in the batch
+     * @return true if no filters are attached or at least one matches
+     */
+    boolean accepts(FilterRegistry.Evaluation evaluation, int index) {
+        FilterRegistry.Entry[] current = entries;
+        if (current.length == 0) {
+            return true;
+        }
+        for (FilterRegistry.Entry entry : current) {
+            if (evaluation.match(entry, index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,28 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Selects when a durable event channel forces its log to disk.
+ * Events in the log that have not been forced yet may be lost if the machine crashes,
+ * although they survive a crash of the JVM alone.
+ */
+public enum FsyncPolicy {
+    
+    /**
+     * Every push returns only after its events have been forced to disk.
+     * This is the safest and slowest policy.
+     */
+    EVERY_EVENT,
+    
+    /**
+     * The dispatcher forces the log once for each batch of events it takes from the log,
+     * before delivering them, so consumers never see an event that could be lost.
+     * Pushes do not wait for the disk. This is the default.
+     */
+    EVERY_BATCH,
+    
+    /**
+     * The log is forced at a fixed interval, see {@link EventChannelConfig#setFsyncIntervalMillis(long)}.
+     * Events delivered since the last force may be lost and are not redelivered after a crash.
+     */
+    PERIODIC
+}
@@ -0,0 +1,26 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Exception thrown when an event channel does not support the requested typed interface.
+ * This is the non-CORBA equivalent of org.omg.CosTypedEventChannelAdmin.InterfaceNotSupported.
+ */
+public class InterfaceNotSupported extends Exception {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Creates a new InterfaceNotSupported exception.
+     */
+    public InterfaceNotSupported() {
+        super("Interface not supported");
+    }
+    
+    /**
+     * Creates a new InterfaceNotSupported exception with the specified message.
+     * 
+     * @param message The detail message
+     */
+    public InterfaceNotSupported(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,26 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Exception thrown when a filter constraint cannot be parsed.
+ * This is the non-CORBA equivalent of org.omg.CosNotifyFilter.InvalidConstraint.
+ */
+public class InvalidConstraint extends Exception {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Creates a new InvalidConstraint exception.
+     */
+    public InvalidConstraint() {
+        super("Invalid filter constraint");
+    }
+    
+    /**
+     * Creates a new InvalidConstraint exception with the specified message.
+     * 
+     * @param message The detail message
+     */
+    public InvalidConstraint(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Extracts a key from an event. As a conflation key, a push consumer that falls behind receives
+ * only the latest pending event for each key, see {@link EventChannelConfig#setKeyExtractor};
+ * as a partition key, events with the same key are dispatched in order by the same partition,
+ * see {@link EventChannelConfig#setPartitionKeyExtractor}.
+ */
+public interface KeyExtractor {
+    
+    /**
+     * Gets the key of an event. Keys are compared with {@code equals} and {@code hashCode}.
+     * 
+     * @param data The event data
+     * @return The key, or null if the event has none
+     */
+    Object extractKey(Object data);
+}
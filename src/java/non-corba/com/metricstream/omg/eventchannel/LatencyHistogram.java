@@ -0,0 +1,139 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket latency histogram with log-linear buckets, in the style of an HDR histogram.
+ * Values below 16 ns have a bucket each; above that every power of two is split into 16
+ * buckets, so a reported value is at most 1/16 above the recorded one. All buckets are
+ * allocated up front and recording only increments counters, so it never allocates.
+ */
+final class LatencyHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int GROUPS = 40;
+    
+    /**
+     * Largest value the histogram distinguishes, about 2.4 hours; larger values are clamped.
+     */
+    private static final long MAX_TRACKABLE = (1L << (GROUPS - 2 + SUB_BUCKET_BITS + 1)) - 1;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(GROUPS * SUB_BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+    
+    /**
+     * Records a latency.
+     * 
+     * @param nanos The latency in nanoseconds, clamped to the trackable range
+     */
+    void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_TRACKABLE);
+        counts.incrementAndGet(indexOf(value));
+        
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Gets the bucket a value is counted in.
+     * 
+     * @param value The value, within the trackable range
+     * @return The bucket index
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+    
+    /**
+     * Gets the largest value counted in a bucket.
+     * 
+     * @param index The bucket index
+     * @return The highest value equivalent to the bucket
+     */
+    private static long highestValueOf(int index) {
+        int group = index / SUB_BUCKETS;
+        int sub = index % SUB_BUCKETS;
+        if (group == 0) {
+            return sub;
+        }
+        int shift = group - 1;
+        return ((long) (SUB_BUCKETS + sub) << shift) + (1L << shift) - 1;
+    }
+    
+    /**
+     * Gets the number of recorded values.
+     * 
+     * @return The count
+     */
+    long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+    
+    /**
+     * Gets the largest recorded value.
+     * 
+     * @return The maximum in nanoseconds, or 0 if nothing was recorded
+     */
+    long getMax() {
+        return max.get();
+    }
+    
+    /**
+     * Gets the value at a percentile of the recorded values. Values recorded concurrently
+     * may or may not be taken into account.
+     * 
+     * @param percentile The percentile, from 0 to 100
+     * @return The value in nanoseconds, or 0 if nothing was recorded
+     * @throws IllegalArgumentException If the percentile is out of range
+     */
+    long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+    
+    /**
+     * Discards all recorded values.
+     */
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+}
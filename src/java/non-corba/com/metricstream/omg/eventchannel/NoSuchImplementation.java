@@ -0,0 +1,26 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Exception thrown when an event channel has no implementation for the requested typed interface.
+ * This is the non-CORBA equivalent of org.omg.CosTypedEventChannelAdmin.NoSuchImplementation.
+ */
+public class NoSuchImplementation extends Exception {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Creates a new NoSuchImplementation exception.
+     */
+    public NoSuchImplementation() {
+        super("No such implementation");
+    }
+    
+    /**
+     * Creates a new NoSuchImplementation exception with the specified message.
+     * 
+     * @param message The detail message
+     */
+    public NoSuchImplementation(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,35 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Describes what a bounded event queue does with a new event when it is full.
+ */
+public enum OverflowPolicy {
+    
+    /**
+     * The pushing thread waits until space becomes available.
+     */
+    BLOCK,
+    
+    /**
+     * The oldest queued event is discarded to make room for the new one.
+     */
+    DROP_OLDEST,
+    
+    /**
+     * The new event is discarded.
+     */
+    DROP_NEWEST,
+    
+    /**
+     * The new event is discarded and the push fails with {@link QueueFull}.
+     * For queues filled by the channel itself, such as proxy pull supplier queues and
+     * push consumer delivery lanes, there is no caller to notify and this behaves like {@link #DROP_NEWEST}.
+     */
+    REJECT,
+    
+    /**
+     * Events that do not fit in memory are serialized to a temporary file and read
+     * back in order as the queue drains. Events that are not serializable are dropped.
+     */
+    SPILL
+}
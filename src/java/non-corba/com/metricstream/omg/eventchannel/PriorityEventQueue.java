@@ -0,0 +1,118 @@
+package com.metricstream.omg.eventchannel;
+
+import java.io.File;
+
+/**
+ * Channel queue made of one {@link BoundedEventQueue} per priority lane.
+ * Each lane has the full capacity and overflow policy of the channel queue, so a flood of
+ * low-priority events fills only its own lane. Events are taken according to a
+ * {@link PriorityScheduling}; within a lane they stay in FIFO order.
+ */
+final class PriorityEventQueue {
+    
+    private final BoundedEventQueue[] lanes;
+    private final PriorityScheduler scheduler;
+    
+    /**
+     * Creates a new priority event queue.
+     * 
+     * @param lanes The number of lanes
+     * @param scheduling The scheduling discipline
+     * @param weights The lane weights for weighted fair scheduling, or null for the defaults
+     * @param capacity The capacity of each lane
+     * @param policy The policy applied when a lane is full
+     * @param spillDirectory The directory for spill files, or null for the default temporary directory
+     */
+    PriorityEventQueue(int lanes, PriorityScheduling scheduling, int[] weights,
+            int capacity, OverflowPolicy policy, File spillDirectory) {
+        this.lanes = new BoundedEventQueue[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new BoundedEventQueue(capacity, policy, spillDirectory);
+        }
+        this.scheduler = new PriorityScheduler(lanes, scheduling, weights) {
+            @Override
+            Object pollLane(int lane) {
+                return PriorityEventQueue.this.lanes[lane].poll();
+            }
+        };
+    }
+    
+    /**
+     * Adds an event to the lane of its priority, applying the overflow policy if the lane is full.
+     * 
+     * @param data The event data
+     * @param priority The priority, clamped to the available lanes
+     * @return true if the event was queued, false if it was dropped
+     * @throws QueueFull If the lane is full and the policy is {@link OverflowPolicy#REJECT}
+     */
+    boolean offer(Object data, int priority) {
+        return lanes[scheduler.laneOf(priority)].offer(data);
+    }
+    
+    /**
+     * Removes the next event without waiting. Called only by the dispatcher.
+     * 
+     * @return The event data, or null if every lane is empty
+     */
+    Object poll() {
+        return scheduler.poll();
+    }
+    
+    /**
+     * Gets the priority lane the event last returned by {@link #poll()} was taken from.
+     * 
+     * @return The lane
+     */
+    int lastPriority() {
+        return scheduler.lastLane();
+    }
+    
+    /**
+     * Removes the expired events at the head of each lane.
+     * 
+     * @param now The current time in milliseconds since the epoch
+     * @return The number of events removed
+     */
+    int removeExpired(long now) {
+        int removed = 0;
+        for (BoundedEventQueue lane : lanes) {
+            removed += lane.removeExpired(now);
+        }
+        return removed;
+    }
+    
+    /**
+     * Gets the number of queued events in all lanes.
+     * 
+     * @return The number of events
+     */
+    int size() {
+        int size = 0;
+        for (BoundedEventQueue lane : lanes) {
+            size += lane.size();
+        }
+        return size;
+    }
+    
+    /**
+     * Gets the number of events discarded because their lane was full.
+     * 
+     * @return The drop count
+     */
+    long getDroppedCount() {
+        long dropped = 0;
+        for (BoundedEventQueue lane : lanes) {
+            dropped += lane.getDroppedCount();
+        }
+        return dropped;
+    }
+    
+    /**
+     * Closes every lane, releasing blocked producers.
+     */
+    void close() {
+        for (BoundedEventQueue lane : lanes) {
+            lane.close();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Chooses the priority lane the next event is taken from, according to a {@link PriorityScheduling}.
+ * Subclasses supply the lanes through {@link #pollLane(int)}. A scheduler keeps the state of the
+ * current round and must be used by one thread at a time.
+ */
+abstract class PriorityScheduler {
+    
+    private final boolean strict;
+    private final int[] weights;
+    private int current;
+    private int credit;
+    private int lastLane;
+    
+    /**
+     * Creates a new scheduler.
+     * 
+     * @param lanes The number of lanes, numbered from 0 (lowest priority)
+     * @param scheduling The scheduling discipline
+     * @param weights The weights of the lanes for {@link PriorityScheduling#WEIGHTED_FAIR}, or null;
+     *                lanes without a weight get {@code 2^lane}
+     */
+    PriorityScheduler(int lanes, PriorityScheduling scheduling, int[] weights) {
+        this.strict = scheduling == PriorityScheduling.STRICT;
+        this.weights = new int[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.weights[i] = weights != null && i < weights.length ? weights[i] : 1 << Math.min(i, 16);
+        }
+        this.current = lanes - 1;
+        this.credit = this.weights[current];
+    }
+    
+    /**
+     * Removes the next event of a lane without waiting.
+     * 
+     * @param lane The lane
+     * @return The event data, or null if the lane is empty
+     */
+    abstract Object pollLane(int lane);
+    
+    /**
+     * Removes the next event from the lane the scheduling discipline selects.
+     * 
+     * @return The event data, or null if every lane is empty
+     */
+    Object poll() {
+        if (weights.length == 1) {
+            return pollLane(0);
+        }
+        
+        if (strict) {
+            for (int lane = weights.length - 1; lane >= 0; lane--) {
+                Object data = pollLane(lane);
+                if (data != null) {
+                    lastLane = lane;
+                    return data;
+                }
+            }
+            return null;
+        }
+        
+        // Weighted round robin, skipping empty lanes; one extra step revisits the starting lane
+        for (int step = 0; step <= weights.length; step++) {
+            if (credit > 0) {
+                Object data = pollLane(current);
+                if (data != null) {
+                    credit--;
+                    lastLane = current;
+                    return data;
+                }
+            }
+            current = current == 0 ? weights.length - 1 : current - 1;
+            credit = weights[current];
+        }
+        return null;
+    }
+    
+    /**
+     * Gets the lane the event last returned by {@link #poll()} was taken from.
+     * 
+     * @return The lane
+     */
+    int lastLane() {
+        return lastLane;
+    }
+    
+    /**
+     * Gets the number of lanes.
+     * 
+     * @return The lane count
+     */
+    int lanes() {
+        return weights.length;
+    }
+    
+    /**
+     * Maps a priority to a lane, clamping it to the available lanes.
+     * 
+     * @param priority The priority
+     * @return The lane
+     */
+    int laneOf(int priority) {
+        return priority <= 0 ? 0 : Math.min(priority, weights.length - 1);
+    }
+}
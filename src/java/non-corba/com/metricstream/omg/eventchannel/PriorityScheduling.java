@@ -0,0 +1,20 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Selects how an event channel with several priority lanes chooses the lane it takes
+ * the next event from.
+ */
+public enum PriorityScheduling {
+    
+    /**
+     * The highest non-empty lane is always served first. Urgent events have the lowest
+     * latency, but a steady stream of them starves the lower lanes.
+     */
+    STRICT,
+    
+    /**
+     * Lanes are served in turn from the highest down, each taking up to its weight in events
+     * per round, so every lane makes progress in proportion to its weight.
+     */
+    WEIGHTED_FAIR
+}
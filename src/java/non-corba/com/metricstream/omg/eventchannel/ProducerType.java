@@ -0,0 +1,19 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Describes how many threads may publish into a ring buffer concurrently.
+ */
+public enum ProducerType {
+    
+    /**
+     * Only one thread ever pushes into the channel. Sequences are claimed
+     * without compare-and-set, which is the cheapest option but unsafe
+     * if several suppliers push concurrently.
+     */
+    SINGLE,
+    
+    /**
+     * Any number of threads may push into the channel concurrently.
+     */
+    MULTI
+}
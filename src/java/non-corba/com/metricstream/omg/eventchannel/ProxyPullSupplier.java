@@ -1,14 +1,18 @@
 package com.metricstream.omg.eventchannel;
 
+import com.metricstream.omg.event.BooleanHolder;
 import com.metricstream.omg.event.PullConsumer;
 import com.metricstream.omg.event.PullSupplier;
 import com.metricstream.omg.event.Disconnected;
 
+import java.util.List;
+
 /**
  * Interface for a proxy pull supplier, which provides events from the event channel when requested by consumers.
+ * Events rejected by the attached filters are never returned to the consumer.
  * This is the non-CORBA equivalent of org.omg.CosEventChannelAdmin.ProxyPullSupplier.
  */
-public interface ProxyPullSupplier extends PullSupplier {
+public interface ProxyPullSupplier extends PullSupplier, FilterAdmin {
     
     /**
      * Connects a pull consumer to this proxy.
@@ -17,4 +21,36 @@ public interface ProxyPullSupplier extends PullSupplier {
      * @throws AlreadyConnected If a consumer is already connected to this proxy
      */
     void connect_pull_consumer(PullConsumer pull_consumer) throws AlreadyConnected;
+    
+    /**
+     * Connects a pull consumer to this proxy, first serving the retained events from the specified
+     * position. Replayed events are read from the channel's history as they are pulled, pass through
+     * the same filters as live ones, and are followed by live events without gaps or duplicates.
+     * 
+     * @param pull_consumer The pull consumer to connect
+     * @param start The position of the first event to return
+     * @throws AlreadyConnected If a consumer is already connected to this proxy
+     */
+    void connect_pull_consumer(PullConsumer pull_consumer, StartPosition start) throws AlreadyConnected;
+    
+    /**
+     * Gets up to the specified number of events without blocking.
+     * 
+     * @param max The maximum number of events to return
+     * @param has_event Set to true if at least one event was returned
+     * @return The events in arrival order, or an empty list if none are available
+     * @throws Disconnected If the proxy is not connected
+     */
+    List<Object> try_pull_n(int max, BooleanHolder has_event) throws Disconnected;
+    
+    /**
+     * Gets up to the specified number of events, blocking until at least one is
+     * available or the timeout elapses.
+     * 
+     * @param max The maximum number of events to return
+     * @param timeout The maximum time to wait for the first event, in milliseconds
+     * @return The events in arrival order, or an empty list if the timeout elapsed
+     * @throws Disconnected If the proxy is not connected or the wait is interrupted
+     */
+    List<Object> pull_n(int max, long timeout) throws Disconnected;
 }
@@ -4,6 +4,8 @@ import com.metricstream.omg.event.PushConsumer;
 import com.metricstream.omg.event.PushSupplier;
 import com.metricstream.omg.event.Disconnected;
 
+import java.util.List;
+
 /**
  * Interface for a proxy push consumer, which receives events from suppliers and forwards them to the event channel.
  * This is the non-CORBA equivalent of org.omg.CosEventChannelAdmin.ProxyPushConsumer.
@@ -17,4 +19,46 @@ public interface ProxyPushConsumer extends PushConsumer {
      * @throws AlreadyConnected If a supplier is already connected to this proxy
      */
     void connect_push_supplier(PushSupplier push_supplier) throws AlreadyConnected;
+    
+    /**
+     * Pushes an event to the channel with a priority. Events of a higher priority overtake
+     * queued events of a lower one, see {@link EventChannelConfig#setPriorityLanes(int)};
+     * {@code push(Object)} uses priority 0.
+     * 
+     * @param data The event data
+     * @param priority The priority, clamped to the channel's priority lanes
+     * @throws Disconnected If the proxy is not connected
+     */
+    void push(Object data, int priority) throws Disconnected;
+    
+    /**
+     * Pushes an event to the channel with a priority and a time-to-live overriding the
+     * channel's default, see {@link EventChannelConfig#setEventTimeToLiveMillis(long)}.
+     * 
+     * @param data The event data
+     * @param priority The priority, clamped to the channel's priority lanes
+     * @param timeToLiveMillis How long the event stays deliverable, or {@link Long#MAX_VALUE} if it never expires
+     * @throws Disconnected If the proxy is not connected
+     * @throws IllegalArgumentException If the time-to-live is not positive
+     */
+    void push(Object data, int priority, long timeToLiveMillis) throws Disconnected;
+    
+    /**
+     * Pushes several events to the channel as one batch.
+     * The batch is kept intact through the channel and delivered in one call
+     * to consumers implementing {@link com.metricstream.omg.event.BatchPushConsumer}.
+     * 
+     * @param data The event data
+     * @throws Disconnected If the proxy is not connected
+     */
+    void push_batch(Object[] data) throws Disconnected;
+    
+    /**
+     * Pushes several events to the channel as one batch.
+     * 
+     * @param data The event data
+     * @throws Disconnected If the proxy is not connected
+     * @see #push_batch(Object[])
+     */
+    void push_batch(List<?> data) throws Disconnected;
 }
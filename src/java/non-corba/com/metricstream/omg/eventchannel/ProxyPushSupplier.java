@@ -6,9 +6,10 @@ import com.metricstream.omg.event.Disconnected;
 
 /**
  * Interface for a proxy push supplier, which receives events from the event channel and forwards them to consumers.
+ * Events rejected by the attached filters are never queued for the consumer.
  * This is the non-CORBA equivalent of org.omg.CosEventChannelAdmin.ProxyPushSupplier.
  */
-public interface ProxyPushSupplier extends PushSupplier {
+public interface ProxyPushSupplier extends PushSupplier, FilterAdmin {
     
     /**
      * Connects a push consumer to this proxy.
@@ -17,4 +18,24 @@ public interface ProxyPushSupplier extends PushSupplier {
      * @throws AlreadyConnected If a consumer is already connected to this proxy
      */
     void connect_push_consumer(PushConsumer push_consumer) throws AlreadyConnected;
+    
+    /**
+     * Connects a push consumer to this proxy, first delivering the retained events from the specified
+     * position. Replayed events pass through the same filters as live ones, and live events follow
+     * them without gaps or duplicates.
+     * 
+     * @param push_consumer The push consumer to connect
+     * @param start The position of the first event to deliver
+     * @throws AlreadyConnected If a consumer is already connected to this proxy
+     */
+    void connect_push_consumer(PushConsumer push_consumer, StartPosition start) throws AlreadyConnected;
+    
+    /**
+     * Acknowledges an event delivered to an {@link com.metricstream.omg.event.AcknowledgingPushConsumer}
+     * with at-least-once delivery, so that it is not redelivered. Unknown ids, such as those of
+     * events already acknowledged or given up on, are ignored.
+     * 
+     * @param delivery_id The delivery id the event was pushed with
+     */
+    void acknowledge(long delivery_id);
 }
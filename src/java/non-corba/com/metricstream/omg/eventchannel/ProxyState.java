@@ -0,0 +1,121 @@
+package com.metricstream.omg.eventchannel;
+
+import com.metricstream.omg.event.Disconnected;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Connection state of a proxy: disconnected, connected to a peer, or destroyed.
+ * Every transition is a single compare-and-set, so a proxy checks its state on each push or
+ * pull without taking a monitor, and a disconnect takes effect at once even while other
+ * threads are pushing or waiting for events through the proxy. Exactly one caller ends a
+ * given connection, so the peer is notified once.
+ * 
+ * @param <T> The type of the peer, or of the connection holding it
+ */
+final class ProxyState<T> {
+    
+    private static final Object NO_PEER = new Object();
+    private static final Object DESTROYED = new Object();
+    
+    private final AtomicReference<Object> state = new AtomicReference<>();
+    
+    /**
+     * Connects the proxy to a peer.
+     * 
+     * @param peer The peer, or null to connect without one
+     * @param role The role of the peer, for the exception message
+     * @throws AlreadyConnected If the proxy is already connected
+     * @throws IllegalStateException If the proxy has been destroyed
+     */
+    void connect(T peer, String role) throws AlreadyConnected {
+        Object connected = peer != null ? peer : NO_PEER;
+        while (!state.compareAndSet(null, connected)) {
+            Object current = state.get();
+            if (current == DESTROYED) {
+                throw new IllegalStateException("Proxy has been destroyed");
+            }
+            if (current != null) {
+                throw new AlreadyConnected(role + " already connected");
+            }
+        }
+    }
+    
+    /**
+     * Gets the peer, checking that the proxy is connected.
+     * 
+     * @return The peer, or null if the proxy was connected without one
+     * @throws Disconnected If the proxy is not connected
+     */
+    T connected() throws Disconnected {
+        Object current = state.get();
+        if (current == null || current == DESTROYED) {
+            throw new Disconnected("Proxy is not connected");
+        }
+        return peerOf(current);
+    }
+    
+    /**
+     * Gets the peer without checking the connection.
+     * 
+     * @return The peer, or null if the proxy is not connected or has no peer
+     */
+    T peer() {
+        return peerOf(state.get());
+    }
+    
+    /**
+     * Checks whether the proxy is connected.
+     * 
+     * @return true if connected
+     */
+    boolean isConnected() {
+        Object current = state.get();
+        return current != null && current != DESTROYED;
+    }
+    
+    /**
+     * Checks whether the proxy has been destroyed.
+     * 
+     * @return true if destroyed
+     */
+    boolean isDestroyed() {
+        return state.get() == DESTROYED;
+    }
+    
+    /**
+     * Ends the connection, leaving the proxy free to connect again.
+     * 
+     * @return The peer of the ended connection, or null if the proxy was not connected or had no peer
+     */
+    T disconnect() {
+        Object current;
+        do {
+            current = state.get();
+            if (current == null || current == DESTROYED) {
+                return null;
+            }
+        } while (!state.compareAndSet(current, null));
+        return peerOf(current);
+    }
+    
+    /**
+     * Ends any connection for good.
+     * 
+     * @return The peer of the ended connection, or null if the proxy was not connected or had no peer
+     */
+    T destroy() {
+        return peerOf(state.getAndSet(DESTROYED));
+    }
+    
+    /**
+     * Unwraps the peer held in a state.
+     * 
+     * @param current The state
+     * @return The peer, or null for any other state
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T peerOf(Object current) {
+        return current == NO_PEER || current == DESTROYED ? null : (T) current;
+    }
+}
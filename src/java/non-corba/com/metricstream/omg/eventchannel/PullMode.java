@@ -0,0 +1,23 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Selects how a proxy pull consumer retrieves events from its connected pull supplier.
+ */
+public enum PullMode {
+    
+    /**
+     * The proxy calls {@code try_pull} from short tasks on the channel's executor.
+     * When the supplier has nothing, the proxy spins, then yields, then reschedules
+     * itself with an exponentially growing delay, so idle proxies hold no thread.
+     */
+    POLL,
+    
+    /**
+     * The proxy calls the blocking {@code pull} in a loop on a thread of its own, virtual
+     * where the JVM supports virtual threads and a platform thread otherwise. The thread
+     * is not taken from the channel's executor, so blocked proxies never starve deliveries
+     * or count against {@link EventChannelConfig#setMaxConcurrency(int)}. Events are
+     * forwarded as soon as the supplier returns them.
+     */
+    BLOCKING
+}
@@ -0,0 +1,22 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Selects how an event channel stores events for its proxy pull suppliers
+ * until the pull consumers retrieve them.
+ */
+public enum PullStorage {
+    
+    /**
+     * Each proxy pull supplier has its own bounded queue holding a copy of every event.
+     * This is the default and supports every {@link OverflowPolicy}.
+     */
+    PER_CONSUMER_QUEUE,
+    
+    /**
+     * All proxy pull suppliers of a consumer admin read from a single append-only log
+     * through their own cursor, so memory per event does not grow with the number of
+     * pull consumers. Supports the {@link OverflowPolicy#DROP_OLDEST} and
+     * {@link OverflowPolicy#BLOCK} proxy overflow policies.
+     */
+    SHARED_LOG
+}
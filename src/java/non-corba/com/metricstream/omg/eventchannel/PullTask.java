@@ -0,0 +1,240 @@
+package com.metricstream.omg.eventchannel;
+
+import com.metricstream.omg.event.BooleanHolder;
+import com.metricstream.omg.event.Disconnected;
+import com.metricstream.omg.event.PullSupplier;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task that retrieves events from a pull supplier on behalf of a proxy pull consumer.
+ * In {@link PullMode#POLL} each run pulls a batch of events and then reschedules itself,
+ * backing off from spinning to yielding to exponentially growing delays while the
+ * supplier is empty. In {@link PullMode#BLOCKING} the task loops on {@code pull()} on a
+ * dedicated thread, virtual where available, so it never holds a thread or concurrency slot
+ * of the channel's executor.
+ */
+final class PullTask implements Runnable {
+    
+    private static final int PULL_BATCH = 256;
+    private static final int SPIN_TRIES = 16;
+    private static final int YIELD_TRIES = 16;
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    
+    private final PullSupplier supplier;
+    private final PullMode mode;
+    private final EventHandler handler;
+    private final Runnable onDisconnect;
+    private final Executor executor;
+    private final ScheduledExecutorService timer;
+    private final long maxBackoffNanos;
+    private final BooleanHolder hasEvent = new BooleanHolder();
+    private final Runnable resubmit = new Runnable() {
+        @Override
+        public void run() {
+            submit();
+        }
+    };
+    private long backoffNanos = 0;
+    private volatile boolean running = true;
+    private final Object blockLock = new Object();
+    private Thread blockedThread;
+    
+    /**
+     * Creates a new pull task.
+     * 
+     * @param supplier The supplier to pull from
+     * @param mode How events are pulled
+     * @param handler The handler forwarding pulled events into the channel
+     * @param onDisconnect Invoked once if the supplier reports that it is disconnected
+     * @param executor The executor running the task in {@link PullMode#POLL}
+     * @param timer The timer used to delay the task while the supplier is empty
+     * @param maxBackoffMillis The longest delay between polls of an empty supplier
+     */
+    PullTask(PullSupplier supplier, PullMode mode, EventHandler handler, Runnable onDisconnect,
+             Executor executor, ScheduledExecutorService timer, long maxBackoffMillis) {
+        this.supplier = supplier;
+        this.mode = mode;
+        this.handler = handler;
+        this.onDisconnect = onDisconnect;
+        this.executor = executor;
+        this.timer = timer;
+        this.maxBackoffNanos = Math.max(MIN_BACKOFF_NANOS, TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis));
+    }
+    
+    /**
+     * Gets the supplier this task pulls from.
+     * 
+     * @return The pull supplier
+     */
+    PullSupplier getSupplier() {
+        return supplier;
+    }
+    
+    /**
+     * Starts pulling events.
+     */
+    void start() {
+        if (mode == PullMode.BLOCKING) {
+            ChannelExecutors.startDedicatedThread(this, "arbat-blocking-pull");
+        } else {
+            submit();
+        }
+    }
+    
+    /**
+     * Stops pulling events, interrupting a blocked {@code pull()} if necessary.
+     * The interrupt happens under the same lock the pulling thread clears itself under,
+     * so it can only reach a thread that is still pulling for this task.
+     */
+    void stop() {
+        synchronized (blockLock) {
+            running = false;
+            if (blockedThread != null) {
+                blockedThread.interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Hands the task to the executor.
+     */
+    private void submit() {
+        if (!running) {
+            return;
+        }
+        
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException e) {
+            // The executor is shutting down
+            running = false;
+        }
+    }
+    
+    @Override
+    public void run() {
+        if (!running) {
+            return;
+        }
+        if (mode == PullMode.BLOCKING) {
+            runBlocking();
+            return;
+        }
+        
+        try {
+            pullPolling();
+        } catch (Disconnected e) {
+            if (running) {
+                running = false;
+                onDisconnect.run();
+            }
+        } catch (Exception e) {
+            // Log the exception but don't disconnect
+            System.err.println("Error pulling event from supplier: " + e.getMessage());
+            backoffNanos = maxBackoffNanos;
+            schedule(backoffNanos);
+        }
+    }
+    
+    /**
+     * Pulls a batch of events with {@code try_pull}, then reschedules the task.
+     */
+    private void pullPolling() throws Disconnected {
+        int pulled = 0;
+        int idle = 0;
+        
+        while (running && pulled < PULL_BATCH) {
+            Object data = supplier.try_pull(hasEvent);
+            if (hasEvent.value && data != null) {
+                // Forward the event to the event channel
+                handler.onEvent(data);
+                pulled++;
+                idle = 0;
+                backoffNanos = 0;
+            } else if (idle < SPIN_TRIES) {
+                idle++;
+            } else if (idle < SPIN_TRIES + YIELD_TRIES) {
+                idle++;
+                Thread.yield();
+            } else {
+                break;
+            }
+        }
+        
+        if (pulled > 0) {
+            // Give other tasks a turn before continuing
+            submit();
+        } else {
+            backoffNanos = backoffNanos == 0 ? MIN_BACKOFF_NANOS : Math.min(backoffNanos * 2, maxBackoffNanos);
+            schedule(backoffNanos);
+        }
+    }
+    
+    /**
+     * Runs the blocking loop on the dedicated thread until stopped or disconnected,
+     * waiting the longest backoff after a failed pull.
+     */
+    private void runBlocking() {
+        while (running) {
+            try {
+                pullBlocking();
+            } catch (Disconnected e) {
+                if (running) {
+                    running = false;
+                    onDisconnect.run();
+                }
+            } catch (Exception e) {
+                // Log the exception but don't disconnect
+                System.err.println("Error pulling event from supplier: " + e.getMessage());
+                try {
+                    TimeUnit.NANOSECONDS.sleep(maxBackoffNanos);
+                } catch (InterruptedException interrupted) {
+                    // stop() was called, the loop condition ends the thread
+                }
+            }
+        }
+    }
+    
+    /**
+     * Pulls events with the blocking {@code pull()} until stopped.
+     */
+    private void pullBlocking() throws Disconnected {
+        synchronized (blockLock) {
+            if (!running) {
+                return;
+            }
+            blockedThread = Thread.currentThread();
+        }
+        try {
+            while (running) {
+                Object data = supplier.pull();
+                if (data != null && running) {
+                    handler.onEvent(data);
+                }
+            }
+        } finally {
+            synchronized (blockLock) {
+                blockedThread = null;
+            }
+        }
+    }
+    
+    /**
+     * Resubmits the task after the specified delay.
+     */
+    private void schedule(long delayNanos) {
+        if (!running) {
+            return;
+        }
+        
+        try {
+            timer.schedule(resubmit, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            running = false;
+        }
+    }
+}
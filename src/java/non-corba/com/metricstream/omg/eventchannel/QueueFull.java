@@ -0,0 +1,26 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Exception thrown when an event is pushed into a full channel queue
+ * configured with {@link OverflowPolicy#REJECT}.
+ */
+public class QueueFull extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Creates a new QueueFull exception.
+     */
+    public QueueFull() {
+        super("Event queue is full");
+    }
+    
+    /**
+     * Creates a new QueueFull exception with the specified message.
+     * 
+     * @param message The detail message
+     */
+    public QueueFull(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,146 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event store for a pull consumer that connected from an earlier position. It first serves the
+ * retained events from the start position up to the point of connection, reading the history in
+ * chunks, and then the events stored live for the consumer since it connected.
+ * Events evicted from the history before they are read are counted as dropped.
+ */
+final class ReplayingEventStore implements EventStore {
+    
+    private static final int CHUNK = 256;
+    
+    private final EventHistory history;
+    private final EventStore live;
+    private final FilterSet adminFilters;
+    private final FilterSet proxyFilters;
+    private final long end;
+    private final Object[] chunk = new Object[CHUNK];
+    private int chunkPosition = 0;
+    private int chunkCount = 0;
+    private long position;
+    private long skipped = 0;
+    private volatile boolean replaying = true;
+    
+    /**
+     * Creates a new replaying store.
+     * 
+     * @param history The history to replay from
+     * @param live The store receiving events dispatched after the consumer connected
+     * @param adminFilters The filters of the consumer admin
+     * @param proxyFilters The filters of the proxy
+     * @param from The sequence of the first event to replay
+     * @param end The sequence of the first event stored live
+     */
+    ReplayingEventStore(EventHistory history, EventStore live, FilterSet adminFilters, FilterSet proxyFilters,
+                        long from, long end) {
+        this.history = history;
+        this.live = live;
+        this.adminFilters = adminFilters;
+        this.proxyFilters = proxyFilters;
+        this.position = from;
+        this.end = end;
+    }
+    
+    /**
+     * Gets the next replayed event that passes the filters.
+     * 
+     * @return The event, or null once the replay is complete
+     */
+    private synchronized Object nextReplayed() {
+        while (replaying) {
+            if (chunkPosition < chunkCount) {
+                Object data = chunk[chunkPosition];
+                chunk[chunkPosition++] = null;
+                Object event = ExpiringEvent.unwrap(data);
+                if (data != null && adminFilters.accepts(event) && proxyFilters.accepts(event)) {
+                    return data;
+                }
+                continue;
+            }
+            
+            if (position >= end) {
+                replaying = false;
+                break;
+            }
+            
+            int count = history.read(position, chunk);
+            if (count < 0) {
+                // The events were evicted before the consumer got to them
+                long earliest = Math.min(history.getEarliestSequence(), end);
+                skipped += earliest - position;
+                position = earliest;
+            } else if (count == 0) {
+                replaying = false;
+            } else {
+                chunkPosition = 0;
+                chunkCount = (int) Math.min(count, end - position);
+                for (int i = chunkCount; i < count; i++) {
+                    chunk[i] = null;
+                }
+                position += chunkCount;
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public Object poll() {
+        Object data = replaying ? nextReplayed() : null;
+        return data != null ? data : live.poll();
+    }
+    
+    @Override
+    public Object poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Object data = replaying ? nextReplayed() : null;
+        return data != null ? data : live.poll(timeout, unit);
+    }
+    
+    @Override
+    public Object take() throws InterruptedException {
+        Object data = replaying ? nextReplayed() : null;
+        return data != null ? data : live.take();
+    }
+    
+    @Override
+    public int drainTo(Collection<Object> target, int max) {
+        int count = 0;
+        while (replaying && count < max) {
+            Object data = nextReplayed();
+            if (data == null) {
+                break;
+            }
+            target.add(data);
+            count++;
+        }
+        return count + live.drainTo(target, max - count);
+    }
+    
+    @Override
+    public synchronized int size() {
+        long remaining = replaying ? end - position + chunkCount - chunkPosition : 0;
+        return (int) Math.min(remaining + live.size(), Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public synchronized long getDroppedCount() {
+        return skipped + live.getDroppedCount();
+    }
+    
+    @Override
+    public synchronized void clear() {
+        replaying = false;
+        for (int i = chunkPosition; i < chunkCount; i++) {
+            chunk[i] = null;
+        }
+        live.clear();
+    }
+    
+    @Override
+    public void close() {
+        live.close();
+    }
+}
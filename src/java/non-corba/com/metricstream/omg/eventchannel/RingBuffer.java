@@ -0,0 +1,179 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preallocated ring buffer of event slots with a single consumer.
+ * Producers claim sequences from a shared cursor and mark each slot as published
+ * once its event has been written; the consumer follows with its own sequence and
+ * frees slots as it goes. Each slot also holds the push time of a timed event, so that
+ * timing an event does not wrap it. No objects are allocated per event.
+ */
+final class RingBuffer {
+    
+    private static final int DRAIN_BATCH = 256;
+    
+    private final Object[] entries;
+    private final long[] pushTimes;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final int capacity;
+    private final ProducerType producerType;
+    private final WaitStrategy waitStrategy;
+    private final AtomicLong claimSequence = new AtomicLong(-1L);
+    private final AtomicLong consumerSequence = new AtomicLong(-1L);
+    private volatile boolean closed = false;
+    
+    /**
+     * Creates a new ring buffer.
+     * 
+     * @param capacity The number of slots, which must be a power of two
+     * @param producerType Whether one or many threads publish into the buffer
+     * @param waitStrategy The strategy used while waiting for slots or events
+     * @throws IllegalArgumentException If the capacity is not a positive power of two
+     */
+    RingBuffer(int capacity, ProducerType producerType, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two: " + capacity);
+        }
+        
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.entries = new Object[capacity];
+        this.pushTimes = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+        this.producerType = producerType;
+        this.waitStrategy = waitStrategy;
+        
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1L);
+        }
+    }
+    
+    /**
+     * Publishes an event, waiting for a free slot if the buffer is full.
+     * 
+     * @param data The event data
+     * @param pushedAt The {@link System#nanoTime()} of the push, or {@link ExpiringEvent#UNTIMED}
+     * @return true if the event was published, false if the buffer was closed while waiting
+     */
+    boolean publish(Object data, long pushedAt) {
+        int attempt = 0;
+        while (!closed) {
+            if (tryPublish(data, pushedAt)) {
+                return true;
+            }
+            waitStrategy.idle(attempt++);
+        }
+        return false;
+    }
+    
+    /**
+     * Publishes an event if a slot is free, without waiting.
+     * 
+     * @param data The event data
+     * @param pushedAt The {@link System#nanoTime()} of the push, or {@link ExpiringEvent#UNTIMED}
+     * @return true if the event was published, false if the buffer is full
+     */
+    boolean tryPublish(Object data, long pushedAt) {
+        long next;
+        if (producerType == ProducerType.SINGLE) {
+            next = claimSequence.get() + 1;
+            if (next - capacity > consumerSequence.get()) {
+                return false;
+            }
+            claimSequence.lazySet(next);
+        } else {
+            long current;
+            do {
+                current = claimSequence.get();
+                next = current + 1;
+                if (next - capacity > consumerSequence.get()) {
+                    return false;
+                }
+            } while (!claimSequence.compareAndSet(current, next));
+        }
+        
+        int index = (int) (next & mask);
+        entries[index] = data;
+        pushTimes[index] = pushedAt;
+        published.lazySet(index, next);
+        return true;
+    }
+    
+    /**
+     * Hands all currently published events, in sequence order, to the handler,
+     * until the handler asks to stop. Must only be called from the single consumer thread.
+     * 
+     * @param handler The handler receiving the events and their push times
+     * @return The number of events handled
+     */
+    int drain(TimedEventHandler handler) {
+        long sequence = consumerSequence.get();
+        int count = 0;
+        
+        while (count < DRAIN_BATCH) {
+            long next = sequence + 1;
+            int index = (int) (next & mask);
+            if (published.get(index) != next) {
+                break;
+            }
+            
+            Object data = entries[index];
+            long pushedAt = pushTimes[index];
+            entries[index] = null;
+            sequence = next;
+            count++;
+            
+            try {
+                if (!handler.onEvent(data, pushedAt)) {
+                    break;
+                }
+            } catch (RuntimeException e) {
+                // Log the exception but keep draining
+                System.err.println("Error dispatching event from ring buffer: " + e.getMessage());
+            }
+        }
+        
+        if (count > 0) {
+            consumerSequence.lazySet(sequence);
+        }
+        return count;
+    }
+    
+    /**
+     * Gets the number of events published but not yet consumed.
+     * 
+     * @return The approximate number of pending events
+     */
+    int size() {
+        long pending = claimSequence.get() - consumerSequence.get();
+        return (int) Math.max(0L, Math.min(pending, capacity));
+    }
+    
+    /**
+     * Gets the number of slots in this buffer.
+     * 
+     * @return The capacity
+     */
+    int capacity() {
+        return capacity;
+    }
+    
+    /**
+     * Closes the buffer, releasing any producers waiting for a free slot.
+     */
+    void close() {
+        closed = true;
+    }
+    
+    /**
+     * Checks whether the buffer has been closed.
+     * 
+     * @return true if the buffer is closed
+     */
+    boolean isClosed() {
+        return closed;
+    }
+}
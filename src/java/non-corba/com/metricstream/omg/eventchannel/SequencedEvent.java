@@ -0,0 +1,16 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * An event paired with its sequence number, queued for a
+ * {@link com.metricstream.omg.event.SequencedPushConsumer}.
+ */
+final class SequencedEvent {
+    
+    final long sequence;
+    final Object data;
+    
+    SequencedEvent(long sequence, Object data) {
+        this.sequence = sequence;
+        this.data = data;
+    }
+}
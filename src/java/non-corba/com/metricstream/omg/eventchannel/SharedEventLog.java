@@ -0,0 +1,399 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only event log shared by the proxy pull suppliers of a consumer admin.
+ * Events are stored once in a chain of fixed-size segments and each pull consumer
+ * reads them through its own {@link Cursor}. The log itself only references the
+ * segment being written, so a segment becomes garbage as soon as the slowest cursor
+ * has moved past it. The lag of a cursor is the distance between its position and
+ * the tail of the log.
+ */
+final class SharedEventLog implements BlockedDeliveries.Target, DeliveryWatermark.Backlog {
+    
+    static final int SEGMENT_SIZE = 1024;
+    private static final long BLOCK_CHECK_MILLIS = 100;
+    
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final SubscriberRegistry<Cursor> cursors = new SubscriberRegistry<>(new Cursor[0]);
+    private Segment tailSegment = new Segment(0);
+    private volatile long tail = 0;
+    private long minPosition = 0;
+    private int waiters = 0;
+    private volatile boolean writerBlocked = false;
+    private volatile boolean closed = false;
+    
+    /**
+     * Creates a new shared event log.
+     * 
+     * @param capacity The maximum lag of a cursor
+     * @param policy The policy applied when a cursor reaches the maximum lag
+     * @throws IllegalArgumentException If the policy is not supported by the log
+     */
+    SharedEventLog(int capacity, OverflowPolicy policy) {
+        if (policy != OverflowPolicy.DROP_OLDEST && policy != OverflowPolicy.BLOCK) {
+            throw new IllegalArgumentException("Shared event log does not support the " + policy + " overflow policy");
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+    
+    /**
+     * Creates a cursor positioned at the tail of the log, so it sees only events appended from now on.
+     * 
+     * @param filters The filters of the reading proxy; events they reject are skipped
+     * @return The new cursor
+     */
+    synchronized Cursor newCursor(FilterSet filters) {
+        Cursor cursor = new Cursor(tailSegment, tail, filters);
+        cursors.add(cursor);
+        return cursor;
+    }
+    
+    /**
+     * Appends an event to the log. Events are not stored while no cursor is open.
+     * 
+     * @param data The event data
+     */
+    synchronized void append(Object data) {
+        if (closed) {
+            return;
+        }
+        
+        Cursor[] active = cursors.snapshot();
+        if (active.length == 0) {
+            return;
+        }
+        makeRoom(active);
+        
+        int index = (int) (tail - tailSegment.base);
+        if (index == SEGMENT_SIZE) {
+            Segment next = new Segment(tail);
+            tailSegment.next = next;
+            tailSegment = next;
+            index = 0;
+        }
+        tailSegment.entries[index] = data;
+        
+        // Publishes the entry and the segment link to the cursors
+        tail = tail + 1;
+        if (waiters > 0) {
+            notifyAll();
+        }
+    }
+    
+    /**
+     * Appends an event to the log like {@link #append(Object)}, except that with
+     * {@link OverflowPolicy#BLOCK} a cursor at the maximum lag refuses the event instead of waiting.
+     * 
+     * @param data The event data
+     * @return true if the event was appended or is not stored, false if appending it would block
+     */
+    synchronized boolean appendWithoutBlocking(Object data) {
+        if (policy == OverflowPolicy.BLOCK && !closed && tail - minPosition >= capacity) {
+            minPosition = minPosition(cursors.snapshot());
+            if (tail - minPosition >= capacity) {
+                return false;
+            }
+        }
+        append(data);
+        return true;
+    }
+    
+    /**
+     * Appends an event the dispatcher held back, waiting outside the dispatch lock
+     * for the slowest cursor to make room.
+     */
+    @Override
+    public boolean offerBlocked(Object entry, int priority) {
+        append(entry);
+        return true;
+    }
+    
+    @Override
+    public boolean waitsForRoom() {
+        return true;
+    }
+    
+    /**
+     * Applies the overflow policy if a cursor would exceed the maximum lag.
+     * The cached minimum position only moves forward, so the cursors are scanned
+     * only while one of them is at the limit.
+     */
+    private void makeRoom(Cursor[] active) {
+        if (tail - minPosition < capacity) {
+            return;
+        }
+        minPosition = minPosition(active);
+        if (tail - minPosition < capacity) {
+            return;
+        }
+        
+        if (policy == OverflowPolicy.DROP_OLDEST) {
+            long floor = tail + 1 - capacity;
+            for (Cursor cursor : active) {
+                cursor.skipTo(floor);
+            }
+            minPosition = floor;
+            return;
+        }
+        
+        writerBlocked = true;
+        try {
+            while (!closed && tail - minPosition >= capacity) {
+                wait(BLOCK_CHECK_MILLIS);
+                minPosition = minPosition(cursors.snapshot());
+            }
+        } catch (InterruptedException e) {
+            // Append the event anyway rather than losing it
+            Thread.currentThread().interrupt();
+        } finally {
+            writerBlocked = false;
+        }
+    }
+    
+    /**
+     * Gets the position of the slowest cursor, or the tail if there are none.
+     */
+    private long minPosition(Cursor[] active) {
+        long min = tail;
+        for (Cursor cursor : active) {
+            min = Math.min(min, cursor.position);
+        }
+        return min;
+    }
+    
+    @Override
+    public long acceptedCount() {
+        return tail;
+    }
+    
+    /**
+     * Gets the position of the slowest cursor, or the tail if no cursor is open.
+     */
+    @Override
+    public synchronized long receivedCount() {
+        return minPosition(cursors.snapshot());
+    }
+    
+    /**
+     * Waits until the cursor has an event to read, it is closed or the timeout elapses.
+     * 
+     * @param cursor The waiting cursor
+     * @param timeoutNanos The maximum time to wait, or 0 to wait without a timeout
+     * @throws InterruptedException If interrupted while waiting
+     */
+    private synchronized void awaitEvent(Cursor cursor, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        waiters++;
+        try {
+            while (cursor.position >= tail && !cursor.closed && !closed) {
+                if (timeoutNanos == 0) {
+                    wait();
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+        } finally {
+            waiters--;
+        }
+    }
+    
+    /**
+     * Wakes a writer blocked by the slowest cursor.
+     */
+    private void cursorAdvanced() {
+        if (writerBlocked) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Removes a closed cursor and wakes anything waiting on it.
+     */
+    private synchronized void removeCursor(Cursor cursor) {
+        cursors.remove(cursor);
+        notifyAll();
+    }
+    
+    /**
+     * Closes the log, releasing waiting readers and writers.
+     */
+    synchronized void close() {
+        closed = true;
+        for (Cursor cursor : cursors.clear()) {
+            cursor.closed = true;
+        }
+        notifyAll();
+    }
+    
+    /**
+     * Fixed-size block of consecutive log entries.
+     */
+    private static final class Segment {
+        final long base;
+        final Object[] entries = new Object[SEGMENT_SIZE];
+        Segment next;
+        
+        Segment(long base) {
+            this.base = base;
+        }
+    }
+    
+    /**
+     * Read position of a single pull consumer in the log.
+     * The position is advanced by the consumer, or by the writer when it drops
+     * events the consumer has fallen too far behind to keep.
+     */
+    final class Cursor implements EventStore {
+        
+        private final FilterSet filters;
+        private Segment segment;
+        private volatile long position;
+        private volatile long droppedCount = 0;
+        private volatile boolean closed = false;
+        
+        /**
+         * Creates a new cursor.
+         * 
+         * @param segment The segment containing the start position
+         * @param position The sequence number of the first event to read
+         * @param filters The filters deciding which events the cursor returns
+         */
+        Cursor(Segment segment, long position, FilterSet filters) {
+            this.segment = segment;
+            this.position = position;
+            this.filters = filters;
+        }
+        
+        /**
+         * Reads the next entry accepted by the filters, skipping the others.
+         * Must be called while holding the cursor's monitor.
+         */
+        private Object read() {
+            while (!closed && position < tail) {
+                int index = (int) (position - segment.base);
+                if (index == SEGMENT_SIZE) {
+                    segment = segment.next;
+                    index = 0;
+                }
+                Object data = segment.entries[index];
+                position = position + 1;
+                if (filters.accepts(ExpiringEvent.unwrap(data))) {
+                    return data;
+                }
+            }
+            return null;
+        }
+        
+        /**
+         * Moves the cursor forward to the specified position, counting the skipped events as dropped.
+         */
+        private synchronized void skipTo(long target) {
+            if (position >= target) {
+                return;
+            }
+            
+            droppedCount += target - position;
+            while (target >= segment.base + SEGMENT_SIZE && segment.next != null) {
+                segment = segment.next;
+            }
+            position = target;
+        }
+        
+        @Override
+        public Object poll() {
+            Object data;
+            synchronized (this) {
+                data = read();
+            }
+            cursorAdvanced();
+            return data;
+        }
+        
+        @Override
+        public Object poll(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (true) {
+                Object data = poll();
+                long remaining = deadline - System.nanoTime();
+                if (data != null || closed || remaining <= 0) {
+                    return data;
+                }
+                awaitEvent(this, remaining);
+            }
+        }
+        
+        @Override
+        public Object take() throws InterruptedException {
+            while (true) {
+                Object data = poll();
+                if (data != null || closed) {
+                    return data;
+                }
+                awaitEvent(this, 0);
+            }
+        }
+        
+        @Override
+        public int drainTo(Collection<Object> target, int max) {
+            int drained = 0;
+            synchronized (this) {
+                while (drained < max) {
+                    Object data = read();
+                    if (data == null) {
+                        break;
+                    }
+                    target.add(data);
+                    drained++;
+                }
+            }
+            cursorAdvanced();
+            return drained;
+        }
+        
+        @Override
+        public int size() {
+            return closed ? 0 : (int) Math.min(Integer.MAX_VALUE, tail - position);
+        }
+        
+        @Override
+        public long getDroppedCount() {
+            return droppedCount;
+        }
+        
+        @Override
+        public void clear() {
+            skipToTail();
+            cursorAdvanced();
+        }
+        
+        /**
+         * Moves the cursor to the tail of the log without counting the skipped events as dropped.
+         */
+        private synchronized void skipToTail() {
+            long target = tail;
+            while (target >= segment.base + SEGMENT_SIZE && segment.next != null) {
+                segment = segment.next;
+            }
+            position = target;
+        }
+        
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                removeCursor(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.metricstream.omg.eventchannel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * FIFO overflow store that serializes events to a temporary file.
+ * Each record is written as a length-prefixed serialized object. The file is
+ * truncated whenever the last spilled event has been read back.
+ * This class is not thread-safe; callers must synchronize access.
+ */
+final class SpillFile {
+    
+    private final File file;
+    private RandomAccessFile raf;
+    private long readPosition = 0;
+    private long writePosition = 0;
+    private int count = 0;
+    
+    /**
+     * Creates a new spill file in the specified directory.
+     * 
+     * @param directory The directory for the temporary file, or null for the default temporary directory
+     * @throws IOException If the file cannot be created
+     */
+    SpillFile(File directory) throws IOException {
+        this.file = File.createTempFile("arbat-spill-", ".dat", directory);
+        this.file.deleteOnExit();
+        this.raf = new RandomAccessFile(file, "rw");
+    }
+    
+    /**
+     * Appends an event to the end of the file.
+     * 
+     * @param data The event data, which must be serializable
+     * @throws IOException If the event cannot be serialized or written
+     */
+    void append(Object data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(data);
+        out.close();
+        
+        byte[] record = bytes.toByteArray();
+        raf.seek(writePosition);
+        raf.writeInt(record.length);
+        raf.write(record);
+        writePosition += 4 + record.length;
+        count++;
+    }
+    
+    /**
+     * Removes and returns the oldest event in the file.
+     * 
+     * @return The event data, or null if the file is empty
+     * @throws IOException If the event cannot be read or deserialized
+     */
+    Object poll() throws IOException {
+        if (count == 0) {
+            return null;
+        }
+        
+        raf.seek(readPosition);
+        int length = raf.readInt();
+        byte[] record = new byte[length];
+        raf.readFully(record);
+        readPosition += 4 + length;
+        count--;
+        
+        if (count == 0) {
+            readPosition = 0;
+            writePosition = 0;
+            raf.setLength(0);
+        }
+        
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(record));
+        try {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Cannot deserialize spilled event", e);
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * Gets the number of events in the file.
+     * 
+     * @return The number of spilled events
+     */
+    int size() {
+        return count;
+    }
+    
+    /**
+     * Discards all spilled events.
+     * 
+     * @throws IOException If the file cannot be truncated
+     */
+    void clear() throws IOException {
+        count = 0;
+        readPosition = 0;
+        writePosition = 0;
+        raf.setLength(0);
+    }
+    
+    /**
+     * Closes and deletes the file.
+     */
+    void close() {
+        try {
+            raf.close();
+        } catch (IOException e) {
+            // Ignore, the file is deleted anyway
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,72 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Position in a channel's event sequence from which a newly connected consumer receives events.
+ * Events before the latest position are replayed from the events the channel retains, see
+ * {@link EventChannelConfig#setRetainedEvents(int)} and {@link EventChannelConfig#setDurableDirectory(java.io.File)}.
+ */
+public final class StartPosition {
+    
+    private static final StartPosition LATEST = new StartPosition(Long.MAX_VALUE);
+    private static final StartPosition EARLIEST = new StartPosition(Long.MIN_VALUE);
+    
+    private final long sequence;
+    
+    private StartPosition(long sequence) {
+        this.sequence = sequence;
+    }
+    
+    /**
+     * Gets the position after the last dispatched event, so that only new events are received.
+     * This is where a plain connect starts.
+     * 
+     * @return The latest position
+     */
+    public static StartPosition latest() {
+        return LATEST;
+    }
+    
+    /**
+     * Gets the position of the oldest event the channel still retains.
+     * 
+     * @return The earliest position
+     */
+    public static StartPosition earliest() {
+        return EARLIEST;
+    }
+    
+    /**
+     * Gets the position of the event with the specified sequence number. If the event is no longer
+     * retained, the consumer starts at the earliest retained event; if it has not been dispatched
+     * yet, the consumer starts at the latest position.
+     * 
+     * @param sequence The sequence number of the first event to receive
+     * @return The position
+     * @throws IllegalArgumentException If the sequence number is negative
+     */
+    public static StartPosition at(long sequence) {
+        if (sequence < 0) {
+            throw new IllegalArgumentException("Sequence must not be negative: " + sequence);
+        }
+        return new StartPosition(sequence);
+    }
+    
+    /**
+     * Resolves this position against the events a channel currently retains.
+     * 
+     * @param earliest The sequence of the oldest retained event
+     * @param next The sequence the next dispatched event will get
+     * @return The sequence of the first event to deliver
+     */
+    long resolve(long earliest, long next) {
+        return Math.max(earliest, Math.min(sequence, next));
+    }
+    
+    @Override
+    public String toString() {
+        if (this == LATEST) {
+            return "latest";
+        }
+        return this == EARLIEST ? "earliest" : "at " + sequence;
+    }
+}
@@ -0,0 +1,78 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.Arrays;
+
+/**
+ * Copy-on-write registry of the proxies attached to an admin.
+ * Connects and disconnects publish a new snapshot array under a lock, while the
+ * delivery path reads the current snapshot with a single volatile read and iterates
+ * it without locking or allocating.
+ * 
+ * @param <T> The proxy type
+ */
+final class SubscriberRegistry<T> {
+    
+    private final T[] empty;
+    private volatile T[] snapshot;
+    
+    /**
+     * Creates a new, empty registry.
+     * 
+     * @param empty An empty array of the proxy type, used as the initial snapshot
+     */
+    SubscriberRegistry(T[] empty) {
+        this.empty = empty;
+        this.snapshot = empty;
+    }
+    
+    /**
+     * Adds a proxy to the registry.
+     * 
+     * @param item The proxy to add
+     */
+    synchronized void add(T item) {
+        T[] current = snapshot;
+        T[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = item;
+        snapshot = next;
+    }
+    
+    /**
+     * Removes a proxy from the registry.
+     * 
+     * @param item The proxy to remove
+     * @return true if the proxy was registered
+     */
+    synchronized boolean remove(T item) {
+        T[] current = snapshot;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == item) {
+                T[] next = Arrays.copyOf(current, current.length - 1);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                snapshot = next;
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Gets the current snapshot. The returned array must not be modified.
+     * 
+     * @return The registered proxies
+     */
+    T[] snapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * Removes all proxies from the registry.
+     * 
+     * @return The proxies that were registered
+     */
+    synchronized T[] clear() {
+        T[] current = snapshot;
+        snapshot = empty;
+        return current;
+    }
+}
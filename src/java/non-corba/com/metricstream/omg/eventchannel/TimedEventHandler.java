@@ -0,0 +1,17 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Callback invoked by a ring buffer dispatcher for each event taken from the buffer,
+ * together with the push time stored in the event's slot.
+ */
+interface TimedEventHandler {
+    
+    /**
+     * Handles a single event.
+     * 
+     * @param data The event data
+     * @param pushedAt The {@link System#nanoTime()} of the push, or {@link ExpiringEvent#UNTIMED}
+     * @return true to keep draining, false to stop after this event
+     */
+    boolean onEvent(Object data, long pushedAt);
+}
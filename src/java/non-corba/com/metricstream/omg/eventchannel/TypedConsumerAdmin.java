@@ -0,0 +1,29 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Interface for the typed consumer administration object, which creates typed proxy suppliers for consumers.
+ * Interfaces are identified by the fully qualified name of a public Java interface.
+ * This is the non-CORBA equivalent of org.omg.CosTypedEventChannelAdmin.TypedConsumerAdmin.
+ */
+public interface TypedConsumerAdmin extends ConsumerAdmin {
+    
+    /**
+     * Gets a typed proxy pull supplier for a consumer pulling through the specified interface.
+     * 
+     * @param supported_interface The name of the interface
+     * @return A typed proxy pull supplier
+     * @throws InterfaceNotSupported If the interface cannot be used for typed events
+     */
+    TypedProxyPullSupplier obtain_typed_pull_supplier(String supported_interface) throws InterfaceNotSupported;
+    
+    /**
+     * Gets a proxy push supplier that delivers typed events as calls on the specified interface.
+     * The consumer connected to it must be a {@link com.metricstream.omg.event.TypedPushConsumer}
+     * whose typed object implements the interface.
+     * 
+     * @param uses_interface The name of the interface
+     * @return A proxy push supplier
+     * @throws NoSuchImplementation If the interface cannot be used for typed events
+     */
+    ProxyPushSupplier obtain_typed_push_supplier(String uses_interface) throws NoSuchImplementation;
+}
@@ -0,0 +1,27 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Interface for a typed event channel, which delivers events as calls on strongly typed interfaces.
+ * This is the non-CORBA equivalent of org.omg.CosTypedEventChannelAdmin.TypedEventChannel.
+ */
+public interface TypedEventChannel {
+    
+    /**
+     * Gets the typed consumer administration object for this event channel.
+     * 
+     * @return The typed consumer admin
+     */
+    TypedConsumerAdmin for_consumers();
+    
+    /**
+     * Gets the typed supplier administration object for this event channel.
+     * 
+     * @return The typed supplier admin
+     */
+    TypedSupplierAdmin for_suppliers();
+    
+    /**
+     * Destroys this event channel.
+     */
+    void destroy();
+}
@@ -0,0 +1,463 @@
+package com.metricstream.omg.eventchannel;
+
+import com.metricstream.omg.event.Disconnected;
+import com.metricstream.omg.event.PushConsumer;
+import com.metricstream.omg.event.PushSupplier;
+import com.metricstream.omg.event.TypedPushConsumer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Implementation of the TypedEventChannel interface.
+ * Untyped events travel through an ordinary event channel. Each typed interface gets its own
+ * event channel carrying calls on that interface, so typed consumers only ever receive calls
+ * they can dispatch and never see untyped events.
+ * This is the non-CORBA equivalent of the CORBA TypedEventChannel implementation.
+ */
+public class TypedEventChannelImpl implements TypedEventChannel {
+    
+    private final EventChannelConfig config;
+    private final ExecutorService sharedExecutor;
+    private final ObjectName metricsName;
+    private final EventChannelImpl untypedChannel;
+    private final TypedConsumerAdminImpl consumerAdmin;
+    private final TypedSupplierAdminImpl supplierAdmin;
+    private final Map<String, InterfaceChannel> interfaceChannels = new HashMap<>();
+    private boolean destroyed = false;
+    
+    /**
+     * Creates a new typed event channel implementation.
+     */
+    public TypedEventChannelImpl() {
+        this(new EventChannelConfig());
+    }
+    
+    /**
+     * Creates a new typed event channel implementation with the specified configuration.
+     * The configuration applies to the untyped channel and to the channel of every typed interface.
+     * 
+     * @param config The channel configuration
+     * @throws IllegalArgumentException If an overflow policy is not supported by the dispatcher mode or pull storage
+     */
+    public TypedEventChannelImpl(EventChannelConfig config) {
+        this(config, config.isSharedExecutor() ? EventChannelFactory.getInstance().getSharedExecutor() : null, null);
+    }
+    
+    /**
+     * Creates a new typed event channel implementation running on the specified shared executor,
+     * publishing the metrics of its channels if a name is given.
+     * 
+     * @param config The channel configuration
+     * @param sharedExecutor The executor shared with other channels, or null to create private pools
+     * @param metricsName The object name to publish the untyped channel's metrics under, or null
+     * @throws IllegalArgumentException If an overflow policy is not supported by the dispatcher mode or pull storage,
+     *                                  or the metrics cannot be published under the name
+     */
+    TypedEventChannelImpl(EventChannelConfig config, ExecutorService sharedExecutor, ObjectName metricsName) {
+        this.config = new EventChannelConfig(config);
+        this.sharedExecutor = sharedExecutor;
+        this.metricsName = metricsName;
+        this.untypedChannel = new EventChannelImpl(config, sharedExecutor);
+        if (metricsName != null) {
+            try {
+                EventChannelFactory.getInstance().registerMetrics(untypedChannel, metricsName);
+            } catch (JMException e) {
+                untypedChannel.destroy();
+                throw new IllegalArgumentException("Cannot publish channel metrics as " + metricsName + ": " + e, e);
+            }
+        }
+        this.consumerAdmin = new TypedConsumerAdminImpl();
+        this.supplierAdmin = new TypedSupplierAdminImpl();
+    }
+    
+    @Override
+    public TypedConsumerAdmin for_consumers() {
+        return consumerAdmin;
+    }
+    
+    @Override
+    public TypedSupplierAdmin for_suppliers() {
+        return supplierAdmin;
+    }
+    
+    @Override
+    public void destroy() {
+        List<InterfaceChannel> channels;
+        synchronized (this) {
+            destroyed = true;
+            channels = new ArrayList<>(interfaceChannels.values());
+            interfaceChannels.clear();
+        }
+        
+        for (InterfaceChannel channel : channels) {
+            channel.channel.destroy();
+        }
+        untypedChannel.destroy();
+    }
+    
+    /**
+     * Gets the channel carrying calls on the specified interface, creating it on first use.
+     * 
+     * @param interfaceName The fully qualified name of the interface
+     * @return The interface channel
+     * @throws InterfaceNotSupported If the interface cannot be found or cannot be used for typed events
+     * @throws IllegalStateException If the channel has been destroyed
+     */
+    private synchronized InterfaceChannel interfaceChannel(String interfaceName) throws InterfaceNotSupported {
+        if (destroyed) {
+            throw new IllegalStateException("Typed event channel has been destroyed");
+        }
+        
+        InterfaceChannel channel = interfaceChannels.get(interfaceName);
+        if (channel == null) {
+            channel = new InterfaceChannel(new TypedInvoker(loadInterface(interfaceName)),
+                    new EventChannelImpl(config, sharedExecutor));
+            interfaceChannels.put(interfaceName, channel);
+            if (metricsName != null) {
+                publishMetrics(channel.channel, interfaceName);
+            }
+        }
+        return channel;
+    }
+    
+    /**
+     * Publishes the metrics of the channel carrying calls on an interface, under the typed
+     * channel's metrics name with an additional {@code interface} key. The interface channel
+     * works without them if they cannot be published.
+     * 
+     * @param channel The interface channel
+     * @param interfaceName The fully qualified name of the interface
+     */
+    private void publishMetrics(EventChannelImpl channel, String interfaceName) {
+        try {
+            EventChannelFactory.getInstance().registerMetrics(channel,
+                    new ObjectName(metricsName + ",interface=" + ObjectName.quote(interfaceName)));
+        } catch (JMException e) {
+            System.err.println("Error publishing metrics of typed interface " + interfaceName + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Loads an interface by name.
+     * 
+     * @param interfaceName The fully qualified name of the interface
+     * @return The interface class
+     * @throws InterfaceNotSupported If the class cannot be found
+     */
+    private static Class<?> loadInterface(String interfaceName) throws InterfaceNotSupported {
+        if (interfaceName == null) {
+            throw new InterfaceNotSupported("Interface name is null");
+        }
+        
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        try {
+            return Class.forName(interfaceName, false, loader != null ? loader : TypedEventChannelImpl.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new InterfaceNotSupported("Unknown interface: " + interfaceName);
+        }
+    }
+    
+    /**
+     * A typed interface together with the channel carrying calls on it.
+     */
+    private static final class InterfaceChannel {
+        
+        final TypedInvoker invoker;
+        final EventChannelImpl channel;
+        
+        InterfaceChannel(TypedInvoker invoker, EventChannelImpl channel) {
+            this.invoker = invoker;
+            this.channel = channel;
+        }
+    }
+    
+    /**
+     * Implementation of the TypedConsumerAdmin interface.
+     * Untyped requests and filters are served by the untyped channel.
+     */
+    private class TypedConsumerAdminImpl implements TypedConsumerAdmin {
+        
+        @Override
+        public ProxyPushSupplier obtain_push_supplier() {
+            return untypedChannel.for_consumers().obtain_push_supplier();
+        }
+        
+        @Override
+        public ProxyPullSupplier obtain_pull_supplier() {
+            return untypedChannel.for_consumers().obtain_pull_supplier();
+        }
+        
+        @Override
+        public TypedProxyPullSupplier obtain_typed_pull_supplier(String supported_interface) throws InterfaceNotSupported {
+            // Typed pull would require the channel to implement arbitrary pull interfaces
+            throw new InterfaceNotSupported("Typed pull is not supported: " + supported_interface);
+        }
+        
+        @Override
+        public ProxyPushSupplier obtain_typed_push_supplier(String uses_interface) throws NoSuchImplementation {
+            try {
+                InterfaceChannel channel = interfaceChannel(uses_interface);
+                return new TypedProxyPushSupplierImpl(channel.invoker, channel.channel.for_consumers().obtain_push_supplier());
+            } catch (InterfaceNotSupported e) {
+                throw new NoSuchImplementation(e.getMessage());
+            }
+        }
+        
+        @Override
+        public int add_filter(Filter new_filter) {
+            return untypedChannel.for_consumers().add_filter(new_filter);
+        }
+        
+        @Override
+        public void remove_filter(int filter) throws FilterNotFound {
+            untypedChannel.for_consumers().remove_filter(filter);
+        }
+        
+        @Override
+        public Filter get_filter(int filter) throws FilterNotFound {
+            return untypedChannel.for_consumers().get_filter(filter);
+        }
+        
+        @Override
+        public int[] get_all_filters() {
+            return untypedChannel.for_consumers().get_all_filters();
+        }
+        
+        @Override
+        public void remove_all_filters() {
+            untypedChannel.for_consumers().remove_all_filters();
+        }
+    }
+    
+    /**
+     * Implementation of the TypedSupplierAdmin interface.
+     * Untyped requests are served by the untyped channel.
+     */
+    private class TypedSupplierAdminImpl implements TypedSupplierAdmin {
+        
+        @Override
+        public ProxyPushConsumer obtain_push_consumer() {
+            return untypedChannel.for_suppliers().obtain_push_consumer();
+        }
+        
+        @Override
+        public ProxyPullConsumer obtain_pull_consumer() {
+            return untypedChannel.for_suppliers().obtain_pull_consumer();
+        }
+        
+        @Override
+        public TypedProxyPushConsumer obtain_typed_push_consumer(String supported_interface) throws InterfaceNotSupported {
+            InterfaceChannel channel = interfaceChannel(supported_interface);
+            return new TypedProxyPushConsumerImpl(channel.invoker,
+                    channel.channel.for_suppliers().obtain_push_consumer(),
+                    untypedChannel.for_suppliers().obtain_push_consumer());
+        }
+        
+        @Override
+        public ProxyPullConsumer obtain_typed_pull_consumer(String uses_interface) throws NoSuchImplementation {
+            // Typed pull would require the channel to call arbitrary pull interfaces
+            throw new NoSuchImplementation("Typed pull is not supported: " + uses_interface);
+        }
+    }
+    
+    /**
+     * Implementation of the TypedProxyPushConsumer interface.
+     * Calls on the typed object become events on the interface channel; untyped events
+     * pushed directly go to the untyped channel.
+     */
+    private static final class TypedProxyPushConsumerImpl implements TypedProxyPushConsumer, InvocationHandler {
+        
+        private final TypedInvoker invoker;
+        private final ProxyPushConsumer typedConsumer;
+        private final ProxyPushConsumer untypedConsumer;
+        private final Object typedObject;
+        
+        TypedProxyPushConsumerImpl(TypedInvoker invoker, ProxyPushConsumer typedConsumer, ProxyPushConsumer untypedConsumer) {
+            this.invoker = invoker;
+            this.typedConsumer = typedConsumer;
+            this.untypedConsumer = untypedConsumer;
+            Class<?> type = invoker.getType();
+            this.typedObject = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, this);
+        }
+        
+        @Override
+        public void connect_push_supplier(final PushSupplier push_supplier) throws AlreadyConnected {
+            typedConsumer.connect_push_supplier(push_supplier);
+            
+            // The supplier is told about disconnection once, through the typed consumer
+            untypedConsumer.connect_push_supplier(new PushSupplier() {
+                @Override
+                public void disconnect_push_supplier() {
+                    // Nothing to clean up
+                }
+            });
+        }
+        
+        @Override
+        public Object get_typed_consumer() {
+            return typedObject;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return "Typed push consumer for " + invoker.getType().getName();
+                }
+            }
+            
+            try {
+                typedConsumer.push(new TypedInvocation(invoker.indexOf(method), args));
+            } catch (Disconnected e) {
+                throw new IllegalStateException("Typed proxy push consumer is not connected");
+            }
+            return null;
+        }
+        
+        @Override
+        public void push(Object data) throws Disconnected {
+            untypedConsumer.push(data);
+        }
+        
+        @Override
+        public void push(Object data, int priority) throws Disconnected {
+            untypedConsumer.push(data, priority);
+        }
+        
+        @Override
+        public void push(Object data, int priority, long timeToLiveMillis) throws Disconnected {
+            untypedConsumer.push(data, priority, timeToLiveMillis);
+        }
+        
+        @Override
+        public void push_batch(Object[] data) throws Disconnected {
+            untypedConsumer.push_batch(data);
+        }
+        
+        @Override
+        public void push_batch(List<?> data) throws Disconnected {
+            untypedConsumer.push_batch(data);
+        }
+        
+        @Override
+        public void disconnect_push_consumer() {
+            untypedConsumer.disconnect_push_consumer();
+            typedConsumer.disconnect_push_consumer();
+        }
+    }
+    
+    /**
+     * Proxy push supplier delivering events of an interface channel as calls on a typed consumer.
+     */
+    private static final class TypedProxyPushSupplierImpl implements ProxyPushSupplier {
+        
+        private final TypedInvoker invoker;
+        private final ProxyPushSupplier supplier;
+        
+        TypedProxyPushSupplierImpl(TypedInvoker invoker, ProxyPushSupplier supplier) {
+            this.invoker = invoker;
+            this.supplier = supplier;
+        }
+        
+        /**
+         * Connects a typed push consumer.
+         * 
+         * @param push_consumer The consumer, which must be a TypedPushConsumer
+         * @throws AlreadyConnected If a consumer is already connected
+         * @throws IllegalArgumentException If the consumer's typed object does not implement the interface
+         */
+        @Override
+        public void connect_push_consumer(PushConsumer push_consumer) throws AlreadyConnected {
+            connect_push_consumer(push_consumer, StartPosition.latest());
+        }
+        
+        /**
+         * Connects a typed push consumer, replaying retained calls from the specified position.
+         * 
+         * @param push_consumer The consumer, which must be a TypedPushConsumer
+         * @param start The position of the first call to deliver
+         * @throws AlreadyConnected If a consumer is already connected
+         * @throws IllegalArgumentException If the consumer's typed object does not implement the interface
+         */
+        @Override
+        public void connect_push_consumer(final PushConsumer push_consumer, StartPosition start) throws AlreadyConnected {
+            if (!(push_consumer instanceof TypedPushConsumer)) {
+                throw new IllegalArgumentException("Consumer is not a TypedPushConsumer");
+            }
+            
+            final Object target = ((TypedPushConsumer) push_consumer).get_typed_consumer();
+            if (!invoker.getType().isInstance(target)) {
+                throw new IllegalArgumentException("Typed consumer does not implement " + invoker.getType().getName());
+            }
+            
+            supplier.connect_push_consumer(new PushConsumer() {
+                @Override
+                public void push(Object data) {
+                    // Interface channels carry nothing but invocations on their interface
+                    invoker.invoke(target, (TypedInvocation) data);
+                }
+                
+                @Override
+                public void disconnect_push_consumer() {
+                    push_consumer.disconnect_push_consumer();
+                }
+            }, start);
+        }
+        
+        @Override
+        public void disconnect_push_supplier() {
+            supplier.disconnect_push_supplier();
+        }
+        
+        /**
+         * Acknowledges a delivery. Typed consumers acknowledge each call by returning from it,
+         * so this only matters to callers sharing the proxy with untyped code.
+         * 
+         * @param delivery_id The delivery id
+         */
+        @Override
+        public void acknowledge(long delivery_id) {
+            supplier.acknowledge(delivery_id);
+        }
+        
+        @Override
+        public int add_filter(Filter new_filter) {
+            return supplier.add_filter(new_filter);
+        }
+        
+        @Override
+        public void remove_filter(int filter) throws FilterNotFound {
+            supplier.remove_filter(filter);
+        }
+        
+        @Override
+        public Filter get_filter(int filter) throws FilterNotFound {
+            return supplier.get_filter(filter);
+        }
+        
+        @Override
+        public int[] get_all_filters() {
+            return supplier.get_all_filters();
+        }
+        
+        @Override
+        public void remove_all_filters() {
+            supplier.remove_all_filters();
+        }
+    }
+}
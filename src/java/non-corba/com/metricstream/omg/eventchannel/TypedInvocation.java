@@ -0,0 +1,27 @@
+package com.metricstream.omg.eventchannel;
+
+import java.io.Serializable;
+
+/**
+ * A call on a typed interface, carried through the event channel as a single event.
+ * The method is identified by its index in the {@link TypedInvoker} of the interface.
+ */
+final class TypedInvocation implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    private static final Object[] NO_ARGS = new Object[0];
+    
+    final int method;
+    final Object[] args;
+    
+    /**
+     * Creates a new typed invocation.
+     * 
+     * @param method The index of the method called
+     * @param args The call arguments, or null if the method has none
+     */
+    TypedInvocation(int method, Object[] args) {
+        this.method = method;
+        this.args = args == null ? NO_ARGS : args;
+    }
+}
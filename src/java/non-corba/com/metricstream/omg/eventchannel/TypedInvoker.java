@@ -0,0 +1,99 @@
+package com.metricstream.omg.eventchannel;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dispatches {@link TypedInvocation}s to implementations of a typed interface.
+ * Each event method is bound once to a {@link MethodHandle} adapted to a common
+ * {@code (Object, Object[])void} shape, so a delivery is a single exact invocation
+ * without reflective lookups or type checks on the event.
+ */
+final class TypedInvoker {
+    
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object.class, Object[].class);
+    
+    private final Class<?> type;
+    private final Map<Method, Integer> indexes = new HashMap<>();
+    private final MethodHandle[] handles;
+    
+    /**
+     * Creates a new invoker for the specified interface.
+     * 
+     * @param type The typed interface
+     * @throws InterfaceNotSupported If the type is not a public interface whose methods all return void
+     */
+    TypedInvoker(Class<?> type) throws InterfaceNotSupported {
+        if (!type.isInterface() || !Modifier.isPublic(type.getModifiers())) {
+            throw new InterfaceNotSupported("Not a public interface: " + type.getName());
+        }
+        
+        List<MethodHandle> bound = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        for (Method method : type.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            if (method.getReturnType() != void.class) {
+                // Events are one-way, there is nobody to return a value to
+                throw new InterfaceNotSupported("Method " + method.getName() + " of " + type.getName() + " does not return void");
+            }
+            
+            try {
+                MethodHandle handle = lookup.unreflect(method)
+                        .asSpreader(Object[].class, method.getParameterCount())
+                        .asType(INVOKER_TYPE);
+                indexes.put(method, bound.size());
+                bound.add(handle);
+            } catch (IllegalAccessException e) {
+                throw new InterfaceNotSupported("Method " + method.getName() + " of " + type.getName() + " is not accessible");
+            }
+        }
+        
+        this.type = type;
+        this.handles = bound.toArray(new MethodHandle[0]);
+    }
+    
+    /**
+     * Gets the typed interface.
+     * 
+     * @return The interface
+     */
+    Class<?> getType() {
+        return type;
+    }
+    
+    /**
+     * Gets the index of an event method.
+     * 
+     * @param method The method
+     * @return The index, or -1 if the method does not belong to the interface
+     */
+    int indexOf(Method method) {
+        Integer index = indexes.get(method);
+        return index == null ? -1 : index;
+    }
+    
+    /**
+     * Calls the method of an invocation on the specified target.
+     * 
+     * @param target The implementation of the typed interface
+     * @param invocation The invocation to deliver
+     */
+    void invoke(Object target, TypedInvocation invocation) {
+        try {
+            handles[invocation.method].invokeExact(target, invocation.args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.metricstream.omg.eventchannel;
+
+import com.metricstream.omg.event.TypedPullSupplier;
+
+/**
+ * Interface for a typed proxy pull supplier.
+ * This is the non-CORBA equivalent of org.omg.CosTypedEventChannelAdmin.TypedProxyPullSupplier.
+ */
+public interface TypedProxyPullSupplier extends ProxyPullSupplier, TypedPullSupplier {
+}
@@ -0,0 +1,11 @@
+package com.metricstream.omg.eventchannel;
+
+import com.metricstream.omg.event.TypedPushConsumer;
+
+/**
+ * Interface for a typed proxy push consumer. A supplier connects to it and then calls the
+ * object returned by {@link #get_typed_consumer()}, which implements the supported interface.
+ * This is the non-CORBA equivalent of org.omg.CosTypedEventChannelAdmin.TypedProxyPushConsumer.
+ */
+public interface TypedProxyPushConsumer extends ProxyPushConsumer, TypedPushConsumer {
+}
@@ -0,0 +1,27 @@
+package com.metricstream.omg.eventchannel;
+
+/**
+ * Interface for the typed supplier administration object, which creates typed proxy consumers for suppliers.
+ * Interfaces are identified by the fully qualified name of a public Java interface.
+ * This is the non-CORBA equivalent of org.omg.CosTypedEventChannelAdmin.TypedSupplierAdmin.
+ */
+public interface TypedSupplierAdmin extends SupplierAdmin {
+    
+    /**
+     * Gets a typed proxy push consumer for a supplier calling the specified interface.
+     * 
+     * @param supported_interface The name of the interface
+     * @return A typed proxy push consumer
+     * @throws InterfaceNotSupported If the interface cannot be used for typed events
+     */
+    TypedProxyPushConsumer obtain_typed_push_consumer(String supported_interface) throws InterfaceNotSupported;
+    
+    /**
+     * Gets a proxy pull consumer for a supplier implementing the specified typed pull interface.
+     * 
+     * @param uses_interface The name of the interface
+     * @return A proxy pull consumer
+     * @throws NoSuchImplementation If the channel cannot pull from the interface
+     */
+    ProxyPullConsumer obtain_typed_pull_consumer(String uses_interface) throws NoSuchImplementation;
+}
@@ -0,0 +1,55 @@
+package com.metricstream.omg.eventchannel;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Strategy used by ring buffer producers and the dispatcher thread while waiting
+ * for free slots or newly published events.
+ */
+public enum WaitStrategy {
+    
+    /**
+     * Spins without giving up the CPU. Lowest latency, but burns a core per waiting thread.
+     */
+    BUSY_SPIN {
+        @Override
+        void idle(int attempt) {
+            // Spin
+        }
+    },
+    
+    /**
+     * Spins briefly, then yields the CPU to other runnable threads.
+     */
+    YIELD {
+        @Override
+        void idle(int attempt) {
+            if (attempt >= SPIN_TRIES) {
+                Thread.yield();
+            }
+        }
+    },
+    
+    /**
+     * Spins briefly, then parks the thread for a short interval. Trades some latency
+     * for near-zero CPU usage on idle channels.
+     */
+    PARK {
+        @Override
+        void idle(int attempt) {
+            if (attempt >= SPIN_TRIES) {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    };
+    
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 100000L;
+    
+    /**
+     * Waits once before the caller checks its condition again.
+     * 
+     * @param attempt The number of consecutive unsuccessful checks so far
+     */
+    abstract void idle(int attempt);
+}
@@ -0,0 +1,2621 @@
+package com.metricstream.omg.test;
+
+import com.metricstream.omg.event.*;
+import com.metricstream.omg.eventchannel.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Test class for verifying the configurable dispatch and queueing behavior of the event channel.
+ */
+public class EventChannelDispatchTest {
+    
+    private static final int WAIT_TIMEOUT_SECONDS = 5;
+    
+    public static void main(String[] args) {
+        System.out.println("Starting EventChannelDispatchTest...");
+        
+        try {
+            testQueueOrderedDelivery();
+            testBatchPush();
+            testBulkPull();
+            testPullSupplierModes();
+            testProxyDisconnectWhilePulling();
+            testRingBufferDispatch();
+            testRingBufferWaitStrategies();
+            testPartitionedDispatch();
+            testProxyQueueDropOldest();
+            testDeliveryLaneBackpressure();
+            testFullPullQueueReleasesDispatchLock();
+            testProxyQueueSpill();
+            testSharedPullLog();
+            testChannelQueueReject();
+            testSharedExecutor();
+            testCircuitBreakerShed();
+            testCircuitBreakerParkAndDisconnect();
+            testCircuitBreakerHalfOpenTrial();
+            testDurableLogRecovery();
+            testDurableLaneRecovery();
+            testDurableLogRetention();
+            testReplayFromPosition();
+            testDurableReplay();
+            testConflation();
+            testPriorityLanes();
+            testEventExpiry();
+            testChannelMetrics();
+            testTimedRingBufferDelivery();
+            testDrainOnDestroy();
+            testAtLeastOnceDelivery();
+            testDeadLetterChannel();
+            
+            System.out.println("\nAll EventChannelDispatchTest tests passed successfully!");
+        } catch (Exception e) {
+            System.err.println("\nEventChannelDispatchTest failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Tests that the default queue dispatcher delivers events to each push consumer in push order.
+     */
+    private static void testQueueOrderedDelivery() throws Exception {
+        System.out.println("\n=== Testing Queue Ordered Delivery ===");
+        
+        int eventCount = 10000;
+        EventChannel channel = EventChannelFactory.getInstance().createEventChannel();
+        
+        CountingPushConsumer[] consumers = new CountingPushConsumer[4];
+        for (int i = 0; i < consumers.length; i++) {
+            consumers[i] = new CountingPushConsumer(eventCount);
+            channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumers[i]);
+        }
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        for (CountingPushConsumer consumer : consumers) {
+            if (!consumer.await(WAIT_TIMEOUT_SECONDS)) {
+                throw new AssertionError("Not all events were delivered through the delivery lanes");
+            }
+            if (!consumer.isInOrder()) {
+                throw new AssertionError("Delivery lane delivered events out of order");
+            }
+        }
+        
+        System.out.println("Delivered " + eventCount + " events in order to " + consumers.length + " consumers");
+        
+        channel.destroy();
+        System.out.println("Queue ordered delivery test passed");
+    }
+    
+    /**
+     * Tests that batches reach batch consumers intact and plain consumers one event at a time.
+     */
+    private static void testBatchPush() throws Exception {
+        System.out.println("\n=== Testing Batch Push ===");
+        
+        EventChannel channel = EventChannelFactory.getInstance().createEventChannel();
+        
+        final List<List<Object>> batches = new ArrayList<>();
+        final CountDownLatch batchLatch = new CountDownLatch(3);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new BatchPushConsumer() {
+            @Override
+            public void push_batch(List<Object> events) throws Disconnected {
+                batches.add(new ArrayList<>(events));
+                batchLatch.countDown();
+            }
+            
+            @Override
+            public void push(Object data) throws Disconnected {
+                push_batch(Collections.singletonList(data));
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        
+        CountingPushConsumer plainConsumer = new CountingPushConsumer(201);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(plainConsumer);
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        Object[] first = new Object[100];
+        List<Object> second = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            first[i] = i;
+            second.add(100 + i);
+        }
+        proxyConsumer.push_batch(first);
+        proxyConsumer.push_batch(second);
+        proxyConsumer.push(200);
+        
+        if (!batchLatch.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS) || !plainConsumer.await(WAIT_TIMEOUT_SECONDS)) {
+            throw new AssertionError("Not all batches were delivered");
+        }
+        
+        if (batches.get(0).size() != 100 || batches.get(1).size() != 100 || batches.get(2).size() != 1) {
+            throw new AssertionError("Batches were not delivered intact");
+        }
+        
+        if (!plainConsumer.isInOrder()) {
+            throw new AssertionError("Batched events were delivered out of order to a plain consumer");
+        }
+        
+        System.out.println("Delivered 2 batches and 1 single event intact to the batch consumer");
+        
+        channel.destroy();
+        System.out.println("Batch push test passed");
+    }
+    
+    /**
+     * Tests that pull_n and try_pull_n drain a backlog in order with few calls.
+     */
+    private static void testBulkPull() throws Exception {
+        System.out.println("\n=== Testing Bulk Pull ===");
+        
+        EventChannel channel = EventChannelFactory.getInstance().createEventChannel();
+        
+        ProxyPullSupplier proxySupplier = channel.for_consumers().obtain_pull_supplier();
+        proxySupplier.connect_pull_consumer(new NoOpPullConsumer());
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        int eventCount = 1000;
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        List<Object> pulled = new ArrayList<>();
+        int calls = 0;
+        while (pulled.size() < eventCount) {
+            List<Object> events = proxySupplier.pull_n(300, TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS));
+            if (events.isEmpty()) {
+                throw new AssertionError("pull_n timed out after " + pulled.size() + " events");
+            }
+            pulled.addAll(events);
+            calls++;
+        }
+        
+        for (int i = 0; i < eventCount; i++) {
+            if (!Integer.valueOf(i).equals(pulled.get(i))) {
+                throw new AssertionError("Expected event " + i + " but pulled " + pulled.get(i));
+            }
+        }
+        
+        BooleanHolder hasEvent = new BooleanHolder();
+        List<Object> remaining = proxySupplier.try_pull_n(300, hasEvent);
+        if (hasEvent.value || !remaining.isEmpty()) {
+            throw new AssertionError("try_pull_n returned events from a drained queue");
+        }
+        
+        System.out.println("Pulled " + eventCount + " events in order with " + calls + " calls");
+        
+        channel.destroy();
+        System.out.println("Bulk pull test passed");
+    }
+    
+    /**
+     * Tests that events from a pull supplier reach push consumers in both pull modes.
+     */
+    private static void testPullSupplierModes() throws Exception {
+        System.out.println("\n=== Testing Pull Supplier Modes ===");
+        
+        for (PullMode mode : PullMode.values()) {
+            EventChannel channel = EventChannelFactory.getInstance().createEventChannel(
+                    new EventChannelConfig().setPullMode(mode));
+            
+            CountingPushConsumer consumer = new CountingPushConsumer(1000);
+            channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer);
+            
+            QueuePullSupplier supplier = new QueuePullSupplier();
+            ProxyPullConsumer proxyConsumer = channel.for_suppliers().obtain_pull_consumer();
+            proxyConsumer.connect_pull_supplier(supplier);
+            
+            long start = System.nanoTime();
+            for (int i = 0; i < 1000; i++) {
+                supplier.add(i);
+            }
+            
+            if (!consumer.await(WAIT_TIMEOUT_SECONDS) || !consumer.isInOrder()) {
+                throw new AssertionError("Pull mode " + mode + " did not forward all events in order");
+            }
+            
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            System.out.println("Pull mode " + mode + " forwarded 1000 events in " + elapsedMillis + " ms");
+            
+            proxyConsumer.disconnect_pull_consumer();
+            channel.destroy();
+        }
+        
+        // Blocked pulls must not hold the only slot the channel's deliveries run in
+        EventChannel channel = EventChannelFactory.getInstance().createEventChannel(new EventChannelConfig()
+                .setPullMode(PullMode.BLOCKING).setSharedExecutor(true).setMaxConcurrency(1));
+        CountingPushConsumer consumer = new CountingPushConsumer(100);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer);
+        List<QueuePullSupplier> suppliers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            QueuePullSupplier supplier = new QueuePullSupplier();
+            channel.for_suppliers().obtain_pull_consumer().connect_pull_supplier(supplier);
+            suppliers.add(supplier);
+        }
+        for (int i = 0; i < 100; i++) {
+            suppliers.get(i % suppliers.size()).add(i);
+        }
+        if (!consumer.await(WAIT_TIMEOUT_SECONDS)) {
+            throw new AssertionError("Blocking pull suppliers starved a channel capped at one task, delivered "
+                    + consumer.getReceived().size() + " of 100 events");
+        }
+        System.out.println("4 blocking pull suppliers left the single delivery slot free");
+        channel.destroy();
+        
+        System.out.println("Pull supplier modes test passed");
+    }
+    
+    /**
+     * Tests that disconnecting a proxy pull supplier releases a consumer blocked in pull,
+     * and that concurrent suppliers can push through one proxy push consumer.
+     */
+    private static void testProxyDisconnectWhilePulling() throws Exception {
+        System.out.println("\n=== Testing Proxy Disconnect While Pulling ===");
+        
+        EventChannel channel = EventChannelFactory.getInstance().createEventChannel();
+        final ProxyPullSupplier pullSupplier = channel.for_consumers().obtain_pull_supplier();
+        pullSupplier.connect_pull_consumer(new NoOpPullConsumer());
+        
+        final CountDownLatch pulling = new CountDownLatch(1);
+        final List<Object> outcome = Collections.synchronizedList(new ArrayList<Object>());
+        Thread puller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pulling.countDown();
+                    outcome.add(pullSupplier.pull());
+                } catch (Disconnected e) {
+                    outcome.add(e);
+                }
+            }
+        });
+        puller.start();
+        pulling.await();
+        Thread.sleep(50);
+        
+        // Disconnecting must not wait for the blocked pull to return
+        long start = System.nanoTime();
+        pullSupplier.disconnect_pull_supplier();
+        long disconnectMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        puller.join(TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS));
+        if (puller.isAlive() || outcome.size() != 1 || !(outcome.get(0) instanceof Disconnected)) {
+            throw new AssertionError("Blocked pull was not released by the disconnect: " + outcome);
+        }
+        System.out.println("Disconnect returned in " + disconnectMillis + " ms and released the blocked pull");
+        
+        final int threads = 4;
+        final int perThread = 1000;
+        CountingPushConsumer consumer = new CountingPushConsumer(threads * perThread);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer);
+        final ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        List<Thread> suppliers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread supplier = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < perThread; i++) {
+                            proxyConsumer.push(i);
+                        }
+                    } catch (Disconnected e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            suppliers.add(supplier);
+            supplier.start();
+        }
+        for (Thread supplier : suppliers) {
+            supplier.join();
+        }
+        if (!consumer.await(WAIT_TIMEOUT_SECONDS)) {
+            throw new AssertionError("Only " + consumer.getReceived().size() + " events pushed concurrently were delivered");
+        }
+        
+        proxyConsumer.disconnect_push_consumer();
+        try {
+            proxyConsumer.push(0);
+            throw new AssertionError("Disconnected proxy accepted an event");
+        } catch (Disconnected e) {
+            // Expected
+        }
+        
+        channel.destroy();
+        System.out.println("Proxy disconnect while pulling test passed");
+    }
+    
+    /**
+     * Tests that a ring buffer channel delivers every event, in order, to all consumers.
+     */
+    private static void testRingBufferDispatch() throws Exception {
+        System.out.println("\n=== Testing Ring Buffer Dispatch ===");
+        
+        int eventCount = 10000;
+        EventChannelConfig config = new EventChannelConfig()
+                .setDispatcherMode(DispatcherMode.RING_BUFFER)
+                .setRingBufferSize(64);
+        EventChannel channel = EventChannelFactory.getInstance().createEventChannel(config);
+        
+        CountingPushConsumer consumer1 = new CountingPushConsumer(eventCount);
+        CountingPushConsumer consumer2 = new CountingPushConsumer(eventCount);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer1);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer2);
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        if (!consumer1.await(WAIT_TIMEOUT_SECONDS) || !consumer2.await(WAIT_TIMEOUT_SECONDS)) {
+            throw new AssertionError("Not all events were delivered through the ring buffer");
+        }
+        
+        if (!consumer1.isInOrder() || !consumer2.isInOrder()) {
+            throw new AssertionError("Ring buffer delivered events out of order");
+        }
+        
+        System.out.println("Delivered " + eventCount + " events in order to 2 consumers");
+        
+        channel.destroy();
+        System.out.println("Ring buffer dispatch test passed");
+    }
+    
+    /**
+     * Tests that every wait strategy delivers events with a single producer.
+     */
+    private static void testRingBufferWaitStrategies() throws Exception {
+        System.out.println("\n=== Testing Ring Buffer Wait Strategies ===");
+        
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            EventChannelConfig config = new EventChannelConfig()
+                    .setDispatcherMode(DispatcherMode.RING_BUFFER)
+                    .setProducerType(ProducerType.SINGLE)
+                    .setWaitStrategy(strategy)
+                    .setRingBufferSize(16);
+            EventChannel channel = EventChannelFactory.getInstance().createEventChannel(config);
+            
+            CountingPushConsumer consumer = new CountingPushConsumer(1000);
+            channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer);
+            
+            ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+            proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+            
+            for (int i = 0; i < 1000; i++) {
+                proxyConsumer.push(i);
+            }
+            
+            if (!consumer.await(WAIT_TIMEOUT_SECONDS) || !consumer.isInOrder()) {
+                throw new AssertionError("Wait strategy " + strategy + " did not deliver all events in order");
+            }
+            
+            channel.destroy();
+            System.out.println("Wait strategy " + strategy + " delivered all events");
+        }
+        
+        System.out.println("Ring buffer wait strategies test passed");
+    }
+    
+    /**
+     * Tests that a partitioned channel keeps the events of each key in push order, batches
+     * included, and never pushes to a consumer from several partitions at once.
+     */
+    private static void testPartitionedDispatch() throws Exception {
+        System.out.println("\n=== Testing Partitioned Dispatch ===");
+        
+        final int keys = 16;
+        final int perKey = 500;
+        EventChannelConfig config = new EventChannelConfig()
+                .setDispatcherMode(DispatcherMode.PARTITIONED)
+                .setDispatchPartitions(4)
+                .setRingBufferSize(256)
+                .setPartitionKeyExtractor(new KeyExtractor() {
+                    @Override
+                    public Object extractKey(Object data) {
+                        return ((Integer) data) % keys;
+                    }
+                });
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        final CountDownLatch done = new CountDownLatch(keys * perKey);
+        final int[] last = new int[keys];
+        Arrays.fill(last, -1);
+        final List<String> outOfOrder = Collections.synchronizedList(new ArrayList<String>());
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger overlapping = new AtomicInteger();
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                if (inFlight.incrementAndGet() > 1) {
+                    overlapping.incrementAndGet();
+                }
+                // Give another partition the chance to push while this push is in progress
+                Thread.yield();
+                int value = (Integer) data;
+                int key = value % keys;
+                synchronized (last) {
+                    if (value / keys != last[key] + 1) {
+                        outOfOrder.add(key + ": " + (value / keys) + " after " + last[key]);
+                    }
+                    last[key] = value / keys;
+                }
+                inFlight.decrementAndGet();
+                done.countDown();
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        // Every other round goes in one batch mixing all keys, which the channel splits by partition
+        for (int round = 0; round < perKey; round++) {
+            Object[] batch = new Object[keys];
+            for (int key = 0; key < keys; key++) {
+                batch[key] = round * keys + key;
+            }
+            if (round % 2 == 0) {
+                proxyConsumer.push_batch(batch);
+            } else {
+                for (Object event : batch) {
+                    proxyConsumer.push(event);
+                }
+            }
+        }
+        
+        if (!done.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new AssertionError("Only " + (keys * perKey - done.getCount()) + " events were delivered");
+        }
+        if (!outOfOrder.isEmpty()) {
+            throw new AssertionError("Events of a key were delivered out of order: " + outOfOrder.subList(0, Math.min(5, outOfOrder.size())));
+        }
+        if (overlapping.get() != 0) {
+            throw new AssertionError(overlapping.get() + " pushes overlapped another push to the consumer");
+        }
+        if (channel.getNextSequence() != keys * perKey) {
+            throw new AssertionError("Expected " + (keys * perKey) + " sequence numbers, assigned " + channel.getNextSequence());
+        }
+        System.out.println("Delivered " + (keys * perKey) + " events in key order, one push at a time");
+        
+        try {
+            EventChannelFactory.getInstance().createEventChannel(new EventChannelConfig()
+                    .setDispatcherMode(DispatcherMode.PARTITIONED).setRetainedEvents(10));
+            throw new AssertionError("Partitioned channel accepted retained events");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        
+        channel.destroy();
+        System.out.println("Partitioned dispatch test passed");
+    }
+    
+    /**
+     * Tests that a bounded proxy queue with DROP_OLDEST keeps only the newest events and counts drops.
+     */
+    private static void testProxyQueueDropOldest() throws Exception {
+        System.out.println("\n=== Testing Proxy Queue Drop Oldest ===");
+        
+        EventChannelConfig config = new EventChannelConfig()
+                .setDispatcherMode(DispatcherMode.RING_BUFFER)
+                .setProxyQueueCapacity(10)
+                .setProxyOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        ProxyPullSupplier proxySupplier = channel.for_consumers().obtain_pull_supplier();
+        proxySupplier.connect_pull_consumer(new NoOpPullConsumer());
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        for (int i = 0; i < 100; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        waitFor(channel, 90);
+        
+        BooleanHolder hasEvent = new BooleanHolder();
+        for (int i = 90; i < 100; i++) {
+            Object data = proxySupplier.try_pull(hasEvent);
+            if (!hasEvent.value || !Integer.valueOf(i).equals(data)) {
+                throw new AssertionError("Expected event " + i + " but pulled " + data);
+            }
+        }
+        
+        proxySupplier.try_pull(hasEvent);
+        if (hasEvent.value) {
+            throw new AssertionError("Proxy queue held more events than its capacity");
+        }
+        
+        System.out.println("Proxy queue kept the newest 10 events and dropped " + channel.getProxyDroppedEventCount());
+        
+        channel.destroy();
+        System.out.println("Proxy queue drop oldest test passed");
+    }
+    
+    /**
+     * Tests that a stalled push consumer's full delivery lane blocks the supplier of a BLOCK
+     * channel once the channel queue fills up, and that a DROP_NEWEST lane drops instead.
+     */
+    private static void testDeliveryLaneBackpressure() throws Exception {
+        System.out.println("\n=== Testing Delivery Lane Backpressure ===");
+        
+        final int eventCount = 2000;
+        EventChannelConfig config = new EventChannelConfig()
+                .setChannelQueueCapacity(16)
+                .setChannelOverflowPolicy(OverflowPolicy.BLOCK)
+                .setProxyQueueCapacity(16)
+                .setProxyOverflowPolicy(OverflowPolicy.BLOCK);
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        final CountDownLatch release = new CountDownLatch(1);
+        CountingPushConsumer stalled = new CountingPushConsumer(eventCount) {
+            @Override
+            public void push(Object data) throws Disconnected {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.push(data);
+            }
+        };
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(stalled);
+        
+        final ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        final AtomicInteger pushed = new AtomicInteger();
+        Thread supplier = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < eventCount; i++) {
+                        proxyConsumer.push(i);
+                        pushed.incrementAndGet();
+                    }
+                } catch (Disconnected e) {
+                    // The channel was destroyed
+                }
+            }
+        });
+        supplier.start();
+        
+        Thread.sleep(500);
+        int whileStalled = pushed.get();
+        // The channel queue, the lane, the event being pushed and the one waiting for the lane
+        if (whileStalled > 16 + 16 + 2) {
+            release.countDown();
+            throw new AssertionError("Supplier pushed " + whileStalled + " events past a stalled consumer");
+        }
+        
+        release.countDown();
+        supplier.join(TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS));
+        if (!stalled.await(WAIT_TIMEOUT_SECONDS) || !stalled.isInOrder()) {
+            throw new AssertionError("Stalled consumer did not receive every event in order once released");
+        }
+        
+        System.out.println("Supplier blocked after " + whileStalled + " events and resumed once the consumer caught up");
+        channel.destroy();
+        
+        config.setProxyOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+        channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        final CountDownLatch releaseDropping = new CountDownLatch(1);
+        final List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                try {
+                    releaseDropping.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.add(data);
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        ProxyPushConsumer droppingConsumer = channel.for_suppliers().obtain_push_consumer();
+        droppingConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        for (int i = 0; i < eventCount; i++) {
+            droppingConsumer.push(i);
+        }
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (channel.getQueuedEventCount() > 0 || channel.getProxyDroppedEventCount() + 17 < eventCount) {
+            if (System.currentTimeMillis() > deadline) {
+                releaseDropping.countDown();
+                throw new AssertionError("Full lane dropped " + channel.getProxyDroppedEventCount() + " of " + eventCount + " events");
+            }
+            Thread.sleep(10);
+        }
+        releaseDropping.countDown();
+        
+        deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (received.size() < 17) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Consumer received " + received.size() + " of the 17 events it had room for");
+            }
+            Thread.sleep(10);
+        }
+        if (channel.getProxyDroppedEventCount() != eventCount - 17) {
+            throw new AssertionError("Expected " + (eventCount - 17) + " dropped events, counted " + channel.getProxyDroppedEventCount());
+        }
+        
+        System.out.println("DROP_NEWEST lane kept 16 events behind the stalled push and dropped " + channel.getProxyDroppedEventCount());
+        
+        channel.destroy();
+        System.out.println("Delivery lane backpressure test passed");
+    }
+    
+    /**
+     * Tests that a dispatcher waiting for room in a full BLOCK pull queue does not hold the
+     * dispatch lock, so a consumer can still connect, and that pulling releases every event in order.
+     */
+    private static void testFullPullQueueReleasesDispatchLock() throws Exception {
+        System.out.println("\n=== Testing Full Pull Queue Releases Dispatch Lock ===");
+        
+        final int eventCount = 20;
+        EventChannelConfig config = new EventChannelConfig()
+                .setProxyQueueCapacity(4)
+                .setProxyOverflowPolicy(OverflowPolicy.BLOCK);
+        final EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        ProxyPullSupplier pullSupplier = channel.for_consumers().obtain_pull_supplier();
+        pullSupplier.connect_pull_consumer(new NoOpPullConsumer());
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        // Gives the dispatcher time to fill the pull queue and wait for room
+        Thread.sleep(200);
+        
+        final CountDownLatch connected = new CountDownLatch(1);
+        Thread connector = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    channel.for_consumers().obtain_push_supplier().connect_push_consumer(new CountingPushConsumer(0));
+                    connected.countDown();
+                } catch (AlreadyConnected e) {
+                    // Not reached with a new proxy
+                }
+            }
+        });
+        connector.setDaemon(true);
+        connector.start();
+        boolean connectedWhileFull = connected.await(1, TimeUnit.SECONDS);
+        
+        BooleanHolder hasEvent = new BooleanHolder();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        for (int i = 0; i < eventCount; i++) {
+            Object data = pullSupplier.try_pull(hasEvent);
+            while (!hasEvent.value && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+                data = pullSupplier.try_pull(hasEvent);
+            }
+            if (!hasEvent.value || !Integer.valueOf(i).equals(data)) {
+                throw new AssertionError("Expected event " + i + " but pulled " + data);
+            }
+        }
+        if (!connectedWhileFull) {
+            throw new AssertionError("Connecting a consumer waited for room in a full pull queue");
+        }
+        if (channel.getProxyDroppedEventCount() != 0) {
+            throw new AssertionError("Full BLOCK pull queue dropped " + channel.getProxyDroppedEventCount() + " events");
+        }
+        
+        System.out.println("Consumer connected while the pull queue was full, and all " + eventCount + " events were pulled in order");
+        
+        channel.destroy();
+        System.out.println("Full pull queue releases dispatch lock test passed");
+    }
+    
+    /**
+     * Tests that a proxy queue with SPILL keeps every event, in order, beyond its in-memory capacity.
+     */
+    private static void testProxyQueueSpill() throws Exception {
+        System.out.println("\n=== Testing Proxy Queue Spill ===");
+        
+        EventChannelConfig config = new EventChannelConfig()
+                .setDispatcherMode(DispatcherMode.RING_BUFFER)
+                .setProxyQueueCapacity(4)
+                .setProxyOverflowPolicy(OverflowPolicy.SPILL);
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        ProxyPullSupplier proxySupplier = channel.for_consumers().obtain_pull_supplier();
+        proxySupplier.connect_pull_consumer(new NoOpPullConsumer());
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        for (int i = 0; i < 100; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        for (int i = 0; i < 100; i++) {
+            Object data = proxySupplier.pull();
+            if (!Integer.valueOf(i).equals(data)) {
+                throw new AssertionError("Expected event " + i + " but pulled " + data);
+            }
+        }
+        
+        if (channel.getProxyDroppedEventCount() != 0) {
+            throw new AssertionError("Spilling proxy queue dropped events");
+        }
+        
+        System.out.println("Pulled 100 events in order through a 4 event queue");
+        
+        channel.destroy();
+        System.out.println("Proxy queue spill test passed");
+    }
+    
+    /**
+     * Tests that pull consumers reading one shared log each see every event in order,
+     * and that a consumer lagging beyond the capacity loses only the oldest events.
+     */
+    private static void testSharedPullLog() throws Exception {
+        System.out.println("\n=== Testing Shared Pull Log ===");
+        
+        int capacity = 3000;
+        int eventCount = 5000;
+        EventChannelConfig config = new EventChannelConfig()
+                .setPullStorage(PullStorage.SHARED_LOG)
+                .setProxyQueueCapacity(capacity)
+                .setProxyOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        ProxyPullSupplier[] proxySuppliers = new ProxyPullSupplier[3];
+        for (int i = 0; i < proxySuppliers.length; i++) {
+            proxySuppliers[i] = channel.for_consumers().obtain_pull_supplier();
+            proxySuppliers[i].connect_pull_consumer(new NoOpPullConsumer());
+        }
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        // The first consumer keeps up, the others fall behind
+        List<Object> pulled = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+            if (i % 100 == 99) {
+                while (pulled.size() <= i) {
+                    pulled.addAll(proxySuppliers[0].pull_n(1000, TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS)));
+                }
+            }
+        }
+        
+        waitFor(channel, 2L * (eventCount - capacity));
+        
+        for (int i = 0; i < eventCount; i++) {
+            if (!Integer.valueOf(i).equals(pulled.get(i))) {
+                throw new AssertionError("Expected event " + i + " but pulled " + pulled.get(i));
+            }
+        }
+        
+        BooleanHolder hasEvent = new BooleanHolder();
+        for (int j = 1; j < proxySuppliers.length; j++) {
+            List<Object> lagging = proxySuppliers[j].try_pull_n(eventCount, hasEvent);
+            if (lagging.size() != capacity || !Integer.valueOf(eventCount - capacity).equals(lagging.get(0))
+                    || !Integer.valueOf(eventCount - 1).equals(lagging.get(capacity - 1))) {
+                throw new AssertionError("Lagging consumer did not keep the newest " + capacity + " events");
+            }
+        }
+        
+        System.out.println("Shared log delivered " + eventCount + " events to the fast consumer and dropped "
+                + channel.getProxyDroppedEventCount() + " for the lagging ones");
+        
+        channel.destroy();
+        System.out.println("Shared pull log test passed");
+    }
+    
+    /**
+     * Tests that a full ring buffer with REJECT fails the push with QueueFull.
+     */
+    private static void testChannelQueueReject() throws Exception {
+        System.out.println("\n=== Testing Channel Queue Reject ===");
+        
+        EventChannelConfig config = new EventChannelConfig()
+                .setDispatcherMode(DispatcherMode.RING_BUFFER)
+                .setRingBufferSize(4)
+                .setChannelOverflowPolicy(OverflowPolicy.REJECT);
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        final CountDownLatch release = new CountDownLatch(1);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        boolean rejected = false;
+        int accepted = 0;
+        for (int i = 0; i < 100 && !rejected; i++) {
+            try {
+                proxyConsumer.push(i);
+                accepted++;
+            } catch (QueueFull e) {
+                rejected = true;
+            }
+        }
+        release.countDown();
+        
+        if (!rejected || channel.getDroppedEventCount() != 1) {
+            throw new AssertionError("Full ring buffer did not reject the push");
+        }
+        if (channel.getPushedEventCount() != accepted) {
+            throw new AssertionError("Pushed count " + channel.getPushedEventCount() + " includes the rejected push, expected " + accepted);
+        }
+        
+        System.out.println("Full ring buffer rejected the push with QueueFull, counting only the " + accepted + " accepted pushes");
+        
+        channel.destroy();
+        System.out.println("Channel queue reject test passed");
+    }
+    
+    /**
+     * Tests that many capped channels on the shared executor all deliver their events in order.
+     */
+    private static void testSharedExecutor() throws Exception {
+        System.out.println("\n=== Testing Shared Executor ===");
+        
+        int channelCount = 16;
+        int eventCount = 2000;
+        EventChannelConfig config = new EventChannelConfig()
+                .setSharedExecutor(true)
+                .setMaxConcurrency(2);
+        
+        EventChannel[] channels = new EventChannel[channelCount];
+        CountingPushConsumer[] consumers = new CountingPushConsumer[channelCount * 4];
+        ProxyPushConsumer[] proxyConsumers = new ProxyPushConsumer[channelCount];
+        for (int i = 0; i < channelCount; i++) {
+            channels[i] = EventChannelFactory.getInstance().createEventChannel(config);
+            for (int j = 0; j < 4; j++) {
+                consumers[i * 4 + j] = new CountingPushConsumer(eventCount);
+                channels[i].for_consumers().obtain_push_supplier().connect_push_consumer(consumers[i * 4 + j]);
+            }
+            proxyConsumers[i] = channels[i].for_suppliers().obtain_push_consumer();
+            proxyConsumers[i].connect_push_supplier(new NoOpPushSupplier());
+        }
+        
+        for (int i = 0; i < eventCount; i++) {
+            for (ProxyPushConsumer proxyConsumer : proxyConsumers) {
+                proxyConsumer.push(i);
+            }
+        }
+        
+        for (CountingPushConsumer consumer : consumers) {
+            if (!consumer.await(WAIT_TIMEOUT_SECONDS)) {
+                throw new AssertionError("Not all events were delivered on the shared executor");
+            }
+            if (!consumer.isInOrder()) {
+                throw new AssertionError("Shared executor delivered events out of order");
+            }
+        }
+        
+        System.out.println("Delivered " + eventCount + " events in order on each of " + channelCount + " channels");
+        
+        for (EventChannel channel : channels) {
+            channel.destroy();
+        }
+        System.out.println("Shared executor test passed");
+    }
+    
+    /**
+     * Tests that a consumer overrunning the delivery budget is shed without slowing a healthy
+     * consumer, including on the ring buffer dispatcher where delivery is otherwise inline.
+     */
+    private static void testCircuitBreakerShed() throws Exception {
+        System.out.println("\n=== Testing Circuit Breaker Shed ===");
+        
+        int eventCount = 1000;
+        EventChannelConfig config = new EventChannelConfig()
+                .setDispatcherMode(DispatcherMode.RING_BUFFER)
+                .setDeliveryBudgetMillis(5)
+                .setBreakerFailureThreshold(2)
+                .setBreakerAction(BreakerAction.SHED)
+                .setBreakerCooldownMillis(TimeUnit.MINUTES.toMillis(1));
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        CountingPushConsumer healthy = new CountingPushConsumer(eventCount);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(healthy);
+        final List<Object> slowReceived = Collections.synchronizedList(new ArrayList<Object>());
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                slowReceived.add(data);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        if (!healthy.await(WAIT_TIMEOUT_SECONDS) || !healthy.isInOrder()) {
+            throw new AssertionError("Healthy consumer was held up by the slow consumer");
+        }
+        
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (channel.getShedEventCount() < eventCount - 2) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Expected " + (eventCount - 2) + " shed events but saw " + channel.getShedEventCount());
+            }
+            Thread.sleep(10);
+        }
+        if (slowReceived.size() != 2) {
+            throw new AssertionError("Slow consumer received " + slowReceived.size() + " events after its breaker opened");
+        }
+        
+        System.out.println("Slow consumer was shed after 2 overruns, " + channel.getShedEventCount() + " events discarded");
+        
+        channel.destroy();
+        System.out.println("Circuit breaker shed test passed");
+    }
+    
+    /**
+     * Tests that a parked consumer receives the held events after the cooldown, and that
+     * a consumer that keeps failing is disconnected.
+     */
+    private static void testCircuitBreakerParkAndDisconnect() throws Exception {
+        System.out.println("\n=== Testing Circuit Breaker Park and Disconnect ===");
+        
+        final int eventCount = 100;
+        EventChannelConfig config = new EventChannelConfig()
+                .setBreakerFailureThreshold(3)
+                .setBreakerAction(BreakerAction.PARK)
+                .setBreakerCooldownMillis(100);
+        EventChannel channel = EventChannelFactory.getInstance().createEventChannel(config);
+        
+        final List<Object> parkedReceived = Collections.synchronizedList(new ArrayList<Object>());
+        final CountDownLatch parkedDone = new CountDownLatch(1);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            private int calls = 0;
+            
+            @Override
+            public void push(Object data) throws Disconnected {
+                if (++calls <= 3) {
+                    throw new IllegalStateException("Simulated outage");
+                }
+                parkedReceived.add(data);
+                if (Integer.valueOf(eventCount - 1).equals(data)) {
+                    parkedDone.countDown();
+                }
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        
+        runFailingConsumer(channel, eventCount);
+        
+        if (!parkedDone.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new AssertionError("Parked consumer did not resume after the cooldown");
+        }
+        for (int i = 0; i < parkedReceived.size(); i++) {
+            if (!Integer.valueOf(i + 3).equals(parkedReceived.get(i))) {
+                throw new AssertionError("Parked consumer received " + parkedReceived.get(i) + " instead of " + (i + 3));
+            }
+        }
+        
+        System.out.println("Parked consumer resumed and received the " + parkedReceived.size() + " held events in order");
+        
+        channel.destroy();
+        
+        config.setBreakerAction(BreakerAction.DISCONNECT);
+        channel = EventChannelFactory.getInstance().createEventChannel(config);
+        
+        final CountDownLatch disconnected = new CountDownLatch(1);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                throw new IllegalStateException("Simulated outage");
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                disconnected.countDown();
+            }
+        });
+        
+        runFailingConsumer(channel, eventCount);
+        
+        if (!disconnected.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new AssertionError("Failing consumer was not disconnected");
+        }
+        
+        System.out.println("Failing consumer was disconnected");
+        
+        channel.destroy();
+        System.out.println("Circuit breaker park and disconnect test passed");
+    }
+    
+    /**
+     * Tests that a half-open breaker lets a single trial push through while several
+     * partition dispatchers deliver to the consumer, shedding the rest until the trial returns.
+     */
+    private static void testCircuitBreakerHalfOpenTrial() throws Exception {
+        System.out.println("\n=== Testing Circuit Breaker Half-Open Trial ===");
+        
+        EventChannelConfig config = new EventChannelConfig()
+                .setDispatcherMode(DispatcherMode.PARTITIONED)
+                .setDispatchPartitions(4)
+                .setBreakerFailureThreshold(2)
+                .setBreakerAction(BreakerAction.SHED)
+                .setBreakerCooldownMillis(100);
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger overlapping = new AtomicInteger();
+        final CountDownLatch trialStarted = new CountDownLatch(1);
+        final CountDownLatch releaseTrial = new CountDownLatch(1);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                int call = calls.incrementAndGet();
+                if (call <= 2) {
+                    throw new IllegalStateException("Simulated outage");
+                }
+                if (inFlight.incrementAndGet() > 1) {
+                    overlapping.incrementAndGet();
+                }
+                if (call == 3) {
+                    trialStarted.countDown();
+                    try {
+                        releaseTrial.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                inFlight.decrementAndGet();
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        proxyConsumer.push(0);
+        proxyConsumer.push(1);
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (calls.get() < 2) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Failing pushes did not reach the consumer");
+            }
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        
+        // The first push after the cooldown is the trial, and it does not return until released
+        for (int i = 2; i < 200; i++) {
+            proxyConsumer.push(i);
+        }
+        if (!trialStarted.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new AssertionError("No trial push reached the half-open consumer");
+        }
+        Thread.sleep(200);
+        int duringTrial = calls.get() - 2;
+        releaseTrial.countDown();
+        
+        if (duringTrial != 1) {
+            throw new AssertionError(duringTrial + " pushes reached the consumer while its breaker was half-open");
+        }
+        deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (calls.get() - 2 + channel.getShedEventCount() < 198) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Events after the trial were neither delivered nor shed");
+            }
+            Thread.sleep(10);
+        }
+        if (overlapping.get() != 0) {
+            throw new AssertionError(overlapping.get() + " pushes overlapped another push to the consumer");
+        }
+        
+        System.out.println("Half-open breaker let one trial through, then delivered " + (calls.get() - 3)
+                + " and shed " + channel.getShedEventCount() + " events");
+        
+        channel.destroy();
+        System.out.println("Circuit breaker half-open trial test passed");
+    }
+    
+    /**
+     * Tests that events not yet dispatched when a durable channel stops are delivered by the next
+     * channel on the same directory, and that a damaged record ends the recovered log.
+     */
+    private static void testDurableLogRecovery() throws Exception {
+        System.out.println("\n=== Testing Durable Log Recovery ===");
+        
+        File directory = Files.createTempDirectory("arbat-durable").toFile();
+        EventChannelConfig config = new EventChannelConfig()
+                .setDurableDirectory(directory)
+                .setFsyncPolicy(FsyncPolicy.EVERY_EVENT)
+                .setMaxConcurrency(1);
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        // The consumer holds the only thread on the first event, so later events stay in the log
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        proxyConsumer.push(0);
+        if (!entered.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new AssertionError("First durable event was not delivered");
+        }
+        for (int i = 1; i < 10; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                release.countDown();
+            }
+        }).start();
+        channel.destroy();
+        
+        // Damage the last record as if the machine crashed while writing it
+        RandomAccessFile segment = new RandomAccessFile(new File(directory, "00000000000000000000.log"), "rw");
+        long position = 0;
+        long lastEnd = 0;
+        int length;
+        while ((length = segment.readInt()) != 0) {
+            position += 8 + length;
+            lastEnd = position;
+            segment.seek(position);
+        }
+        segment.seek(lastEnd - 1);
+        int lastByte = segment.read();
+        segment.seek(lastEnd - 1);
+        segment.write(lastByte ^ 0xff);
+        segment.close();
+        
+        channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(
+                config.setFsyncPolicy(FsyncPolicy.PERIODIC).setFsyncIntervalMillis(10));
+        if (channel.getRecoveredEventCount() != 8) {
+            throw new AssertionError("Expected 8 recovered events but got " + channel.getRecoveredEventCount());
+        }
+        
+        CountingPushConsumer consumer = new CountingPushConsumer(9);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer);
+        channel.dispatchRecoveredEvents();
+        proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        proxyConsumer.push(10);
+        
+        if (!consumer.await(WAIT_TIMEOUT_SECONDS)) {
+            throw new AssertionError("Recovered events were not delivered, got " + consumer.getReceived());
+        }
+        List<Object> expected = Arrays.<Object>asList(1, 2, 3, 4, 5, 6, 7, 8, 10);
+        if (!expected.equals(consumer.getReceived())) {
+            throw new AssertionError("Expected " + expected + " but got " + consumer.getReceived());
+        }
+        
+        System.out.println("Recovered " + channel.getRecoveredEventCount() + " undispatched events after a damaged record");
+        
+        channel.destroy();
+        deleteDirectory(directory);
+        System.out.println("Durable log recovery test passed");
+    }
+    
+    /**
+     * Tests that the checkpoint of a durable channel stays behind the events still waiting in a
+     * stalled consumer's delivery lane, so they are delivered again after a restart, while the
+     * events the consumer already received are not.
+     */
+    private static void testDurableLaneRecovery() throws Exception {
+        System.out.println("\n=== Testing Durable Lane Recovery ===");
+        
+        File directory = Files.createTempDirectory("arbat-durable").toFile();
+        EventChannelConfig config = new EventChannelConfig()
+                .setDurableDirectory(directory)
+                .setShutdownTimeoutMillis(200);
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        // The consumer receives the first five events and stalls on the sixth
+        final CountDownLatch release = new CountDownLatch(1);
+        CountingPushConsumer stalled = new CountingPushConsumer(5) {
+            @Override
+            public void push(Object data) throws Disconnected {
+                if (Integer.valueOf(5).equals(data)) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.push(data);
+            }
+        };
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(stalled);
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        for (int i = 0; i < 5; i++) {
+            proxyConsumer.push(i);
+        }
+        if (!stalled.await(WAIT_TIMEOUT_SECONDS)) {
+            throw new AssertionError("First durable events were not delivered, got " + stalled.getReceived());
+        }
+        for (int i = 5; i < 10; i++) {
+            proxyConsumer.push(i);
+        }
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (channel.getQueuedEventCount() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                release.countDown();
+                throw new AssertionError("Durable events were not dispatched to the lane");
+            }
+            Thread.sleep(10);
+        }
+        
+        // Destroyed while event 5 is being pushed and the rest wait in the lane
+        channel.destroy();
+        release.countDown();
+        
+        channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        if (channel.getRecoveredEventCount() != 5) {
+            throw new AssertionError("Expected 5 recovered events but got " + channel.getRecoveredEventCount());
+        }
+        
+        CountingPushConsumer consumer = new CountingPushConsumer(5);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer);
+        channel.dispatchRecoveredEvents();
+        if (!consumer.await(WAIT_TIMEOUT_SECONDS)) {
+            throw new AssertionError("Recovered events were not delivered, got " + consumer.getReceived());
+        }
+        List<Object> expected = Arrays.<Object>asList(5, 6, 7, 8, 9);
+        if (!expected.equals(consumer.getReceived())) {
+            throw new AssertionError("Expected " + expected + " but got " + consumer.getReceived());
+        }
+        
+        System.out.println("Recovered the " + channel.getRecoveredEventCount() + " events left in the delivery lane");
+        
+        channel.destroy();
+        deleteDirectory(directory);
+        System.out.println("Durable lane recovery test passed");
+    }
+    
+    /**
+     * Tests that a durable channel deletes old segments once their events have been dispatched.
+     */
+    private static void testDurableLogRetention() throws Exception {
+        System.out.println("\n=== Testing Durable Log Retention ===");
+        
+        File directory = Files.createTempDirectory("arbat-durable").toFile();
+        EventChannelConfig config = new EventChannelConfig()
+                .setDurableDirectory(directory)
+                .setDurableSegmentBytes(4096)
+                .setDurableRetainedSegments(2);
+        
+        // A rejected configuration must not leave the log open and locked
+        try {
+            EventChannelFactory.getInstance().createEventChannel(new EventChannelConfig(config).setPriorityLanes(2));
+            throw new AssertionError("Priority lanes were accepted with a durable log");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        if (directory.list().length != 0) {
+            throw new AssertionError("Rejected configuration created log files: " + Arrays.toString(directory.list()));
+        }
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        int rounds = 20;
+        int eventsPerRound = 100;
+        CountingPushConsumer consumer = new CountingPushConsumer(rounds * eventsPerRound);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer);
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < eventsPerRound; i++) {
+                proxyConsumer.push(round * eventsPerRound + i);
+            }
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+            while (consumer.getReceived().size() < (round + 1) * eventsPerRound && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+        
+        if (!consumer.await(WAIT_TIMEOUT_SECONDS) || !consumer.isInOrder()) {
+            throw new AssertionError("Durable channel did not deliver every event in order");
+        }
+        
+        int segments = directory.list().length - 2;
+        if (segments > 5) {
+            throw new AssertionError("Expected old segments to be deleted, found " + segments);
+        }
+        System.out.println("Delivered " + rounds * eventsPerRound + " events keeping " + segments + " segments");
+        
+        channel.destroy();
+        deleteDirectory(directory);
+        System.out.println("Durable log retention test passed");
+    }
+    
+    /**
+     * Tests that consumers connecting from an earlier position receive the retained events
+     * with their sequence numbers, followed by live events without gaps.
+     */
+    private static void testReplayFromPosition() throws Exception {
+        System.out.println("\n=== Testing Replay From Position ===");
+        
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(
+                new EventChannelConfig().setRetainedEvents(100));
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        for (int i = 0; i < 150; i++) {
+            proxyConsumer.push(i);
+        }
+        waitForSequence(channel, 150);
+        if (channel.getEarliestRetainedSequence() != 50) {
+            throw new AssertionError("Expected events from 50 to be retained, not " + channel.getEarliestRetainedSequence());
+        }
+        
+        SequencedConsumer earliest = new SequencedConsumer(110);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(earliest, StartPosition.earliest());
+        ProxyPullSupplier pullSupplier = channel.for_consumers().obtain_pull_supplier();
+        pullSupplier.connect_pull_consumer(new NoOpPullConsumer(), StartPosition.at(120));
+        CountingPushConsumer latest = new CountingPushConsumer(10);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(latest, StartPosition.latest());
+        
+        // Live events evict the oldest retained ones, which the replay may not have read yet
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (earliest.size() < 100) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Replayed only " + earliest.size() + " of 100 retained events");
+            }
+            Thread.sleep(10);
+        }
+        proxyConsumer.push_batch(new Object[] { 150, 151, 152, 153, 154 });
+        for (int i = 155; i < 160; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        if (!earliest.await(WAIT_TIMEOUT_SECONDS)) {
+            throw new AssertionError("Replayed events were not delivered");
+        }
+        earliest.check(50, 160);
+        
+        for (int i = 120; i < 160; i++) {
+            Object data = pullSupplier.pull();
+            if (!Integer.valueOf(i).equals(data)) {
+                throw new AssertionError("Expected event " + i + " but pulled " + data);
+            }
+        }
+        
+        if (!latest.await(WAIT_TIMEOUT_SECONDS) || !Integer.valueOf(150).equals(latest.getReceived().get(0))) {
+            throw new AssertionError("Consumer connected at the latest position should start at 150, got " + latest.getReceived());
+        }
+        System.out.println("Replayed 100 events to a push consumer and 30 to a pull consumer before live events");
+        
+        // A reconnecting consumer resumes right after the last event it processed
+        SequencedConsumer resumed = new SequencedConsumer(5);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(resumed, StartPosition.at(155));
+        if (!resumed.await(WAIT_TIMEOUT_SECONDS)) {
+            throw new AssertionError("Reconnected consumer did not catch up");
+        }
+        resumed.check(155, 160);
+        System.out.println("Reconnected consumer resumed at sequence 155");
+        
+        channel.destroy();
+        System.out.println("Replay from position test passed");
+    }
+    
+    /**
+     * Tests that a consumer of a durable channel can replay events stored by an earlier channel.
+     */
+    private static void testDurableReplay() throws Exception {
+        System.out.println("\n=== Testing Durable Replay ===");
+        
+        File directory = Files.createTempDirectory("arbat-durable").toFile();
+        EventChannelConfig config = new EventChannelConfig().setDurableDirectory(directory);
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        for (int i = 0; i < 20; i++) {
+            proxyConsumer.push(i);
+        }
+        waitForSequence(channel, 20);
+        channel.destroy();
+        
+        channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        ProxyPullSupplier pullSupplier = channel.for_consumers().obtain_pull_supplier();
+        pullSupplier.connect_pull_consumer(new NoOpPullConsumer(), StartPosition.earliest());
+        
+        BooleanHolder hasEvent = new BooleanHolder();
+        List<Object> events = pullSupplier.try_pull_n(100, hasEvent);
+        if (events.size() != 20 || !Integer.valueOf(0).equals(events.get(0)) || !Integer.valueOf(19).equals(events.get(19))) {
+            throw new AssertionError("Expected events 0 to 19 from the log but pulled " + events);
+        }
+        System.out.println("Replayed 20 events from the log of a previous channel");
+        
+        channel.destroy();
+        deleteDirectory(directory);
+        System.out.println("Durable replay test passed");
+    }
+    
+    /**
+     * Tests that a lagging consumer receives only the latest event per key, in the order
+     * the keys first became pending, while unkeyed events are delivered as usual.
+     */
+    private static void testConflation() throws Exception {
+        System.out.println("\n=== Testing Conflation ===");
+        
+        EventChannelConfig config = new EventChannelConfig().setKeyExtractor(new KeyExtractor() {
+            @Override
+            public Object extractKey(Object data) {
+                return data instanceof Integer ? (Integer) data % 4 : null;
+            }
+        });
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(6);
+        final List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                received.add(data);
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        // The consumer stalls on the first event while 400 more arrive for 4 keys
+        proxyConsumer.push(0);
+        if (!blocked.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new AssertionError("Consumer did not receive the first event");
+        }
+        for (int i = 1; i <= 400; i++) {
+            proxyConsumer.push(i);
+        }
+        proxyConsumer.push("end");
+        waitForSequence(channel, 402);
+        release.countDown();
+        
+        if (!done.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new AssertionError("Expected 6 deliveries but received " + received);
+        }
+        List<Object> expected = Arrays.<Object>asList(0, 397, 398, 399, 400, "end");
+        if (!expected.equals(received)) {
+            throw new AssertionError("Expected " + expected + " but received " + received);
+        }
+        if (channel.getConflatedEventCount() != 396) {
+            throw new AssertionError("Expected 396 conflated events but counted " + channel.getConflatedEventCount());
+        }
+        System.out.println("Lagging consumer received " + received + ", " + channel.getConflatedEventCount() + " events conflated");
+        
+        channel.destroy();
+        System.out.println("Conflation test passed");
+    }
+    
+    /**
+     * Tests that events of a higher priority overtake queued events of a lower one, strictly
+     * or in proportion to the lane weights.
+     */
+    private static void testPriorityLanes() throws Exception {
+        System.out.println("\n=== Testing Priority Lanes ===");
+        
+        int[][] strictPushes = { { 1, 0 }, { 2, 0 }, { 3, 0 }, { 100, 1 }, { 101, 1 } };
+        List<Object> strict = runPriorityOrder(new EventChannelConfig().setPriorityLanes(2), strictPushes);
+        if (!Arrays.<Object>asList(0, 100, 101, 1, 2, 3, -1).equals(strict)) {
+            throw new AssertionError("Unexpected strict priority order " + strict);
+        }
+        System.out.println("Strict scheduling delivered " + strict);
+        
+        int[][] weightedPushes = { { 1, 0 }, { 2, 0 }, { 3, 0 }, { 4, 0 }, { 100, 1 }, { 101, 1 }, { 102, 1 }, { 103, 1 } };
+        List<Object> weighted = runPriorityOrder(new EventChannelConfig()
+                .setPriorityLanes(2)
+                .setPriorityScheduling(PriorityScheduling.WEIGHTED_FAIR)
+                .setPriorityWeights(1, 2), weightedPushes);
+        if (!Arrays.<Object>asList(0, 100, 101, 1, 102, 103, 2, 3, 4, -1).equals(weighted)) {
+            throw new AssertionError("Unexpected weighted fair priority order " + weighted);
+        }
+        System.out.println("Weighted fair scheduling delivered " + weighted);
+        
+        try {
+            EventChannelFactory.getInstance().createEventChannel(new EventChannelConfig()
+                    .setPriorityLanes(2)
+                    .setDispatcherMode(DispatcherMode.RING_BUFFER));
+            throw new AssertionError("Ring buffer channel accepted priority lanes");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Ring buffer channel rejected priority lanes: " + e.getMessage());
+        }
+        
+        System.out.println("Priority lanes test passed");
+    }
+    
+    /**
+     * Tests that events whose time-to-live elapses are discarded from a stalled consumer's lane,
+     * swept from an idle pull consumer's queue and dropped by a stalled ring buffer dispatcher,
+     * and that a per-event time-to-live overrides the channel default.
+     */
+    private static void testEventExpiry() throws Exception {
+        System.out.println("\n=== Testing Event Expiry ===");
+        
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(
+                new EventChannelConfig().setEventTimeToLiveMillis(100).setExpirySweepIntervalMillis(20));
+        GatedConsumer stalled = new GatedConsumer();
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(stalled);
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        proxyConsumer.push(0, 0, Long.MAX_VALUE);
+        stalled.awaitBlocked();
+        ProxyPullSupplier pullSupplier = channel.for_consumers().obtain_pull_supplier();
+        pullSupplier.connect_pull_consumer(new NoOpPullConsumer());
+        for (int i = 1; i <= 10; i++) {
+            proxyConsumer.push(i);
+        }
+        proxyConsumer.push(11, 0, TimeUnit.MINUTES.toMillis(1));
+        
+        // The sweeper removes the 10 stale events from the idle pull consumer's queue
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (channel.getProxyExpiredEventCount() < 10) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Expected 10 swept events but counted " + channel.getProxyExpiredEventCount());
+            }
+            Thread.sleep(10);
+        }
+        stalled.release();
+        
+        BooleanHolder hasEvent = new BooleanHolder();
+        List<Object> pulled = pullSupplier.try_pull_n(100, hasEvent);
+        if (!Arrays.<Object>asList(11).equals(pulled)) {
+            throw new AssertionError("Expected to pull only 11 but pulled " + pulled);
+        }
+        if (!stalled.awaitCount(2) || !Arrays.<Object>asList(0, 11).equals(stalled.getReceived())) {
+            throw new AssertionError("Expected the stalled consumer to receive 0 and 11 but it received " + stalled.getReceived());
+        }
+        if (channel.getProxyExpiredEventCount() != 20) {
+            throw new AssertionError("Expected 20 expired events for the proxies but counted " + channel.getProxyExpiredEventCount());
+        }
+        System.out.println("Consumers skipped " + channel.getProxyExpiredEventCount() + " expired events");
+        channel.destroy();
+        
+        // A consumer called on the ring buffer dispatcher thread holds the stale events in the ring
+        channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(new EventChannelConfig()
+                .setDispatcherMode(DispatcherMode.RING_BUFFER)
+                .setEventTimeToLiveMillis(50));
+        stalled = new GatedConsumer();
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(stalled);
+        proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        proxyConsumer.push(0);
+        stalled.awaitBlocked();
+        for (int i = 1; i <= 5; i++) {
+            proxyConsumer.push(i);
+        }
+        Thread.sleep(150);
+        proxyConsumer.push(6);
+        stalled.release();
+        
+        if (!stalled.awaitCount(2) || !Arrays.<Object>asList(0, 6).equals(stalled.getReceived())) {
+            throw new AssertionError("Expected the consumer to receive 0 and 6 but it received " + stalled.getReceived());
+        }
+        if (channel.getExpiredEventCount() != 5) {
+            throw new AssertionError("Expected 5 events expired in the ring buffer but counted " + channel.getExpiredEventCount());
+        }
+        System.out.println("Ring buffer dispatcher discarded " + channel.getExpiredEventCount() + " expired events");
+        channel.destroy();
+        
+        System.out.println("Event expiry test passed");
+    }
+    
+    /**
+     * Tests that the channel counts pushed, delivered and failed events per channel and per proxy,
+     * records push-to-deliver latencies, and publishes them through its MXBean until destroyed.
+     */
+    private static void testChannelMetrics() throws Exception {
+        System.out.println("\n=== Testing Channel Metrics ===");
+        
+        int eventCount = 100;
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(
+                new EventChannelConfig().setLatencySampleInterval(1).setMetricsName("dispatch-test"));
+        CountingPushConsumer healthy = new CountingPushConsumer(eventCount);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(healthy);
+        final CountDownLatch failures = new CountDownLatch(eventCount);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                failures.countDown();
+                throw new IllegalStateException("Consumer rejects event " + data);
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        ProxyPullSupplier pullSupplier = channel.for_consumers().obtain_pull_supplier();
+        pullSupplier.connect_pull_consumer(new NoOpPullConsumer());
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        if (!healthy.await(WAIT_TIMEOUT_SECONDS) || !failures.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new AssertionError("Not all events reached the push consumers");
+        }
+        List<Object> pulled = pullSupplier.pull_n(eventCount, TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS));
+        while (pulled.size() < eventCount) {
+            pulled.addAll(pullSupplier.pull_n(eventCount - pulled.size(), TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS)));
+        }
+        
+        // The counters are updated once push returns, just after the consumers counted down
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (channel.getDeliveredEventCount() < 2 * eventCount || channel.getFailedDeliveryCount() < eventCount) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Expected " + (2 * eventCount) + " delivered and " + eventCount
+                        + " failed events but counted " + channel.getDeliveredEventCount() + " and " + channel.getFailedDeliveryCount());
+            }
+            Thread.sleep(10);
+        }
+        if (channel.getPushedEventCount() != eventCount) {
+            throw new AssertionError("Expected " + eventCount + " pushed events but counted " + channel.getPushedEventCount());
+        }
+        
+        List<ConsumerMetrics> consumers = channel.getConsumerMetrics();
+        if (consumers.size() != 3 || consumers.get(0).getDeliveredCount() != eventCount || consumers.get(1).getFailedCount() != eventCount
+                || consumers.get(2).isPush() || consumers.get(2).getDeliveredCount() != eventCount) {
+            throw new AssertionError("Unexpected consumer metrics " + consumers);
+        }
+        if (consumers.get(0).getLatencySampleCount() != eventCount || consumers.get(2).getLatencySampleCount() != eventCount) {
+            throw new AssertionError("Expected every delivered event to be timed: " + consumers);
+        }
+        long median = channel.getDeliveryLatencyNanos(50);
+        long p99 = channel.getDeliveryLatencyNanos(99);
+        if (median <= 0 || p99 < median) {
+            throw new AssertionError("Implausible latency percentiles: p50=" + median + "ns, p99=" + p99 + "ns");
+        }
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.metricstream.omg:type=EventChannel,name=dispatch-test");
+        if (!Long.valueOf(eventCount).equals(server.getAttribute(name, "PushedEventCount"))) {
+            throw new AssertionError("MXBean reports " + server.getAttribute(name, "PushedEventCount") + " pushed events");
+        }
+        CompositeData[] published = (CompositeData[]) server.getAttribute(name, "Consumers");
+        if (published.length != 3 || !"pull-3".equals(published[2].get("proxyId"))) {
+            throw new AssertionError("MXBean reports " + published.length + " consumers");
+        }
+        System.out.println("Delivered " + channel.getDeliveredEventCount() + " events, p50 " + median + " ns, p99 " + p99 + " ns");
+        
+        channel.destroy();
+        if (server.isRegistered(name)) {
+            throw new AssertionError("Metrics of a destroyed channel are still published");
+        }
+        System.out.println("Channel metrics test passed");
+    }
+    
+    /**
+     * Tests that the ring buffer dispatcher times every event without allocating, since the push
+     * time travels in the ring buffer slot rather than in a wrapper around the event.
+     */
+    private static void testTimedRingBufferDelivery() throws Exception {
+        System.out.println("\n=== Testing Timed Ring Buffer Delivery ===");
+        
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            System.out.println("Thread allocation counters are not available, skipping");
+            return;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        
+        int eventCount = 100000;
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(
+                new EventChannelConfig().setDispatcherMode(DispatcherMode.RING_BUFFER).setLatencySampleInterval(1));
+        final AtomicInteger received = new AtomicInteger();
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                received.incrementAndGet();
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        Object event = "timed";
+        
+        // Warm up, so that one-off allocations of the dispatcher and the counters are not measured
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(event);
+        }
+        waitForReceived(received, eventCount);
+        
+        List<Long> threadIds = new ArrayList<>();
+        threadIds.add(Thread.currentThread().getId());
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("arbat-ring-dispatcher") && thread.isAlive()) {
+                threadIds.add(thread.getId());
+            }
+        }
+        long before = allocatedBytes(allocations, threadIds);
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(event);
+        }
+        waitForReceived(received, 2 * eventCount);
+        long bytesPerEvent = (allocatedBytes(allocations, threadIds) - before) / eventCount;
+        
+        long timed = channel.getConsumerMetrics().get(0).getLatencySampleCount();
+        if (timed != 2 * eventCount) {
+            throw new AssertionError("Expected every event to be timed, got " + timed + " samples");
+        }
+        // A wrapper per timed event would take at least 24 bytes
+        if (bytesPerEvent >= 8) {
+            throw new AssertionError("Timed ring buffer delivery allocates " + bytesPerEvent + " bytes per event");
+        }
+        System.out.println("Timed " + timed + " events, allocating " + bytesPerEvent + " bytes per event");
+        channel.destroy();
+        
+        System.out.println("Timed ring buffer delivery test passed");
+    }
+    
+    /**
+     * Waits until a consumer has received the specified number of events.
+     */
+    private static void waitForReceived(AtomicInteger received, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (received.get() < expected) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Expected " + expected + " events but received " + received.get());
+            }
+            Thread.sleep(1);
+        }
+    }
+    
+    /**
+     * Sums the bytes allocated so far by the specified threads.
+     */
+    private static long allocatedBytes(com.sun.management.ThreadMXBean allocations, List<Long> threadIds) {
+        long total = 0;
+        for (long threadId : threadIds) {
+            total += Math.max(0, allocations.getThreadAllocatedBytes(threadId));
+        }
+        return total;
+    }
+    
+    private static void testDrainOnDestroy() throws Exception {
+        System.out.println("\n=== Testing Drain On Destroy ===");
+        
+        int eventCount = 50;
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(
+                new EventChannelConfig().setDrainTimeoutMillis(1000));
+        CountingPushConsumer consumer = new SlowPushConsumer(eventCount, 2);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer);
+        ProxyPullSupplier pullSupplier = channel.for_consumers().obtain_pull_supplier();
+        pullSupplier.connect_pull_consumer(new NoOpPullConsumer());
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        // The pull consumer never pulls, so its queue keeps the drain waiting until the deadline
+        channel.destroy();
+        DrainReport report = channel.getDrainReport();
+        if (report == null || consumer.getReceived().size() != eventCount || !consumer.isInOrder()) {
+            throw new AssertionError("Expected the push consumer to receive all " + eventCount + " events before destroy returned, got "
+                    + consumer.getReceived().size() + " (" + report + ")");
+        }
+        if (report.getTimedOutCount() != eventCount || report.isComplete()) {
+            throw new AssertionError("Expected the unpulled events to time out: " + report);
+        }
+        try {
+            proxyConsumer.push(eventCount);
+            throw new AssertionError("Supplier was not disconnected by the drain");
+        } catch (Disconnected e) {
+            // Expected
+        }
+        System.out.println("Drained with the pull consumer idle: " + report);
+        
+        channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel();
+        consumer = new SlowPushConsumer(eventCount, 2);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer);
+        proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        report = channel.destroy(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        // Events delivered before the drain started are not in the report
+        if (!report.isComplete() || channel.getDeliveredEventCount() + report.getDroppedCount() != eventCount
+                || consumer.getReceived().size() != channel.getDeliveredEventCount()
+                || report.getDeliveredCount() > channel.getDeliveredEventCount()) {
+            throw new AssertionError("Expected every event to be accounted for by a complete drain: " + report);
+        }
+        System.out.println("Drained to completion: " + report);
+        
+        channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel();
+        consumer = new SlowPushConsumer(eventCount, 20);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer);
+        proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        report = channel.destroy(100, TimeUnit.MILLISECONDS);
+        if (report.isComplete() || report.getTimedOutCount() <= 0 || report.getElapsedMillis() < 100) {
+            throw new AssertionError("Expected the drain to give up on a slow consumer: " + report);
+        }
+        System.out.println("Drain deadline reached: " + report);
+        
+        System.out.println("Drain on destroy test passed");
+    }
+    
+    /**
+     * Tests that with at-least-once delivery failed events are redelivered until they run out of
+     * attempts, and that explicitly acknowledging consumers are held to their window.
+     */
+    private static void testAtLeastOnceDelivery() throws Exception {
+        System.out.println("\n=== Testing At-Least-Once Delivery ===");
+        
+        int eventCount = 20;
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(
+                new EventChannelConfig().setDeliveryGuarantee(DeliveryGuarantee.AT_LEAST_ONCE)
+                        .setRedeliveryBackoffMillis(10).setMaxDeliveryAttempts(3));
+        FlakyPushConsumer consumer = new FlakyPushConsumer(eventCount - 1, 7);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer);
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        // Every event fails once, and event 7 fails on every attempt
+        if (!consumer.await(WAIT_TIMEOUT_SECONDS) || !waitForCount(channel, 1)) {
+            throw new AssertionError("Expected every event but 7 to be redelivered and accepted, got " + consumer.getReceived()
+                    + " with " + channel.getUndeliverableEventCount() + " undeliverable");
+        }
+        if (consumer.getReceived().contains(7) || channel.getRedeliveredEventCount() != eventCount + 1) {
+            throw new AssertionError("Expected " + (eventCount + 1) + " redeliveries, got " + channel.getRedeliveredEventCount());
+        }
+        System.out.println("Redelivered " + channel.getRedeliveredEventCount() + " times, gave up on "
+                + channel.getUndeliverableEventCount() + " event");
+        channel.destroy();
+        
+        int window = 4;
+        channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(
+                new EventChannelConfig().setDeliveryGuarantee(DeliveryGuarantee.AT_LEAST_ONCE).setAckWindow(window)
+                        .setAckTimeoutMillis(100));
+        ProxyPushSupplier pushSupplier = channel.for_consumers().obtain_push_supplier();
+        AckingPushConsumer acking = new AckingPushConsumer();
+        pushSupplier.connect_push_consumer(acking);
+        proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        if (!acking.awaitCount(window)) {
+            throw new AssertionError("Window was not filled: " + acking.getReceived());
+        }
+        Thread.sleep(50);
+        if (acking.getReceived().size() != window) {
+            throw new AssertionError("Expected " + window + " unacknowledged events in flight, got " + acking.getReceived());
+        }
+        
+        // Let the first event time out once, then acknowledge everything as it arrives
+        if (!acking.awaitCount(window + 1) || !Integer.valueOf(0).equals(acking.getReceived().get(window))) {
+            throw new AssertionError("Expected event 0 to be redelivered after the timeout, got " + acking.getReceived());
+        }
+        acking.acknowledgeAll(pushSupplier);
+        if (!acking.awaitDistinct(eventCount)) {
+            throw new AssertionError("Expected all events once acknowledged, got " + acking.getReceived());
+        }
+        System.out.println("Acknowledging consumer received " + acking.getReceived().size() + " deliveries of "
+                + eventCount + " events with a window of " + window);
+        channel.destroy();
+        
+        System.out.println("At-least-once delivery test passed");
+    }
+    
+    /**
+     * Tests that events a consumer fails are sent once to the dead-letter channel with their failure,
+     * both right away and after the attempts of at-least-once delivery are used up, and that
+     * a dead-letter channel that rejects them does not affect delivery.
+     */
+    private static void testDeadLetterChannel() throws Exception {
+        System.out.println("\n=== Testing Dead-Letter Channel ===");
+        
+        EventChannel deadLetterChannel = EventChannelFactory.getInstance().createEventChannel();
+        ProxyPullSupplier deadLetters = deadLetterChannel.for_consumers().obtain_pull_supplier();
+        deadLetters.connect_pull_consumer(new NoOpPullConsumer());
+        
+        int eventCount = 10;
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(
+                new EventChannelConfig().setDeadLetterChannel(deadLetterChannel));
+        PoisonPushConsumer consumer = new PoisonPushConsumer(eventCount - 1, 3);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer);
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        if (!consumer.await(WAIT_TIMEOUT_SECONDS)) {
+            throw new AssertionError("Expected the healthy events to be delivered, got " + consumer.getReceived());
+        }
+        DeadLetter letter = (DeadLetter) deadLetters.pull();
+        if (!Integer.valueOf(3).equals(letter.getData()) || !letter.getConsumerId().startsWith("push-")
+                || !IllegalStateException.class.getName().equals(letter.getExceptionClass()) || letter.getAttempts() != 1) {
+            throw new AssertionError("Unexpected dead letter: " + letter);
+        }
+        System.out.println("Failed event diverted: " + letter);
+        channel.destroy();
+        
+        channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(
+                new EventChannelConfig().setDeadLetterChannel(deadLetterChannel)
+                        .setDeliveryGuarantee(DeliveryGuarantee.AT_LEAST_ONCE)
+                        .setRedeliveryBackoffMillis(1).setMaxDeliveryAttempts(2));
+        consumer = new PoisonPushConsumer(eventCount - 1, 3);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(consumer);
+        proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        letter = (DeadLetter) deadLetters.pull();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (channel.getDeadLetterCount() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        if (!Integer.valueOf(3).equals(letter.getData()) || letter.getAttempts() != 2 || channel.getDeadLetterCount() != 1
+                || channel.getUndeliverableEventCount() != 1) {
+            throw new AssertionError("Expected the poison event to be diverted after 2 attempts: " + letter);
+        }
+        BooleanHolder hasEvent = new BooleanHolder();
+        deadLetters.try_pull(hasEvent);
+        if (!consumer.await(WAIT_TIMEOUT_SECONDS) || hasEvent.value) {
+            throw new AssertionError("Expected only the poison event to be diverted, got " + consumer.getReceived());
+        }
+        System.out.println("Undeliverable event diverted: " + letter);
+        channel.destroy();
+        deadLetterChannel.destroy();
+        
+        // A full dead-letter channel rejects letters, which must not stop delivery to the failing consumer
+        final CountDownLatch release = new CountDownLatch(1);
+        deadLetterChannel = EventChannelFactory.getInstance().createEventChannel(new EventChannelConfig()
+                .setDispatcherMode(DispatcherMode.RING_BUFFER)
+                .setRingBufferSize(4)
+                .setChannelOverflowPolicy(OverflowPolicy.REJECT));
+        deadLetterChannel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(
+                new EventChannelConfig().setDeadLetterChannel(deadLetterChannel));
+        final AtomicInteger attempted = new AtomicInteger();
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                attempted.incrementAndGet();
+                throw new IllegalStateException("Cannot process " + data);
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        for (int i = 0; i < eventCount * 10; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (channel.getDeadLetterCount() + channel.getDeadLetterFailureCount() < eventCount * 10
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        if (attempted.get() != eventCount * 10 || channel.getDeadLetterFailureCount() == 0
+                || channel.getDeadLetterCount() + channel.getDeadLetterFailureCount() != eventCount * 10) {
+            throw new AssertionError("Expected every failed event to be diverted or counted, got " + attempted.get()
+                    + " attempts, " + channel.getDeadLetterCount() + " dead letters and "
+                    + channel.getDeadLetterFailureCount() + " rejected");
+        }
+        System.out.println("Rejected dead letters: " + channel.getDeadLetterFailureCount());
+        channel.destroy();
+        deadLetterChannel.destroy();
+        
+        System.out.println("Dead-letter channel test passed");
+    }
+    
+    /**
+     * Waits until a channel has given up on the specified number of events.
+     */
+    private static boolean waitForCount(EventChannelImpl channel, long undeliverable) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (channel.getUndeliverableEventCount() < undeliverable) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+    
+    /**
+     * Stalls a consumer on event 0, pushes the specified value and priority pairs followed by
+     * a low-priority -1, and returns the order in which the consumer received them.
+     */
+    private static List<Object> runPriorityOrder(EventChannelConfig config, int[][] pushes) throws Exception {
+        EventChannelImpl channel = (EventChannelImpl) EventChannelFactory.getInstance().createEventChannel(config);
+        
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(pushes.length + 2);
+        final List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                received.add(data);
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        proxyConsumer.push(0);
+        if (!blocked.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new AssertionError("Consumer did not receive the first event");
+        }
+        for (int[] push : pushes) {
+            proxyConsumer.push(push[0], push[1]);
+        }
+        proxyConsumer.push(-1);
+        // Once the last event has a sequence number, the others are in the consumer's lane
+        waitForSequence(channel, pushes.length + 2);
+        release.countDown();
+        
+        if (!done.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new AssertionError("Consumer received only " + received);
+        }
+        channel.destroy();
+        return new ArrayList<>(received);
+    }
+    
+    /**
+     * Waits until the channel has dispatched events up to the specified sequence.
+     */
+    private static void waitForSequence(EventChannelImpl channel, long sequence) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (channel.getNextSequence() < sequence) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Channel dispatched only up to sequence " + channel.getNextSequence());
+            }
+            Thread.sleep(10);
+        }
+    }
+    
+    /**
+     * Deletes a directory and the files in it.
+     */
+    private static void deleteDirectory(File directory) {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+    
+    /**
+     * Pushes events to a channel with a healthy consumer and checks that it receives all of them.
+     */
+    private static void runFailingConsumer(EventChannel channel, int eventCount) throws Exception {
+        CountingPushConsumer healthy = new CountingPushConsumer(eventCount);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(healthy);
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new NoOpPushSupplier());
+        
+        for (int i = 0; i < eventCount; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        if (!healthy.await(WAIT_TIMEOUT_SECONDS) || !healthy.isInOrder()) {
+            throw new AssertionError("Healthy consumer did not receive every event in order");
+        }
+    }
+    
+    /**
+     * Waits until the channel's proxy queues have dropped the expected number of events.
+     */
+    private static void waitFor(EventChannelImpl channel, long expectedDrops) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+        while (channel.getProxyDroppedEventCount() < expectedDrops) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Expected " + expectedDrops + " drops but saw " + channel.getProxyDroppedEventCount());
+            }
+            Thread.sleep(10);
+        }
+    }
+    
+    /**
+     * Push consumer that records received integers and counts down once all are received.
+     */
+    static class CountingPushConsumer implements PushConsumer {
+        private final CountDownLatch latch;
+        private final List<Object> received = new ArrayList<>();
+        
+        public CountingPushConsumer(int expected) {
+            this.latch = new CountDownLatch(expected);
+        }
+        
+        @Override
+        public synchronized void push(Object data) throws Disconnected {
+            received.add(data);
+            latch.countDown();
+        }
+        
+        @Override
+        public void disconnect_push_consumer() {
+            // Nothing to clean up
+        }
+        
+        public boolean await(int timeoutSeconds) throws InterruptedException {
+            return latch.await(timeoutSeconds, TimeUnit.SECONDS);
+        }
+        
+        public synchronized List<Object> getReceived() {
+            return new ArrayList<>(received);
+        }
+        
+        public synchronized boolean isInOrder() {
+            for (int i = 0; i < received.size(); i++) {
+                if (!Integer.valueOf(i).equals(received.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Counting push consumer that takes a fixed time to process each event.
+     */
+    static class SlowPushConsumer extends CountingPushConsumer {
+        private final long delayMillis;
+        
+        public SlowPushConsumer(int expected, long delayMillis) {
+            super(expected);
+            this.delayMillis = delayMillis;
+        }
+        
+        @Override
+        public void push(Object data) throws Disconnected {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.push(data);
+        }
+    }
+    
+    /**
+     * Counting push consumer that fails every delivery of one event.
+     */
+    static class PoisonPushConsumer extends CountingPushConsumer {
+        private final Object poison;
+        
+        public PoisonPushConsumer(int expected, Object poison) {
+            super(expected);
+            this.poison = poison;
+        }
+        
+        @Override
+        public void push(Object data) throws Disconnected {
+            if (poison.equals(data)) {
+                throw new IllegalStateException("Cannot process " + data);
+            }
+            super.push(data);
+        }
+    }
+    
+    /**
+     * Counting push consumer that fails the first delivery of each event, and every delivery of one event.
+     */
+    static class FlakyPushConsumer extends CountingPushConsumer {
+        private final Object poison;
+        private final List<Object> failed = new ArrayList<>();
+        
+        public FlakyPushConsumer(int expected, Object poison) {
+            super(expected);
+            this.poison = poison;
+        }
+        
+        @Override
+        public void push(Object data) throws Disconnected {
+            synchronized (failed) {
+                if (poison.equals(data) || !failed.contains(data)) {
+                    failed.add(data);
+                    throw new IllegalStateException("Cannot process " + data + " yet");
+                }
+            }
+            super.push(data);
+        }
+    }
+    
+    /**
+     * Push consumer that acknowledges explicitly, recording each delivery and, once told to,
+     * acknowledging every delivery it receives.
+     */
+    static class AckingPushConsumer implements AcknowledgingPushConsumer {
+        private final List<Object> received = new ArrayList<>();
+        private final List<Long> unacknowledged = new ArrayList<>();
+        private ProxyPushSupplier acknowledger;
+        
+        @Override
+        public void push_with_ack(long delivery_id, Object data) {
+            ProxyPushSupplier supplier;
+            synchronized (this) {
+                received.add(data);
+                notifyAll();
+                supplier = acknowledger;
+                if (supplier == null) {
+                    unacknowledged.add(delivery_id);
+                }
+            }
+            if (supplier != null) {
+                supplier.acknowledge(delivery_id);
+            }
+        }
+        
+        @Override
+        public void push(Object data) {
+            throw new AssertionError("Acknowledging consumer received an event without a delivery id");
+        }
+        
+        @Override
+        public void disconnect_push_consumer() {
+            // Nothing to clean up
+        }
+        
+        public void acknowledgeAll(ProxyPushSupplier supplier) {
+            List<Long> pending;
+            synchronized (this) {
+                acknowledger = supplier;
+                pending = new ArrayList<>(unacknowledged);
+                unacknowledged.clear();
+            }
+            for (long deliveryId : pending) {
+                supplier.acknowledge(deliveryId);
+            }
+        }
+        
+        public synchronized boolean awaitCount(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+            while (received.size() < count) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            return true;
+        }
+        
+        public synchronized boolean awaitDistinct(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+            while (new HashSet<Object>(received).size() < count) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            return true;
+        }
+        
+        public synchronized List<Object> getReceived() {
+            return new ArrayList<>(received);
+        }
+    }
+    
+    /**
+     * Push consumer that blocks in its first push until released and records the events it receives.
+     */
+    static class GatedConsumer implements PushConsumer {
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<Object> received = new ArrayList<>();
+        
+        @Override
+        public void push(Object data) throws Disconnected {
+            synchronized (this) {
+                received.add(data);
+                notifyAll();
+            }
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        @Override
+        public void disconnect_push_consumer() {
+            // Nothing to clean up
+        }
+        
+        public void awaitBlocked() throws InterruptedException {
+            if (!blocked.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new AssertionError("Consumer did not receive the first event");
+            }
+        }
+        
+        public void release() {
+            release.countDown();
+        }
+        
+        public synchronized boolean awaitCount(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS);
+            while (received.size() < count) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            return true;
+        }
+        
+        public synchronized List<Object> getReceived() {
+            return new ArrayList<>(received);
+        }
+    }
+    
+    /**
+     * Sequenced push consumer that records the sequence numbers it receives with integer events.
+     */
+    static class SequencedConsumer implements SequencedPushConsumer {
+        private final CountDownLatch latch;
+        private final List<long[]> received = new ArrayList<>();
+        
+        public SequencedConsumer(int expected) {
+            this.latch = new CountDownLatch(expected);
+        }
+        
+        @Override
+        public synchronized void push_sequenced(long sequence, Object data) {
+            received.add(new long[] { sequence, ((Integer) data).longValue() });
+            latch.countDown();
+        }
+        
+        @Override
+        public void push(Object data) {
+            throw new AssertionError("Sequenced consumer received an event without its sequence");
+        }
+        
+        @Override
+        public void disconnect_push_consumer() {
+            // Nothing to clean up
+        }
+        
+        public boolean await(int timeoutSeconds) throws InterruptedException {
+            return latch.await(timeoutSeconds, TimeUnit.SECONDS);
+        }
+        
+        public synchronized int size() {
+            return received.size();
+        }
+        
+        /**
+         * Checks that exactly the events from first to end were received in order,
+         * each with its value as sequence number.
+         */
+        public synchronized void check(long first, long end) {
+            if (received.size() != end - first) {
+                throw new AssertionError("Expected " + (end - first) + " events but received " + received.size());
+            }
+            for (int i = 0; i < received.size(); i++) {
+                long[] event = received.get(i);
+                if (event[0] != first + i || event[1] != first + i) {
+                    throw new AssertionError("Expected event " + (first + i) + " but received " + event[1] + " with sequence " + event[0]);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Pull consumer that does nothing when disconnected.
+     */
+    static class NoOpPullConsumer implements PullConsumer {
+        @Override
+        public void disconnect_pull_consumer() {
+            // Nothing to clean up
+        }
+    }
+    
+    /**
+     * Pull supplier serving events from an in-memory queue.
+     */
+    static class QueuePullSupplier implements PullSupplier {
+        private final ConcurrentLinkedQueue<Object> events = new ConcurrentLinkedQueue<>();
+        
+        public void add(Object data) {
+            synchronized (events) {
+                events.add(data);
+                events.notifyAll();
+            }
+        }
+        
+        @Override
+        public Object try_pull(BooleanHolder has_event) throws Disconnected {
+            Object data = events.poll();
+            has_event.value = (data != null);
+            return data;
+        }
+        
+        @Override
+        public Object pull() throws Disconnected {
+            synchronized (events) {
+                while (events.isEmpty()) {
+                    try {
+                        events.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new Disconnected("Pull operation interrupted");
+                    }
+                }
+                return events.poll();
+            }
+        }
+        
+        @Override
+        public void disconnect_pull_supplier() {
+            // Nothing to clean up
+        }
+    }
+    
+    /**
+     * Push supplier that does nothing when disconnected.
+     */
+    static class NoOpPushSupplier implements PushSupplier {
+        @Override
+        public void disconnect_push_supplier() {
+            // Nothing to clean up
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.metricstream.omg.test;
+
+import com.metricstream.omg.event.*;
+import com.metricstream.omg.eventchannel.*;
+import com.metricstream.omg.util.Any;
+import com.metricstream.omg.util.TypeCode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class for verifying the filter constraint language and filtering in the event channel.
+ */
+public class EventFilterTest {
+    
+    private static final int WAIT_TIMEOUT_SECONDS = 5;
+    
+    public static void main(String[] args) {
+        System.out.println("Starting EventFilterTest...");
+        
+        try {
+            testConstraintLanguage();
+            testInvalidConstraints();
+            testPushSupplierFilter();
+            testPullSupplierFilter();
+            testAdminFilter();
+            testDistinctFilterEvaluatedOnce();
+            
+            System.out.println("\nAll EventFilterTest tests passed successfully!");
+        } catch (Exception e) {
+            System.err.println("\nEventFilterTest failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Tests constraints over maps, beans and Any values.
+     */
+    private static void testConstraintLanguage() throws Exception {
+        System.out.println("\n=== Testing Constraint Language ===");
+        
+        Map<String, Object> order = new HashMap<>();
+        order.put("type", "trade");
+        order.put("price", new Any(Double.valueOf(101.5), TypeCode.doubleType()));
+        order.put("quantity", 20);
+        order.put("tags", Arrays.asList("red", "urgent"));
+        order.put("message", "partial fill error");
+        order.put("quote", new Quote("ACME", 42));
+        
+        assertMatch("$.type == 'trade'", order, true);
+        assertMatch("$.type != 'trade'", order, false);
+        assertMatch("$.price > 100 and $.price <= 101.5", order, true);
+        assertMatch("$.quantity >= 20 and $.quantity < 21", order, true);
+        assertMatch("'red' in $.tags", order, true);
+        assertMatch("'blue' in $.tags", order, false);
+        assertMatch("'error' ~ $.message", order, true);
+        assertMatch("exist $.price and not exist $.missing", order, true);
+        assertMatch("$.missing == 1 or $.type == 'trade'", order, true);
+        assertMatch("$.missing != 1", order, false);
+        assertMatch("$.quote.symbol == 'ACME' and $.quote.bid == 42", order, true);
+        assertMatch("$.tags.1 == 'urgent'", order, true);
+        assertMatch("not ($.type == 'quote' or $.quantity > 100)", order, true);
+        assertMatch("", order, true);
+        assertMatch("$ == 'plain'", "plain", true);
+        assertMatch("$ > 10", new Any(Integer.valueOf(11), TypeCode.longType()), true);
+        
+        System.out.println("Constraints evaluated correctly over maps, beans and Any values");
+        System.out.println("Constraint language test passed");
+    }
+    
+    /**
+     * Tests that malformed constraints are rejected when compiled.
+     */
+    private static void testInvalidConstraints() throws Exception {
+        System.out.println("\n=== Testing Invalid Constraints ===");
+        
+        String[] invalid = {"$.type ==", "($.a == 1", "$.a == 'open", "$. == 1", "$.a == 1 )", "# == 1"};
+        for (String constraint : invalid) {
+            try {
+                Filter.compile(constraint);
+                throw new AssertionError("Constraint should have been rejected: " + constraint);
+            } catch (InvalidConstraint e) {
+                System.out.println("Rejected: " + e.getMessage());
+            }
+        }
+        
+        System.out.println("Invalid constraints test passed");
+    }
+    
+    /**
+     * Tests that a push consumer only receives the events accepted by its proxy's filters.
+     */
+    private static void testPushSupplierFilter() throws Exception {
+        System.out.println("\n=== Testing Push Supplier Filter ===");
+        
+        EventChannel channel = EventChannelFactory.getInstance().createEventChannel();
+        
+        ProxyPushSupplier filtered = channel.for_consumers().obtain_push_supplier();
+        filtered.add_filter(Filter.compile("$ >= 90"));
+        EventChannelDispatchTest.CountingPushConsumer filteredConsumer = new EventChannelDispatchTest.CountingPushConsumer(10);
+        filtered.connect_push_consumer(filteredConsumer);
+        
+        EventChannelDispatchTest.CountingPushConsumer allConsumer = new EventChannelDispatchTest.CountingPushConsumer(100);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(allConsumer);
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new EventChannelDispatchTest.NoOpPushSupplier());
+        
+        for (int i = 0; i < 50; i++) {
+            proxyConsumer.push(i);
+        }
+        proxyConsumer.push_batch(Arrays.<Object>asList(50, 90, 51, 91));
+        for (int i = 52; i < 100; i++) {
+            if (i != 90 && i != 91) {
+                proxyConsumer.push(i);
+            }
+        }
+        
+        if (!allConsumer.await(WAIT_TIMEOUT_SECONDS) || !filteredConsumer.await(WAIT_TIMEOUT_SECONDS)) {
+            throw new AssertionError("Not all expected events were delivered");
+        }
+        Thread.sleep(100);
+        
+        List<Object> received = filteredConsumer.getReceived();
+        for (Object event : received) {
+            if ((Integer) event < 90) {
+                throw new AssertionError("Filtered consumer received rejected event " + event);
+            }
+        }
+        if (received.size() != 10) {
+            throw new AssertionError("Filtered consumer received " + received.size() + " events instead of 10");
+        }
+        
+        int id = filtered.get_all_filters()[0];
+        if (!"$ >= 90".equals(filtered.get_filter(id).constraint())) {
+            throw new AssertionError("get_filter returned the wrong filter");
+        }
+        filtered.remove_filter(id);
+        try {
+            filtered.remove_filter(id);
+            throw new AssertionError("Removing a detached filter should fail");
+        } catch (FilterNotFound e) {
+            // Expected
+        }
+        
+        System.out.println("Filtered consumer received only the " + received.size() + " matching events");
+        
+        channel.destroy();
+        System.out.println("Push supplier filter test passed");
+    }
+    
+    /**
+     * Tests that pull consumers only retrieve accepted events, with both pull storages.
+     */
+    private static void testPullSupplierFilter() throws Exception {
+        System.out.println("\n=== Testing Pull Supplier Filter ===");
+        
+        for (PullStorage storage : PullStorage.values()) {
+            EventChannel channel = EventChannelFactory.getInstance().createEventChannel(
+                    new EventChannelConfig().setPullStorage(storage));
+            
+            ProxyPullSupplier even = channel.for_consumers().obtain_pull_supplier();
+            even.add_filter(Filter.compile("$.parity == 'even'"));
+            even.connect_pull_consumer(new EventChannelDispatchTest.NoOpPullConsumer());
+            
+            ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+            proxyConsumer.connect_push_supplier(new EventChannelDispatchTest.NoOpPushSupplier());
+            
+            for (int i = 0; i < 100; i++) {
+                Map<String, Object> event = new HashMap<>();
+                event.put("n", i);
+                event.put("parity", i % 2 == 0 ? "even" : "odd");
+                proxyConsumer.push(event);
+            }
+            
+            List<Object> pulled = new ArrayList<>();
+            while (pulled.size() < 50) {
+                List<Object> events = even.pull_n(100, TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS));
+                if (events.isEmpty()) {
+                    throw new AssertionError(storage + ": pull_n timed out after " + pulled.size() + " events");
+                }
+                pulled.addAll(events);
+            }
+            
+            for (int i = 0; i < pulled.size(); i++) {
+                Object n = ((Map<?, ?>) pulled.get(i)).get("n");
+                if (!Integer.valueOf(i * 2).equals(n)) {
+                    throw new AssertionError(storage + ": expected event " + (i * 2) + " but pulled " + n);
+                }
+            }
+            
+            System.out.println(storage + ": pulled the 50 even events in order");
+            channel.destroy();
+        }
+        
+        System.out.println("Pull supplier filter test passed");
+    }
+    
+    /**
+     * Tests that admin filters apply to every proxy, combined with the proxy's own filters.
+     */
+    private static void testAdminFilter() throws Exception {
+        System.out.println("\n=== Testing Admin Filter ===");
+        
+        EventChannel channel = EventChannelFactory.getInstance().createEventChannel();
+        channel.for_consumers().add_filter(Filter.compile("$ < 50"));
+        
+        ProxyPullSupplier all = channel.for_consumers().obtain_pull_supplier();
+        all.connect_pull_consumer(new EventChannelDispatchTest.NoOpPullConsumer());
+        ProxyPullSupplier low = channel.for_consumers().obtain_pull_supplier();
+        low.add_filter(Filter.compile("$ < 10"));
+        low.add_filter(Filter.compile("$ == 42"));
+        low.connect_pull_consumer(new EventChannelDispatchTest.NoOpPullConsumer());
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new EventChannelDispatchTest.NoOpPushSupplier());
+        for (int i = 0; i < 100; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        List<Object> allEvents = pullAll(all, 50);
+        List<Object> lowEvents = pullAll(low, 11);
+        if (!Integer.valueOf(49).equals(allEvents.get(49)) || !Integer.valueOf(42).equals(lowEvents.get(10))) {
+            throw new AssertionError("Admin and proxy filters were not combined correctly");
+        }
+        
+        BooleanHolder hasEvent = new BooleanHolder();
+        if (!all.try_pull_n(100, hasEvent).isEmpty() || !low.try_pull_n(100, hasEvent).isEmpty()) {
+            throw new AssertionError("Events rejected by the admin filter were queued");
+        }
+        
+        System.out.println("Admin filter passed 50 events, proxy filters narrowed them to 11");
+        
+        channel.destroy();
+        System.out.println("Admin filter test passed");
+    }
+    
+    /**
+     * Tests that a constraint attached to many proxies is evaluated once per event, by the queue
+     * dispatcher for single events and batches, and by the concurrent dispatchers of a partitioned channel.
+     */
+    private static void testDistinctFilterEvaluatedOnce() throws Exception {
+        System.out.println("\n=== Testing Distinct Filter Evaluation ===");
+        
+        assertEvaluatedOnce(new EventChannelConfig(), false);
+        assertEvaluatedOnce(new EventChannelConfig(), true);
+        assertEvaluatedOnce(new EventChannelConfig().setDispatcherMode(DispatcherMode.PARTITIONED).setDispatchPartitions(4), false);
+        
+        System.out.println("Distinct filter evaluation test passed");
+    }
+    
+    /**
+     * Pushes events through a channel whose proxies all filter on the same constraint,
+     * and checks that the constraint was evaluated once per event.
+     */
+    private static void assertEvaluatedOnce(EventChannelConfig config, boolean batched) throws Exception {
+        EventChannel channel = EventChannelFactory.getInstance().createEventChannel(config);
+        
+        int consumerCount = 20;
+        int eventCount = 1000;
+        EventChannelDispatchTest.CountingPushConsumer[] consumers = new EventChannelDispatchTest.CountingPushConsumer[consumerCount];
+        for (int i = 0; i < consumerCount; i++) {
+            ProxyPushSupplier proxySupplier = channel.for_consumers().obtain_push_supplier();
+            // Each proxy compiles its own copy of the same constraint
+            proxySupplier.add_filter(Filter.compile("$.bid >= 0"));
+            consumers[i] = new EventChannelDispatchTest.CountingPushConsumer(eventCount);
+            proxySupplier.connect_push_consumer(consumers[i]);
+        }
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new EventChannelDispatchTest.NoOpPushSupplier());
+        
+        Quote.reads.set(0);
+        for (int i = 0; i < eventCount; i += batched ? 10 : 1) {
+            if (batched) {
+                Object[] batch = new Object[10];
+                for (int j = 0; j < batch.length; j++) {
+                    batch[j] = new Quote("Q", i + j);
+                }
+                proxyConsumer.push_batch(batch);
+            } else {
+                proxyConsumer.push(new Quote("Q", i));
+            }
+        }
+        
+        for (EventChannelDispatchTest.CountingPushConsumer consumer : consumers) {
+            if (!consumer.await(WAIT_TIMEOUT_SECONDS)) {
+                throw new AssertionError("Not all events passed the filter");
+            }
+        }
+        if (Quote.reads.get() != eventCount) {
+            throw new AssertionError("Filter was evaluated " + Quote.reads.get() + " times for " + eventCount + " events");
+        }
+        
+        System.out.println("Filter shared by " + consumerCount + " proxies was evaluated " + Quote.reads.get()
+                + " times for " + eventCount + (batched ? " batched" : "") + " events in " + config.getDispatcherMode() + " mode");
+        
+        channel.destroy();
+    }
+    
+    /**
+     * Compiles a constraint and checks its result for an event.
+     */
+    private static void assertMatch(String constraint, Object event, boolean expected) throws InvalidConstraint {
+        if (Filter.compile(constraint).match(event) != expected) {
+            throw new AssertionError("Constraint '" + constraint + "' should evaluate to " + expected);
+        }
+    }
+    
+    /**
+     * Pulls the specified number of events, failing if they do not arrive in time.
+     */
+    private static List<Object> pullAll(ProxyPullSupplier proxySupplier, int count) throws Disconnected {
+        List<Object> pulled = new ArrayList<>();
+        while (pulled.size() < count) {
+            List<Object> events = proxySupplier.pull_n(count - pulled.size(), TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS));
+            if (events.isEmpty()) {
+                throw new AssertionError("pull_n timed out after " + pulled.size() + " events");
+            }
+            pulled.addAll(events);
+        }
+        return pulled;
+    }
+    
+    /**
+     * Event bean whose getter counts how often filters read it.
+     */
+    public static class Quote {
+        static final AtomicInteger reads = new AtomicInteger();
+        
+        private final String symbol;
+        private final int bid;
+        
+        public Quote(String symbol, int bid) {
+            this.symbol = symbol;
+            this.bid = bid;
+        }
+        
+        public String getSymbol() {
+            return symbol;
+        }
+        
+        public int getBid() {
+            reads.incrementAndGet();
+            return bid;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.metricstream.omg.test;
+
+import com.metricstream.omg.event.*;
+import com.metricstream.omg.eventchannel.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing platform and virtual thread execution modes with slow push consumers.
+ * Each consumer sleeps in {@code push} to simulate blocking I/O. The benchmark reports the
+ * time to deliver every event and the peak number of live platform threads.
+ * 
+ * Usage: ExecutionModeBenchmark [consumers] [events] [blockMillis]
+ */
+public class ExecutionModeBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        int consumers = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long blockMillis = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        
+        System.out.println("Starting ExecutionModeBenchmark with " + consumers + " consumers, "
+                + events + " events, " + blockMillis + " ms blocking per push...");
+        
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            if (mode == ExecutionMode.VIRTUAL_THREADS && !EventChannelFactory.getInstance().isVirtualThreadSupported()) {
+                System.out.println("\n" + mode + ": skipped, virtual threads are not supported by this JVM");
+                continue;
+            }
+            run(mode, consumers, events, blockMillis);
+        }
+    }
+    
+    /**
+     * Runs one benchmark round in the specified mode.
+     */
+    private static void run(ExecutionMode mode, int consumers, int events, final long blockMillis) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        
+        EventChannel channel = EventChannelFactory.getInstance().createEventChannel(
+                new EventChannelConfig().setExecutionMode(mode));
+        
+        final CountDownLatch delivered = new CountDownLatch(consumers * events);
+        for (int i = 0; i < consumers; i++) {
+            channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+                @Override
+                public void push(Object data) throws Disconnected {
+                    try {
+                        Thread.sleep(blockMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    delivered.countDown();
+                }
+                
+                @Override
+                public void disconnect_push_consumer() {
+                    // Nothing to clean up
+                }
+            });
+        }
+        
+        ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new PushSupplier() {
+            @Override
+            public void disconnect_push_supplier() {
+                // Nothing to clean up
+            }
+        });
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            proxyConsumer.push(i);
+        }
+        
+        boolean completed = delivered.await(5, TimeUnit.MINUTES);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        System.out.println("\n" + mode + ":");
+        System.out.println("  completed:             " + completed);
+        System.out.println("  elapsed:               " + elapsedMillis + " ms");
+        System.out.println("  peak platform threads: " + threads.getPeakThreadCount());
+        
+        channel.destroy();
+    }
+}
@@ -0,0 +1,119 @@
+package com.metricstream.omg.test;
+
+import com.metricstream.omg.event.*;
+import com.metricstream.omg.eventchannel.*;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark measuring the latency of high-priority events while the low-priority lane is flooded.
+ * A supplier thread pushes low-priority events as fast as it can to a consumer that spends a
+ * fixed time on each event, so a backlog builds up, while the main thread pushes a high-priority
+ * event every millisecond. The benchmark reports the delivery latency percentiles of the
+ * high-priority events with a single FIFO lane and with strict and weighted fair scheduling.
+ * 
+ * Usage: PriorityLaneBenchmark [lowEvents] [highEvents] [workMicros]
+ */
+public class PriorityLaneBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        int lowEvents = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int highEvents = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long workMicros = args.length > 2 ? Long.parseLong(args[2]) : 5;
+        
+        System.out.println("Starting PriorityLaneBenchmark with " + lowEvents + " low-priority events, "
+                + highEvents + " high-priority events, " + workMicros + " us of work per event...");
+        
+        run("FIFO", new EventChannelConfig(), lowEvents, highEvents, workMicros);
+        run("STRICT", new EventChannelConfig()
+                .setPriorityLanes(2), lowEvents, highEvents, workMicros);
+        run("WEIGHTED_FAIR", new EventChannelConfig()
+                .setPriorityLanes(2)
+                .setPriorityScheduling(PriorityScheduling.WEIGHTED_FAIR)
+                .setPriorityWeights(1, 8), lowEvents, highEvents, workMicros);
+    }
+    
+    /**
+     * Runs one benchmark round with the specified channel configuration.
+     */
+    private static void run(String name, EventChannelConfig config, final int lowEvents, int highEvents,
+            long workMicros) throws Exception {
+        EventChannel channel = EventChannelFactory.getInstance().createEventChannel(config);
+        
+        final long workNanos = TimeUnit.MICROSECONDS.toNanos(workMicros);
+        final long[] latencies = new long[highEvents];
+        final CountDownLatch delivered = new CountDownLatch(lowEvents + highEvents);
+        channel.for_consumers().obtain_push_supplier().connect_push_consumer(new PushConsumer() {
+            @Override
+            public void push(Object data) throws Disconnected {
+                long now = System.nanoTime();
+                if (data instanceof long[]) {
+                    long[] event = (long[]) data;
+                    latencies[(int) event[0]] = now - event[1];
+                }
+                while (System.nanoTime() - now < workNanos) {
+                    // Simulate processing
+                }
+                delivered.countDown();
+            }
+            
+            @Override
+            public void disconnect_push_consumer() {
+                // Nothing to clean up
+            }
+        });
+        
+        final ProxyPushConsumer proxyConsumer = channel.for_suppliers().obtain_push_consumer();
+        proxyConsumer.connect_push_supplier(new PushSupplier() {
+            @Override
+            public void disconnect_push_supplier() {
+                // Nothing to clean up
+            }
+        });
+        
+        Thread flooder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < lowEvents; i++) {
+                        proxyConsumer.push(i, 0);
+                    }
+                } catch (Disconnected e) {
+                    System.err.println("Error flooding the low-priority lane: " + e.getMessage());
+                }
+            }
+        }, "priority-benchmark-flooder");
+        
+        long start = System.nanoTime();
+        flooder.start();
+        Thread.sleep(20);
+        for (int i = 0; i < highEvents; i++) {
+            proxyConsumer.push(new long[] { i, System.nanoTime() }, 1);
+            Thread.sleep(1);
+        }
+        
+        flooder.join();
+        boolean completed = delivered.await(5, TimeUnit.MINUTES);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        Arrays.sort(latencies);
+        System.out.println("\n" + name + ":");
+        System.out.println("  completed:         " + completed);
+        System.out.println("  elapsed:           " + elapsedMillis + " ms");
+        System.out.println("  high latency p50:  " + micros(latencies, 0.50) + " us");
+        System.out.println("  high latency p99:  " + micros(latencies, 0.99) + " us");
+        System.out.println("  high latency max:  " + micros(latencies, 1.0) + " us");
+        
+        channel.destroy();
+    }
+    
+    /**
+     * Gets a percentile of sorted latencies in microseconds.
+     */
+    private static long micros(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return TimeUnit.NANOSECONDS.toMicros(sortedNanos[Math.max(index, 0)]);
+    }
+}
@@ -0,0 +1,301 @@
+package com.metricstream.omg.test;
+
+import com.metricstream.omg.event.*;
+import com.metricstream.omg.eventchannel.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Test class for verifying typed event channels.
+ */
+public class TypedEventChannelTest {
+    
+    private static final int WAIT_TIMEOUT_SECONDS = 5;
+    private static final String LISTENER = PriceListener.class.getName();
+    
+    public static void main(String[] args) {
+        System.out.println("Starting TypedEventChannelTest...");
+        
+        try {
+            testTypedPush();
+            testUntypedTrafficIsSeparate();
+            testUnsupportedInterfaces();
+            testTypedChannelMetrics();
+            
+            System.out.println("\nAll TypedEventChannelTest tests passed successfully!");
+        } catch (Exception e) {
+            System.err.println("\nTypedEventChannelTest failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Tests that calls on the typed consumer reach every typed push consumer in order.
+     */
+    private static void testTypedPush() throws Exception {
+        System.out.println("\n=== Testing Typed Push ===");
+        
+        TypedEventChannel channel = EventChannelFactory.getInstance().createTypedEventChannel();
+        try {
+            RecordingListener first = new RecordingListener(101);
+            RecordingListener second = new RecordingListener(101);
+            channel.for_consumers().obtain_typed_push_supplier(LISTENER).connect_push_consumer(first);
+            channel.for_consumers().obtain_typed_push_supplier(LISTENER).connect_push_consumer(second);
+            
+            TypedProxyPushConsumer proxy = channel.for_suppliers().obtain_typed_push_consumer(LISTENER);
+            proxy.connect_push_supplier(new NoOpPushSupplier());
+            PriceListener prices = (PriceListener) proxy.get_typed_consumer();
+            
+            for (int i = 0; i < 100; i++) {
+                prices.priceChanged("ACME", i);
+            }
+            prices.marketClosed();
+            
+            first.await();
+            second.await();
+            for (RecordingListener listener : new RecordingListener[] { first, second }) {
+                for (int i = 0; i < 100; i++) {
+                    String expected = "ACME=" + (double) i;
+                    if (!expected.equals(listener.calls.get(i))) {
+                        throw new AssertionError("Expected " + expected + " but got " + listener.calls.get(i));
+                    }
+                }
+                if (!"closed".equals(listener.calls.get(100))) {
+                    throw new AssertionError("Expected the market close call last");
+                }
+            }
+            
+            proxy.disconnect_push_consumer();
+            try {
+                prices.marketClosed();
+                throw new AssertionError("Calls on a disconnected typed consumer should fail");
+            } catch (IllegalStateException e) {
+                System.out.println("Correctly rejected a call after disconnection");
+            }
+            
+            System.out.println("Typed calls delivered to both consumers in order");
+            System.out.println("Typed push test passed");
+        } finally {
+            channel.destroy();
+        }
+    }
+    
+    /**
+     * Tests that untyped events do not reach typed consumers and vice versa.
+     */
+    private static void testUntypedTrafficIsSeparate() throws Exception {
+        System.out.println("\n=== Testing Untyped Traffic ===");
+        
+        TypedEventChannel channel = EventChannelFactory.getInstance().createTypedEventChannel();
+        try {
+            RecordingListener typed = new RecordingListener(1);
+            channel.for_consumers().obtain_typed_push_supplier(LISTENER).connect_push_consumer(typed);
+            ProxyPullSupplier untyped = channel.for_consumers().obtain_pull_supplier();
+            untyped.connect_pull_consumer(new NoOpPullConsumer());
+            
+            TypedProxyPushConsumer proxy = channel.for_suppliers().obtain_typed_push_consumer(LISTENER);
+            proxy.connect_push_supplier(new NoOpPushSupplier());
+            proxy.push("untyped");
+            ((PriceListener) proxy.get_typed_consumer()).priceChanged("ACME", 1);
+            
+            typed.await();
+            BooleanHolder hasEvent = new BooleanHolder();
+            Object event = null;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WAIT_TIMEOUT_SECONDS);
+            while (!hasEvent.value && System.nanoTime() < deadline) {
+                event = untyped.try_pull(hasEvent);
+            }
+            if (!"untyped".equals(event)) {
+                throw new AssertionError("Untyped consumer should receive the untyped event, got " + event);
+            }
+            
+            Thread.sleep(100);
+            if (typed.calls.size() != 1 || untyped.try_pull(hasEvent) != null) {
+                throw new AssertionError("Typed and untyped events should not be mixed");
+            }
+            
+            System.out.println("Typed and untyped events kept apart");
+            System.out.println("Untyped traffic test passed");
+        } finally {
+            channel.destroy();
+        }
+    }
+    
+    /**
+     * Tests that a typed channel publishes the metrics of its untyped and interface channels
+     * until it is destroyed.
+     */
+    private static void testTypedChannelMetrics() throws Exception {
+        System.out.println("\n=== Testing Typed Channel Metrics ===");
+        
+        TypedEventChannel channel = EventChannelFactory.getInstance().createTypedEventChannel(
+                new EventChannelConfig().setMetricsName("typed-test"));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName untypedName = new ObjectName("com.metricstream.omg:type=EventChannel,name=typed-test");
+        ObjectName typedName = new ObjectName("com.metricstream.omg:type=EventChannel,name=typed-test,interface="
+                + ObjectName.quote(LISTENER));
+        try {
+            RecordingListener listener = new RecordingListener(10);
+            channel.for_consumers().obtain_typed_push_supplier(LISTENER).connect_push_consumer(listener);
+            TypedProxyPushConsumer proxy = channel.for_suppliers().obtain_typed_push_consumer(LISTENER);
+            proxy.connect_push_supplier(new NoOpPushSupplier());
+            PriceListener prices = (PriceListener) proxy.get_typed_consumer();
+            for (int i = 0; i < 10; i++) {
+                prices.priceChanged("ACME", i);
+            }
+            listener.await();
+            
+            if (!server.isRegistered(untypedName)) {
+                throw new AssertionError("Metrics of the untyped channel are not published");
+            }
+            if (!Long.valueOf(10).equals(server.getAttribute(typedName, "PushedEventCount"))) {
+                throw new AssertionError("Interface channel MXBean reports "
+                        + server.getAttribute(typedName, "PushedEventCount") + " pushed events");
+            }
+            System.out.println("Published " + untypedName + " and " + typedName);
+        } finally {
+            channel.destroy();
+        }
+        
+        if (server.isRegistered(untypedName) || server.isRegistered(typedName)) {
+            throw new AssertionError("Metrics of a destroyed typed channel are still published");
+        }
+        System.out.println("Typed channel metrics test passed");
+    }
+    
+    /**
+     * Tests that interfaces which cannot carry typed events are rejected.
+     */
+    private static void testUnsupportedInterfaces() throws Exception {
+        System.out.println("\n=== Testing Unsupported Interfaces ===");
+        
+        TypedEventChannel channel = EventChannelFactory.getInstance().createTypedEventChannel();
+        try {
+            String[] invalid = { "com.example.DoesNotExist", QuoteSource.class.getName(), String.class.getName() };
+            for (String name : invalid) {
+                try {
+                    channel.for_suppliers().obtain_typed_push_consumer(name);
+                    throw new AssertionError("Interface " + name + " should not be supported");
+                } catch (InterfaceNotSupported e) {
+                    System.out.println("Correctly rejected " + name + ": " + e.getMessage());
+                }
+                try {
+                    channel.for_consumers().obtain_typed_push_supplier(name);
+                    throw new AssertionError("Interface " + name + " should have no implementation");
+                } catch (NoSuchImplementation e) {
+                    // Expected
+                }
+            }
+            
+            try {
+                channel.for_consumers().obtain_typed_push_supplier(LISTENER).connect_push_consumer(new PushConsumer() {
+                    @Override
+                    public void push(Object data) {
+                        // Never called
+                    }
+                    
+                    @Override
+                    public void disconnect_push_consumer() {
+                        // Nothing to clean up
+                    }
+                });
+                throw new AssertionError("An untyped consumer should be rejected");
+            } catch (IllegalArgumentException e) {
+                System.out.println("Correctly rejected an untyped consumer");
+            }
+            
+            System.out.println("Unsupported interfaces test passed");
+        } finally {
+            channel.destroy();
+        }
+    }
+    
+    /**
+     * Typed interface used by the tests.
+     */
+    public interface PriceListener {
+        void priceChanged(String symbol, double price);
+        
+        void marketClosed();
+    }
+    
+    /**
+     * Interface with a return value, which cannot carry typed events.
+     */
+    public interface QuoteSource {
+        double quote(String symbol);
+    }
+    
+    /**
+     * Typed push consumer recording the calls it receives.
+     */
+    private static class RecordingListener implements TypedPushConsumer, PriceListener {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        private final CountDownLatch done;
+        
+        RecordingListener(int expectedCalls) {
+            this.done = new CountDownLatch(expectedCalls);
+        }
+        
+        @Override
+        public Object get_typed_consumer() {
+            return this;
+        }
+        
+        @Override
+        public void priceChanged(String symbol, double price) {
+            calls.add(symbol + "=" + price);
+            done.countDown();
+        }
+        
+        @Override
+        public void marketClosed() {
+            calls.add("closed");
+            done.countDown();
+        }
+        
+        @Override
+        public void push(Object data) {
+            throw new AssertionError("Typed consumers should not receive untyped events");
+        }
+        
+        @Override
+        public void disconnect_push_consumer() {
+            // Nothing to clean up
+        }
+        
+        void await() throws InterruptedException {
+            if (!done.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new AssertionError("Timed out waiting for typed calls, got " + calls.size());
+            }
+        }
+    }
+    
+    /**
+     * Push supplier with nothing to clean up.
+     */
+    private static class NoOpPushSupplier implements PushSupplier {
+        @Override
+        public void disconnect_push_supplier() {
+            // Nothing to clean up
+        }
+    }
+    
+    /**
+     * Pull consumer with nothing to clean up.
+     */
+    private static class NoOpPullConsumer implements PullConsumer {
+        @Override
+        public void disconnect_pull_consumer() {
+            // Nothing to clean up
+        }
+    }
+}